@@ -54,10 +54,10 @@ public class Config extends AbstractConfig {
             readProperties();
             boolean usingServer = DateTimeUtil.updateSettings(getProperty(ConfigParam.TIME_SERVER),
                     getIntegerProperty(ConfigParam.TIME_SERVER_PORT));
-            // if DateTimeUtil is using a server update the time at least every second.
+            // if DateTimeUtil is using a server synchronize the local clock with it every second.
             if (usingServer) {
                 LOGGER.info("Running in TimeServer mode");
-                updateTimeExecutor.scheduleAtFixedRate(DateTimeUtil::getCurrentDate, 1, 1, TimeUnit.SECONDS);
+                updateTimeExecutor.scheduleAtFixedRate(DateTimeUtil::synchronizeWithTimeServer, 1, 1, TimeUnit.SECONDS);
             } else {
                 LOGGER.info("Running in system time mode");
             }
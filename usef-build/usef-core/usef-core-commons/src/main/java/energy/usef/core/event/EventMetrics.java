@@ -0,0 +1,274 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package energy.usef.core.event;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+
+/**
+ * Keeps track of the CDI events exchanged between the coordinators. Every {@link MonitoredEvent} is registered when it is fired, and the
+ * handlers intercepted by the {@link EventMonitoringInterceptor} register when they start and end handling it. This gives, per
+ * event type, the throughput, the latency between firing and the end of the handling and the number of events still waiting for
+ * a handler.
+ * <p>
+ * The fire time of an event is kept as long as the event object is referenced, so that every handler of the same event measures
+ * its latency from the same moment.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class EventMetrics {
+
+    static final int LATENCY_SAMPLE_SIZE = 1024;
+
+    private final ConcurrentMap<Class<?>, EventTypeMetrics> metricsPerEventType = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EventReference, FiredEvent> firedEvents = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collectedEvents = new ReferenceQueue<>();
+
+    /**
+     * Registers the firing of an event. Observes the monitored events synchronously, so this is called in the thread firing the
+     * event before any (transactional or asynchronous) handler is invoked.
+     *
+     * @param event the fired {@link MonitoredEvent}.
+     */
+    public void recordFired(@Observes MonitoredEvent event) {
+        expungeCollectedEvents();
+        EventTypeMetrics metrics = findOrCreateMetrics(event.getClass());
+        metrics.fired.incrementAndGet();
+        metrics.pending.incrementAndGet();
+        FiredEvent previous = firedEvents.put(new EventReference(event, collectedEvents), new FiredEvent(metrics, System.nanoTime()));
+        if (previous != null && previous.pickUp()) {
+            // the same event object has been fired again before any handler picked it up.
+            metrics.pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Registers the start of the handling of an event.
+     *
+     * @param event the handled event.
+     * @param startedAt the {@link System#nanoTime()} at which the handling started.
+     * @return the {@link System#nanoTime()} at which the event was fired, or <code>startedAt</code> if it is unknown.
+     */
+    public long recordStarted(Object event, long startedAt) {
+        EventTypeMetrics metrics = findOrCreateMetrics(event.getClass());
+        metrics.monitored = true;
+        metrics.inProgress.incrementAndGet();
+        FiredEvent firedEvent = firedEvents.get(new EventReference(event));
+        if (firedEvent == null) {
+            return startedAt;
+        }
+        if (firedEvent.pickUp()) {
+            metrics.pending.decrementAndGet();
+            metrics.totalQueueTime.addAndGet(startedAt - firedEvent.firedAt);
+            metrics.pickedUp.incrementAndGet();
+        }
+        return firedEvent.firedAt;
+    }
+
+    /**
+     * Registers the end of the handling of an event.
+     *
+     * @param eventType the type of the handled event.
+     * @param firedAt the {@link System#nanoTime()} at which the event was fired.
+     * @param startedAt the {@link System#nanoTime()} at which the handling started.
+     * @param succeeded whether the handler completed without throwing an exception.
+     */
+    public void recordEnded(Class<?> eventType, long firedAt, long startedAt, boolean succeeded) {
+        long endedAt = System.nanoTime();
+        EventTypeMetrics metrics = findOrCreateMetrics(eventType);
+        metrics.inProgress.decrementAndGet();
+        if (succeeded) {
+            metrics.handled.incrementAndGet();
+        } else {
+            metrics.failed.incrementAndGet();
+        }
+        metrics.totalHandlingTime.addAndGet(endedAt - startedAt);
+        long sample = metrics.latencySamples.getAndIncrement();
+        metrics.latencies.set((int) (sample % LATENCY_SAMPLE_SIZE), endedAt - firedAt);
+    }
+
+    /**
+     * Builds a snapshot of the statistics of every event type which has been handled by a monitored handler, sorted by event
+     * type.
+     *
+     * @return a {@link List} of {@link EventStatistics}.
+     */
+    public List<EventStatistics> getStatistics() {
+        expungeCollectedEvents();
+        long now = System.nanoTime();
+        List<EventStatistics> result = new ArrayList<>();
+        for (EventTypeMetrics metrics : metricsPerEventType.values()) {
+            if (metrics.monitored) {
+                result.add(buildStatistics(metrics, now));
+            }
+        }
+        result.sort(Comparator.comparing(EventStatistics::getEventType));
+        return result;
+    }
+
+    private EventStatistics buildStatistics(EventTypeMetrics metrics, long now) {
+        long handled = metrics.handled.get();
+        long failed = metrics.failed.get();
+        long completed = handled + failed;
+        long pickedUp = metrics.pickedUp.get();
+
+        int samples = (int) Math.min(metrics.latencySamples.get(), LATENCY_SAMPLE_SIZE);
+        long[] latencies = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            latencies[i] = metrics.latencies.get(i);
+        }
+        Arrays.sort(latencies);
+
+        EventStatistics statistics = new EventStatistics(metrics.eventType.getSimpleName());
+        statistics.setFired(metrics.fired.get());
+        statistics.setHandled(handled);
+        statistics.setFailed(failed);
+        statistics.setPending(metrics.pending.get());
+        statistics.setInProgress(metrics.inProgress.get());
+        statistics.setThroughputPerMinute(completed * TimeUnit.MINUTES.toNanos(1) / (double) Math.max(1L, now - metrics.createdAt));
+        statistics.setMeanQueueTimeMillis(pickedUp == 0 ? 0L : toMillis(metrics.totalQueueTime.get() / pickedUp));
+        statistics.setMeanHandlingTimeMillis(completed == 0 ? 0L : toMillis(metrics.totalHandlingTime.get() / completed));
+        statistics.setLatencyMillisP50(toMillis(percentile(latencies, 50)));
+        statistics.setLatencyMillisP95(toMillis(percentile(latencies, 95)));
+        statistics.setLatencyMillisP99(toMillis(percentile(latencies, 99)));
+        statistics.setLatencyMillisMax(samples == 0 ? 0L : toMillis(latencies[samples - 1]));
+        return statistics;
+    }
+
+    private static long percentile(long[] sortedValues, int percentile) {
+        if (sortedValues.length == 0) {
+            return 0L;
+        }
+        int index = (int) Math.ceil(percentile / 100d * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, index)];
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private EventTypeMetrics findOrCreateMetrics(Class<?> eventType) {
+        return metricsPerEventType.computeIfAbsent(eventType, EventTypeMetrics::new);
+    }
+
+    /**
+     * Forgets the events which are no longer referenced. The ones which have never been picked up by a monitored handler are
+     * no longer counted as pending.
+     */
+    private void expungeCollectedEvents() {
+        Reference<?> reference;
+        while ((reference = collectedEvents.poll()) != null) {
+            FiredEvent firedEvent = firedEvents.remove(reference);
+            if (firedEvent != null && firedEvent.pickUp()) {
+                firedEvent.metrics.pending.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Counters of a single event type.
+     */
+    private static final class EventTypeMetrics {
+        private final Class<?> eventType;
+        private final long createdAt = System.nanoTime();
+        private final AtomicLong fired = new AtomicLong();
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicLong inProgress = new AtomicLong();
+        private final AtomicLong pickedUp = new AtomicLong();
+        private final AtomicLong handled = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong totalQueueTime = new AtomicLong();
+        private final AtomicLong totalHandlingTime = new AtomicLong();
+        private final AtomicLong latencySamples = new AtomicLong();
+        private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_SAMPLE_SIZE);
+        private volatile boolean monitored;
+
+        private EventTypeMetrics(Class<?> eventType) {
+            this.eventType = eventType;
+        }
+    }
+
+    /**
+     * The moment an event has been fired.
+     */
+    private static final class FiredEvent {
+        private final EventTypeMetrics metrics;
+        private final long firedAt;
+        private final AtomicBoolean pickedUp = new AtomicBoolean();
+
+        private FiredEvent(EventTypeMetrics metrics, long firedAt) {
+            this.metrics = metrics;
+            this.firedAt = firedAt;
+        }
+
+        /**
+         * @return <code>true</code> only for the first call.
+         */
+        private boolean pickUp() {
+            return pickedUp.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Weak reference to an event, comparing the referenced events by identity.
+     */
+    private static final class EventReference extends WeakReference<Object> {
+        private final int hashCode;
+
+        private EventReference(Object event) {
+            super(event);
+            this.hashCode = System.identityHashCode(event);
+        }
+
+        private EventReference(Object event, ReferenceQueue<Object> queue) {
+            super(event, queue);
+            this.hashCode = System.identityHashCode(event);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof EventReference)) {
+                return false;
+            }
+            Object event = get();
+            return event != null && event == ((EventReference) other).get();
+        }
+    }
+}
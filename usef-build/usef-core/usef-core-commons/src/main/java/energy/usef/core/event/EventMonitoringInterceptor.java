@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package energy.usef.core.event;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Interceptor registering the handling of CDI events in the {@link EventMetrics}. To be added with
+ * <code>@Interceptors(EventMonitoringInterceptor.class)</code> on the coordinators observing events. Only the methods with an
+ * {@link Observes} parameter are measured, the other methods are invoked as is.
+ * <p>
+ * For an asynchronous observer, the interceptor is invoked once the container picks up the invocation, so the time between the
+ * firing of the event and the start of the handling includes the time spent in the asynchronous queue.
+ */
+public class EventMonitoringInterceptor {
+
+    private static final int NOT_AN_OBSERVER = -1;
+    private static final ConcurrentMap<Method, Integer> EVENT_PARAMETER_INDEXES = new ConcurrentHashMap<>();
+
+    @Inject
+    private EventMetrics eventMetrics;
+
+    /**
+     * Measures the handling of the event if the invoked method is an observer method.
+     *
+     * @param context {@link InvocationContext}.
+     * @return the result of the invocation.
+     * @throws Exception if the invoked method throws an exception.
+     */
+    @AroundInvoke
+    public Object monitorEvent(InvocationContext context) throws Exception {
+        int eventParameterIndex = EVENT_PARAMETER_INDEXES.computeIfAbsent(context.getMethod(),
+                EventMonitoringInterceptor::findEventParameterIndex);
+        if (eventParameterIndex == NOT_AN_OBSERVER || context.getParameters()[eventParameterIndex] == null) {
+            return context.proceed();
+        }
+        Object event = context.getParameters()[eventParameterIndex];
+        long startedAt = System.nanoTime();
+        long firedAt = eventMetrics.recordStarted(event, startedAt);
+        boolean succeeded = false;
+        try {
+            Object result = context.proceed();
+            succeeded = true;
+            return result;
+        } finally {
+            eventMetrics.recordEnded(event.getClass(), firedAt, startedAt, succeeded);
+        }
+    }
+
+    private static int findEventParameterIndex(Method method) {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof Observes) {
+                    return i;
+                }
+            }
+        }
+        return NOT_AN_OBSERVER;
+    }
+}
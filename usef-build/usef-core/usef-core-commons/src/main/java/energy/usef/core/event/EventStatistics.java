@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package energy.usef.core.event;
+
+/**
+ * Snapshot of the statistics of an event type, built by the {@link EventMetrics}. Latency percentiles are computed over the
+ * last {@value EventMetrics#LATENCY_SAMPLE_SIZE} handled events.
+ */
+public class EventStatistics {
+
+    private final String eventType;
+    private long fired;
+    private long handled;
+    private long failed;
+    private long pending;
+    private long inProgress;
+    private double throughputPerMinute;
+    private long meanQueueTimeMillis;
+    private long meanHandlingTimeMillis;
+    private long latencyMillisP50;
+    private long latencyMillisP95;
+    private long latencyMillisP99;
+    private long latencyMillisMax;
+
+    public EventStatistics(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public long getFired() {
+        return fired;
+    }
+
+    public void setFired(long fired) {
+        this.fired = fired;
+    }
+
+    public long getHandled() {
+        return handled;
+    }
+
+    public void setHandled(long handled) {
+        this.handled = handled;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getPending() {
+        return pending;
+    }
+
+    public void setPending(long pending) {
+        this.pending = pending;
+    }
+
+    public long getInProgress() {
+        return inProgress;
+    }
+
+    public void setInProgress(long inProgress) {
+        this.inProgress = inProgress;
+    }
+
+    public double getThroughputPerMinute() {
+        return throughputPerMinute;
+    }
+
+    public void setThroughputPerMinute(double throughputPerMinute) {
+        this.throughputPerMinute = throughputPerMinute;
+    }
+
+    public long getMeanQueueTimeMillis() {
+        return meanQueueTimeMillis;
+    }
+
+    public void setMeanQueueTimeMillis(long meanQueueTimeMillis) {
+        this.meanQueueTimeMillis = meanQueueTimeMillis;
+    }
+
+    public long getMeanHandlingTimeMillis() {
+        return meanHandlingTimeMillis;
+    }
+
+    public void setMeanHandlingTimeMillis(long meanHandlingTimeMillis) {
+        this.meanHandlingTimeMillis = meanHandlingTimeMillis;
+    }
+
+    public long getLatencyMillisP50() {
+        return latencyMillisP50;
+    }
+
+    public void setLatencyMillisP50(long latencyMillisP50) {
+        this.latencyMillisP50 = latencyMillisP50;
+    }
+
+    public long getLatencyMillisP95() {
+        return latencyMillisP95;
+    }
+
+    public void setLatencyMillisP95(long latencyMillisP95) {
+        this.latencyMillisP95 = latencyMillisP95;
+    }
+
+    public long getLatencyMillisP99() {
+        return latencyMillisP99;
+    }
+
+    public void setLatencyMillisP99(long latencyMillisP99) {
+        this.latencyMillisP99 = latencyMillisP99;
+    }
+
+    public long getLatencyMillisMax() {
+        return latencyMillisMax;
+    }
+
+    public void setLatencyMillisMax(long latencyMillisMax) {
+        this.latencyMillisMax = latencyMillisMax;
+    }
+
+    @Override
+    public String toString() {
+        return "EventStatistics" + "[" +
+                "eventType='" + eventType + "'" +
+                ", fired=" + fired +
+                ", handled=" + handled +
+                ", failed=" + failed +
+                ", pending=" + pending +
+                ", inProgress=" + inProgress +
+                ", throughputPerMinute=" + throughputPerMinute +
+                ", meanQueueTimeMillis=" + meanQueueTimeMillis +
+                ", meanHandlingTimeMillis=" + meanHandlingTimeMillis +
+                ", latencyMillisP50=" + latencyMillisP50 +
+                ", latencyMillisP95=" + latencyMillisP95 +
+                ", latencyMillisP99=" + latencyMillisP99 +
+                ", latencyMillisMax=" + latencyMillisMax +
+                "]";
+    }
+}
@@ -136,6 +136,15 @@ public abstract class BaseRepository<T> {
         entityManager.merge(entity);
     }
 
+    /**
+     * Detach the entities from the persistence context, so that they are no longer tracked by the entity manager.
+     *
+     * @param entities
+     */
+    public void detach(List<? extends T> entities) {
+        entities.forEach(entityManager::detach);
+    }
+
     /**
      * Find an T object with id.
      *
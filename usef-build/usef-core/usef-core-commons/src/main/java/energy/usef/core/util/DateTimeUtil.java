@@ -41,15 +41,17 @@ public class DateTimeUtil {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DateTimeUtil.class);
 
-    // number of ms that time will be cached.
-    private static final int BUFFER_TIME = 200;
     private static final int PACKAGE_BUFFER = 128;
     private static final int RESPONSE_TIMEOUT = 100;
 
     private static final int MAX_ERROR_COUNT = 10;
-    // messages to request data
-    private static final String UDP_TIME = "TIME";
-    private static final String UDP_TIMEFACTOR = "TIMEFACTOR";
+    // message to request the time and the time factor in one response, formatted as {@code <millis>;<timeFactor>}.
+    private static final String UDP_SYNC = "SYNC";
+    private static final String UDP_SYNC_SEPARATOR = ";";
+
+    // number of (real) ms over which the offset found at a resynchronisation is smoothed into the clock.
+    private static final long SLEW_PERIOD = 1000;
+    private static final long NANOS_PER_MILLI = 1000000L;
 
     private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd";
     private static final String DEFAULT_DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
@@ -59,13 +61,13 @@ public class DateTimeUtil {
     private static volatile long timeFactor = 1;
     private static volatile int errorCount = 0;
 
-    private static boolean useServer = false;
+    private static volatile boolean useServer = false;
 
     private static String serverIp;
     private static Integer port;
 
-    private static LocalDateTime latestUDPDateTime;
-    private static LocalDateTime lastProcessed;
+    private static DatagramSocket socket;
+    private static volatile ClockAnchor clockAnchor;
 
     private DateTimeUtil() {
         // private Constructor
@@ -83,23 +85,58 @@ public class DateTimeUtil {
         if (StringUtils.isNotEmpty(serverIp) && port != null) {
             DateTimeUtil.serverIp = serverIp;
             DateTimeUtil.port = port;
+            DateTimeUtil.clockAnchor = null;
             DateTimeUtil.useServer = true;
-            boolean updatedTimeFactor = false;
-            while (!updatedTimeFactor) {
-                String udpTimeFactor = getUDPInfo(UDP_TIMEFACTOR);
-                if (udpTimeFactor != null && 0 < (DateTimeUtil.timeFactor = Long.valueOf(udpTimeFactor))) {
-                    updatedTimeFactor = true;
-                }
-            }
-            while (latestUDPDateTime != null) {
-                getTime();
+            while (clockAnchor == null) {
+                synchronizeWithTimeServer();
             }
         } else {
             DateTimeUtil.useServer = false;
+            DateTimeUtil.timeFactor = 1;
+            DateTimeUtil.clockAnchor = null;
         }
         return useServer;
     }
 
+    /**
+     * Synchronizes the local clock with the usef-time server. Between two synchronizations the time is extrapolated locally
+     * (base time plus elapsed time multiplied by the time factor). The offset found at a synchronization is smoothed into the
+     * clock over {@link #SLEW_PERIOD} ms, so the clock never jumps (or runs backwards) unless the offset is too large to be
+     * smoothed. This method should be invoked periodically when a time server is used.
+     */
+    public static synchronized void synchronizeWithTimeServer() {
+        if (!useServer) {
+            return;
+        }
+        long sentNanos = System.nanoTime();
+        String udpSync = getUDPInfo(UDP_SYNC);
+        if (udpSync == null) {
+            return;
+        }
+        // the server time is assumed to correspond to the middle of the round trip.
+        long anchorNanos = sentNanos + (System.nanoTime() - sentNanos) / 2;
+        String[] values = udpSync.split(UDP_SYNC_SEPARATOR);
+        long serverMillis = Long.parseLong(values[0]);
+        long serverTimeFactor = Long.parseLong(values[1]);
+
+        ClockAnchor current = clockAnchor;
+        ClockAnchor next;
+        if (current == null || current.timeFactor != serverTimeFactor) {
+            next = new ClockAnchor(serverMillis, anchorNanos, serverTimeFactor, 0);
+        } else {
+            long localMillis = current.getMillis(anchorNanos);
+            long offset = serverMillis - localMillis;
+            if (Math.abs(offset) > serverTimeFactor * SLEW_PERIOD / 2) {
+                LOGGER.warn("Local clock is {} ms off from the time server, stepping the clock.", offset);
+                next = new ClockAnchor(serverMillis, anchorNanos, serverTimeFactor, 0);
+            } else {
+                next = new ClockAnchor(localMillis, anchorNanos, serverTimeFactor, offset);
+            }
+        }
+        timeFactor = serverTimeFactor;
+        clockAnchor = next;
+    }
+
     /**
      * Creates a LocalDateTime set to the start of the given date (date at 00:00:00.000)
      *
@@ -290,43 +327,37 @@ public class DateTimeUtil {
      */
     private static LocalDateTime getTime() {
         if (useServer) {
-            return getUDPTime();
+            ClockAnchor anchor = clockAnchor;
+            if (anchor != null) {
+                return new LocalDateTime(anchor.getMillis(System.nanoTime()));
+            }
         }
         return new LocalDateTime();
     }
 
-    private static synchronized LocalDateTime getUDPTime() {
-        do {
-            if (lastProcessed == null || lastProcessed.plusMillis(BUFFER_TIME).isBefore(new LocalDateTime())) {
-                String udpTime = getUDPInfo(UDP_TIME);
-                if (udpTime != null) {
-                    latestUDPDateTime = new LocalDateTime(udpTime);
-                    lastProcessed = new LocalDateTime();
-                }
-            }
-        } while (latestUDPDateTime == null);
-        return latestUDPDateTime;
-    }
-
     private static synchronized String getUDPInfo(String message) {
         try {
             LOGGER.debug("SENDING: {}", message);
+            if (socket == null) {
+                socket = new DatagramSocket();
+                socket.setSoTimeout(RESPONSE_TIMEOUT);
+            }
             byte[] buf = message.getBytes();
             InetAddress address = InetAddress.getByName(serverIp);
-            DatagramSocket socket = new DatagramSocket();
             socket.send(new DatagramPacket(buf, buf.length, address, port));
             DatagramPacket result = new DatagramPacket(new byte[PACKAGE_BUFFER], PACKAGE_BUFFER);
-            socket.disconnect();
-            socket.setSoTimeout(RESPONSE_TIMEOUT);
             socket.receive(result);
-            socket.disconnect();
-            socket.close();
-            String resultStr = new String(result.getData()).trim();
+            String resultStr = new String(result.getData(), 0, result.getLength()).trim();
             LOGGER.debug("RECEIVED: {} ", resultStr);
             errorCount = 0;
             return resultStr;
         } catch (IOException e) {
             LOGGER.error(e.getMessage(), e);
+            // a late response could still arrive on this socket, so start over with a fresh one.
+            if (socket != null) {
+                socket.close();
+                socket = null;
+            }
             errorCount++;
             if (errorCount >= MAX_ERROR_COUNT) {
                 LOGGER.error("Unable to run simulation correctly.");
@@ -335,4 +366,34 @@ public class DateTimeUtil {
         }
         return null;
     }
+
+    /**
+     * Immutable snapshot of the last synchronization with the time server, from which the current time is extrapolated.
+     */
+    private static final class ClockAnchor {
+        private final long baseMillis;
+        private final long baseNanos;
+        private final long timeFactor;
+        private final long slewMillis;
+
+        private ClockAnchor(long baseMillis, long baseNanos, long timeFactor, long slewMillis) {
+            this.baseMillis = baseMillis;
+            this.baseNanos = baseNanos;
+            this.timeFactor = timeFactor;
+            this.slewMillis = slewMillis;
+        }
+
+        private long getMillis(long nanos) {
+            long elapsedNanos = nanos - baseNanos;
+            long millis = baseMillis + elapsedNanos * timeFactor / NANOS_PER_MILLI;
+            if (slewMillis == 0 || elapsedNanos <= 0) {
+                return millis;
+            }
+            long slewNanos = SLEW_PERIOD * NANOS_PER_MILLI;
+            if (elapsedNanos >= slewNanos) {
+                return millis + slewMillis;
+            }
+            return millis + slewMillis * elapsedNanos / slewNanos;
+        }
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package energy.usef.core.event;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import javax.enterprise.event.Observes;
+import javax.interceptor.InvocationContext;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.powermock.reflect.Whitebox;
+
+/**
+ * Test class in charge of the unit tests related to the {@link EventMetrics} and the {@link EventMonitoringInterceptor}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EventMetricsTest {
+
+    private EventMetrics eventMetrics;
+    private EventMonitoringInterceptor interceptor;
+
+    @Before
+    public void init() {
+        eventMetrics = new EventMetrics();
+        interceptor = new EventMonitoringInterceptor();
+        Whitebox.setInternalState(interceptor, "eventMetrics", eventMetrics);
+    }
+
+    @Test
+    public void testStatisticsOfHandledEvents() throws Exception {
+        TestEvent handledEvent = new TestEvent();
+        TestEvent failingEvent = new TestEvent();
+        TestEvent pendingEvent = new TestEvent();
+        failingEvent.failing = true;
+        eventMetrics.recordFired(handledEvent);
+        eventMetrics.recordFired(failingEvent);
+        eventMetrics.recordFired(pendingEvent);
+
+        interceptor.monitorEvent(buildContext("handleEvent", handledEvent));
+        try {
+            interceptor.monitorEvent(buildContext("handleEvent", failingEvent));
+            Assert.fail("Expected the exception of the handler.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        List<EventStatistics> statistics = eventMetrics.getStatistics();
+        Assert.assertEquals(1, statistics.size());
+        EventStatistics testEventStatistics = statistics.get(0);
+        Assert.assertEquals(TestEvent.class.getSimpleName(), testEventStatistics.getEventType());
+        Assert.assertEquals(3, testEventStatistics.getFired());
+        Assert.assertEquals(1, testEventStatistics.getHandled());
+        Assert.assertEquals(1, testEventStatistics.getFailed());
+        Assert.assertEquals(1, testEventStatistics.getPending());
+        Assert.assertEquals(0, testEventStatistics.getInProgress());
+        Assert.assertTrue(testEventStatistics.getLatencyMillisP99() >= testEventStatistics.getLatencyMillisP50());
+        Assert.assertTrue(testEventStatistics.getThroughputPerMinute() > 0);
+    }
+
+    @Test
+    public void testEventHandledByTwoObserversIsPickedUpOnce() throws Exception {
+        TestEvent event = new TestEvent();
+        eventMetrics.recordFired(event);
+
+        interceptor.monitorEvent(buildContext("handleEvent", event));
+        interceptor.monitorEvent(buildContext("handleEvent", event));
+
+        EventStatistics statistics = eventMetrics.getStatistics().get(0);
+        Assert.assertEquals(1, statistics.getFired());
+        Assert.assertEquals(2, statistics.getHandled());
+        Assert.assertEquals(0, statistics.getPending());
+    }
+
+    @Test
+    public void testNonObserverMethodsAreIgnored() throws Exception {
+        eventMetrics.recordFired(new TestEvent());
+
+        interceptor.monitorEvent(buildContext("doSomething", new TestEvent()));
+
+        Assert.assertTrue(eventMetrics.getStatistics().isEmpty());
+    }
+
+    @Test
+    public void testOnlyMonitoredEventsAreObserved() throws Exception {
+        Method recordFired = EventMetrics.class.getMethod("recordFired", MonitoredEvent.class);
+        Assert.assertTrue(recordFired.getParameters()[0].isAnnotationPresent(Observes.class));
+    }
+
+    private InvocationContext buildContext(String methodName, TestEvent event) throws Exception {
+        InvocationContext context = Mockito.mock(InvocationContext.class);
+        Mockito.when(context.getMethod()).thenReturn(TestCoordinator.class.getMethod(methodName, TestEvent.class));
+        Mockito.when(context.getParameters()).thenReturn(new Object[] { event });
+        Mockito.when(context.proceed()).then(invocation -> {
+            if (event.failing) {
+                throw new IllegalStateException("Handler failure");
+            }
+            return null;
+        });
+        return context;
+    }
+
+    private static class TestEvent implements MonitoredEvent {
+        private boolean failing;
+    }
+
+    public static class TestCoordinator {
+        public void handleEvent(@Observes TestEvent event) {
+        }
+
+        public void doSomething(TestEvent event) {
+        }
+    }
+}
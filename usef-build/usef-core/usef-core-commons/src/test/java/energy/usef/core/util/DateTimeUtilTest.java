@@ -17,8 +17,12 @@
 package energy.usef.core.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -184,4 +188,43 @@ public class DateTimeUtilTest {
         Assert.assertEquals(10, localDates.size());
     }
 
+    @Test
+    public void testTimeServerExtrapolation() throws Exception {
+        final long serverMillis = new LocalDateTime(2015, 1, 1, 12, 0).toDateTime().getMillis();
+        final long serverTimeFactor = 60;
+        DatagramSocket serverSocket = new DatagramSocket(0);
+        Thread server = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    DatagramPacket packet = new DatagramPacket(new byte[128], 128);
+                    serverSocket.receive(packet);
+                    byte[] response = (serverMillis + ";" + serverTimeFactor).getBytes();
+                    serverSocket.send(new DatagramPacket(response, response.length, packet.getAddress(), packet.getPort()));
+                } catch (IOException e) {
+                    // socket closed
+                }
+            }
+        });
+        server.start();
+        try {
+            long before = System.nanoTime();
+            assertTrue(DateTimeUtil.updateSettings("127.0.0.1", serverSocket.getLocalPort()));
+            assertEquals(serverTimeFactor, DateTimeUtil.getTimeFactor());
+
+            Thread.sleep(50);
+            LocalDateTime extrapolated = DateTimeUtil.getCurrentDateTime();
+            long maxElapsedMillis = (System.nanoTime() - before) / 1000000L * serverTimeFactor;
+            assertTrue(extrapolated.toDateTime().getMillis() >= serverMillis + 50 * serverTimeFactor);
+            assertTrue(extrapolated.toDateTime().getMillis() <= serverMillis + maxElapsedMillis);
+
+            // the server time did not move, the local clock must be smoothed towards it instead of running backwards.
+            DateTimeUtil.synchronizeWithTimeServer();
+            assertFalse(DateTimeUtil.getCurrentDateTime().isBefore(extrapolated));
+        } finally {
+            DateTimeUtil.updateSettings(null, null);
+            serverSocket.close();
+            server.join();
+        }
+        assertEquals(1, DateTimeUtil.getTimeFactor());
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package energy.usef.core.repository;
+
+import energy.usef.core.model.Exchange;
+
+import javax.persistence.TypedQuery;
+
+/**
+ * Keyset pagination over the PTU rows of the documents exchanged with the participants, ordered by connection group, participant
+ * domain, sequence, PTU index and id. The rows of a same document are contiguous in that order. A page starts right after the
+ * last row of the previous page, so the database does not have to sort and skip the rows of all the previous pages as it does
+ * with an offset.
+ */
+final class ExchangeKeyset {
+
+    private static final String[] KEY_PATHS = { "connectionGroup.usefIdentifier", "participantDomain", "sequence",
+            "ptuContainer.ptuIndex", "id" };
+    private static final String[] KEY_PARAMETERS = { "lastConnectionGroup", "lastParticipantDomain", "lastSequence",
+            "lastPtuIndex", "lastId" };
+
+    private ExchangeKeyset() {
+        // utility class
+    }
+
+    /**
+     * Builds the condition selecting the rows after the last row of the previous page.
+     *
+     * @param alias alias of the {@link Exchange} entity in the query.
+     * @return the condition, starting with <code>AND</code>.
+     */
+    static String after(String alias) {
+        StringBuilder condition = new StringBuilder(" AND (");
+        for (int key = 0; key < KEY_PATHS.length; key++) {
+            if (key > 0) {
+                condition.append(" OR ");
+            }
+            condition.append("(");
+            for (int equalKey = 0; equalKey < key; equalKey++) {
+                condition.append(alias).append(".").append(KEY_PATHS[equalKey]).append(" = :").append(KEY_PARAMETERS[equalKey])
+                        .append(" AND ");
+            }
+            condition.append(alias).append(".").append(KEY_PATHS[key]).append(" > :").append(KEY_PARAMETERS[key]).append(")");
+        }
+        return condition.append(") ").toString();
+    }
+
+    /**
+     * Builds the order by clause of the keyset.
+     *
+     * @param alias alias of the {@link Exchange} entity in the query.
+     * @return the order by clause.
+     */
+    static String orderBy(String alias) {
+        StringBuilder orderBy = new StringBuilder("ORDER BY ");
+        for (int key = 0; key < KEY_PATHS.length; key++) {
+            if (key > 0) {
+                orderBy.append(", ");
+            }
+            orderBy.append(alias).append(".").append(KEY_PATHS[key]);
+        }
+        return orderBy.append(" ").toString();
+    }
+
+    /**
+     * Sets the parameters of the condition built by {@link #after(String)}.
+     *
+     * @param query the query.
+     * @param lastRow the last row of the previous page.
+     * @return the query.
+     */
+    static <T> TypedQuery<T> setParameters(TypedQuery<T> query, Exchange lastRow) {
+        return query.setParameter(KEY_PARAMETERS[0], lastRow.getConnectionGroup().getUsefIdentifier())
+                .setParameter(KEY_PARAMETERS[1], lastRow.getParticipantDomain())
+                .setParameter(KEY_PARAMETERS[2], lastRow.getSequence())
+                .setParameter(KEY_PARAMETERS[3], lastRow.getPtuContainer().getPtuIndex())
+                .setParameter(KEY_PARAMETERS[4], lastRow.getId());
+    }
+}
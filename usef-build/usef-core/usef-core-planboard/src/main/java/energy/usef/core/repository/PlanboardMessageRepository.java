@@ -18,7 +18,10 @@ package energy.usef.core.repository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.ejb.Stateless;
 import javax.persistence.Query;
@@ -40,6 +43,11 @@ import energy.usef.core.util.DateTimeUtil;
 @Stateless
 public class PlanboardMessageRepository extends BaseRepository<PlanboardMessage> {
 
+    /**
+     * Maximum number of sequence numbers bound to the IN clause of one query.
+     */
+    public static final int IN_CLAUSE_BATCH_SIZE = 1000;
+
     /**
      * Finds last planboard messages corresponding to A-Plans.
      *
@@ -203,6 +211,30 @@ public class PlanboardMessageRepository extends BaseRepository<PlanboardMessage>
         return planboardMessages.get(0);
     }
 
+    /**
+     * Finds the planboard messages of the given document type with one of the given sequence numbers, together with their
+     * connection group. The caller is expected to match the result on the complete business key (usef identifier of the
+     * connection group, participant domain and sequence number).
+     *
+     * @param documentType {@link DocumentType} of the planboard messages.
+     * @param sequences {@link Collection} of sequence numbers.
+     * @return a {@link List} of {@link PlanboardMessage}.
+     */
+    public List<PlanboardMessage> findPlanboardMessagesWithSequences(DocumentType documentType, Collection<Long> sequences) {
+        if (sequences.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT pm FROM PlanboardMessage pm ");
+        sql.append("  JOIN FETCH pm.connectionGroup ");
+        sql.append("WHERE pm.documentType = :documentType ");
+        sql.append("  AND pm.sequence IN (:sequences) ");
+        return getEntityManager().createQuery(sql.toString(), PlanboardMessage.class)
+                .setParameter("documentType", documentType)
+                .setParameter("sequences", sequences)
+                .getResultList();
+    }
+
     /**
      * This method finds {@link PlanboardMessage} based on {@link DocumentType} and {@link DocumentStatus}.
      *
@@ -628,6 +660,55 @@ public class PlanboardMessageRepository extends BaseRepository<PlanboardMessage>
         return result.isEmpty() ? null : result.get(0);
     }
 
+    /**
+     * Finds the A-Plans related to each of the given flex offers. For each flex offer, this gives the same A-Plan as {@link
+     * #findAPlanRelatedToFlexOffer(Long, String)}, using one query per batch of {@value #IN_CLAUSE_BATCH_SIZE} flex offers.
+     *
+     * @param flexOfferSequenceNumbers {@link Collection} of flex offer sequence numbers
+     * @param participantDomain participant domain
+     * @return a {@link Map} with the flex offer sequence number as key and the related A-Plan as value. Flex offers without a
+     * related A-Plan are not present in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, PlanboardMessage> findAPlansRelatedToFlexOffers(Collection<Long> flexOfferSequenceNumbers,
+            String participantDomain) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT offers.sequence, prognoses ");
+        sql.append("FROM PlanboardMessage offers, PlanboardMessage requests, PlanboardMessage prognoses ");
+        sql.append("  LEFT JOIN FETCH prognoses.connectionGroup ");
+        sql.append("  LEFT JOIN FETCH prognoses.message ");
+        sql.append("WHERE offers.documentStatus <> :rejected ");
+        sql.append(" AND offers.participantDomain = :participantDomain ");
+        sql.append(" AND offers.documentType = :flexOfferType ");
+        sql.append(" AND offers.sequence IN (:flexOfferSequenceNumbers) ");
+        sql.append(" AND requests.documentStatus <> :rejected ");
+        sql.append(" AND requests.participantDomain = :participantDomain ");
+        sql.append(" AND requests.documentType = :flexRequestType ");
+        sql.append(" AND requests.sequence = offers.originSequence ");
+        sql.append(" AND prognoses.documentStatus <> :rejected ");
+        sql.append(" AND prognoses.participantDomain = :participantDomain ");
+        sql.append(" AND prognoses.documentType = :aPlanType ");
+        sql.append(" AND prognoses.sequence = requests.originSequence ");
+
+        List<Long> sequenceNumbers = new ArrayList<>(flexOfferSequenceNumbers);
+        Map<Long, PlanboardMessage> result = new HashMap<>();
+        for (int fromIndex = 0; fromIndex < sequenceNumbers.size(); fromIndex += IN_CLAUSE_BATCH_SIZE) {
+            List<Object[]> records = getEntityManager().createQuery(sql.toString())
+                    .setParameter("rejected", DocumentStatus.REJECTED)
+                    .setParameter("flexOfferSequenceNumbers", sequenceNumbers.subList(fromIndex,
+                            Math.min(fromIndex + IN_CLAUSE_BATCH_SIZE, sequenceNumbers.size())))
+                    .setParameter("participantDomain", participantDomain)
+                    .setParameter("flexOfferType", DocumentType.FLEX_OFFER)
+                    .setParameter("flexRequestType", DocumentType.FLEX_REQUEST)
+                    .setParameter("aPlanType", DocumentType.A_PLAN)
+                    .getResultList();
+            for (Object[] record : records) {
+                result.putIfAbsent((Long) record[0], (PlanboardMessage) record[1]);
+            }
+        }
+        return result;
+    }
+
     /**
      * Find all the flex orders related to prognosis with sequence number and participain domain.
      *
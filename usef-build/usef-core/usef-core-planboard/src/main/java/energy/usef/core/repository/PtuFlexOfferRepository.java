@@ -21,11 +21,13 @@ import static java.util.stream.Collectors.groupingBy;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.ejb.Stateless;
 import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
 import javax.validation.constraints.NotNull;
 
 import org.joda.time.LocalDate;
@@ -168,12 +170,16 @@ public class PtuFlexOfferRepository extends BaseRepository<PtuFlexOffer> {
 
     /**
      * Finds the {@link PtuFlexOffer} entities relevant for settlement for a given period.
+     * The rows are read page by page with {@link ExchangeKeyset}, the rows of a same document are contiguous.
      *
      * @param startDate {@link LocalDate} start date of the settlement period (inclusive).
      * @param endDate   {@link LocalDate} end date of the settlement period (inclusive).
-     * @return a {@link List} of {@link PtuFlexOffer}.
+     * @param lastRow {@link Optional} last row of the previous page, empty for the first page.
+     * @param maxResults maximum number of rows to retrieve.
+     * @return a {@link List} of {@link PtuFlexOffer} ordered by connection group, participant domain, sequence, ptu index and id.
      */
-    public List<PtuFlexOffer> findFlexOffersForSettlement(LocalDate startDate, LocalDate endDate) {
+    public List<PtuFlexOffer> findFlexOffersForSettlement(LocalDate startDate, LocalDate endDate,
+            Optional<PtuFlexOffer> lastRow, int maxResults) {
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT offer ");
         sql.append("FROM PtuFlexOffer offer, PlanboardMessage pm ");
@@ -184,12 +190,19 @@ public class PtuFlexOfferRepository extends BaseRepository<PtuFlexOffer> {
         sql.append("  AND pm.sequence = offer.sequence ");
         sql.append("  AND pm.connectionGroup = offer.connectionGroup ");
         sql.append("  AND pm.documentStatus IN (:statuses) ");
-        sql.append("ORDER BY offer.ptuContainer.ptuDate, offer.participantDomain, offer.ptuContainer.ptuIndex ");
-        return getEntityManager().createQuery(sql.toString(), PtuFlexOffer.class)
+        if (lastRow.isPresent()) {
+            sql.append(ExchangeKeyset.after("offer"));
+        }
+        sql.append(ExchangeKeyset.orderBy("offer"));
+        TypedQuery<PtuFlexOffer> query = getEntityManager().createQuery(sql.toString(), PtuFlexOffer.class)
                 .setParameter("startDate", startDate.toDateMidnight().toDate(), TemporalType.DATE)
                 .setParameter("endDate", endDate.toDateMidnight().toDate(), TemporalType.DATE)
                 .setParameter("statuses", Arrays.asList(DocumentStatus.ACCEPTED, DocumentStatus.PROCESSED))
-                .getResultList();
+                .setMaxResults(maxResults);
+        if (lastRow.isPresent()) {
+            ExchangeKeyset.setParameters(query, lastRow.get());
+        }
+        return query.getResultList();
     }
 
     /**
@@ -18,13 +18,18 @@ package energy.usef.core.repository;
 
 import static javax.persistence.TemporalType.DATE;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.ejb.Stateless;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
 import org.joda.time.LocalDate;
 
@@ -124,24 +129,35 @@ public class PtuFlexOrderRepository extends BaseRepository<PtuFlexOrder> {
 
     /**
      * Find flexibility Orders.
+     * The rows are read page by page with {@link ExchangeKeyset}, the rows of a same document are contiguous.
      *
      * @param startDate PTU start day
      * @param endDate PTU end day
-     * @return flexibility Orders
+     * @param lastRow {@link Optional} last row of the previous page, empty for the first page.
+     * @param maxResults maximum number of rows to retrieve.
+     * @return a {@link List} of {@link PtuFlexOrder} ordered by connection group, participant domain, sequence, ptu index and id.
      */
-    public List<PtuFlexOrder> findFlexOrdersForSettlement(LocalDate startDate, LocalDate endDate) {
+    public List<PtuFlexOrder> findFlexOrdersForSettlement(LocalDate startDate, LocalDate endDate,
+            Optional<PtuFlexOrder> lastRow, int maxResults) {
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT fo FROM PtuFlexOrder fo ");
         sql.append("WHERE fo.ptuContainer.ptuDate >= :startDate ");
         sql.append("  AND fo.ptuContainer.ptuDate <= :endDate ");
         sql.append("  AND fo.acknowledgementStatus IN (:statuses) ");
-        sql.append("ORDER BY fo.ptuContainer.ptuDate, fo.participantDomain, fo.ptuContainer.ptuIndex, ")
-                .append("fo.connectionGroup.usefIdentifier, fo.sequence ");
-        Query query = entityManager.createQuery(sql.toString(), PtuFlexOrder.class);
+        if (lastRow.isPresent()) {
+            sql.append(ExchangeKeyset.after("fo"));
+        }
+        sql.append(ExchangeKeyset.orderBy("fo"));
+        TypedQuery<PtuFlexOrder> query = entityManager.createQuery(sql.toString(), PtuFlexOrder.class);
 
         query.setParameter("statuses", Arrays.asList(AcknowledgementStatus.ACCEPTED, AcknowledgementStatus.PROCESSED));
         query.setParameter("startDate", startDate.toDateMidnight().toDate());
         query.setParameter("endDate", endDate.toDateMidnight().toDate());
+        if (lastRow.isPresent()) {
+            ExchangeKeyset.setParameters(query, lastRow.get());
+        }
+
+        query.setMaxResults(maxResults);
 
         List<PtuFlexOrder> results = query.getResultList();
         if (results == null) {
@@ -172,6 +188,39 @@ public class PtuFlexOrderRepository extends BaseRepository<PtuFlexOrder> {
         return query.getResultList();
     }
 
+    /**
+     * Sums, per PTU index, the power of the flex offers related to the accepted {@link PtuFlexOrder}s of the given flex order
+     * sequences. The orders and their offers are joined in a single query.
+     *
+     * @param flexOrderSequences {@link Collection} of flex order sequence numbers.
+     * @return a {@link Map} of the PTU index to the summed ordered power. PTUs without accepted orders are absent.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Integer, BigInteger> sumOrderedPowerPerPtuIndex(Collection<Long> flexOrderSequences) {
+        Map<Integer, BigInteger> result = new HashMap<>();
+        if (flexOrderSequences.isEmpty()) {
+            return result;
+        }
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT fo.ptuContainer.ptuIndex, SUM(offer.power) ");
+        sql.append("FROM PtuFlexOrder fo, PtuFlexOffer offer ");
+        sql.append("WHERE fo.sequence IN (:sequences) ");
+        sql.append("  AND fo.acknowledgementStatus = :acknowledgementStatus ");
+        sql.append("  AND offer.sequence = fo.flexOfferSequence ");
+        sql.append("  AND offer.participantDomain = fo.participantDomain ");
+        sql.append("  AND offer.ptuContainer.ptuIndex = fo.ptuContainer.ptuIndex ");
+        sql.append("GROUP BY fo.ptuContainer.ptuIndex");
+
+        List<Object[]> rows = entityManager.createQuery(sql.toString())
+                .setParameter("sequences", flexOrderSequences)
+                .setParameter("acknowledgementStatus", AcknowledgementStatus.ACCEPTED)
+                .getResultList();
+        for (Object[] row : rows) {
+            result.put((Integer) row[0], (BigInteger) row[1]);
+        }
+        return result;
+    }
+
     /**
      * Delete all {@link PtuFlexOrder}s for a certain date.
      *
@@ -19,6 +19,7 @@ package energy.usef.core.repository;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import javax.ejb.Stateless;
 import javax.persistence.TemporalType;
@@ -122,12 +123,16 @@ public class PtuFlexRequestRepository extends BaseRepository<PtuFlexRequest> {
     /**
      * Finds all flex requests candidate to settlement process (period of the flex request within the interval defined by the two
      * given dates and status ACCEPTED).
+     * The rows are read page by page with {@link ExchangeKeyset}, the rows of a same document are contiguous.
      *
      * @param startDate {@link LocalDate} start date of the settlement (inclusive).
      * @param endDate {@link LocalDate} end date of the settlement (inclusive).
-     * @return a {@link List} of {@link PtuFlexRequest}.
+     * @param lastRow {@link Optional} last row of the previous page, empty for the first page.
+     * @param maxResults maximum number of rows to retrieve.
+     * @return a {@link List} of {@link PtuFlexRequest} ordered by connection group, participant domain, sequence, ptu index and id.
      */
-    public List<PtuFlexRequest> findFlexRequestsForSettlement(LocalDate startDate, LocalDate endDate) {
+    public List<PtuFlexRequest> findFlexRequestsForSettlement(LocalDate startDate, LocalDate endDate,
+            Optional<PtuFlexRequest> lastRow, int maxResults) {
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT request ");
         sql.append("FROM PtuFlexRequest request, PlanboardMessage pm ");
@@ -138,14 +143,21 @@ public class PtuFlexRequestRepository extends BaseRepository<PtuFlexRequest> {
         sql.append("  AND pm.sequence = request.sequence ");
         sql.append("  AND pm.connectionGroup = request.connectionGroup ");
         sql.append("  AND pm.documentStatus IN (:statuses) ");
-        sql.append("ORDER BY request.ptuContainer.ptuDate, request.participantDomain, request.ptuContainer.ptuIndex ");
-        return getEntityManager().createQuery(sql.toString(), PtuFlexRequest.class)
+        if (lastRow.isPresent()) {
+            sql.append(ExchangeKeyset.after("request"));
+        }
+        sql.append(ExchangeKeyset.orderBy("request"));
+        TypedQuery<PtuFlexRequest> query = getEntityManager().createQuery(sql.toString(), PtuFlexRequest.class)
                 .setParameter("startDate", startDate.toDateMidnight().toDate(), TemporalType.DATE)
                 .setParameter("endDate", endDate.toDateMidnight().toDate(), TemporalType.DATE)
                 .setParameter("statuses",
                         Arrays.asList(DocumentStatus.ACCEPTED, DocumentStatus.RECEIVED_OFFER, DocumentStatus.RECEIVED_EMPTY_OFFER,
                                 DocumentStatus.PROCESSED))
-                .getResultList();
+                .setMaxResults(maxResults);
+        if (lastRow.isPresent()) {
+            ExchangeKeyset.setParameters(query, lastRow.get());
+        }
+        return query.getResultList();
     }
     /**
      * Delete all {@link PtuFlexRequest}s for a certain date.
@@ -23,6 +23,7 @@ import java.util.Optional;
 import javax.ejb.Stateless;
 import javax.persistence.Query;
 import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
 
 import org.joda.time.LocalDate;
 
@@ -101,12 +102,16 @@ public class PtuPrognosisRepository extends BaseRepository<PtuPrognosis> {
      * Find all the Prognosis information needed for initiating the settlement. Prognoses with a period within the interval
      * defined by the variables and with status {@link DocumentStatus#ACCEPTED}, {@link DocumentStatus#FINAL} and {@link
      * DocumentStatus#ARCHIVED} will be retrieved.
+     * The rows are read page by page with {@link ExchangeKeyset}, the rows of a same document are contiguous.
      *
      * @param startDate {@link LocalDate} start date of the settlement (inclusive).
      * @param endDate {@link LocalDate} end date of the settlement (inclusive).
-     * @return a {@link List} of {@link PtuPrognosis} ordered by period, participant domain and ptu index.
+     * @param lastRow {@link Optional} last row of the previous page, empty for the first page.
+     * @param maxResults maximum number of rows to retrieve.
+     * @return a {@link List} of {@link PtuPrognosis} ordered by connection group, participant domain, sequence, ptu index and id.
      */
-    public List<PtuPrognosis> findPrognosesForSettlement(LocalDate startDate, LocalDate endDate) {
+    public List<PtuPrognosis> findPrognosesForSettlement(LocalDate startDate, LocalDate endDate,
+            Optional<PtuPrognosis> lastRow, int maxResults) {
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT prognosis ");
         sql.append("FROM PtuPrognosis prognosis, PlanboardMessage pm ");
@@ -117,13 +122,20 @@ public class PtuPrognosisRepository extends BaseRepository<PtuPrognosis> {
         sql.append("  AND pm.sequence = prognosis.sequence ");
         sql.append("  AND pm.connectionGroup = prognosis.connectionGroup ");
         sql.append("  AND pm.documentStatus IN (:documentStatuses) ");
-        sql.append("ORDER BY prognosis.ptuContainer.ptuDate, prognosis.participantDomain, prognosis.ptuContainer.ptuIndex ");
-        return getEntityManager().createQuery(sql.toString(), PtuPrognosis.class)
+        if (lastRow.isPresent()) {
+            sql.append(ExchangeKeyset.after("prognosis"));
+        }
+        sql.append(ExchangeKeyset.orderBy("prognosis"));
+        TypedQuery<PtuPrognosis> query = getEntityManager().createQuery(sql.toString(), PtuPrognosis.class)
                 .setParameter("startDate", startDate.toDateMidnight().toDate(), TemporalType.DATE)
                 .setParameter("endDate", endDate.toDateMidnight().toDate(), TemporalType.DATE)
                 .setParameter("documentStatuses",
                         Arrays.asList(DocumentStatus.ACCEPTED, DocumentStatus.FINAL, DocumentStatus.ARCHIVED))
-                .getResultList();
+                .setMaxResults(maxResults);
+        if (lastRow.isPresent()) {
+            ExchangeKeyset.setParameters(query, lastRow.get());
+        }
+        return query.getResultList();
     }
 
     /**
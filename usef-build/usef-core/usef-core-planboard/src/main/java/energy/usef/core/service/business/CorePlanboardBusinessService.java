@@ -72,6 +72,7 @@ import energy.usef.core.util.PtuUtil;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -1292,6 +1293,18 @@ public class CorePlanboardBusinessService {
         return planboardMessageRepository.findAPlanRelatedToFlexOffer(flexOfferSequenceNumber, participantDomain);
     }
 
+    /**
+     * Finds the A-Plans related to each of the flex offers, with one query per batch of flex offers.
+     *
+     * @param flexOfferSequenceNumbers flex offer sequence numbers
+     * @param participantDomain participant domain
+     * @return A {@link Map} with the A-Plan related to each flex offer sequence number, if any.
+     */
+    public Map<Long, PlanboardMessage> findAPlansRelatedToFlexOffers(Collection<Long> flexOfferSequenceNumbers,
+            String participantDomain) {
+        return planboardMessageRepository.findAPlansRelatedToFlexOffers(flexOfferSequenceNumbers, participantDomain);
+    }
+
     /**
      * Finds a {@Link PtuState} and create if it does not exist.
      *
@@ -22,13 +22,19 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.powermock.reflect.Whitebox.setInternalState;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 import javax.persistence.PersistenceException;
 
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.joda.time.LocalDate;
 import org.joda.time.LocalDateTime;
 import org.junit.After;
@@ -66,7 +72,9 @@ public class PlanboardMessageRepositoryTest {
     @BeforeClass
     public static void initTestFixture() throws Exception {
         // Get the entity manager for the tests.
-        entityManagerFactory = Persistence.createEntityManagerFactory("test");
+        Map<String, String> properties = new HashMap<>();
+        properties.put("hibernate.generate_statistics", "true");
+        entityManagerFactory = Persistence.createEntityManagerFactory("test", properties);
         entityManager = entityManagerFactory.createEntityManager();
     }
 
@@ -189,6 +197,17 @@ public class PlanboardMessageRepositoryTest {
         assertNotNull(planboardMessage);
     }
 
+    @Test
+    public void testFindPlanboardMessagesWithSequences() throws Exception {
+        List<PlanboardMessage> planboardMessages = repository.findPlanboardMessagesWithSequences(DocumentType.FLEX_ORDER,
+                Arrays.asList(4444442L, 5555555L, -1L));
+        assertEquals(1, planboardMessages.size());
+        assertEquals(4444442L, planboardMessages.get(0).getSequence().longValue());
+        assertEquals("ea1.1992-01.com.example:gridpoint.4f76ff19-a53b-49f5-84e6",
+                planboardMessages.get(0).getConnectionGroup().getUsefIdentifier());
+        assertTrue(repository.findPlanboardMessagesWithSequences(DocumentType.FLEX_ORDER, new ArrayList<>()).isEmpty());
+    }
+
     @Test
     public void testFindSinglePlanboardMessageByDate() throws Exception {
         PlanboardMessage planboardMessage = repository
@@ -254,6 +273,46 @@ public class PlanboardMessageRepositoryTest {
         assertNotNull(aPlan);
     }
 
+    @Test
+    public void testFindAPlansRelatedToFlexOffers() {
+        Map<Long, PlanboardMessage> aPlans = repository.findAPlansRelatedToFlexOffers(Arrays.asList(77777122L, 77777121L),
+                "agr3.usef-example.com");
+        assertEquals(1, aPlans.size());
+        assertEquals(77777120L, aPlans.get(77777122L).getSequence().longValue());
+    }
+
+    @Test
+    public void testFindAPlansRelatedToFlexOffersOfConnectionGroupWithOneStatement() {
+        // 1000 offers on 100 requests on 10 A-Plans.
+        entityManager.createNativeQuery("INSERT INTO PLAN_BOARD_MESSAGE (ID, SEQUENCE_NUMBER, ORIGIN_SEQUENCE_NUMBER, "
+                + "PARTICIPANT_DOMAIN, DOCUMENT_STATUS, CONNECTION_GROUP_ID, DOCUMENT_TYPE, PTU_DATE) "
+                + "SELECT 100000 + X, 880000 + X, null, 'agr9.usef-example.com', 'ACCEPTED', 'brp.test.com', 'A_PLAN', "
+                + "'2015-03-31' FROM SYSTEM_RANGE(1, 10)").executeUpdate();
+        entityManager.createNativeQuery("INSERT INTO PLAN_BOARD_MESSAGE (ID, SEQUENCE_NUMBER, ORIGIN_SEQUENCE_NUMBER, "
+                + "PARTICIPANT_DOMAIN, DOCUMENT_STATUS, CONNECTION_GROUP_ID, DOCUMENT_TYPE) "
+                + "SELECT 101000 + X, 881000 + X, 880000 + MOD(X, 10) + 1, 'agr9.usef-example.com', 'SENT', 'brp.test.com', "
+                + "'FLEX_REQUEST' FROM SYSTEM_RANGE(1, 100)").executeUpdate();
+        entityManager.createNativeQuery("INSERT INTO PLAN_BOARD_MESSAGE (ID, SEQUENCE_NUMBER, ORIGIN_SEQUENCE_NUMBER, "
+                + "PARTICIPANT_DOMAIN, DOCUMENT_STATUS, CONNECTION_GROUP_ID, DOCUMENT_TYPE) "
+                + "SELECT 102000 + X, 890000 + X, 881000 + MOD(X, 100) + 1, 'agr9.usef-example.com', 'SENT', 'brp.test.com', "
+                + "'FLEX_OFFER' FROM SYSTEM_RANGE(1, 1000)").executeUpdate();
+        List<Long> offerSequences = new ArrayList<>();
+        for (long offer = 1; offer <= 1000; offer++) {
+            offerSequences.add(890000 + offer);
+        }
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+
+        Map<Long, PlanboardMessage> aPlans = repository.findAPlansRelatedToFlexOffers(offerSequences, "agr9.usef-example.com");
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1000, aPlans.size());
+        for (Long offerSequence : offerSequences) {
+            assertEquals(repository.findAPlanRelatedToFlexOffer(offerSequence, "agr9.usef-example.com"),
+                    aPlans.get(offerSequence));
+        }
+    }
+
     @Test
     public void testFindAcceptedPrognosisMessages() {
         List<PlanboardMessage> acceptedPrognosisMessages = repository.findAcceptedPlanboardMessagesForConnectionGroup(
@@ -18,7 +18,11 @@ package energy.usef.core.repository;
 
 import static org.powermock.reflect.Whitebox.setInternalState;
 
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.persistence.EntityManager;
@@ -154,6 +158,16 @@ public class PtuFlexOrderRepositoryTest {
         Assert.assertEquals(2, results.size());
     }
 
+    @Test
+    public void testSumOrderedPowerPerPtuIndex() {
+        Map<Integer, BigInteger> results = repository.sumOrderedPowerPerPtuIndex(Arrays.asList(2345790112L, 201412221525L));
+
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals(BigInteger.valueOf(1000), results.get(2));
+        Assert.assertEquals(BigInteger.valueOf(1000), results.get(3));
+        Assert.assertTrue(repository.sumOrderedPowerPerPtuIndex(Collections.emptyList()).isEmpty());
+    }
+
     @Test
     public void testCleanup() {
         Assert.assertEquals("Expected no deleted objects", 0, repository.cleanup(new LocalDate()));
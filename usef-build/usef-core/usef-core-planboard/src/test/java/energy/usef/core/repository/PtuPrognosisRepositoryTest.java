@@ -142,9 +142,20 @@ public class PtuPrognosisRepositoryTest {
 
     @Test
     public void testFindPrognosesForSettlement() throws Exception {
-        List<PtuPrognosis> plans = repository.findPrognosesForSettlement(new LocalDate("2014-11-01"), new LocalDate("2014-11-30"));
+        List<PtuPrognosis> plans = repository.findPrognosesForSettlement(new LocalDate("2014-11-01"), new LocalDate("2014-11-30"),
+                Optional.empty(), 100);
         Assert.assertNotNull(plans);
         Assert.assertEquals(2, plans.size());
+
+        // second page, starting after the first row
+        List<PtuPrognosis> secondPage = repository.findPrognosesForSettlement(new LocalDate("2014-11-01"),
+                new LocalDate("2014-11-30"), Optional.of(plans.get(0)), 100);
+        Assert.assertEquals(1, secondPage.size());
+        Assert.assertEquals(plans.get(1).getId(), secondPage.get(0).getId());
+
+        // nothing after the last row
+        Assert.assertTrue(repository.findPrognosesForSettlement(new LocalDate("2014-11-01"), new LocalDate("2014-11-30"),
+                Optional.of(plans.get(1)), 100).isEmpty());
     }
 
     @Test
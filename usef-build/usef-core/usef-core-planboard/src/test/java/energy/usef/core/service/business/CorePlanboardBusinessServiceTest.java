@@ -1111,6 +1111,15 @@ public class CorePlanboardBusinessServiceTest {
                 .findAPlanRelatedToFlexOffer(Matchers.eq(1l), Matchers.eq("brp.usef-example.com"));
     }
 
+    @Test
+    public void testFindAPlansRelatedToFlexOffers() {
+        List<Long> flexOfferSequenceNumbers = Arrays.asList(1L, 2L);
+        corePlanboardBusinessService.findAPlansRelatedToFlexOffers(flexOfferSequenceNumbers, "brp.usef-example.com");
+
+        Mockito.verify(planboardMessageRepository, Mockito.times(1))
+                .findAPlansRelatedToFlexOffers(Matchers.eq(flexOfferSequenceNumbers), Matchers.eq("brp.usef-example.com"));
+    }
+
     @Test
     public void testFindOrCreatePtuState() {
         PtuState ptuState = corePlanboardBusinessService
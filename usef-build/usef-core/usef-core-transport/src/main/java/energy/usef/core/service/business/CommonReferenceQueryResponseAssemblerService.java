@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.core.service.business;
+
+import energy.usef.core.data.xml.bean.message.CommonReferenceQueryResponse;
+import energy.usef.core.data.xml.bean.message.DispositionSuccessFailure;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service class in charge of reassembling a {@link CommonReferenceQueryResponse} which the CRO has split into several parts (see
+ * the PartIndex and PartCount attributes). The parts of a response share the conversation ID of the query and are kept in memory
+ * until all of them have been received.
+ */
+@Singleton
+@Lock(LockType.WRITE)
+public class CommonReferenceQueryResponseAssemblerService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommonReferenceQueryResponseAssemblerService.class);
+
+    private final Map<String, SortedMap<Integer, CommonReferenceQueryResponse>> partsPerResponse = new HashMap<>();
+
+    /**
+     * Adds a received message to its response. A message without a PartCount (or with a PartCount of 1) is a complete response
+     * and is returned as it is.
+     *
+     * @param message the received {@link CommonReferenceQueryResponse} (part).
+     * @return the complete {@link CommonReferenceQueryResponse} once all its parts have been received, or an empty
+     * {@link Optional} when parts are still missing.
+     */
+    public Optional<CommonReferenceQueryResponse> assemble(CommonReferenceQueryResponse message) {
+        if (message.getPartCount() == null || message.getPartCount().intValue() <= 1) {
+            return Optional.of(message);
+        }
+        int partCount = message.getPartCount().intValue();
+        String key = message.getMessageMetadata().getSenderDomain() + "/" + message.getMessageMetadata().getConversationID();
+
+        SortedMap<Integer, CommonReferenceQueryResponse> parts = partsPerResponse.computeIfAbsent(key, k -> new TreeMap<>());
+        parts.put(message.getPartIndex().intValue(), message);
+        if (parts.size() < partCount) {
+            LOGGER.debug("Received part {} of {} of CommonReferenceQueryResponse {}, {} part(s) received.", message.getPartIndex(),
+                    partCount, key, parts.size());
+            return Optional.empty();
+        }
+        partsPerResponse.remove(key);
+        return Optional.of(merge(parts));
+    }
+
+    private static CommonReferenceQueryResponse merge(SortedMap<Integer, CommonReferenceQueryResponse> parts) {
+        CommonReferenceQueryResponse firstPart = parts.get(parts.firstKey());
+        CommonReferenceQueryResponse response = new CommonReferenceQueryResponse();
+        response.setMessageMetadata(firstPart.getMessageMetadata());
+        response.setResult(DispositionSuccessFailure.SUCCESS);
+        for (CommonReferenceQueryResponse part : parts.values()) {
+            if (part.getResult() != DispositionSuccessFailure.SUCCESS && response.getResult() == DispositionSuccessFailure.SUCCESS) {
+                response.setResult(part.getResult());
+                response.setMessage(part.getMessage());
+            }
+            response.getCongestionPoint().addAll(part.getCongestionPoint());
+            response.getConnection().addAll(part.getConnection());
+            response.getAny().addAll(part.getAny());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.core.service.business;
+
+import energy.usef.core.data.xml.bean.message.CommonReferenceQueryResponse;
+import energy.usef.core.data.xml.bean.message.CongestionPoint;
+import energy.usef.core.data.xml.bean.message.Connection;
+import energy.usef.core.data.xml.bean.message.DispositionSuccessFailure;
+import energy.usef.core.data.xml.bean.message.USEFRole;
+import energy.usef.core.service.helper.MessageMetadataBuilder;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class in charge of the unit tests related to the {@link CommonReferenceQueryResponseAssemblerService} class.
+ */
+public class CommonReferenceQueryResponseAssemblerServiceTest {
+
+    private static final String CONVERSATION_ID_1 = "5e1b7c2a-6a29-4c4c-9a5e-3b8f3a0c9d11";
+    private static final String CONVERSATION_ID_2 = "c4f0a6d3-1f6e-4b0e-8e1c-7d2b5a9e4f22";
+
+    private CommonReferenceQueryResponseAssemblerService service;
+
+    @Before
+    public void setUp() {
+        service = new CommonReferenceQueryResponseAssemblerService();
+    }
+
+    @Test
+    public void testAssembleReturnsAMessageWhichIsNotSplit() {
+        CommonReferenceQueryResponse message = buildPart(CONVERSATION_ID_1, null, null, DispositionSuccessFailure.SUCCESS,
+                "ean.000000000001");
+
+        Optional<CommonReferenceQueryResponse> response = service.assemble(message);
+
+        Assert.assertTrue(response.isPresent());
+        Assert.assertSame(message, response.get());
+    }
+
+    @Test
+    public void testAssembleMergesThePartsInOrder() {
+        CommonReferenceQueryResponse part1 = buildPart(CONVERSATION_ID_1, 1, 3, DispositionSuccessFailure.SUCCESS,
+                "ean.000000000001", "ean.000000000002");
+        part1.getCongestionPoint().add(buildCongestionPoint("ea1.1992-01.com.usef-example:gridpoint.1"));
+        CommonReferenceQueryResponse part2 = buildPart(CONVERSATION_ID_1, 2, 3, DispositionSuccessFailure.SUCCESS,
+                "ean.000000000003", "ean.000000000004");
+        CommonReferenceQueryResponse part3 = buildPart(CONVERSATION_ID_1, 3, 3, DispositionSuccessFailure.SUCCESS,
+                "ean.000000000005");
+        // a part of another response does not complete this one.
+        CommonReferenceQueryResponse otherPart = buildPart(CONVERSATION_ID_2, 2, 2, DispositionSuccessFailure.SUCCESS,
+                "ean.000000000006");
+
+        Assert.assertFalse(service.assemble(part3).isPresent());
+        Assert.assertFalse(service.assemble(otherPart).isPresent());
+        Assert.assertFalse(service.assemble(part1).isPresent());
+        Optional<CommonReferenceQueryResponse> response = service.assemble(part2);
+
+        Assert.assertTrue(response.isPresent());
+        Assert.assertEquals(DispositionSuccessFailure.SUCCESS, response.get().getResult());
+        Assert.assertSame(part1.getMessageMetadata(), response.get().getMessageMetadata());
+        Assert.assertNull(response.get().getPartCount());
+        Assert.assertEquals(Arrays.asList("ean.000000000001", "ean.000000000002", "ean.000000000003", "ean.000000000004",
+                "ean.000000000005"),
+                response.get().getConnection().stream().map(Connection::getEntityAddress).collect(Collectors.toList()));
+        Assert.assertEquals(1, response.get().getCongestionPoint().size());
+    }
+
+    @Test
+    public void testAssembleFailsWhenAPartFailed() {
+        CommonReferenceQueryResponse part1 = buildPart(CONVERSATION_ID_1, 1, 2, DispositionSuccessFailure.SUCCESS,
+                "ean.000000000001");
+        CommonReferenceQueryResponse part2 = buildPart(CONVERSATION_ID_1, 2, 2, DispositionSuccessFailure.FAILURE);
+        part2.setMessage("Role is not supported!");
+
+        Assert.assertFalse(service.assemble(part1).isPresent());
+        Optional<CommonReferenceQueryResponse> response = service.assemble(part2);
+
+        Assert.assertTrue(response.isPresent());
+        Assert.assertEquals(DispositionSuccessFailure.FAILURE, response.get().getResult());
+        Assert.assertEquals("Role is not supported!", response.get().getMessage());
+    }
+
+    private CommonReferenceQueryResponse buildPart(String conversationId, Integer partIndex, Integer partCount,
+            DispositionSuccessFailure result, String... connectionEntityAddresses) {
+        CommonReferenceQueryResponse part = new CommonReferenceQueryResponse();
+        part.setMessageMetadata(new MessageMetadataBuilder().conversationID(conversationId)
+                .messageID()
+                .timeStamp()
+                .senderDomain("cro.usef-example.com")
+                .senderRole(USEFRole.CRO)
+                .build());
+        part.setResult(result);
+        part.setPartIndex(partIndex == null ? null : BigInteger.valueOf(partIndex));
+        part.setPartCount(partCount == null ? null : BigInteger.valueOf(partCount));
+        for (String entityAddress : connectionEntityAddresses) {
+            Connection connection = new Connection();
+            connection.setEntityAddress(entityAddress);
+            part.getConnection().add(connection);
+        }
+        return part;
+    }
+
+    private CongestionPoint buildCongestionPoint(String entityAddress) {
+        CongestionPoint congestionPoint = new CongestionPoint();
+        congestionPoint.setEntityAddress(entityAddress);
+        return congestionPoint;
+    }
+}
@@ -24,7 +24,7 @@ import org.joda.time.LocalDate;
 /**
  * Event which will trigger a process to move the PTUs of the specified day in a state <code>Day_Ahead_Closed</code>.
  */
-public class DayAheadClosureEvent implements ExpirableEvent{
+public class DayAheadClosureEvent implements ExpirableEvent, MonitoredEvent {
 
     private final LocalDate period;
 
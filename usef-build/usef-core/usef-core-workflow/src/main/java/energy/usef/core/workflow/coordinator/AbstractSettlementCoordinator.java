@@ -16,15 +16,12 @@
 
 package energy.usef.core.workflow.coordinator;
 
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
 import energy.usef.core.config.Config;
 import energy.usef.core.config.ConfigParam;
 import energy.usef.core.model.DocumentStatus;
 import energy.usef.core.model.DocumentType;
-import energy.usef.core.model.Exchange;
 import energy.usef.core.model.PlanboardMessage;
 import energy.usef.core.service.business.CorePlanboardBusinessService;
 import energy.usef.core.util.PtuUtil;
@@ -39,6 +36,7 @@ import energy.usef.core.workflow.dto.PtuSettlementDto;
 import energy.usef.core.workflow.dto.SettlementDto;
 import energy.usef.core.workflow.settlement.CoreInitiateSettlementParameter;
 import energy.usef.core.workflow.settlement.CoreSettlementBusinessService;
+import energy.usef.core.workflow.settlement.SettlementDocumentKey;
 import energy.usef.core.workflow.step.WorkflowStepExecuter;
 import energy.usef.core.workflow.transformer.FlexOfferTransformer;
 import energy.usef.core.workflow.transformer.FlexOrderTransformer;
@@ -60,11 +58,13 @@ import org.joda.time.LocalDate;
 
 /**
  * Abstract implementation of a SettlementCoordinator implementing shared methods.
+ * <p>
+ * The PTU rows of the settlement documents are read page by page, but the fetchRelevant* methods collect the DTOs of the whole
+ * settlement period: the input of the settlement PBC is the list of DTOs of the period. The memory used by the settlement input
+ * is therefore bounded by the DTOs of the month, not by one document.
  */
 public abstract class AbstractSettlementCoordinator {
 
-    private static final Function<Exchange, String> getDocumentKey = exchange -> "" + exchange.getConnectionGroup()
-            .getUsefIdentifier() + exchange.getSequence() + exchange.getParticipantDomain();
     private static final int PRICE_PRECISION = 4;
 
     @Inject
@@ -88,65 +88,70 @@ public abstract class AbstractSettlementCoordinator {
     }
 
     /**
-     * Fetches the Prognoses DTO relevant for the settlement process.
+     * Fetches the Prognoses DTO relevant for the settlement process. The PTU prognoses are read in pages, the DTOs of the whole
+     * period are returned.
      */
     public List<PrognosisDto> fetchRelevantPrognoses(LocalDate startDate, LocalDate endDate) {
-        return new ArrayList<>(coreSettlementBusinessService.findRelevantPrognoses(startDate, endDate)
-                .stream().collect(groupingBy(getDocumentKey::apply,
-                        Collectors.collectingAndThen(toList(), PrognosisTransformer::mapToPrognosis))).values());
+        List<PrognosisDto> prognoses = new ArrayList<>();
+        coreSettlementBusinessService.findRelevantPrognoses(startDate, endDate,
+                ptuPrognoses -> prognoses.add(PrognosisTransformer.mapToPrognosis(ptuPrognoses)));
+        return prognoses;
     }
 
     /**
-     * Fetches the Flex Requests DTO relevant for the settlement process.
+     * Fetches the Flex Requests DTO relevant for the settlement process. The PTU flex requests are read in pages, the DTOs of the
+     * whole period are returned.
      */
     public List<FlexRequestDto> fetchRelevantFlexRequests(LocalDate startDate, LocalDate endDate) {
-        return new ArrayList<>(coreSettlementBusinessService.findRelevantFlexRequests(startDate, endDate)
-                .stream().collect(groupingBy(getDocumentKey::apply,
-                        Collectors.collectingAndThen(toList(), FlexRequestTransformer::transformFlexRequest))).values());
+        List<FlexRequestDto> flexRequests = new ArrayList<>();
+        coreSettlementBusinessService.findRelevantFlexRequests(startDate, endDate,
+                ptuFlexRequests -> flexRequests.add(FlexRequestTransformer.transformFlexRequest(ptuFlexRequests)));
+        return flexRequests;
     }
 
     /**
-     * Fetches the Flex Offers DTO relevant for the settlement process.
+     * Fetches the Flex Offers DTO relevant for the settlement process. The PTU flex offers are read in pages, the DTOs of the
+     * whole period are returned.
      */
     public List<FlexOfferDto> fetchRelevantFlexOffers(LocalDate startDate, LocalDate endDate) {
-        return new ArrayList<>(coreSettlementBusinessService.findRelevantFlexOffers(startDate, endDate)
-                .stream().collect(groupingBy(getDocumentKey::apply,
-                        Collectors.collectingAndThen(toList(), FlexOfferTransformer::transformPtuFlexOffers))).values());
+        List<FlexOfferDto> flexOffers = new ArrayList<>();
+        coreSettlementBusinessService.findRelevantFlexOffers(startDate, endDate,
+                ptuFlexOffers -> flexOffers.add(FlexOfferTransformer.transformPtuFlexOffers(ptuFlexOffers)));
+        return flexOffers;
     }
 
     /**
-     * Fetches the Flex Orders DTO relevant for the settlement process.
+     * Fetches the Flex Orders DTO relevant for the settlement process. The PTU flex orders are read in pages, the DTOs of the
+     * whole period are returned.
      */
     public List<FlexOrderDto> fetchRelevantFlexOrders(LocalDate startDate, LocalDate
             endDate, List<FlexOfferDto> flexOfferDtos) {
-        Map<String, FlexOfferDto> flexOffersMap = flexOfferDtos.stream()
-                .collect(toMap(flexOfferDto -> "" + flexOfferDto.getSequenceNumber() + flexOfferDto.getParticipantDomain(),
-                        Function.identity()));
-        List<FlexOrderDto> flexOrderDtos = new ArrayList<>(
-                coreSettlementBusinessService.findRelevantFlexOrders(startDate, endDate)
-                        .stream().collect(groupingBy(getDocumentKey::apply,
-                        Collectors.collectingAndThen(toList(), FlexOrderTransformer::transformPtuFlexOrders))).values());
-        flexOrderDtos.stream().forEach(flexOrderDto -> {
-            FlexOfferDto flexOfferDto = flexOffersMap
-                    .get("" + flexOrderDto.getFlexOfferSequenceNumber() + flexOrderDto.getParticipantDomain());
-            for (PtuFlexOfferDto ptuFlexOfferDto : flexOfferDto.getPtus()) {
-                int index = ptuFlexOfferDto.getPtuIndex().intValue() - 1;
-                flexOrderDto.getPtus().get(index).setPower(ptuFlexOfferDto.getPower());
-                flexOrderDto.getPtus().get(index).setPrice(ptuFlexOfferDto.getPrice());
-            }
-        });
+        Map<SettlementDocumentKey, FlexOfferDto> flexOffersMap = flexOfferDtos.stream()
+                .collect(toMap(flexOfferDto -> new SettlementDocumentKey(flexOfferDto.getParticipantDomain(),
+                        flexOfferDto.getSequenceNumber(), flexOfferDto.getConnectionGroupEntityAddress()), Function.identity()));
 
         List<PlanboardMessage> acceptedOffers = corePlanboardBusinessService
                 .findPlanboardMessages(DocumentType.FLEX_ORDER, startDate, endDate, DocumentStatus.ACCEPTED);
         List<PlanboardMessage> processedOffers = corePlanboardBusinessService
                 .findPlanboardMessages(DocumentType.FLEX_ORDER, startDate, endDate, DocumentStatus.PROCESSED);
         processedOffers.addAll(acceptedOffers);
-        Map<String, PlanboardMessage> flexOrders = processedOffers.stream()
-                .collect(Collectors.toMap(pm -> "" + pm.getParticipantDomain() + pm.getSequence(), Function.identity()));
-
-        for (FlexOrderDto flexOrderDto : flexOrderDtos) {
-            PlanboardMessage flexOrder = flexOrders.get(flexOrderDto.getParticipantDomain() + flexOrderDto.getSequenceNumber());
+        Map<SettlementDocumentKey, PlanboardMessage> flexOrders = processedOffers.stream()
+                .collect(Collectors.toMap(pm -> new SettlementDocumentKey(pm.getParticipantDomain(), pm.getSequence(),
+                        pm.getConnectionGroup().getUsefIdentifier()), Function.identity()));
+
+        List<FlexOrderDto> flexOrderDtos = new ArrayList<>();
+        coreSettlementBusinessService.findRelevantFlexOrders(startDate, endDate, ptuFlexOrders -> {
+            FlexOrderDto flexOrderDto = FlexOrderTransformer.transformPtuFlexOrders(ptuFlexOrders);
+            FlexOfferDto flexOfferDto = flexOffersMap.get(new SettlementDocumentKey(flexOrderDto.getParticipantDomain(),
+                    flexOrderDto.getFlexOfferSequenceNumber(), flexOrderDto.getConnectionGroupEntityAddress()));
+            for (PtuFlexOfferDto ptuFlexOfferDto : flexOfferDto.getPtus()) {
+                int index = ptuFlexOfferDto.getPtuIndex().intValue() - 1;
+                flexOrderDto.getPtus().get(index).setPower(ptuFlexOfferDto.getPower());
+                flexOrderDto.getPtus().get(index).setPrice(ptuFlexOfferDto.getPrice());
+            }
 
+            PlanboardMessage flexOrder = flexOrders.get(new SettlementDocumentKey(flexOrderDto.getParticipantDomain(),
+                    flexOrderDto.getSequenceNumber(), flexOrderDto.getConnectionGroupEntityAddress()));
             if (flexOrder.getCreationDateTime().toLocalDate().isEqual(flexOrderDto.getPeriod())) {
                 int currentPtuIndex = PtuUtil
                         .getPtuIndex(flexOrder.getCreationDateTime(), config.getIntegerProperty(ConfigParam.PTU_DURATION));
@@ -155,7 +160,8 @@ public abstract class AbstractSettlementCoordinator {
                     flexOrderDto.getPtus().get(ptuIndex).setPrice(BigDecimal.ZERO);
                 }
             }
-        }
+            flexOrderDtos.add(flexOrderDto);
+        });
         return flexOrderDtos;
     }
 
@@ -192,14 +198,14 @@ public abstract class AbstractSettlementCoordinator {
      * @return {@link SettlementDto} with updated prices
      */
     public SettlementDto calculateSettlementPrice(SettlementDto settlementDto, List<FlexOfferDto> flexOfferDtos) {
-        Map<String, FlexOfferDto> flexOffersByParticipantDomainPlusSequence = flexOfferDtos.stream()
-                .collect(Collectors.toMap(flexOffer -> flexOffer.getParticipantDomain() + flexOffer.getSequenceNumber(),
-                        flexOffer -> flexOffer));
+        Map<SettlementDocumentKey, FlexOfferDto> flexOffersPerKey = flexOfferDtos.stream()
+                .collect(Collectors.toMap(flexOffer -> new SettlementDocumentKey(flexOffer.getParticipantDomain(),
+                        flexOffer.getSequenceNumber(), flexOffer.getConnectionGroupEntityAddress()), flexOffer -> flexOffer));
 
         for (FlexOrderSettlementDto flexOrderSettlementDto : settlementDto.getFlexOrderSettlementDtos()) {
-            FlexOfferDto flexOffer = flexOffersByParticipantDomainPlusSequence
-                    .get(flexOrderSettlementDto.getFlexOrder().getParticipantDomain() + flexOrderSettlementDto.getFlexOrder()
-                            .getFlexOfferSequenceNumber());
+            FlexOrderDto flexOrder = flexOrderSettlementDto.getFlexOrder();
+            FlexOfferDto flexOffer = flexOffersPerKey.get(new SettlementDocumentKey(flexOrder.getParticipantDomain(),
+                    flexOrder.getFlexOfferSequenceNumber(), flexOrder.getConnectionGroupEntityAddress()));
             Map<Integer, PtuFlexOfferDto> ptuFlexOfferPerPtu = flexOffer.getPtus().stream()
                     .collect(Collectors.toMap(ptuFlexOfferDto -> ptuFlexOfferDto.getPtuIndex().intValue(),
                             ptuFlexOfferDto -> ptuFlexOfferDto));
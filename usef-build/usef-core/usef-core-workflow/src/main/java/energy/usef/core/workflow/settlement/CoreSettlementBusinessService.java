@@ -16,16 +16,20 @@
 
 package energy.usef.core.workflow.settlement;
 
+import energy.usef.core.exception.TechnicalException;
 import energy.usef.core.model.Connection;
 import energy.usef.core.model.ConnectionGroup;
 import energy.usef.core.model.ConnectionGroupState;
+import energy.usef.core.model.DocumentType;
+import energy.usef.core.model.Exchange;
 import energy.usef.core.model.FlexOrderSettlement;
+import energy.usef.core.model.PlanboardMessage;
 import energy.usef.core.model.PtuContainer;
 import energy.usef.core.model.PtuFlexOffer;
 import energy.usef.core.model.PtuFlexOrder;
 import energy.usef.core.model.PtuFlexRequest;
 import energy.usef.core.model.PtuPrognosis;
-import energy.usef.core.repository.ConnectionGroupRepository;
+import energy.usef.core.repository.BaseRepository;
 import energy.usef.core.repository.ConnectionGroupStateRepository;
 import energy.usef.core.repository.FlexOrderSettlementRepository;
 import energy.usef.core.repository.PlanboardMessageRepository;
@@ -36,13 +40,18 @@ import energy.usef.core.repository.PtuFlexRequestRepository;
 import energy.usef.core.repository.PtuPrognosisRepository;
 import energy.usef.core.repository.PtuSettlementRepository;
 import energy.usef.core.service.business.SequenceGeneratorService;
+import energy.usef.core.workflow.dto.FlexOrderDto;
 import energy.usef.core.workflow.dto.FlexOrderSettlementDto;
 import energy.usef.core.workflow.transformer.SettlementTransformer;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -59,6 +68,9 @@ import org.joda.time.LocalDate;
 @Stateless
 public class CoreSettlementBusinessService {
 
+    static final int SETTLEMENT_PAGE_SIZE = 2000;
+    static final int FLEX_ORDER_LOOKUP_BATCH_SIZE = 1000;
+
     @Inject
     private PtuContainerRepository ptuContainerRepository;
     @Inject
@@ -78,8 +90,6 @@ public class CoreSettlementBusinessService {
     @Inject
     private PtuSettlementRepository ptuSettlementRepository;
     @Inject
-    private ConnectionGroupRepository connectionGroupRepository;
-    @Inject
     private SequenceGeneratorService sequenceGeneratorService;
 
     /**
@@ -99,52 +109,102 @@ public class CoreSettlementBusinessService {
 
     /**
      * Finds the prognoses relevant for the settlement. Prognoses with a period within the two given dates and with status
-     * ACCEPTED, FINAL and ARCHIVED will be returned.
+     * ACCEPTED, FINAL and ARCHIVED will be handed over. The PTU prognoses are read page by page and each prognosis is handed
+     * over to the consumer as soon as all its PTUs have been read.
      *
      * @param startDate {@link LocalDate} start date of the settlement period (inclusive).
      * @param endDate {@link LocalDate} end date of the settlement period (inclusive).
-     * @return a {@link List} of {@link PtuPrognosis}.
+     * @param documentConsumer {@link Consumer} of the {@link PtuPrognosis} entities of a same prognosis.
      */
-    public List<PtuPrognosis> findRelevantPrognoses(LocalDate startDate, LocalDate endDate) {
-        return ptuPrognosisRepository.findPrognosesForSettlement(startDate, endDate);
+    public void findRelevantPrognoses(LocalDate startDate, LocalDate endDate, Consumer<List<PtuPrognosis>> documentConsumer) {
+        consumeDocuments(ptuPrognosisRepository,
+                lastRow -> ptuPrognosisRepository.findPrognosesForSettlement(startDate, endDate, lastRow, SETTLEMENT_PAGE_SIZE),
+                documentConsumer);
     }
 
     /**
      * Finds all flex requests candidate to settlement process (period of the flex request within the interval defined by the two
-     * given dates and status ACCEPTED).
+     * given dates and status ACCEPTED). Each flex request is handed over to the consumer as soon as all its PTUs have been
+     * read.
      *
      * @param startDate {@link LocalDate} start date of the settlement (inclusive).
      * @param endDate {@link LocalDate} end date of the settlement (inclusive).
-     * @return a {@link List} of {@link PtuFlexRequest}.
+     * @param documentConsumer {@link Consumer} of the {@link PtuFlexRequest} entities of a same flex request.
      */
-    public List<PtuFlexRequest> findRelevantFlexRequests(LocalDate startDate, LocalDate endDate) {
-        return ptuFlexRequestRepository.findFlexRequestsForSettlement(startDate, endDate);
+    public void findRelevantFlexRequests(LocalDate startDate, LocalDate endDate, Consumer<List<PtuFlexRequest>> documentConsumer) {
+        consumeDocuments(ptuFlexRequestRepository,
+                lastRow -> ptuFlexRequestRepository.findFlexRequestsForSettlement(startDate, endDate, lastRow, SETTLEMENT_PAGE_SIZE),
+                documentConsumer);
     }
 
     /**
-     * Finds all accepted flex offers for the period defined by the two given dates.
+     * Finds all accepted flex offers for the period defined by the two given dates. Each flex offer is handed over to the
+     * consumer as soon as all its PTUs have been read.
      *
      * @param startDate {@link LocalDate} start date of the settlement period (inclusive).
      * @param endDate {@link LocalDate} end date of the settlement period (inclusive).
-     * @return a {@link List} of {@link PtuFlexOffer}.
+     * @param documentConsumer {@link Consumer} of the {@link PtuFlexOffer} entities of a same flex offer.
      */
-    public List<PtuFlexOffer> findRelevantFlexOffers(LocalDate startDate, LocalDate endDate) {
-        return ptuFlexOfferRepository.findFlexOffersForSettlement(startDate, endDate);
+    public void findRelevantFlexOffers(LocalDate startDate, LocalDate endDate, Consumer<List<PtuFlexOffer>> documentConsumer) {
+        consumeDocuments(ptuFlexOfferRepository,
+                lastRow -> ptuFlexOfferRepository.findFlexOffersForSettlement(startDate, endDate, lastRow, SETTLEMENT_PAGE_SIZE),
+                documentConsumer);
     }
 
     /**
-     * Finds all acknowledged flex orders for the period defined by the two given dates.
+     * Finds all acknowledged flex orders for the period defined by the two given dates. Each flex order is handed over to the
+     * consumer as soon as all its PTUs have been read.
      *
      * @param startDate {@link LocalDate} start date of the settlement period (inclusive).
      * @param endDate {@link LocalDate} end date of the settlement period (inclusive).
-     * @return a {@link List} of {@link PtuFlexOrder}.
+     * @param documentConsumer {@link Consumer} of the {@link PtuFlexOrder} entities of a same flex order.
+     */
+    public void findRelevantFlexOrders(LocalDate startDate, LocalDate endDate, Consumer<List<PtuFlexOrder>> documentConsumer) {
+        consumeDocuments(ptuFlexOrderRepository,
+                lastRow -> ptuFlexOrderRepository.findFlexOrdersForSettlement(startDate, endDate, lastRow, SETTLEMENT_PAGE_SIZE),
+                documentConsumer);
+    }
+
+    /**
+     * Reads the PTU rows page by page, each page starting after the last row of the previous one, and hands the rows of each
+     * document over to the consumer as soon as the next document starts. The rows are detached from the persistence context
+     * once read, so that at most one page of rows is attached to it. What the consumer keeps of the documents is up to it.
      */
-    public List<PtuFlexOrder> findRelevantFlexOrders(LocalDate startDate, LocalDate endDate) {
-        return ptuFlexOrderRepository.findFlexOrdersForSettlement(startDate, endDate);
+    private <T extends Exchange> void consumeDocuments(BaseRepository<T> repository, Function<Optional<T>, List<T>> pageReader,
+            Consumer<List<T>> documentConsumer) {
+        List<T> currentDocument = new ArrayList<>();
+        Optional<T> lastRow = Optional.empty();
+        List<T> page;
+        do {
+            page = pageReader.apply(lastRow);
+            for (T row : page) {
+                if (!currentDocument.isEmpty() && !isSameDocument(currentDocument.get(0), row)) {
+                    documentConsumer.accept(currentDocument);
+                    currentDocument = new ArrayList<>();
+                }
+                currentDocument.add(row);
+            }
+            repository.detach(page);
+            if (!page.isEmpty()) {
+                lastRow = Optional.of(page.get(page.size() - 1));
+            }
+        } while (page.size() == SETTLEMENT_PAGE_SIZE);
+        if (!currentDocument.isEmpty()) {
+            documentConsumer.accept(currentDocument);
+        }
+    }
+
+    private static boolean isSameDocument(Exchange first, Exchange second) {
+        return Objects.equals(first.getSequence(), second.getSequence())
+                && Objects.equals(first.getParticipantDomain(), second.getParticipantDomain())
+                && first.getConnectionGroup().getUsefIdentifier().equals(second.getConnectionGroup().getUsefIdentifier());
     }
 
     /**
-     * Stores Flex Order Settlement items in the database.
+     * Stores Flex Order Settlement items in the database. The related flex orders (and their connection group) are fetched with
+     * one query per batch of {@value #FLEX_ORDER_LOOKUP_BATCH_SIZE} settlements. The new settlements are flushed regularly so
+     * that the inserts are sent in JDBC batches, after which only these settlements are detached; the other managed entities
+     * of the transaction stay attached.
      *
      * @param flexOrderSettlementDtos a {@link List} of {@link FlexOrderSettlementDto} items, which will be transformed to {@link
      * FlexOrderSettlement} entities.
@@ -156,13 +216,40 @@ public class CoreSettlementBusinessService {
                 .collect(Collectors.toSet());
         Map<LocalDate, Map<Integer, PtuContainer>> ptuContainersPerPeriod = periods.stream().collect(
                 Collectors.toMap(Function.identity(), ptuContainerRepository::findPtuContainersMap));
-        flexOrderSettlementDtos.stream()
-                .map(flexOrderSettlementDto -> transformFlexOrderSettlement(flexOrderSettlementDto,
-                        ptuContainersPerPeriod.get(flexOrderSettlementDto.getPeriod())))
-                .forEach(flexOrderSettlement -> {
-                    flexOrderSettlementRepository.persist(flexOrderSettlement);
-                    flexOrderSettlement.getPtuSettlements().forEach(ptuSettlementRepository::persist);
-                });
+        List<FlexOrderSettlement> unflushedSettlements = new ArrayList<>();
+        for (int fromIndex = 0; fromIndex < flexOrderSettlementDtos.size(); fromIndex += FLEX_ORDER_LOOKUP_BATCH_SIZE) {
+            List<FlexOrderSettlementDto> batch = flexOrderSettlementDtos.subList(fromIndex,
+                    Math.min(fromIndex + FLEX_ORDER_LOOKUP_BATCH_SIZE, flexOrderSettlementDtos.size()));
+            Map<Long, List<PlanboardMessage>> flexOrdersPerSequence = planboardMessageRepository
+                    .findPlanboardMessagesWithSequences(DocumentType.FLEX_ORDER, batch.stream()
+                            .map(flexOrderSettlementDto -> flexOrderSettlementDto.getFlexOrder().getSequenceNumber())
+                            .collect(Collectors.toSet()))
+                    .stream()
+                    .collect(Collectors.groupingBy(PlanboardMessage::getSequence));
+            for (FlexOrderSettlementDto flexOrderSettlementDto : batch) {
+                FlexOrderSettlement flexOrderSettlement = transformFlexOrderSettlement(flexOrderSettlementDto,
+                        findFlexOrder(flexOrderSettlementDto.getFlexOrder(), flexOrdersPerSequence),
+                        ptuContainersPerPeriod.get(flexOrderSettlementDto.getPeriod()));
+                flexOrderSettlementRepository.persist(flexOrderSettlement);
+                flexOrderSettlement.getPtuSettlements().forEach(ptuSettlementRepository::persist);
+                unflushedSettlements.add(flexOrderSettlement);
+                if (unflushedSettlements.size() == BaseRepository.BATCH_FLUSH_SIZE) {
+                    flushAndDetach(unflushedSettlements);
+                }
+            }
+        }
+        flushAndDetach(unflushedSettlements);
+    }
+
+    private void flushAndDetach(List<FlexOrderSettlement> flexOrderSettlements) {
+        if (flexOrderSettlements.isEmpty()) {
+            return;
+        }
+        flexOrderSettlementRepository.flush();
+        flexOrderSettlements.forEach(
+                flexOrderSettlement -> ptuSettlementRepository.detach(flexOrderSettlement.getPtuSettlements()));
+        flexOrderSettlementRepository.detach(flexOrderSettlements);
+        flexOrderSettlements.clear();
     }
 
     /**
@@ -178,17 +265,28 @@ public class CoreSettlementBusinessService {
         return flexOrderSettlementRepository.isEachFlexOrderReadyForSettlement(year, month);
     }
 
+    private PlanboardMessage findFlexOrder(FlexOrderDto flexOrderDto, Map<Long, List<PlanboardMessage>> flexOrdersPerSequence) {
+        List<PlanboardMessage> flexOrders = flexOrdersPerSequence.getOrDefault(flexOrderDto.getSequenceNumber(),
+                Collections.emptyList()).stream()
+                .filter(flexOrder -> flexOrder.getParticipantDomain().equals(flexOrderDto.getParticipantDomain()))
+                .filter(flexOrder -> flexOrder.getConnectionGroup().getUsefIdentifier()
+                        .equals(flexOrderDto.getConnectionGroupEntityAddress()))
+                .collect(Collectors.toList());
+        if (flexOrders.size() != 1) {
+            throw new TechnicalException("Expected exactly one flex order with the business key (usefIdentifier = ["
+                    + flexOrderDto.getConnectionGroupEntityAddress() + "], sequenceNumber = [" + flexOrderDto.getSequenceNumber()
+                    + "], participantDomain = [" + flexOrderDto.getParticipantDomain() + "]), found " + flexOrders.size());
+        }
+        return flexOrders.get(0);
+    }
+
     private FlexOrderSettlement transformFlexOrderSettlement(FlexOrderSettlementDto flexOrderSettlementDto,
-            Map<Integer, PtuContainer> ptuContainersPerIndex) {
+            PlanboardMessage flexOrder, Map<Integer, PtuContainer> ptuContainersPerIndex) {
         final Long sequenceNumber = sequenceGeneratorService.next();
         FlexOrderSettlement flexOrderSettlement = new FlexOrderSettlement();
-        flexOrderSettlement.setFlexOrder(planboardMessageRepository.findSinglePlanboardMessage(
-                flexOrderSettlementDto.getFlexOrder().getConnectionGroupEntityAddress(),
-                flexOrderSettlementDto.getFlexOrder().getSequenceNumber(),
-                flexOrderSettlementDto.getFlexOrder().getParticipantDomain()));
+        flexOrderSettlement.setFlexOrder(flexOrder);
         flexOrderSettlement.setSequence(sequenceNumber);
-        flexOrderSettlement.setConnectionGroup(
-                connectionGroupRepository.find(flexOrderSettlementDto.getFlexOrder().getConnectionGroupEntityAddress()));
+        flexOrderSettlement.setConnectionGroup(flexOrder.getConnectionGroup());
         flexOrderSettlement.setPeriod(flexOrderSettlementDto.getPeriod());
         flexOrderSettlement.getPtuSettlements()
                 .addAll(flexOrderSettlementDto.getPtuSettlementDtos()
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.core.workflow.settlement;
+
+import java.util.Objects;
+
+/**
+ * Immutable business key of a document exchanged with a participant (participant domain, sequence number and USEF identifier of
+ * the connection group), used to match the documents relevant for the settlement. The hash code is computed once since the keys
+ * are looked up for every document of the settlement period.
+ */
+public final class SettlementDocumentKey {
+
+    private final String participantDomain;
+    private final Long sequence;
+    private final String connectionGroup;
+    private final int hashCode;
+
+    /**
+     * Creates the key of a document.
+     *
+     * @param participantDomain {@link String} domain name of the participant the document is exchanged with.
+     * @param sequence {@link Long} sequence number of the document.
+     * @param connectionGroup {@link String} USEF identifier of the connection group of the document.
+     */
+    public SettlementDocumentKey(String participantDomain, Long sequence, String connectionGroup) {
+        this.participantDomain = participantDomain;
+        this.sequence = sequence;
+        this.connectionGroup = connectionGroup;
+        this.hashCode = Objects.hash(participantDomain, sequence, connectionGroup);
+    }
+
+    public String getParticipantDomain() {
+        return participantDomain;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public String getConnectionGroup() {
+        return connectionGroup;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        SettlementDocumentKey other = (SettlementDocumentKey) obj;
+        return hashCode == other.hashCode
+                && Objects.equals(sequence, other.sequence)
+                && Objects.equals(participantDomain, other.participantDomain)
+                && Objects.equals(connectionGroup, other.connectionGroup);
+    }
+
+    @Override
+    public String toString() {
+        return "SettlementDocumentKey" + "[" +
+                "participantDomain='" + participantDomain + "'" +
+                ", sequence=" + sequence +
+                ", connectionGroup='" + connectionGroup + "'" +
+                "]";
+    }
+}
@@ -19,6 +19,7 @@ package energy.usef.core.workflow.coordinator;
 import static energy.usef.core.model.DocumentType.FLEX_ORDER;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -41,6 +42,7 @@ import energy.usef.core.workflow.dto.PtuFlexOfferDto;
 import energy.usef.core.workflow.dto.PtuSettlementDto;
 import energy.usef.core.workflow.dto.SettlementDto;
 import energy.usef.core.workflow.settlement.CoreSettlementBusinessService;
+import energy.usef.core.workflow.settlement.SettlementDocumentKey;
 import energy.usef.core.workflow.step.WorkflowStepExecuter;
 
 import java.math.BigDecimal;
@@ -48,6 +50,7 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.joda.time.LocalDate;
 import org.joda.time.LocalDateTime;
@@ -127,28 +130,28 @@ public class AbstractSettlementCoordinatorTest {
     public void testFetchRelevantPrognoses() throws Exception {
         List<PrognosisDto> prognosisDtos = coordinator.fetchRelevantPrognoses(START_DATE, END_DATE);
         Assert.assertNotNull(prognosisDtos);
-        verify(coreSettlementBusinessService, times(1)).findRelevantPrognoses(START_DATE, END_DATE);
+        verify(coreSettlementBusinessService, times(1)).findRelevantPrognoses(eq(START_DATE), eq(END_DATE), any(Consumer.class));
     }
 
     @Test
     public void testFetchRelevantFlexRequests() throws Exception {
         List<FlexRequestDto> flexRequestDtos = coordinator.fetchRelevantFlexRequests(START_DATE, END_DATE);
         Assert.assertNotNull(flexRequestDtos);
-        verify(coreSettlementBusinessService, times(1)).findRelevantFlexRequests(START_DATE, END_DATE);
+        verify(coreSettlementBusinessService, times(1)).findRelevantFlexRequests(eq(START_DATE), eq(END_DATE), any(Consumer.class));
     }
 
     @Test
     public void testFetchRelevantFlexOffers() throws Exception {
         List<FlexOfferDto> flexOfferDtos = coordinator.fetchRelevantFlexOffers(START_DATE, END_DATE);
         Assert.assertNotNull(flexOfferDtos);
-        verify(coreSettlementBusinessService, times(1)).findRelevantFlexOffers(START_DATE, END_DATE);
+        verify(coreSettlementBusinessService, times(1)).findRelevantFlexOffers(eq(START_DATE), eq(END_DATE), any(Consumer.class));
     }
 
     @Test
     public void testFetchRelevantFlexOrders() throws Exception {
         List<FlexOrderDto> orderDtos = coordinator.fetchRelevantFlexOrders(START_DATE, END_DATE, new ArrayList<>());
         Assert.assertNotNull(orderDtos);
-        verify(coreSettlementBusinessService, times(1)).findRelevantFlexOrders(START_DATE, END_DATE);
+        verify(coreSettlementBusinessService, times(1)).findRelevantFlexOrders(eq(START_DATE), eq(END_DATE), any(Consumer.class));
     }
 
     @Test
@@ -166,6 +169,80 @@ public class AbstractSettlementCoordinatorTest {
         Assert.assertEquals(new BigDecimal("5.0000"), settlementDto.getFlexOrderSettlementDtos().get(0).getPtuSettlementDtos().get(0).getPrice());
     }
 
+    @Test
+    public void testCalculateSettlementPriceWithCollidingDocumentKeys() throws Exception {
+        // "agr.example1" + 23 and "agr.example" + 123 used to produce the same key.
+        List<FlexOfferDto> flexOffers = new ArrayList<>();
+        flexOffers.add(createFlexOfferDto("agr.example1", 23L, "cp1", BigDecimal.ONE));
+        flexOffers.add(createFlexOfferDto("agr.example", 123L, "cp1", BigDecimal.TEN));
+        SettlementDto settlementDto = buildSettlementDto();
+        settlementDto.getFlexOrderSettlementDtos().get(0).getFlexOrder().setParticipantDomain("agr.example");
+        settlementDto.getFlexOrderSettlementDtos().get(0).getFlexOrder().setFlexOfferSequenceNumber(123L);
+
+        settlementDto = coordinator.calculateSettlementPrice(settlementDto, flexOffers);
+
+        Assert.assertEquals(new BigDecimal("5.0000"), settlementDto.getFlexOrderSettlementDtos().get(0).getPtuSettlementDtos().get(0).getPrice());
+    }
+
+    @Test
+    public void testFetchRelevantFlexOrdersWithCollidingDocumentKeys() throws Exception {
+        // 12 + "3usefdev.org" and 123 + "usefdev.org" used to produce the same key.
+        FlexOfferDto collidingFlexOffer = createFlexOfferDto("3usefdev.org", 12L, "usef.energy", BigDecimal.ONE);
+        relevantFlexOffers.get(0).setSequenceNumber(123L);
+        relevantFlexOffers.add(collidingFlexOffer);
+        doAnswer(call -> {
+            List<PtuFlexOrder> ptuFlexOrderList = new ArrayList<>();
+            for (int i = 1; i <= 6; i++) {
+                PtuFlexOrder ptuFlexOrder = createPtuFlexOrder(END_DATE, i);
+                ptuFlexOrder.setFlexOfferSequence(123L);
+                ptuFlexOrderList.add(ptuFlexOrder);
+            }
+            Consumer<List<PtuFlexOrder>> documentConsumer = (Consumer<List<PtuFlexOrder>>) call.getArguments()[2];
+            documentConsumer.accept(ptuFlexOrderList);
+            return null;
+        }).when(coreSettlementBusinessService).findRelevantFlexOrders(any(LocalDate.class), any(LocalDate.class),
+                any(Consumer.class));
+        when(corePlanboardBusinessService.findPlanboardMessages(eq(FLEX_ORDER), any(LocalDate.class), any(LocalDate.class),
+                Matchers.eq(DocumentStatus.ACCEPTED))).then(call -> {
+            PlanboardMessage planboardMessage = new PlanboardMessage();
+            planboardMessage.setCreationDateTime(DATE_TIME);
+            planboardMessage.setSequence(3L);
+            planboardMessage.setParticipantDomain("usefdev.org");
+            planboardMessage.setConnectionGroup(new BrpConnectionGroup("usef.energy"));
+            return Collections.singletonList(planboardMessage);
+        });
+
+        List<FlexOrderDto> orderDtos = coordinator.fetchRelevantFlexOrders(START_DATE, END_DATE, relevantFlexOffers);
+
+        Assert.assertEquals(1, orderDtos.size());
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(BigInteger.valueOf(i + 1), orderDtos.get(0).getPtus().get(i).getPower());
+        }
+    }
+
+    @Test
+    public void testSettlementDocumentKey() {
+        SettlementDocumentKey key = new SettlementDocumentKey("agr.example", 123L, "cp1");
+        Assert.assertEquals(key, new SettlementDocumentKey("agr.example", 123L, "cp1"));
+        Assert.assertEquals(key.hashCode(), new SettlementDocumentKey("agr.example", 123L, "cp1").hashCode());
+        Assert.assertNotEquals(key, new SettlementDocumentKey("agr.example1", 23L, "cp1"));
+        Assert.assertNotEquals(key, new SettlementDocumentKey("agr.example", 123L, "cp2"));
+        Assert.assertNotEquals(new SettlementDocumentKey("3agr.example", 12L, null), new SettlementDocumentKey("agr.example", 123L, null));
+    }
+
+    private FlexOfferDto createFlexOfferDto(String participantDomain, Long sequence, String connectionGroup, BigDecimal price) {
+        FlexOfferDto flexOffer = new FlexOfferDto();
+        PtuFlexOfferDto ptuFlexOffer = new PtuFlexOfferDto();
+        ptuFlexOffer.setPrice(price);
+        ptuFlexOffer.setPtuIndex(BigInteger.ONE);
+        ptuFlexOffer.setPower(BigInteger.TEN);
+        flexOffer.getPtus().add(ptuFlexOffer);
+        flexOffer.setParticipantDomain(participantDomain);
+        flexOffer.setSequenceNumber(sequence);
+        flexOffer.setConnectionGroupEntityAddress(connectionGroup);
+        return flexOffer;
+    }
+
     private List<FlexOfferDto> buildPtuFlexOfferList() {
         List<FlexOfferDto> flexOffers = new ArrayList<>();
         FlexOfferDto flexOffer = new FlexOfferDto();
@@ -197,6 +274,7 @@ public class AbstractSettlementCoordinatorTest {
         FlexOrderDto flexOrderDto = new FlexOrderDto();
         flexOrderDto.setFlexOfferSequenceNumber(1l);
         flexOrderDto.setParticipantDomain("agr.usef-example.com");
+        flexOrderDto.setConnectionGroupEntityAddress("cp1");
         flexOrderSettlementDto.setFlexOrder(flexOrderDto);
         settlementDto.getFlexOrderSettlementDtos().add(flexOrderSettlementDto);
         return settlementDto;
@@ -206,12 +284,15 @@ public class AbstractSettlementCoordinatorTest {
     public void testFetchRelevantFlexOrders2() throws Exception {
         // Use 4 hour PTU Duration resulting in 6 PTU's per day
         when(config.getIntegerProperty(ConfigParam.PTU_DURATION)).thenReturn(240);
-        when(coreSettlementBusinessService.findRelevantFlexOrders(any(LocalDate.class), any(LocalDate.class))).then(call -> {
+        doAnswer(call -> {
             List<PtuFlexOrder> ptuFlexOrderList = new ArrayList<>();
             for (int i = 1; i <=6; i++)
                 ptuFlexOrderList.add(createPtuFlexOrder((LocalDate) call.getArguments()[0], i));
-            return ptuFlexOrderList;
-        });
+            Consumer<List<PtuFlexOrder>> documentConsumer = (Consumer<List<PtuFlexOrder>>) call.getArguments()[2];
+            documentConsumer.accept(ptuFlexOrderList);
+            return null;
+        }).when(coreSettlementBusinessService).findRelevantFlexOrders(any(LocalDate.class), any(LocalDate.class),
+                any(Consumer.class));
 
         when(corePlanboardBusinessService
                 .findPlanboardMessages(eq(FLEX_ORDER), any(LocalDate.class), any(LocalDate.class), Matchers
@@ -221,11 +302,12 @@ public class AbstractSettlementCoordinatorTest {
             planboardMessage.setCreationDateTime(DATE_TIME);
             planboardMessage.setSequence(3L);
             planboardMessage.setParticipantDomain("usefdev.org");
+            planboardMessage.setConnectionGroup(new BrpConnectionGroup("usef.energy"));
             return Collections.singletonList(planboardMessage);
         });
         List<FlexOrderDto> orderDtos = coordinator.fetchRelevantFlexOrders(START_DATE, END_DATE, relevantFlexOffers);
         Assert.assertNotNull(orderDtos);
-        verify(coreSettlementBusinessService, times(1)).findRelevantFlexOrders(START_DATE, END_DATE);
+        verify(coreSettlementBusinessService, times(1)).findRelevantFlexOrders(eq(START_DATE), eq(END_DATE), any(Consumer.class));
         verify(corePlanboardBusinessService, times(1)).findPlanboardMessages(FLEX_ORDER, START_DATE, END_DATE, DocumentStatus.ACCEPTED);
         verify(corePlanboardBusinessService, times(1)).findPlanboardMessages(FLEX_ORDER, START_DATE, END_DATE, DocumentStatus.PROCESSED);
 
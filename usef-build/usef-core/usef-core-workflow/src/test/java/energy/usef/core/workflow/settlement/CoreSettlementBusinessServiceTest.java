@@ -18,15 +18,17 @@ package energy.usef.core.workflow.settlement;
 
 import static org.powermock.reflect.Whitebox.setInternalState;
 
+import energy.usef.core.exception.TechnicalException;
 import energy.usef.core.model.BrpConnectionGroup;
 import energy.usef.core.model.Connection;
 import energy.usef.core.model.ConnectionGroup;
 import energy.usef.core.model.ConnectionGroupState;
 import energy.usef.core.model.DocumentStatus;
 import energy.usef.core.model.DocumentType;
+import energy.usef.core.model.FlexOrderSettlement;
 import energy.usef.core.model.PlanboardMessage;
 import energy.usef.core.model.PtuContainer;
-import energy.usef.core.repository.ConnectionGroupRepository;
+import energy.usef.core.model.PtuPrognosis;
 import energy.usef.core.repository.ConnectionGroupStateRepository;
 import energy.usef.core.repository.FlexOrderSettlementRepository;
 import energy.usef.core.repository.PlanboardMessageRepository;
@@ -46,16 +48,20 @@ import energy.usef.core.workflow.dto.PtuSettlementDto;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.joda.time.LocalDate;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -89,8 +95,6 @@ public class CoreSettlementBusinessServiceTest extends TestCase {
     @Mock
     private PtuSettlementRepository ptuSettlementRepository;
     @Mock
-    private ConnectionGroupRepository connectionGroupRepository;
-    @Mock
     private SequenceGeneratorService sequenceGeneratorService;
 
     @Before
@@ -105,7 +109,6 @@ public class CoreSettlementBusinessServiceTest extends TestCase {
         setInternalState(service, "ptuFlexOrderRepository", ptuFlexOrderRepository);
         setInternalState(service, "flexOrderSettlementRepository", flexOrderSettlementRepository);
         setInternalState(service, "ptuSettlementRepository", ptuSettlementRepository);
-        setInternalState(service, "connectionGroupRepository", connectionGroupRepository);
         setInternalState(service, "sequenceGeneratorService", sequenceGeneratorService);
     }
 
@@ -162,8 +165,9 @@ public class CoreSettlementBusinessServiceTest extends TestCase {
         LocalDate startDate = new LocalDate();
         LocalDate endDate = new LocalDate();
 
-        service.findRelevantPrognoses(startDate, endDate);
-        Mockito.verify(ptuPrognosisRepository, Mockito.times(1)).findPrognosesForSettlement(startDate, endDate);
+        service.findRelevantPrognoses(startDate, endDate, document -> {});
+        Mockito.verify(ptuPrognosisRepository, Mockito.times(1))
+                .findPrognosesForSettlement(startDate, endDate, Optional.empty(), CoreSettlementBusinessService.SETTLEMENT_PAGE_SIZE);
     }
 
     @Test
@@ -171,8 +175,9 @@ public class CoreSettlementBusinessServiceTest extends TestCase {
         LocalDate startDate = new LocalDate();
         LocalDate endDate = new LocalDate();
 
-        service.findRelevantFlexRequests(startDate, endDate);
-        Mockito.verify(ptuFlexRequestRepository, Mockito.times(1)).findFlexRequestsForSettlement(startDate, endDate);
+        service.findRelevantFlexRequests(startDate, endDate, document -> {});
+        Mockito.verify(ptuFlexRequestRepository, Mockito.times(1))
+                .findFlexRequestsForSettlement(startDate, endDate, Optional.empty(), CoreSettlementBusinessService.SETTLEMENT_PAGE_SIZE);
     }
 
     @Test
@@ -180,8 +185,9 @@ public class CoreSettlementBusinessServiceTest extends TestCase {
         LocalDate startDate = new LocalDate();
         LocalDate endDate = new LocalDate();
 
-        service.findRelevantFlexOffers(startDate, endDate);
-        Mockito.verify(ptuFlexOfferRepository, Mockito.times(1)).findFlexOffersForSettlement(startDate, endDate);
+        service.findRelevantFlexOffers(startDate, endDate, document -> {});
+        Mockito.verify(ptuFlexOfferRepository, Mockito.times(1))
+                .findFlexOffersForSettlement(startDate, endDate, Optional.empty(), CoreSettlementBusinessService.SETTLEMENT_PAGE_SIZE);
     }
 
     @Test
@@ -189,8 +195,59 @@ public class CoreSettlementBusinessServiceTest extends TestCase {
         LocalDate startDate = new LocalDate();
         LocalDate endDate = new LocalDate();
 
-        service.findRelevantFlexOrders(startDate, endDate);
-        Mockito.verify(ptuFlexOrderRepository, Mockito.times(1)).findFlexOrdersForSettlement(startDate, endDate);
+        service.findRelevantFlexOrders(startDate, endDate, document -> {});
+        Mockito.verify(ptuFlexOrderRepository, Mockito.times(1))
+                .findFlexOrdersForSettlement(startDate, endDate, Optional.empty(), CoreSettlementBusinessService.SETTLEMENT_PAGE_SIZE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFindRelevantPrognosesKeepsOnePageAttached() throws Exception {
+        final int connectionGroups = 1000;
+        final int days = 31;
+        final int ptusPerDay = 96;
+        final int rows = connectionGroups * days * ptusPerDay;
+        LocalDate startDate = new LocalDate(2015, 1, 1);
+        LocalDate endDate = startDate.plusDays(days - 1);
+        ConnectionGroup[] connectionGroupList = new ConnectionGroup[connectionGroups];
+        for (int i = 0; i < connectionGroups; i++) {
+            connectionGroupList[i] = createConnectionGroup("brp1.com", "ea1.2015-12.1:" + i);
+        }
+        // rows read from the database and not detached yet
+        AtomicInteger attachedRows = new AtomicInteger();
+        AtomicInteger maxAttachedRows = new AtomicInteger();
+        Mockito.when(ptuPrognosisRepository.findPrognosesForSettlement(Matchers.eq(startDate), Matchers.eq(endDate),
+                Matchers.any(Optional.class), Matchers.anyInt())).then(call -> {
+            // the rows are numbered by their id, a page starts right after the last row of the previous page
+            Optional<PtuPrognosis> lastRow = (Optional<PtuPrognosis>) call.getArguments()[2];
+            int firstResult = lastRow.map(ptuPrognosis -> ptuPrognosis.getId().intValue() + 1).orElse(0);
+            int lastResult = Math.min(rows, firstResult + (Integer) call.getArguments()[3]);
+            List<PtuPrognosis> page = new ArrayList<>();
+            for (int row = firstResult; row < lastResult; row++) {
+                int document = row / ptusPerDay;
+                PtuPrognosis ptuPrognosis = new PtuPrognosis();
+                ptuPrognosis.setId((long) row);
+                ptuPrognosis.setConnectionGroup(connectionGroupList[document / days]);
+                ptuPrognosis.setParticipantDomain("agr.usef-example.com");
+                ptuPrognosis.setSequence((long) document);
+                ptuPrognosis.setPtuContainer(new PtuContainer(startDate.plusDays(document % days), row % ptusPerDay + 1));
+                ptuPrognosis.setPower(BigInteger.TEN);
+                page.add(ptuPrognosis);
+            }
+            maxAttachedRows.set(Math.max(maxAttachedRows.get(), attachedRows.addAndGet(page.size())));
+            return page;
+        });
+        Mockito.doAnswer(call -> attachedRows.addAndGet(-((List) call.getArguments()[0]).size())).when(ptuPrognosisRepository)
+                .detach(Matchers.anyList());
+
+        List<Integer> documentSizes = new ArrayList<>();
+        service.findRelevantPrognoses(startDate, endDate, ptuPrognoses -> documentSizes.add(ptuPrognoses.size()));
+
+        assertEquals(connectionGroups * days, documentSizes.size());
+        documentSizes.forEach(documentSize -> assertEquals(ptusPerDay, documentSize.intValue()));
+        // the rows of the whole month are never attached at once, only one page of rows.
+        assertEquals(CoreSettlementBusinessService.SETTLEMENT_PAGE_SIZE, maxAttachedRows.get());
+        assertEquals(0, attachedRows.get());
     }
 
     @Test
@@ -208,36 +265,40 @@ public class CoreSettlementBusinessServiceTest extends TestCase {
 
         Mockito.when(ptuContainerRepository.findPtuContainersMap(period)).thenReturn(ptuContainersMap);
 
-
-        //lexOrderSettlementDto.getFlexOrder().getConnectionGroupEntityAddress(),
-         //       flexOrderSettlementDto.getFlexOrder().getSequenceNumber(),
-           //     flexOrderSettlementDto.getFlexOrder().getParticipantDomain()));
-
         BrpConnectionGroup connectionGroup = new BrpConnectionGroup(entityAddress);
         connectionGroup.setBrpDomain(domainName);
 
-        PlanboardMessage pbm = new PlanboardMessage();
-        pbm.setPeriod(period);
-
-        pbm.setConnectionGroup(connectionGroup);
-        pbm.setParticipantDomain(domainName);
-        pbm.setDocumentStatus(DocumentStatus.ACCEPTED);
-        pbm.setDocumentType(DocumentType.FLEX_ORDER);
-        pbm.setSequence(1L);
-
-        Mockito.when(planboardMessageRepository.findSinglePlanboardMessage(entityAddress, 1L, domainName)).thenReturn(pbm);
-
+        List<PlanboardMessage> flexOrders = new ArrayList<>();
         List<FlexOrderSettlementDto> dtoList = new ArrayList<FlexOrderSettlementDto>();
-        dtoList.add(createFlexOrderSettlementDto(period, entityAddress, domainName, 1L));
-        dtoList.add(createFlexOrderSettlementDto(period, entityAddress, domainName, 2L));
-        dtoList.add(createFlexOrderSettlementDto(period, entityAddress, domainName, 3L));
-        dtoList.add(createFlexOrderSettlementDto(period, entityAddress, domainName, 4L));
-        dtoList.add(createFlexOrderSettlementDto(period, entityAddress, domainName, 5L));
+        for (long sequence = 1L; sequence <= 5L; sequence++) {
+            flexOrders.add(createFlexOrder(period, connectionGroup, domainName, sequence));
+            dtoList.add(createFlexOrderSettlementDto(period, entityAddress, domainName, sequence));
+        }
+        // same sequence number at another participant, must not be matched.
+        flexOrders.add(createFlexOrder(period, connectionGroup, "brp3.com", 1L));
+        Mockito.when(planboardMessageRepository.findPlanboardMessagesWithSequences(Matchers.eq(DocumentType.FLEX_ORDER),
+                Matchers.anyCollectionOf(Long.class))).thenReturn(flexOrders);
 
         service.createFlexOrderSettlements(dtoList);
 
-        Mockito.verify(flexOrderSettlementRepository, Mockito.times(5)).persist(Mockito.anyObject());
+        ArgumentCaptor<FlexOrderSettlement> settlementCaptor = ArgumentCaptor.forClass(FlexOrderSettlement.class);
+        Mockito.verify(flexOrderSettlementRepository, Mockito.times(5)).persist(settlementCaptor.capture());
         Mockito.verify(ptuSettlementRepository, Mockito.times(20)).persist(Mockito.anyObject());
+        for (int i = 0; i < 5; i++) {
+            FlexOrderSettlement settlement = settlementCaptor.getAllValues().get(i);
+            assertSame(flexOrders.get(i), settlement.getFlexOrder());
+            assertSame(connectionGroup, settlement.getConnectionGroup());
+        }
+    }
+
+    @Test(expected = TechnicalException.class)
+    public void testCreateFlexOrderSettlementsWithUnknownFlexOrder() throws Exception {
+        LocalDate period = new LocalDate();
+        Mockito.when(planboardMessageRepository.findPlanboardMessagesWithSequences(Matchers.eq(DocumentType.FLEX_ORDER),
+                Matchers.anyCollectionOf(Long.class))).thenReturn(new ArrayList<>());
+
+        service.createFlexOrderSettlements(
+                Collections.singletonList(createFlexOrderSettlementDto(period, "ea1.2015-12.2:0", "brp2.com", 1L)));
     }
 
     @Test
@@ -309,6 +370,18 @@ public class CoreSettlementBusinessServiceTest extends TestCase {
         return dto;
     }
 
+    private PlanboardMessage createFlexOrder(LocalDate period, ConnectionGroup connectionGroup, String participantDomain,
+            Long sequence) {
+        PlanboardMessage flexOrder = new PlanboardMessage();
+        flexOrder.setPeriod(period);
+        flexOrder.setConnectionGroup(connectionGroup);
+        flexOrder.setParticipantDomain(participantDomain);
+        flexOrder.setDocumentStatus(DocumentStatus.ACCEPTED);
+        flexOrder.setDocumentType(DocumentType.FLEX_ORDER);
+        flexOrder.setSequence(sequence);
+        return flexOrder;
+    }
+
     private PtuSettlementDto createPtuSettlementDto (BigInteger ptuIndex) {
         PtuSettlementDto dto = new PtuSettlementDto();
 
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.core.workflow.settlement;
+
+import static org.powermock.reflect.Whitebox.setInternalState;
+
+import energy.usef.core.model.BrpConnectionGroup;
+import energy.usef.core.model.DocumentStatus;
+import energy.usef.core.model.DocumentType;
+import energy.usef.core.model.PlanboardMessage;
+import energy.usef.core.model.PtuContainer;
+import energy.usef.core.repository.FlexOrderSettlementRepository;
+import energy.usef.core.repository.PlanboardMessageRepository;
+import energy.usef.core.repository.PtuContainerRepository;
+import energy.usef.core.repository.PtuSettlementRepository;
+import energy.usef.core.service.business.SequenceGeneratorService;
+import energy.usef.core.workflow.dto.FlexOrderDto;
+import energy.usef.core.workflow.dto.FlexOrderSettlementDto;
+import energy.usef.core.workflow.dto.PtuSettlementDto;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test class counting the statements sent to an H2 database when the {@link CoreSettlementBusinessService} stores flex order
+ * settlements.
+ */
+public class FlexOrderSettlementStorageTest {
+
+    private static final LocalDate PERIOD = new LocalDate(2015, 11, 15);
+    private static final String PARTICIPANT_DOMAIN = "brp.usef-example.com";
+    private static final int PTUS_PER_SETTLEMENT = 4;
+
+    private static EntityManagerFactory entityManagerFactory;
+    private static EntityManager entityManager;
+
+    private CoreSettlementBusinessService service;
+
+    @BeforeClass
+    public static void initTestFixture() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("hibernate.generate_statistics", "true");
+        entityManagerFactory = Persistence.createEntityManagerFactory("test", properties);
+        entityManager = entityManagerFactory.createEntityManager();
+    }
+
+    @AfterClass
+    public static void closeTestFixture() {
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+
+    @Before
+    public void before() {
+        PtuContainerRepository ptuContainerRepository = new PtuContainerRepository();
+        setInternalState(ptuContainerRepository, "entityManager", entityManager);
+        PlanboardMessageRepository planboardMessageRepository = new PlanboardMessageRepository();
+        setInternalState(planboardMessageRepository, "entityManager", entityManager);
+        FlexOrderSettlementRepository flexOrderSettlementRepository = new FlexOrderSettlementRepository();
+        setInternalState(flexOrderSettlementRepository, "entityManager", entityManager);
+        PtuSettlementRepository ptuSettlementRepository = new PtuSettlementRepository();
+        setInternalState(ptuSettlementRepository, "entityManager", entityManager);
+
+        service = new CoreSettlementBusinessService();
+        setInternalState(service, "ptuContainerRepository", ptuContainerRepository);
+        setInternalState(service, "planboardMessageRepository", planboardMessageRepository);
+        setInternalState(service, "flexOrderSettlementRepository", flexOrderSettlementRepository);
+        setInternalState(service, "ptuSettlementRepository", ptuSettlementRepository);
+        setInternalState(service, "sequenceGeneratorService", new SequenceGeneratorService());
+
+        entityManager.clear();
+        entityManager.getTransaction().begin();
+    }
+
+    @After
+    public void after() {
+        if (entityManager.getTransaction().isActive()) {
+            entityManager.getTransaction().rollback();
+        }
+    }
+
+    @Test
+    public void testCreateFlexOrderSettlementsRunsOneLookupQueryPerBatch() {
+        int numberOfOrders = CoreSettlementBusinessService.FLEX_ORDER_LOOKUP_BATCH_SIZE + 50;
+        BrpConnectionGroup connectionGroup = new BrpConnectionGroup("brp.usef-example.com");
+        connectionGroup.setBrpDomain(PARTICIPANT_DOMAIN);
+        entityManager.persist(connectionGroup);
+        for (int ptuIndex = 1; ptuIndex <= PTUS_PER_SETTLEMENT; ptuIndex++) {
+            entityManager.persist(new PtuContainer(PERIOD, ptuIndex));
+        }
+        List<PlanboardMessage> flexOrders = new ArrayList<>();
+        List<FlexOrderSettlementDto> flexOrderSettlementDtos = new ArrayList<>();
+        for (long sequence = 1L; sequence <= numberOfOrders; sequence++) {
+            PlanboardMessage flexOrder = new PlanboardMessage(DocumentType.FLEX_ORDER, sequence, DocumentStatus.ACCEPTED,
+                    PARTICIPANT_DOMAIN, PERIOD, null, connectionGroup, null);
+            entityManager.persist(flexOrder);
+            flexOrders.add(flexOrder);
+            flexOrderSettlementDtos.add(buildFlexOrderSettlementDto(connectionGroup.getUsefIdentifier(), sequence));
+        }
+        entityManager.flush();
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+
+        service.createFlexOrderSettlements(flexOrderSettlementDtos);
+
+        // one query for the ptu containers of the period and one query per batch of flex orders.
+        Assert.assertEquals(3, statistics.getQueryExecutionCount());
+        Assert.assertEquals(numberOfOrders * (1 + PTUS_PER_SETTLEMENT), statistics.getEntityInsertCount());
+        Assert.assertEquals(0, statistics.getEntityLoadCount());
+        // the entities of the caller stay attached, only the new settlements are detached.
+        Assert.assertTrue(entityManager.contains(connectionGroup));
+        Assert.assertTrue(flexOrders.stream().allMatch(entityManager::contains));
+        Assert.assertEquals(Long.valueOf(numberOfOrders), entityManager
+                .createQuery("SELECT COUNT(fos) FROM FlexOrderSettlement fos WHERE fos.flexOrder.participantDomain = :domain",
+                        Long.class)
+                .setParameter("domain", PARTICIPANT_DOMAIN)
+                .getSingleResult());
+        Assert.assertEquals(Long.valueOf(numberOfOrders * PTUS_PER_SETTLEMENT), entityManager
+                .createQuery("SELECT COUNT(ps) FROM PtuSettlement ps", Long.class)
+                .getSingleResult());
+    }
+
+    private FlexOrderSettlementDto buildFlexOrderSettlementDto(String connectionGroupEntityAddress, Long sequence) {
+        FlexOrderDto flexOrderDto = new FlexOrderDto();
+        flexOrderDto.setPeriod(PERIOD);
+        flexOrderDto.setConnectionGroupEntityAddress(connectionGroupEntityAddress);
+        flexOrderDto.setParticipantDomain(PARTICIPANT_DOMAIN);
+        flexOrderDto.setSequenceNumber(sequence);
+        FlexOrderSettlementDto flexOrderSettlementDto = new FlexOrderSettlementDto(PERIOD);
+        flexOrderSettlementDto.setFlexOrder(flexOrderDto);
+        for (int ptuIndex = 1; ptuIndex <= PTUS_PER_SETTLEMENT; ptuIndex++) {
+            PtuSettlementDto ptuSettlementDto = new PtuSettlementDto();
+            ptuSettlementDto.setPtuIndex(BigInteger.valueOf(ptuIndex));
+            ptuSettlementDto.setPrognosisPower(BigInteger.valueOf(100));
+            ptuSettlementDto.setActualPower(BigInteger.valueOf(90));
+            ptuSettlementDto.setOrderedFlexPower(BigInteger.valueOf(10));
+            ptuSettlementDto.setDeliveredFlexPower(BigInteger.valueOf(10));
+            ptuSettlementDto.setPowerDeficiency(BigInteger.ZERO);
+            ptuSettlementDto.setPrice(BigDecimal.TEN);
+            ptuSettlementDto.setPenalty(BigDecimal.ZERO);
+            flexOrderSettlementDto.getPtuSettlementDtos().add(ptuSettlementDto);
+        }
+        return flexOrderSettlementDto;
+    }
+}
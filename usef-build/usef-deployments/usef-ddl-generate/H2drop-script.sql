@@ -0,0 +1 @@
+drop table AGR_USEF_EXAMPLE_COM_AGR.DATABASE_OBJECT if exists
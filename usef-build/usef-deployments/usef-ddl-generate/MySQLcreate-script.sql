@@ -0,0 +1 @@
+create table AGR_USEF_EXAMPLE_COM_AGR.DATABASE_OBJECT (ID bigint not null auto_increment, ACTUAL_AVERAGE_POWER decimal(18,0), FORECASTED_AVERAGE_POWER decimal(18,0), DTU_INDEX integer not null, DTU_DATE date not null, primary key (ID))
@@ -0,0 +1 @@
+drop table if exists AGR_USEF_EXAMPLE_COM_AGR.DATABASE_OBJECT
@@ -0,0 +1,2 @@
+create table AGR_USEF_EXAMPLE_COM_AGR.DATABASE_OBJECT (ID int8 not null, ACTUAL_AVERAGE_POWER numeric(18, 0), FORECASTED_AVERAGE_POWER numeric(18, 0), DTU_INDEX int4 not null, DTU_DATE date not null, primary key (ID))
+create sequence AGR_USEF_EXAMPLE_COM_AGR.hibernate_sequence
@@ -0,0 +1,2 @@
+drop table if exists AGR_USEF_EXAMPLE_COM_AGR.DATABASE_OBJECT cascade
+drop sequence AGR_USEF_EXAMPLE_COM_AGR.hibernate_sequence
@@ -26,13 +26,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The actual TimeServerThread class. It handles 2 UDP messages: TIME and TIMEFACTOR.
- * 
+ * The actual TimeServerThread class. It handles 3 UDP messages: TIME, TIMEFACTOR and SYNC. SYNC returns both the current time
+ * (in milliseconds since the epoch) and the time factor in one packet, formatted as {@code <millis>;<timeFactor>}.
  */
 public class TimeServerThread implements Runnable {
 
     private static final String UDP_TIME = "TIME";
     private static final String UDP_TIMEFACTOR = "TIMEFACTOR";
+    private static final String UDP_SYNC = "SYNC";
+    private static final String UDP_SYNC_SEPARATOR = ";";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TimeServerThread.class);
 
@@ -72,6 +74,8 @@ public class TimeServerThread implements Runnable {
                     sendMessage(getTime().toString(), packet);
                 } else if (UDP_TIMEFACTOR.equals(data)) {
                     sendMessage("" + timeFactor, packet);
+                } else if (UDP_SYNC.equals(data)) {
+                    sendMessage(getUsefInstant() + UDP_SYNC_SEPARATOR + timeFactor, packet);
                 }
             } catch (IOException e) {
                 LOGGER.error("ERROR: {} ", e.getMessage());
@@ -90,9 +94,12 @@ public class TimeServerThread implements Runnable {
     }
 
     private LocalDateTime getTime() {
+        return new LocalDateTime(getUsefInstant());
+    }
+
+    private long getUsefInstant() {
         long timePassed = System.currentTimeMillis() - baseTime;
-        long usefInstant = baseTime + (timePassed * timeFactor);
-        return new LocalDateTime(usefInstant);
+        return baseTime + (timePassed * timeFactor);
     }
 
     /**
@@ -53,6 +53,12 @@ public class TimeServerThreadTest {
             assertTrue(newMillis > newTime);
             assertTrue(newMillis <= maxCalculated);
 
+            String[] sync = getUDPInfo("SYNC", port).split(";");
+            long syncMillis = Long.valueOf(sync[0]);
+            assertTrue(syncMillis >= newMillis);
+            assertTrue(syncMillis <= baseTime + ((System.currentTimeMillis() - baseTime) * timeFactor));
+            assertEquals(timeFactor, Integer.valueOf(sync[1]).intValue());
+
             thread.shutdown();
         } catch (IOException e) {
             fail(e.getMessage());
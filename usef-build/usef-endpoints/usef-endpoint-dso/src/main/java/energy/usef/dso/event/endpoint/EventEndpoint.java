@@ -19,6 +19,8 @@ package energy.usef.dso.event.endpoint;
 import energy.usef.core.config.Config;
 import energy.usef.core.config.ConfigParam;
 import energy.usef.core.event.DayAheadClosureEvent;
+import energy.usef.core.event.EventMetrics;
+import energy.usef.core.util.JsonUtil;
 import energy.usef.dso.workflow.operate.SendOperateEvent;
 import energy.usef.dso.workflow.plan.commonreferenceupdate.CommonReferenceUpdateEvent;
 import energy.usef.dso.workflow.plan.connection.forecast.CommonReferenceQueryEvent;
@@ -30,11 +32,15 @@ import energy.usef.dso.workflow.settlement.send.SendSettlementMessageEvent;
 import energy.usef.dso.workflow.validate.create.flexorder.FlexOrderEvent;
 import energy.usef.dso.workflow.validate.create.flexrequest.CreateFlexRequestEvent;
 
+import java.io.IOException;
+
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import org.apache.commons.lang.StringUtils;
@@ -88,6 +94,9 @@ public class EventEndpoint {
     @Inject
     private Event<InitiateCollectOrangeRegimeDataEvent> initiateCollectOrangeRegimeDataEvent;
 
+    @Inject
+    private EventMetrics eventMetrics;
+
     /**
      * Turn on or off the scheduler. The values true/false, 0/1 or on/off can be used.
      *
@@ -256,6 +265,23 @@ public class EventEndpoint {
         return Response.status(Response.Status.OK).build();
     }
 
+    /**
+     * Returns the statistics of the monitored events: throughput, latency percentiles and backlog per event type.
+     *
+     * @return {@link Response} with the statistics in JSON.
+     */
+    @GET
+    @Path("/Metrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getEventMetrics() {
+        try {
+            return Response.ok(JsonUtil.createJsonText(eventMetrics.getStatistics()), MediaType.APPLICATION_JSON_TYPE).build();
+        } catch (IOException e) {
+            LOGGER.error("{}", e);
+            return Response.serverError().entity(JsonUtil.exceptionBody(e)).build();
+        }
+    }
+
     private static LocalDate parseDate(String value) {
         DateTimeFormatter formatter = DateTimeFormat.forPattern(DATE_PATTERN);
         DateTime dateTime = formatter.parseDateTime(value);
@@ -18,6 +18,7 @@ package energy.usef.agr.controller;
 
 import energy.usef.agr.config.ConfigAgr;
 import energy.usef.agr.config.ConfigAgrParam;
+import energy.usef.agr.service.business.ConnectionPortfolioChangedEvent;
 import energy.usef.agr.workflow.plan.connection.profile.AgrUpdateElementDataStoreEvent;
 import energy.usef.core.controller.BaseIncomingResponseMessageController;
 import energy.usef.core.data.xml.bean.message.CommonReferenceEntityType;
@@ -26,9 +27,12 @@ import energy.usef.core.data.xml.bean.message.CommonReferenceQueryResponse;
 import energy.usef.core.data.xml.bean.message.DispositionSuccessFailure;
 import energy.usef.core.exception.BusinessException;
 import energy.usef.core.model.Message;
+import energy.usef.core.service.business.CommonReferenceQueryResponseAssemblerService;
 import energy.usef.core.service.business.CorePlanboardBusinessService;
 import energy.usef.core.util.XMLUtil;
 
+import java.util.Optional;
+
 import javax.ejb.Lock;
 import javax.ejb.LockType;
 import javax.ejb.Singleton;
@@ -51,17 +55,29 @@ public class CommonReferenceQueryResponseController extends BaseIncomingResponse
     @Inject
     private CorePlanboardBusinessService corePlanboardBusinessService;
 
+    @Inject
+    private CommonReferenceQueryResponseAssemblerService commonReferenceQueryResponseAssemblerService;
+
     @Inject
     private ConfigAgr configAgr;
 
     @Inject
     private Event<AgrUpdateElementDataStoreEvent> agrUpdateElementDataStoreEventManager;
 
+    @Inject
+    private Event<ConnectionPortfolioChangedEvent> connectionPortfolioChangedEventManager;
+
     /**
      * {@inheritDoc}
      */
     @Lock(LockType.WRITE)
-    public void action(CommonReferenceQueryResponse message, Message savedMessage) throws BusinessException {
+    public void action(CommonReferenceQueryResponse messagePart, Message savedMessage) throws BusinessException {
+        // a response which the CRO has split is processed once all its parts have been received.
+        Optional<CommonReferenceQueryResponse> response = commonReferenceQueryResponseAssemblerService.assemble(messagePart);
+        if (!response.isPresent()) {
+            return;
+        }
+        CommonReferenceQueryResponse message = response.get();
         LOGGER.debug("CommonReferenceQueryResponse received");
         if (DispositionSuccessFailure.SUCCESS.equals(message.getResult())) {
             LOGGER.info("Store CommonReferenceQueryResponse");
@@ -75,6 +91,8 @@ public class CommonReferenceQueryResponseController extends BaseIncomingResponse
             // store the common reference query response.
             corePlanboardBusinessService.storeCommonReferenceQueryResponse(message, type, initializationDate,
                     initializationDuration);
+            // the connections of the portfolio may have changed.
+            connectionPortfolioChangedEventManager.fire(new ConnectionPortfolioChangedEvent());
             // fire event to populate profile values for connection portfolio if every response has been received.
             if (messageService.hasEveryCommonReferenceQuerySentAResponseReceived(commonReferenceQuery.getCreationTime())) {
                 LOGGER.debug("Every CommonReferenceQuery has a related Response for period [{}].", initializationDate);
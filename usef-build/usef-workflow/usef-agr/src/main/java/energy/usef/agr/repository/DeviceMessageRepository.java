@@ -18,13 +18,18 @@ package energy.usef.agr.repository;
 
 import energy.usef.agr.model.DeviceMessage;
 import energy.usef.agr.model.DeviceMessageStatus;
+import energy.usef.agr.model.DeviceRequest;
 import energy.usef.core.repository.BaseRepository;
 import org.apache.commons.lang.StringUtils;
 import org.joda.time.LocalDate;
 
 import javax.ejb.Stateless;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Repository class for the {@link DeviceMessage} entity. This class provides methods to interact with the aggregator database.
@@ -32,6 +37,8 @@ import java.util.List;
 @Stateless
 public class DeviceMessageRepository extends BaseRepository<DeviceMessage> {
 
+    static final int STATUS_UPDATE_BATCH_SIZE = 1000;
+
     /**
      * Find all the device messages.
      *
@@ -69,6 +76,50 @@ public class DeviceMessageRepository extends BaseRepository<DeviceMessage> {
         return query.getResultList();
     }
 
+    /**
+     * Persists the device messages with their device requests. The device messages are persisted first, followed by the device
+     * requests grouped per type, so that the inserts of each table are consecutive and sent in JDBC batches when the persistence
+     * context is flushed.
+     *
+     * @param deviceMessages {@link List} of {@link DeviceMessage}s with their {@link DeviceRequest}s.
+     */
+    public void persistDeviceMessages(List<DeviceMessage> deviceMessages) {
+        Map<Class<?>, List<DeviceRequest>> deviceRequestsPerType = new LinkedHashMap<>();
+        for (DeviceMessage deviceMessage : deviceMessages) {
+            entityManager.persist(deviceMessage);
+            for (DeviceRequest deviceRequest : deviceMessage.getDeviceRequests()) {
+                deviceRequest.setDeviceMessage(deviceMessage);
+                deviceRequestsPerType.computeIfAbsent(deviceRequest.getClass(), type -> new ArrayList<>()).add(deviceRequest);
+            }
+        }
+        deviceRequestsPerType.values().forEach(deviceRequests -> deviceRequests.forEach(entityManager::persist));
+    }
+
+    /**
+     * Updates the status of the device messages with one statement per batch of {@value #STATUS_UPDATE_BATCH_SIZE} messages.
+     * The device messages already loaded in the persistence context are not refreshed.
+     *
+     * @param deviceMessageIds {@link Collection} of ids of the device messages.
+     * @param deviceMessageStatus {@link DeviceMessageStatus} new status of the device messages.
+     * @return the number of device messages updated.
+     */
+    public int updateDeviceMessageStatus(Collection<Long> deviceMessageIds, DeviceMessageStatus deviceMessageStatus) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("UPDATE DeviceMessage dm ");
+        sql.append("SET dm.deviceMessageStatus = :status ");
+        sql.append("WHERE dm.id IN :ids");
+
+        List<Long> ids = new ArrayList<>(deviceMessageIds);
+        int updated = 0;
+        for (int fromIndex = 0; fromIndex < ids.size(); fromIndex += STATUS_UPDATE_BATCH_SIZE) {
+            updated += entityManager.createQuery(sql.toString())
+                    .setParameter("status", deviceMessageStatus)
+                    .setParameter("ids", ids.subList(fromIndex, Math.min(fromIndex + STATUS_UPDATE_BATCH_SIZE, ids.size())))
+                    .executeUpdate();
+        }
+        return updated;
+    }
+
     /**
      * Delete all {@link DeviceMessage}s for a certain date.
      *
@@ -55,9 +55,10 @@ public class PowerContainerRepository extends BaseRepository<PowerContainer> {
     public Map<ConnectionGroup, List<PowerContainer>> findConnectionGroupPowerContainers(LocalDate period,
             Optional<ConnectionGroup> optionalConnectionGroup) {
         StringBuilder queryString = new StringBuilder("SELECT cgpc FROM ConnectionGroupPowerContainer cgpc ");
-        queryString.append(" WHERE cgpc.connectionGroup.usefIdentifier IN ");
-        queryString.append(buildFindActiveConnectionGroups(optionalConnectionGroup));
-        queryString.append(" AND cgpc.period = :period ");
+        queryString.append("WHERE cgpc.period = :period ");
+        queryString.append("  AND EXISTS ");
+        queryString.append(buildFindActiveConnectionGroupState("cgs.connectionGroup = cgpc.connectionGroup", ":period",
+                optionalConnectionGroup.isPresent()));
 
         TypedQuery<PowerContainer> query = getEntityManager()
                 .createQuery(queryString.toString(), PowerContainer.class)
@@ -83,17 +84,14 @@ public class PowerContainerRepository extends BaseRepository<PowerContainer> {
             Optional<List<String>> connectionEntityList, Optional<ConnectionGroup> connectionGroup) {
 
         StringBuilder queryString = new StringBuilder();
-        queryString.append("SELECT DISTINCT cpc FROM ConnectionPowerContainer cpc ");
-        queryString.append("  JOIN FETCH cpc.connection conn, ConnectionGroupState cgs ");
-        queryString.append("WHERE conn.entityAddress = cgs.connection.entityAddress ");
-        queryString.append("  AND cpc.period = :period ");
-        queryString.append("  AND cgs.validFrom <= :period AND cgs.validUntil > :period ");
+        queryString.append("SELECT cpc FROM ConnectionPowerContainer cpc ");
+        queryString.append("  JOIN FETCH cpc.connection conn ");
+        queryString.append("WHERE cpc.period = :period ");
+        queryString.append("  AND EXISTS ");
+        queryString.append(buildFindActiveConnectionGroupState("cgs.connection = conn", ":period", connectionGroup.isPresent()));
         if (connectionEntityList.isPresent()) {
             queryString.append("AND conn.entityAddress IN :connectionList ");
         }
-        if (connectionGroup.isPresent()) {
-            queryString.append("AND cgs.connectionGroup.usefIdentifier = :usefIdentifier ");
-        }
 
         TypedQuery<PowerContainer> query = getEntityManager().createQuery(queryString.toString(), PowerContainer.class)
                 .setParameter("period", period.toDateMidnight().toDate(), TemporalType.DATE);
@@ -121,16 +119,13 @@ public class PowerContainerRepository extends BaseRepository<PowerContainer> {
     public Map<Udi, List<PowerContainer>> findUdiPowerContainers(LocalDate period, Optional<List<String>> connectionEntityList
             , Optional<ConnectionGroup> connectionGroup) {
         StringBuilder queryString = new StringBuilder();
-        queryString.append("SELECT DISTINCT upc FROM UdiPowerContainer upc JOIN FETCH upc.udi udi ");
-        queryString.append(" JOIN udi.connection conn, ConnectionGroupState cgs ");
-        queryString.append("WHERE conn.entityAddress = cgs.connection.entityAddress ");
-        queryString.append("AND upc.period = :period ");
-        queryString.append("AND cgs.validFrom <= :period AND cgs.validUntil > :period ");
+        queryString.append("SELECT upc FROM UdiPowerContainer upc JOIN FETCH upc.udi udi ");
+        queryString.append("WHERE upc.period = :period ");
+        queryString.append("AND EXISTS ");
+        queryString.append(buildFindActiveConnectionGroupState("cgs.connection = udi.connection", ":period",
+                connectionGroup.isPresent()));
         if (connectionEntityList.isPresent()) {
-            queryString.append("AND conn.entityAddress IN :connectionList ");
-        }
-        if (connectionGroup.isPresent()) {
-            queryString.append("AND cgs.connectionGroup.usefIdentifier = :usefIdentifier ");
+            queryString.append("AND udi.connection.entityAddress IN :connectionList ");
         }
 
         TypedQuery<PowerContainer> query = getEntityManager().createQuery(queryString.toString(), PowerContainer.class)
@@ -147,15 +142,77 @@ public class PowerContainerRepository extends BaseRepository<PowerContainer> {
     }
 
 
-    private String buildFindActiveConnectionGroups(Optional<ConnectionGroup> optionalConnectionGroup) {
-        StringBuilder subquery = new StringBuilder(" ( ");
-        subquery.append("SELECT DISTINCT cgs.connectionGroup.usefIdentifier FROM ConnectionGroupState cgs ");
-        subquery.append(" WHERE cgs.validFrom <= :period ");
-        subquery.append(" AND cgs.validUntil > :period ");
-        if (optionalConnectionGroup.isPresent()) {
-            subquery.append(" AND cgs.connectionGroup.usefIdentifier = :usefIdentifier ");
+    /**
+     * Finds all {@link PowerContainer}'s on the Connection level for every day of the given period, grouped per day and per
+     * Connection. For each day, this gives the same result as {@link #findConnectionPowerContainers(LocalDate, Optional,
+     * Optional)} without any filter, using a single query.
+     *
+     * @param startDate The start date of the period (inclusive).
+     * @param endDate The end date of the period (inclusive).
+     * @return A {@link Map} with per day a {@link Map} of {@link Connection} to a list of {@link PowerContainer} objects. Days
+     * without any power container are not present in the map.
+     */
+    public Map<LocalDate, Map<Connection, List<PowerContainer>>> findConnectionPowerContainers(LocalDate startDate,
+            LocalDate endDate) {
+        StringBuilder queryString = new StringBuilder();
+        queryString.append("SELECT cpc FROM ConnectionPowerContainer cpc ");
+        queryString.append("  JOIN FETCH cpc.connection conn ");
+        queryString.append("WHERE cpc.period BETWEEN :startDate AND :endDate ");
+        queryString.append("  AND EXISTS ");
+        queryString.append(buildFindActiveConnectionGroupState("cgs.connection = conn", "cpc.period", false));
+
+        return getEntityManager().createQuery(queryString.toString(), PowerContainer.class)
+                .setParameter("startDate", startDate.toDateMidnight().toDate(), TemporalType.DATE)
+                .setParameter("endDate", endDate.toDateMidnight().toDate(), TemporalType.DATE)
+                .getResultList().stream()
+                .collect(Collectors.groupingBy(PowerContainer::getPeriod, Collectors.groupingBy(
+                        powerContainer -> ((ConnectionPowerContainer) powerContainer).getConnection())));
+    }
+
+    /**
+     * Finds all {@link PowerContainer}'s on the UDI level for every day of the given period, grouped per day and per Udi. For
+     * each day, this gives the same result as {@link #findUdiPowerContainers(LocalDate, Optional, Optional)} without any
+     * filter, using a single query.
+     *
+     * @param startDate The start date of the period (inclusive).
+     * @param endDate The end date of the period (inclusive).
+     * @return A {@link Map} with per day a {@link Map} of {@link Udi} to a list of {@link PowerContainer} objects. Days without
+     * any power container are not present in the map.
+     */
+    public Map<LocalDate, Map<Udi, List<PowerContainer>>> findUdiPowerContainers(LocalDate startDate, LocalDate endDate) {
+        StringBuilder queryString = new StringBuilder();
+        queryString.append("SELECT upc FROM UdiPowerContainer upc JOIN FETCH upc.udi udi ");
+        queryString.append("WHERE upc.period BETWEEN :startDate AND :endDate ");
+        queryString.append("AND EXISTS ");
+        queryString.append(buildFindActiveConnectionGroupState("cgs.connection = udi.connection", "upc.period", false));
+
+        return getEntityManager().createQuery(queryString.toString(), PowerContainer.class)
+                .setParameter("startDate", startDate.toDateMidnight().toDate(), TemporalType.DATE)
+                .setParameter("endDate", endDate.toDateMidnight().toDate(), TemporalType.DATE)
+                .getResultList().stream()
+                .collect(Collectors.groupingBy(PowerContainer::getPeriod,
+                        Collectors.groupingBy(powerContainer -> ((UdiPowerContainer) powerContainer).getUdi())));
+    }
+
+    /**
+     * Builds the subquery finding the {@link energy.usef.core.model.ConnectionGroupState} valid on a day for the connection
+     * (group) of the outer query. The subquery is correlated on the foreign key of the state, so that the database checks the
+     * validity per connection (group) using that key instead of joining all the states and removing the duplicates afterwards.
+     *
+     * @param keyCondition the condition correlating the state (alias cgs) with the outer query.
+     * @param day the parameter or path of the day on which the state has to be valid.
+     * @param filterOnConnectionGroup whether the state has to be part of the connection group given by :usefIdentifier.
+     * @return the subquery, between brackets.
+     */
+    private static String buildFindActiveConnectionGroupState(String keyCondition, String day, boolean filterOnConnectionGroup) {
+        StringBuilder subquery = new StringBuilder("(SELECT cgs.id FROM ConnectionGroupState cgs ");
+        subquery.append(" WHERE ").append(keyCondition);
+        subquery.append(" AND cgs.validFrom <= ").append(day);
+        subquery.append(" AND cgs.validUntil > ").append(day);
+        if (filterOnConnectionGroup) {
+            subquery.append(" AND cgs.connectionGroup.usefIdentifier = :usefIdentifier");
         }
-        return subquery.append(" ) ").toString();
+        return subquery.append(") ").toString();
     }
 
     /**
@@ -16,9 +16,12 @@
 
 package energy.usef.agr.repository;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -96,6 +99,51 @@ public class UdiRepository extends BaseRepository<Udi> {
         return query.getResultList().stream().collect(Collectors.groupingBy(Udi::getConnection));
     }
 
+    /**
+     * Finds the Udis which are part of the portfolio on each day of the given period, grouped per day and per Connection. For
+     * each day, this gives the same result as {@link #findActiveUdisPerConnection(LocalDate)}, using a single query.
+     *
+     * @param startDate the start date of the period (inclusive).
+     * @param endDate the end date of the period (inclusive).
+     * @return a {@link Map} with per day the {@link List} of {@link Udi} mapped per {@link Connection}. Days without any active
+     * Udi are not present in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<LocalDate, Map<Connection, List<Udi>>> findActiveUdisPerConnection(LocalDate startDate, LocalDate endDate) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT udi, cgs.validFrom, cgs.validUntil FROM Udi udi ");
+        sql.append(" JOIN udi.connection conn, ConnectionGroupState cgs ");
+        sql.append("WHERE conn.entityAddress = cgs.connection.entityAddress ");
+        sql.append(" AND udi.validFrom <= :endDate AND udi.validUntil > :startDate ");
+        sql.append("  AND cgs.validFrom <= :endDate AND cgs.validUntil > :startDate ");
+
+        List<Object[]> rows = getEntityManager().createQuery(sql.toString())
+                .setParameter("startDate", startDate.toDateMidnight().toDate(), TemporalType.DATE)
+                .setParameter("endDate", endDate.toDateMidnight().toDate(), TemporalType.DATE)
+                .getResultList();
+
+        // a Udi is active on a day if both the Udi and one of the connection group states of its connection are valid that day.
+        Map<LocalDate, Set<Udi>> udisPerDay = new HashMap<>();
+        for (Object[] row : rows) {
+            Udi udi = (Udi) row[0];
+            LocalDate firstDay = max(max(startDate, udi.getValidFrom()), new LocalDate(row[1]));
+            LocalDate lastDay = min(min(endDate, udi.getValidUntil().minusDays(1)), new LocalDate(row[2]).minusDays(1));
+            for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+                udisPerDay.computeIfAbsent(day, key -> new LinkedHashSet<>()).add(udi);
+            }
+        }
+        return udisPerDay.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+                entry -> entry.getValue().stream().collect(Collectors.groupingBy(Udi::getConnection))));
+    }
+
+    private static LocalDate max(LocalDate first, LocalDate second) {
+        return first.isAfter(second) ? first : second;
+    }
+
+    private static LocalDate min(LocalDate first, LocalDate second) {
+        return first.isBefore(second) ? first : second;
+    }
+
     /**
      * Finds a Udi by its endpoint.
      *
@@ -118,6 +166,36 @@ public class UdiRepository extends BaseRepository<Udi> {
         return udis.get(0);
     }
 
+    /**
+     * Finds the id, endpoint and validity of the Udis which are still valid on or after the given day, without loading the
+     * entities.
+     *
+     * @param day {@link LocalDate} first day.
+     * @return a {@link List} of rows with the id ({@link Long}), endpoint ({@link String}), valid from and valid until dates
+     * ({@link java.util.Date}) of a Udi.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findUdiValidities(LocalDate day) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT udi.id, udi.endpoint, udi.validFrom, udi.validUntil ");
+        sql.append("FROM Udi udi ");
+        sql.append("WHERE udi.validUntil > :day ");
+
+        return getEntityManager().createQuery(sql.toString())
+                .setParameter("day", day.toDateMidnight().toDate(), TemporalType.DATE)
+                .getResultList();
+    }
+
+    /**
+     * Gets a reference to the Udi with the given id, without loading its state from the database.
+     *
+     * @param id {@link Long} id of the Udi.
+     * @return a {@link Udi} reference.
+     */
+    public Udi getReference(Long id) {
+        return getEntityManager().getReference(Udi.class, id);
+    }
+
     /**
      * Delete all {@link Udi} objects for a certain date.
      *
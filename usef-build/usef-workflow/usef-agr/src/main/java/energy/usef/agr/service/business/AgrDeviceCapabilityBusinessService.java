@@ -65,6 +65,8 @@ public class AgrDeviceCapabilityBusinessService {
     @Inject
     private UdiRepository udiRepository;
     @Inject
+    private UdiEndpointIndex udiEndpointIndex;
+    @Inject
     private UdiEventRepository udiEventRepository;
     @Inject
     private ShiftCapabilityRepository shiftCapabilityRepository;
@@ -108,7 +110,8 @@ public class AgrDeviceCapabilityBusinessService {
     }
 
     private void createUdiEventFromDto(UdiEventDto udiEventDto,LocalDate period) {
-        Udi udi = udiRepository.findByEndpoint(udiEventDto.getUdiEndpoint(), period);
+        Long udiId = udiEndpointIndex.findUdiId(udiEventDto.getUdiEndpoint(), period);
+        Udi udi = udiId == null ? null : udiRepository.getReference(udiId);
         UdiEvent udiEvent = UdiEventTransformer.transformToModel(udiEventDto, udi);
         udiEventRepository.persist(udiEvent);
         LOGGER.debug("Created new udi event with id [{}]", udiEvent.getId());
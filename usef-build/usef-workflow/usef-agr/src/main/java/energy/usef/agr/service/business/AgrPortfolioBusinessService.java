@@ -18,17 +18,22 @@ package energy.usef.agr.service.business;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.transaction.Transactional;
 
@@ -48,25 +53,14 @@ import energy.usef.agr.model.ConnectionGroupPowerContainer;
 import energy.usef.agr.model.ConnectionPowerContainer;
 import energy.usef.agr.model.DeviceMessage;
 import energy.usef.agr.model.DeviceMessageStatus;
-import energy.usef.agr.model.DeviceRequest;
 import energy.usef.agr.model.ForecastPowerData;
-import energy.usef.agr.model.IncreaseRequest;
-import energy.usef.agr.model.InterruptRequest;
 import energy.usef.agr.model.PowerContainer;
 import energy.usef.agr.model.PowerData;
-import energy.usef.agr.model.ReduceRequest;
-import energy.usef.agr.model.ReportRequest;
-import energy.usef.agr.model.ShiftRequest;
 import energy.usef.agr.model.Udi;
 import energy.usef.agr.model.UdiEvent;
 import energy.usef.agr.model.UdiPowerContainer;
 import energy.usef.agr.repository.DeviceMessageRepository;
-import energy.usef.agr.repository.IncreaseRequestRepository;
-import energy.usef.agr.repository.InterruptRequestRepository;
 import energy.usef.agr.repository.PowerContainerRepository;
-import energy.usef.agr.repository.ReduceRequestRepository;
-import energy.usef.agr.repository.ReportRequestRepository;
-import energy.usef.agr.repository.ShiftRequestRepository;
 import energy.usef.agr.repository.UdiEventRepository;
 import energy.usef.agr.repository.UdiRepository;
 import energy.usef.agr.transformer.ConnectionPortfolioTransformer;
@@ -111,19 +105,16 @@ public class AgrPortfolioBusinessService {
     private DeviceMessageRepository deviceMessageRepository;
 
     @Inject
-    private ReduceRequestRepository reduceRequestRepository;
+    private PowerContainerUpdateCounter powerContainerUpdateCounter;
 
     @Inject
-    private IncreaseRequestRepository increaseRequestRepository;
+    private UdiEndpointIndex udiEndpointIndex;
 
     @Inject
-    private InterruptRequestRepository interruptRequestRepository;
+    private ConnectionPortfolioSnapshotCache connectionPortfolioSnapshotCache;
 
     @Inject
-    private ReportRequestRepository reportRequestRepository;
-
-    @Inject
-    private ShiftRequestRepository shiftRequestRepository;
+    private Event<ConnectionPortfolioChangedEvent> connectionPortfolioChangedEventManager;
 
     /**
      * Create the Power Containers with the Profile values for each connection in the portfolio.
@@ -147,6 +138,7 @@ public class AgrPortfolioBusinessService {
             });
 
         }
+        connectionPortfolioChangedEventManager.fire(new ConnectionPortfolioChangedEvent(period));
     }
 
     /**
@@ -174,6 +166,8 @@ public class AgrPortfolioBusinessService {
             }
         }
         udiRepository.persistBatch(toBePersisted);
+        // the validity of the udis spans several periods.
+        connectionPortfolioChangedEventManager.fire(new ConnectionPortfolioChangedEvent());
     }
 
     /**
@@ -226,6 +220,7 @@ public class AgrPortfolioBusinessService {
             }
         }
         powerContainerRepository.persistBatch(toBePersisted);
+        connectionPortfolioChangedEventManager.fire(new ConnectionPortfolioChangedEvent(period));
 
     }
 
@@ -252,14 +247,15 @@ public class AgrPortfolioBusinessService {
 
     /**
      * Updates of creates (if needed) the PowerContainer entities on the Connection Group level for the given (and supposedly
-     * entire) portfolio.
+     * entire) portfolio. Existing power containers are only modified when their observed values change.
      *
      * @param connectionGroupPortfolioDtos {@link List} of {@link ConnectionGroupPortfolioDto}.
      * @param period {@link LocalDate}
+     * @return the {@link PowerContainerUpdateCount} of the update.
      */
     @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
-    public void updateConnectionGroupPowerContainers(List<ConnectionGroupPortfolioDto> connectionGroupPortfolioDtos,
-                                                     LocalDate period) {
+    public PowerContainerUpdateCount updateConnectionGroupPowerContainers(
+            List<ConnectionGroupPortfolioDto> connectionGroupPortfolioDtos, LocalDate period) {
         // get ConnectionGroup level data with lambda functions to apply on the connection portfolio.
         Function<Map.Entry<ConnectionGroup, List<PowerContainer>>, String> getUsefIdentifier = entry -> entry.getKey()
                 .getUsefIdentifier();
@@ -294,36 +290,48 @@ public class AgrPortfolioBusinessService {
                 .distinct()
                 .collect(Collectors.toMap(ConnectionGroup::getUsefIdentifier, Function.identity()));
 
+        long rowsReceived = 0;
+        long rowsWritten = 0;
         for (ConnectionGroupPortfolioDto connectionGroupPortfolioDto : connectionGroupPortfolioDtos) {
+            rowsReceived += connectionGroupPortfolioDto.getConnectionGroupPowerPerPTU().size();
             String usefIdentifier = connectionGroupPortfolioDto.getUsefIdentifier();
             if (!connectionGroupPerUsefIdentifier.containsKey(usefIdentifier)) {
                 continue;
             }
+            Map<Integer, PowerContainer> powerContainerPerIndex = connectionGroupPowerContainers
+                    .getOrDefault(usefIdentifier, new HashMap<>());
             // update PowerContainer if it exists already, or create it otherwise.
-            connectionGroupPortfolioDto.getConnectionGroupPowerPerPTU().forEach((index, powerContainerDto) -> {
-                PowerContainer powerContainer;
-                if (connectionGroupPowerContainers.containsKey(usefIdentifier) &&
-                        connectionGroupPowerContainers.get(usefIdentifier).containsKey(index)) {
-                    powerContainer = connectionGroupPowerContainers.get(usefIdentifier).get(index);
-                    setObservedValue.accept(powerContainer, powerContainerDto.getObserved().calculatePower());
-                    powerContainerRepository.update(powerContainer);
+            for (Map.Entry<Integer, PowerContainerDto> entry : connectionGroupPortfolioDto.getConnectionGroupPowerPerPTU()
+                    .entrySet()) {
+                BigInteger power = entry.getValue().getObserved().calculatePower();
+                PowerContainer powerContainer = powerContainerPerIndex.get(entry.getKey());
+                if (powerContainer != null) {
+                    if (updateIfChanged(powerContainer, updated -> setObservedValue.accept(updated, power))) {
+                        rowsWritten++;
+                    }
                 } else {
                     powerContainer = new ConnectionGroupPowerContainer(connectionGroupPerUsefIdentifier.get(usefIdentifier), period,
-                            index);
-                    setObservedValue.accept(powerContainer, powerContainerDto.getObserved().calculatePower());
+                            entry.getKey());
+                    setObservedValue.accept(powerContainer, power);
                     powerContainerRepository.persist(powerContainer);
+                    rowsWritten++;
                 }
-            });
+            }
         }
+        return registerUpdateCount(new PowerContainerUpdateCount(rowsReceived, rowsWritten));
     }
 
     /**
-     * Updates the ConnectionPortfolio.
+     * Updates the ConnectionPortfolio. The values of each PTU (connection level) and DTU (udi level) are compared with the
+     * persisted values and only the changed power containers are modified. The connection power containers are written before
+     * the udi power containers, so that the updates of each type of power container are sent in the same JDBC batches.
      *
      * @param period {@link LocalDate}.
      * @param updatedConnectionPortfolioDTO the updated connection portfolio.
+     * @return the {@link PowerContainerUpdateCount} of the update.
      */
-    public void updateConnectionPortfolio(LocalDate period, List<ConnectionPortfolioDto> updatedConnectionPortfolioDTO) {
+    public PowerContainerUpdateCount updateConnectionPortfolio(LocalDate period,
+            List<ConnectionPortfolioDto> updatedConnectionPortfolioDTO) {
 
         //get Connection level data
         Map<String, List<PowerContainer>> connectionPowerContainers = powerContainerRepository
@@ -338,55 +346,149 @@ public class AgrPortfolioBusinessService {
                 .findUdiPowerContainers(period, Optional.empty(), Optional.empty()).entrySet().stream()
                 .collect(Collectors.toMap(entry -> entry.getKey().getEndpoint(), Map.Entry::getValue));
 
+        long rowsReceived = 0;
+        long rowsWritten = 0;
+        //connectionLevel == Uncontrolled Load
         for (ConnectionPortfolioDto connectionPortfolioDTO : updatedConnectionPortfolioDTO) {
-            String connectionEntityAddress = connectionPortfolioDTO.getConnectionEntityAddress();
-            //connectionLevel == Uncontrolled Load
-            if (connectionPowerContainers.containsKey(connectionEntityAddress)) {
-                updatePowerContainer(connectionPortfolioDTO.getConnectionPowerPerPTU(),
-                        connectionPowerContainers.get(connectionEntityAddress));
-                updateFlexibleLoad(connectionPortfolioDTO.getConnectionPowerPerPTU(),
-                        connectionPowerContainers.get(connectionEntityAddress));
+            rowsReceived += connectionPortfolioDTO.getConnectionPowerPerPTU().size();
+            rowsWritten += updateChangedPowerContainers(connectionPortfolioDTO.getConnectionPowerPerPTU(),
+                    connectionPowerContainers.get(connectionPortfolioDTO.getConnectionEntityAddress()),
+                    this::updateConnectionPowerValues);
+        }
+        powerContainerRepository.flush();
+
+        for (ConnectionPortfolioDto connectionPortfolioDTO : updatedConnectionPortfolioDTO) {
+            for (UdiPortfolioDto udiPortfolioDto : connectionPortfolioDTO.getUdis()) {
+                rowsReceived += udiPortfolioDto.getUdiPowerPerDTU().size();
             }
-            if (udisPerConnectionEntityAddress == null || !udisPerConnectionEntityAddress.containsKey(connectionEntityAddress)) {
+            if (udisPerConnectionEntityAddress == null
+                    || !udisPerConnectionEntityAddress.containsKey(connectionPortfolioDTO.getConnectionEntityAddress())) {
                 continue;
             }
-
             for (UdiPortfolioDto udiPortfolioDto : connectionPortfolioDTO.getUdis()) {
-                if (powerContainersPerUdiEndpoint.containsKey(udiPortfolioDto.getEndpoint())) {
-                    updateProductionConsumption(udiPortfolioDto.getUdiPowerPerDTU(),
-                            powerContainersPerUdiEndpoint.get(udiPortfolioDto.getEndpoint()));
-                }
+                rowsWritten += updateChangedPowerContainers(udiPortfolioDto.getUdiPowerPerDTU(),
+                        powerContainersPerUdiEndpoint.get(udiPortfolioDto.getEndpoint()), this::updateUdiPowerValues);
             }
         }
+        powerContainerRepository.flush();
+
+        if (rowsWritten > 0) {
+            connectionPortfolioChangedEventManager.fire(new ConnectionPortfolioChangedEvent(period));
+        }
+        return registerUpdateCount(new PowerContainerUpdateCount(rowsReceived, rowsWritten));
     }
 
-    private void updatePowerContainer(Map<Integer, PowerContainerDto> connectionPowerPerPTU,
-                                      List<PowerContainer> powerContainers) {
-        powerContainers.stream()
-                .filter(powerContainer -> connectionPowerPerPTU.containsKey(powerContainer.getTimeIndex()))
-                .forEach(powerContainer -> {
-                    PowerContainerDto powerContainerDto = connectionPowerPerPTU.get(powerContainer.getTimeIndex());
-                    if (powerContainer.getForecast() == null) {
-                        powerContainer.setForecast(new ForecastPowerData());
-                    }
-                    PowerContainerTransformer.updateForecastValues(powerContainerDto.getForecast(), powerContainer.getForecast());
-                    if (powerContainer.getObserved() == null) {
-                        powerContainer.setObserved(new PowerData());
-                    }
-                    powerContainer.getObserved().setUncontrolledLoad(powerContainerDto.getObserved().getUncontrolledLoad());
-                    if (powerContainerDto.getProfile() != null) {
-                        powerContainer.getProfile().setUncontrolledLoad(powerContainerDto.getProfile().getUncontrolledLoad());
-                    }
-                });
+    private PowerContainerUpdateCount registerUpdateCount(PowerContainerUpdateCount updateCount) {
+        powerContainerUpdateCounter.register(updateCount);
+        LOGGER.debug("Power container rows written since startup: {} of {} received.",
+                powerContainerUpdateCounter.getRowsWritten(), powerContainerUpdateCounter.getRowsReceived());
+        return updateCount;
     }
 
-    private void updateFlexibleLoad(Map<Integer, PowerContainerDto> connectionPowerPerPTU, List<PowerContainer> powerContainers) {
-        powerContainers.stream()
-                .filter(powerContainer -> connectionPowerPerPTU.containsKey(powerContainer.getTimeIndex()))
-                .forEach(powerContainer -> {
-                    PowerContainerDto powerContainerDto = connectionPowerPerPTU.get(powerContainer.getTimeIndex());
-                    updatePowerContainerFlexibleLoad(powerContainer, powerContainerDto);
-                });
+    private int updateChangedPowerContainers(Map<Integer, PowerContainerDto> powerContainerDtoPerIndex,
+            List<PowerContainer> powerContainers, BiConsumer<PowerContainer, PowerContainerDto> update) {
+        if (powerContainers == null) {
+            return 0;
+        }
+        int changed = 0;
+        for (PowerContainer powerContainer : powerContainers) {
+            PowerContainerDto powerContainerDto = powerContainerDtoPerIndex.get(powerContainer.getTimeIndex());
+            if (powerContainerDto != null && updateIfChanged(powerContainer,
+                    updated -> update.accept(updated, powerContainerDto))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Applies the update on a copy of the power values of the power container and sets the updated values on the power container
+     * only if they differ from the current ones, so that unchanged power containers are not written to the database.
+     *
+     * @return <code>true</code> if the power container has been changed.
+     */
+    private static boolean updateIfChanged(PowerContainer powerContainer, Consumer<PowerContainer> update) {
+        PowerContainer updated = new PowerContainer();
+        updated.setProfile(copyOf(powerContainer.getProfile()));
+        updated.setForecast(copyOf(powerContainer.getForecast()));
+        updated.setObserved(copyOf(powerContainer.getObserved()));
+        update.accept(updated);
+
+        boolean changed = false;
+        if (!powerValues(updated.getProfile()).equals(powerValues(powerContainer.getProfile()))) {
+            powerContainer.setProfile(updated.getProfile());
+            changed = true;
+        }
+        if (!powerValues(updated.getForecast()).equals(powerValues(powerContainer.getForecast()))) {
+            powerContainer.setForecast(updated.getForecast());
+            changed = true;
+        }
+        if (!powerValues(updated.getObserved()).equals(powerValues(powerContainer.getObserved()))) {
+            powerContainer.setObserved(updated.getObserved());
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static PowerData copyOf(PowerData powerData) {
+        if (powerData == null) {
+            return null;
+        }
+        PowerData copy = new PowerData();
+        copyValues(powerData, copy);
+        return copy;
+    }
+
+    private static ForecastPowerData copyOf(ForecastPowerData forecastPowerData) {
+        if (forecastPowerData == null) {
+            return null;
+        }
+        ForecastPowerData copy = new ForecastPowerData();
+        copyValues(forecastPowerData, copy);
+        copy.setAllocatedFlexConsumption(forecastPowerData.getAllocatedFlexConsumption());
+        copy.setAllocatedFlexProduction(forecastPowerData.getAllocatedFlexProduction());
+        return copy;
+    }
+
+    private static void copyValues(PowerData from, PowerData to) {
+        to.setUncontrolledLoad(from.getUncontrolledLoad());
+        to.setAverageConsumption(from.getAverageConsumption());
+        to.setAverageProduction(from.getAverageProduction());
+        to.setPotentialFlexConsumption(from.getPotentialFlexConsumption());
+        to.setPotentialFlexProduction(from.getPotentialFlexProduction());
+    }
+
+    /**
+     * Lists the values of the power data, a missing power data having the same values as a power data without values (which is
+     * how the database stores both).
+     */
+    private static List<BigInteger> powerValues(PowerData powerData) {
+        if (powerData == null) {
+            return Collections.nCopies(7, null);
+        }
+        List<BigInteger> values = Arrays.asList(powerData.getUncontrolledLoad(), powerData.getAverageConsumption(),
+                powerData.getAverageProduction(), powerData.getPotentialFlexConsumption(), powerData.getPotentialFlexProduction(),
+                null, null);
+        if (powerData instanceof ForecastPowerData) {
+            values.set(5, ((ForecastPowerData) powerData).getAllocatedFlexConsumption());
+            values.set(6, ((ForecastPowerData) powerData).getAllocatedFlexProduction());
+        }
+        return values;
+    }
+
+    private void updateConnectionPowerValues(PowerContainer powerContainer, PowerContainerDto powerContainerDto) {
+        if (powerContainer.getForecast() == null) {
+            powerContainer.setForecast(new ForecastPowerData());
+        }
+        PowerContainerTransformer.updateForecastValues(powerContainerDto.getForecast(), powerContainer.getForecast());
+        if (powerContainer.getObserved() == null) {
+            powerContainer.setObserved(new PowerData());
+        }
+        powerContainer.getObserved().setUncontrolledLoad(powerContainerDto.getObserved().getUncontrolledLoad());
+        if (powerContainerDto.getProfile() != null) {
+            powerContainer.getProfile().setUncontrolledLoad(powerContainerDto.getProfile().getUncontrolledLoad());
+        }
+        updatePowerContainerFlexibleLoad(powerContainer, powerContainerDto);
     }
 
     private void updatePowerContainerFlexibleLoad(PowerContainer powerContainer, PowerContainerDto powerContainerDto) {
@@ -403,17 +505,10 @@ public class AgrPortfolioBusinessService {
                 .setPotentialFlexProduction(powerContainerDto.getProfile().getPotentialFlexProduction());
     }
 
-    private void updateProductionConsumption(Map<Integer, PowerContainerDto> connectionPowerPerPTU,
-                                             List<? extends PowerContainer> powerContainers) {
-        powerContainers.stream()
-                .filter(powerContainer -> connectionPowerPerPTU.containsKey(powerContainer.getTimeIndex()))
-                .forEach(powerContainer -> {
-                    PowerContainerDto powerContainerDto = connectionPowerPerPTU.get(powerContainer.getTimeIndex());
-
-                    // update the forecast, observed and actual values
-                    forecastValues(powerContainer, powerContainerDto);
-                    observedValues(powerContainer, powerContainerDto);
-                });
+    private void updateUdiPowerValues(PowerContainer powerContainer, PowerContainerDto powerContainerDto) {
+        // update the forecast, observed and actual values
+        forecastValues(powerContainer, powerContainerDto);
+        observedValues(powerContainer, powerContainerDto);
     }
 
     private void observedValues(PowerContainer powerContainer, PowerContainerDto powerContainerDto) {
@@ -501,9 +596,27 @@ public class AgrPortfolioBusinessService {
      * @return The portfolio per requested {@link LocalDate}.
      */
     public Map<LocalDate, List<ConnectionPortfolioDto>> findConnectionPortfolioDto(LocalDate startDate, LocalDate endDate) {
+        // all the days are loaded at once and split per day afterwards.
+        Map<LocalDate, Map<ConnectionGroup, List<Connection>>> connectionGroupsWithConnectionsPerDate = corePlanboardBusinessService
+                .findConnectionGroupWithConnectionsWithOverlappingValidity(startDate, endDate);
+        Map<LocalDate, Map<Connection, List<PowerContainer>>> connectionPowerContainersPerDate = powerContainerRepository
+                .findConnectionPowerContainers(startDate, endDate);
+        Map<LocalDate, Map<Connection, List<Udi>>> udisPerConnectionPerDate = udiRepository
+                .findActiveUdisPerConnection(startDate, endDate);
+        Map<LocalDate, Map<Udi, List<PowerContainer>>> udiPowerContainersPerDate = powerContainerRepository
+                .findUdiPowerContainers(startDate, endDate);
+
         Map<LocalDate, List<ConnectionPortfolioDto>> portfolioPerDate = new HashMap<>();
         for (LocalDate portfolioDate = startDate; !portfolioDate.isAfter(endDate); portfolioDate = portfolioDate.plusDays(1)) {
-            portfolioPerDate.put(portfolioDate, findConnectionPortfolioDto(portfolioDate));
+            List<Connection> activeConnections = connectionGroupsWithConnectionsPerDate
+                    .getOrDefault(portfolioDate, new HashMap<>()).values().stream()
+                    .flatMap(List::stream)
+                    .distinct()
+                    .collect(Collectors.toList());
+            portfolioPerDate.put(portfolioDate, ConnectionPortfolioTransformer.transformToDTO(activeConnections,
+                    connectionPowerContainersPerDate.getOrDefault(portfolioDate, new HashMap<>()),
+                    udisPerConnectionPerDate.getOrDefault(portfolioDate, new HashMap<>()),
+                    udiPowerContainersPerDate.getOrDefault(portfolioDate, new HashMap<>())));
         }
         return portfolioPerDate;
     }
@@ -518,6 +631,29 @@ public class AgrPortfolioBusinessService {
         return findConnectionPortfolioDto(period, Optional.empty());
     }
 
+    /**
+     * Finds the snapshot of the portfolio of the period. The snapshot is built once and shared by the workflows until the
+     * portfolio of the period is modified, which makes it cheaper than {@link #findConnectionPortfolioDto(LocalDate)} for the
+     * workflows only reading the portfolio.
+     *
+     * @param period The period.
+     * @return The {@link ConnectionPortfolioSnapshot} of the portfolio.
+     */
+    public ConnectionPortfolioSnapshot findConnectionPortfolioSnapshot(LocalDate period) {
+        return connectionPortfolioSnapshotCache.get(period, this::buildConnectionPortfolioSnapshot);
+    }
+
+    private ConnectionPortfolioSnapshot buildConnectionPortfolioSnapshot(LocalDate period) {
+        List<Connection> activeConnections = corePlanboardBusinessService.findActiveConnections(period, Optional.empty());
+        Map<Connection, List<PowerContainer>> connectionPowerContainers = powerContainerRepository
+                .findConnectionPowerContainers(period, Optional.empty(), Optional.empty());
+        Map<Connection, List<Udi>> udisPerConnection = udiRepository.findActiveUdisPerConnection(period, Optional.empty());
+        Map<Udi, List<PowerContainer>> udiPowerContainers = powerContainerRepository
+                .findUdiPowerContainers(period, Optional.empty(), Optional.empty());
+        return ConnectionPortfolioSnapshot
+                .build(period, activeConnections, connectionPowerContainers, udisPerConnection, udiPowerContainers);
+    }
+
     /**
      * Finds the portfolio and maps it to the DTO Model. Only a subset is returned if connectionEntityList is specified.
      *
@@ -595,13 +731,17 @@ public class AgrPortfolioBusinessService {
     }
 
     /**
-     * Retrieves a Map of all the Udis for a specified period.
+     * Retrieves a Map of all the Udis for a specified period. The Udis are found in the {@link UdiEndpointIndex} and are
+     * references which are only loaded from the database when their state is read.
      *
      * @param period the {@link LocalDate} of the period.
      * @return a Map where the Udi endpoint is mapped to the Udi.
      */
     public Map<String, Udi> findActiveUdisMappedPerEndpoint(LocalDate period) {
-        return udiRepository.findActiveUdisMappedPerEndpoint(period);
+        Map<String, Udi> udisPerEndpoint = new HashMap<>();
+        udiEndpointIndex.findUdiIdsPerEndpoint(period)
+                .forEach((endpoint, udiId) -> udisPerEndpoint.put(endpoint, udiRepository.getReference(udiId)));
+        return udisPerEndpoint;
     }
 
     /**
@@ -622,35 +762,13 @@ public class AgrPortfolioBusinessService {
     }
 
     /**
-     * Stores a list of device messages.
+     * Stores a list of device messages, the inserts are sent in JDBC batches.
      *
      * @param deviceMessageDtos List of {@link DeviceMessageDto}.
      * @param udis Map with udi endpoint -> udi.
      */
     public void storeDeviceMessages(List<DeviceMessageDto> deviceMessageDtos, Map<String, Udi> udis) {
-        List<DeviceMessage> deviceMessages = DeviceMessageTransformer.transform(deviceMessageDtos, udis);
-
-        deviceMessages.forEach(deviceMessage -> {
-            deviceMessageRepository.persist(deviceMessage);
-            deviceMessage.getDeviceRequests().forEach(deviceRequest -> {
-                deviceRequest.setDeviceMessage(deviceMessage);
-                storeDeviceRequest(deviceRequest);
-            });
-        });
-    }
-
-    private void storeDeviceRequest(DeviceRequest deviceRequest) {
-        if (deviceRequest instanceof ReduceRequest) {
-            reduceRequestRepository.persist((ReduceRequest) deviceRequest);
-        } else if (deviceRequest instanceof IncreaseRequest) {
-            increaseRequestRepository.persist((IncreaseRequest) deviceRequest);
-        } else if (deviceRequest instanceof InterruptRequest) {
-            interruptRequestRepository.persist((InterruptRequest) deviceRequest);
-        } else if (deviceRequest instanceof ReportRequest) {
-            reportRequestRepository.persist((ReportRequest) deviceRequest);
-        } else if (deviceRequest instanceof ShiftRequest) {
-            shiftRequestRepository.persist((ShiftRequest) deviceRequest);
-        }
+        deviceMessageRepository.persistDeviceMessages(DeviceMessageTransformer.transform(deviceMessageDtos, udis));
     }
 
     /**
@@ -674,5 +792,18 @@ public class AgrPortfolioBusinessService {
         deviceMessage.setDeviceMessageStatus(status);
     }
 
+    /**
+     * Update the status of several device messages in the database at once. The update is committed in its own transaction,
+     * so that the new status is visible to other transactions as soon as this method returns.
+     *
+     * @param deviceMessageIds {@link Collection} of ids of device messages.
+     * @param status {@link DeviceMessageStatus} a device message status.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void updateDeviceMessageStatus(Collection<Long> deviceMessageIds, DeviceMessageStatus status) {
+        int updated = deviceMessageRepository.updateDeviceMessageStatus(deviceMessageIds, status);
+        LOGGER.debug("Status of {} device messages updated to {}.", updated, status);
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.agr.service.business;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Event fired when the connection portfolio is modified, so that the {@link ConnectionPortfolioSnapshot}'s built before the
+ * modification are no longer used once the modification is committed.
+ */
+public class ConnectionPortfolioChangedEvent {
+
+    private final LocalDate period;
+
+    /**
+     * Creates the event for the modification of the portfolio of all the periods.
+     */
+    public ConnectionPortfolioChangedEvent() {
+        this(null);
+    }
+
+    /**
+     * Creates the event for the modification of the portfolio of a period.
+     *
+     * @param period {@link LocalDate} period of the modified portfolio, <code>null</code> for all the periods.
+     */
+    public ConnectionPortfolioChangedEvent(LocalDate period) {
+        this.period = period;
+    }
+
+    public LocalDate getPeriod() {
+        return period;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPortfolioChangedEvent" + "[" +
+                "period=" + period +
+                "]";
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.agr.service.business;
+
+import energy.usef.agr.dto.ConnectionPortfolioDto;
+import energy.usef.agr.dto.ForecastPowerDataDto;
+import energy.usef.agr.dto.PowerContainerDto;
+import energy.usef.agr.dto.PowerDataDto;
+import energy.usef.agr.dto.UdiPortfolioDto;
+import energy.usef.agr.model.ForecastPowerData;
+import energy.usef.agr.model.PowerContainer;
+import energy.usef.agr.model.PowerData;
+import energy.usef.agr.model.Udi;
+import energy.usef.core.model.Connection;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Immutable, columnar snapshot of the connection portfolio of a period.
+ * <p>
+ * The power values are not kept as {@link PowerContainerDto} objects but in one <code>long[]</code> column per power value (the
+ * five profile values, the seven forecast values and the five observed values), with one row per power container. The rows
+ * of the connection power containers come first, followed by the rows of the udi power containers. The power containers of a
+ * connection (and of an udi) are contiguous rows, delimited by offset arrays indexed by connection (and by udi).
+ * A snapshot of 100k connections of 96 PTUs therefore takes a few dozens of arrays instead of tens of millions of objects.
+ * <p>
+ * The portfolio is exposed as {@link ConnectionPortfolioDto}'s through a {@link View}, which only materializes the connections
+ * that are actually read. Each view has its own DTO's, so a PBC modifying them does not alter the snapshot.
+ */
+public final class ConnectionPortfolioSnapshot {
+
+    // value of the columns for a power value which is not set.
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final int PROFILE = 0;
+    private static final int FORECAST = 5;
+    private static final int OBSERVED = 12;
+    private static final int ALLOCATED_FLEX_CONSUMPTION = FORECAST + 5;
+    private static final int ALLOCATED_FLEX_PRODUCTION = FORECAST + 6;
+    private static final int COLUMN_COUNT = 17;
+
+    private final LocalDate period;
+
+    private final String[] connectionEntityAddresses;
+    private final Map<String, Integer> connectionIndexPerEntityAddress;
+    // rows of connection i: [connectionRowOffsets[i], connectionRowOffsets[i + 1])
+    private final int[] connectionRowOffsets;
+    // udis of connection i: [connectionUdiOffsets[i], connectionUdiOffsets[i + 1])
+    private final int[] connectionUdiOffsets;
+
+    private final String[] udiEndpoints;
+    private final Integer[] udiDtuSizes;
+    private final String[] udiProfiles;
+    // rows of udi j: [udiRowOffsets[j], udiRowOffsets[j + 1])
+    private final int[] udiRowOffsets;
+
+    private final int[] timeIndexes;
+    private final long[][] columns;
+
+    private ConnectionPortfolioSnapshot(LocalDate period, int connectionCount, int udiCount, int rowCount) {
+        this.period = period;
+        this.connectionEntityAddresses = new String[connectionCount];
+        this.connectionIndexPerEntityAddress = new HashMap<>(connectionCount * 2);
+        this.connectionRowOffsets = new int[connectionCount + 1];
+        this.connectionUdiOffsets = new int[connectionCount + 1];
+        this.udiEndpoints = new String[udiCount];
+        this.udiDtuSizes = new Integer[udiCount];
+        this.udiProfiles = new String[udiCount];
+        this.udiRowOffsets = new int[udiCount + 1];
+        this.timeIndexes = new int[rowCount];
+        this.columns = new long[COLUMN_COUNT][rowCount];
+    }
+
+    /**
+     * Builds the snapshot of the portfolio from the entities of the period, the same way
+     * {@link energy.usef.agr.transformer.ConnectionPortfolioTransformer#transformToDTO(List, Map, Map, Map)} builds the DTO's.
+     *
+     * @param period {@link LocalDate} period of the portfolio.
+     * @param activeConnections {@link List} of active {@link Connection}'s.
+     * @param connectionPowerContainers {@link Map} of {@link PowerContainer} per {@link Connection}.
+     * @param udisPerConnection {@link List} of {@link Udi} per {@link Connection}.
+     * @param udiPowerContainers power containers at UDI level.
+     * @return the {@link ConnectionPortfolioSnapshot}.
+     */
+    public static ConnectionPortfolioSnapshot build(LocalDate period, List<Connection> activeConnections,
+            Map<Connection, List<PowerContainer>> connectionPowerContainers, Map<Connection, List<Udi>> udisPerConnection,
+            Map<Udi, List<PowerContainer>> udiPowerContainers) {
+        List<List<Udi>> udis = new ArrayList<>(activeConnections.size());
+        int udiCount = 0;
+        int connectionRowCount = 0;
+        int udiRowCount = 0;
+        for (Connection connection : activeConnections) {
+            List<Udi> connectionUdis = udisPerConnection == null ? null : udisPerConnection.get(connection);
+            udis.add(connectionUdis == null ? Collections.emptyList() : connectionUdis);
+            connectionRowCount += connectionPowerContainers.getOrDefault(connection, Collections.emptyList()).size();
+            for (Udi udi : udis.get(udis.size() - 1)) {
+                udiRowCount += udiPowerContainers.getOrDefault(udi, Collections.emptyList()).size();
+                udiCount++;
+            }
+        }
+
+        ConnectionPortfolioSnapshot snapshot = new ConnectionPortfolioSnapshot(period, activeConnections.size(), udiCount,
+                connectionRowCount + udiRowCount);
+        int connectionRow = 0;
+        int udiRow = connectionRowCount;
+        int udiIndex = 0;
+        for (int connectionIndex = 0; connectionIndex < activeConnections.size(); connectionIndex++) {
+            Connection connection = activeConnections.get(connectionIndex);
+            snapshot.connectionEntityAddresses[connectionIndex] = connection.getEntityAddress();
+            snapshot.connectionIndexPerEntityAddress.putIfAbsent(connection.getEntityAddress(), connectionIndex);
+            snapshot.connectionRowOffsets[connectionIndex] = connectionRow;
+            for (PowerContainer powerContainer : connectionPowerContainers.getOrDefault(connection, Collections.emptyList())) {
+                snapshot.setRow(connectionRow++, powerContainer);
+            }
+            snapshot.connectionUdiOffsets[connectionIndex] = udiIndex;
+            for (Udi udi : udis.get(connectionIndex)) {
+                snapshot.udiEndpoints[udiIndex] = udi.getEndpoint();
+                snapshot.udiDtuSizes[udiIndex] = udi.getDtuSize();
+                snapshot.udiProfiles[udiIndex] = udi.getProfile();
+                snapshot.udiRowOffsets[udiIndex] = udiRow;
+                for (PowerContainer powerContainer : udiPowerContainers.getOrDefault(udi, Collections.emptyList())) {
+                    snapshot.setRow(udiRow++, powerContainer);
+                }
+                udiIndex++;
+            }
+        }
+        snapshot.connectionRowOffsets[activeConnections.size()] = connectionRow;
+        snapshot.connectionUdiOffsets[activeConnections.size()] = udiIndex;
+        snapshot.udiRowOffsets[udiIndex] = udiRow;
+        return snapshot;
+    }
+
+    /**
+     * Builds the snapshot of a portfolio which is already available as {@link ConnectionPortfolioDto}'s.
+     *
+     * @param period {@link LocalDate} period of the portfolio.
+     * @param connectionPortfolioDtos {@link List} of {@link ConnectionPortfolioDto}'s.
+     * @return the {@link ConnectionPortfolioSnapshot}.
+     */
+    public static ConnectionPortfolioSnapshot build(LocalDate period, List<ConnectionPortfolioDto> connectionPortfolioDtos) {
+        int udiCount = 0;
+        int connectionRowCount = 0;
+        int udiRowCount = 0;
+        for (ConnectionPortfolioDto connectionPortfolioDto : connectionPortfolioDtos) {
+            connectionRowCount += connectionPortfolioDto.getConnectionPowerPerPTU().size();
+            for (UdiPortfolioDto udiPortfolioDto : connectionPortfolioDto.getUdis()) {
+                udiRowCount += udiPortfolioDto.getUdiPowerPerDTU().size();
+                udiCount++;
+            }
+        }
+
+        ConnectionPortfolioSnapshot snapshot = new ConnectionPortfolioSnapshot(period, connectionPortfolioDtos.size(), udiCount,
+                connectionRowCount + udiRowCount);
+        int connectionRow = 0;
+        int udiRow = connectionRowCount;
+        int udiIndex = 0;
+        for (int connectionIndex = 0; connectionIndex < connectionPortfolioDtos.size(); connectionIndex++) {
+            ConnectionPortfolioDto connectionPortfolioDto = connectionPortfolioDtos.get(connectionIndex);
+            snapshot.connectionEntityAddresses[connectionIndex] = connectionPortfolioDto.getConnectionEntityAddress();
+            snapshot.connectionIndexPerEntityAddress.putIfAbsent(connectionPortfolioDto.getConnectionEntityAddress(),
+                    connectionIndex);
+            snapshot.connectionRowOffsets[connectionIndex] = connectionRow;
+            for (PowerContainerDto powerContainerDto : connectionPortfolioDto.getConnectionPowerPerPTU().values()) {
+                snapshot.setRow(connectionRow++, powerContainerDto);
+            }
+            snapshot.connectionUdiOffsets[connectionIndex] = udiIndex;
+            for (UdiPortfolioDto udiPortfolioDto : connectionPortfolioDto.getUdis()) {
+                snapshot.udiEndpoints[udiIndex] = udiPortfolioDto.getEndpoint();
+                snapshot.udiDtuSizes[udiIndex] = udiPortfolioDto.getDtuSize();
+                snapshot.udiProfiles[udiIndex] = udiPortfolioDto.getProfile();
+                snapshot.udiRowOffsets[udiIndex] = udiRow;
+                for (PowerContainerDto powerContainerDto : udiPortfolioDto.getUdiPowerPerDTU().values()) {
+                    snapshot.setRow(udiRow++, powerContainerDto);
+                }
+                udiIndex++;
+            }
+        }
+        snapshot.connectionRowOffsets[connectionPortfolioDtos.size()] = connectionRow;
+        snapshot.connectionUdiOffsets[connectionPortfolioDtos.size()] = udiIndex;
+        snapshot.udiRowOffsets[udiIndex] = udiRow;
+        return snapshot;
+    }
+
+    private void setRow(int row, PowerContainer powerContainer) {
+        timeIndexes[row] = powerContainer.getTimeIndex();
+        setValues(row, PROFILE, powerContainer.getProfile());
+        setValues(row, FORECAST, powerContainer.getForecast());
+        setValues(row, OBSERVED, powerContainer.getObserved());
+        ForecastPowerData forecast = powerContainer.getForecast();
+        columns[ALLOCATED_FLEX_CONSUMPTION][row] = toLong(forecast == null ? null : forecast.getAllocatedFlexConsumption());
+        columns[ALLOCATED_FLEX_PRODUCTION][row] = toLong(forecast == null ? null : forecast.getAllocatedFlexProduction());
+    }
+
+    private void setRow(int row, PowerContainerDto powerContainerDto) {
+        timeIndexes[row] = powerContainerDto.getTimeIndex();
+        setValues(row, PROFILE, powerContainerDto.getProfile());
+        setValues(row, FORECAST, powerContainerDto.getForecast());
+        setValues(row, OBSERVED, powerContainerDto.getObserved());
+        columns[ALLOCATED_FLEX_CONSUMPTION][row] = toLong(powerContainerDto.getForecast().getAllocatedFlexConsumption());
+        columns[ALLOCATED_FLEX_PRODUCTION][row] = toLong(powerContainerDto.getForecast().getAllocatedFlexProduction());
+    }
+
+    private void setValues(int row, int firstColumn, PowerData powerData) {
+        columns[firstColumn][row] = toLong(powerData == null ? null : powerData.getUncontrolledLoad());
+        columns[firstColumn + 1][row] = toLong(powerData == null ? null : powerData.getAverageConsumption());
+        columns[firstColumn + 2][row] = toLong(powerData == null ? null : powerData.getAverageProduction());
+        columns[firstColumn + 3][row] = toLong(powerData == null ? null : powerData.getPotentialFlexConsumption());
+        columns[firstColumn + 4][row] = toLong(powerData == null ? null : powerData.getPotentialFlexProduction());
+    }
+
+    private void setValues(int row, int firstColumn, PowerDataDto powerDataDto) {
+        columns[firstColumn][row] = toLong(powerDataDto.getUncontrolledLoad());
+        columns[firstColumn + 1][row] = toLong(powerDataDto.getAverageConsumption());
+        columns[firstColumn + 2][row] = toLong(powerDataDto.getAverageProduction());
+        columns[firstColumn + 3][row] = toLong(powerDataDto.getPotentialFlexConsumption());
+        columns[firstColumn + 4][row] = toLong(powerDataDto.getPotentialFlexProduction());
+    }
+
+    private static long toLong(BigInteger value) {
+        // the power columns of the database have 18 digits, so the values always fit in a long.
+        return value == null ? NO_VALUE : value.longValueExact();
+    }
+
+    private static BigInteger toBigInteger(long value) {
+        return value == NO_VALUE ? null : BigInteger.valueOf(value);
+    }
+
+    public LocalDate getPeriod() {
+        return period;
+    }
+
+    /**
+     * Returns the number of connections of the portfolio.
+     *
+     * @return the number of connections.
+     */
+    public int size() {
+        return connectionEntityAddresses.length;
+    }
+
+    /**
+     * Returns the entity addresses of the connections, in the order of the portfolio.
+     *
+     * @return an unmodifiable {@link List} of entity addresses.
+     */
+    public List<String> getConnectionEntityAddresses() {
+        return Collections.unmodifiableList(Arrays.asList(connectionEntityAddresses));
+    }
+
+    /**
+     * Creates a new view on the portfolio. The {@link ConnectionPortfolioDto}'s are created when they are first read and are then
+     * kept by the view.
+     *
+     * @return a new {@link View}.
+     */
+    public View view() {
+        return new View();
+    }
+
+    private ConnectionPortfolioDto materialize(int connectionIndex) {
+        ConnectionPortfolioDto connectionPortfolioDto = new ConnectionPortfolioDto(connectionEntityAddresses[connectionIndex]);
+        putPowerContainerDtos(connectionPortfolioDto.getConnectionPowerPerPTU(), connectionRowOffsets[connectionIndex],
+                connectionRowOffsets[connectionIndex + 1]);
+        for (int udiIndex = connectionUdiOffsets[connectionIndex]; udiIndex < connectionUdiOffsets[connectionIndex + 1];
+             udiIndex++) {
+            UdiPortfolioDto udiPortfolioDto = new UdiPortfolioDto(udiEndpoints[udiIndex], udiDtuSizes[udiIndex],
+                    udiProfiles[udiIndex]);
+            putPowerContainerDtos(udiPortfolioDto.getUdiPowerPerDTU(), udiRowOffsets[udiIndex], udiRowOffsets[udiIndex + 1]);
+            connectionPortfolioDto.getUdis().add(udiPortfolioDto);
+        }
+        return connectionPortfolioDto;
+    }
+
+    private void putPowerContainerDtos(Map<Integer, PowerContainerDto> powerContainerDtoPerIndex, int firstRow, int endRow) {
+        for (int row = firstRow; row < endRow; row++) {
+            PowerContainerDto powerContainerDto = new PowerContainerDto(period, timeIndexes[row]);
+            powerContainerDto.setProfile(toPowerDataDto(new PowerDataDto(), row, PROFILE));
+            ForecastPowerDataDto forecast = toPowerDataDto(new ForecastPowerDataDto(), row, FORECAST);
+            forecast.setAllocatedFlexConsumption(toBigInteger(columns[ALLOCATED_FLEX_CONSUMPTION][row]));
+            forecast.setAllocatedFlexProduction(toBigInteger(columns[ALLOCATED_FLEX_PRODUCTION][row]));
+            powerContainerDto.setForecast(forecast);
+            powerContainerDto.setObserved(toPowerDataDto(new PowerDataDto(), row, OBSERVED));
+            powerContainerDtoPerIndex.put(timeIndexes[row], powerContainerDto);
+        }
+    }
+
+    private <T extends PowerDataDto> T toPowerDataDto(T powerDataDto, int row, int firstColumn) {
+        powerDataDto.setUncontrolledLoad(toBigInteger(columns[firstColumn][row]));
+        powerDataDto.setAverageConsumption(toBigInteger(columns[firstColumn + 1][row]));
+        powerDataDto.setAverageProduction(toBigInteger(columns[firstColumn + 2][row]));
+        powerDataDto.setPotentialFlexConsumption(toBigInteger(columns[firstColumn + 3][row]));
+        powerDataDto.setPotentialFlexProduction(toBigInteger(columns[firstColumn + 4][row]));
+        return powerDataDto;
+    }
+
+    /**
+     * Read-only {@link List} of the {@link ConnectionPortfolioDto}'s of the snapshot, in the order of the portfolio. A view is
+     * meant to be used by a single workflow and is not thread-safe.
+     */
+    public final class View extends AbstractList<ConnectionPortfolioDto> implements RandomAccess {
+
+        private final ConnectionPortfolioDto[] connectionPortfolioDtos = new ConnectionPortfolioDto[connectionEntityAddresses.length];
+
+        private View() {
+        }
+
+        @Override
+        public ConnectionPortfolioDto get(int index) {
+            if (connectionPortfolioDtos[index] == null) {
+                connectionPortfolioDtos[index] = materialize(index);
+            }
+            return connectionPortfolioDtos[index];
+        }
+
+        @Override
+        public int size() {
+            return connectionPortfolioDtos.length;
+        }
+
+        /**
+         * Finds the {@link ConnectionPortfolioDto} of a connection without materializing the other connections.
+         *
+         * @param connectionEntityAddress {@link String} entity address of the connection.
+         * @return the {@link ConnectionPortfolioDto} or <code>null</code> if the connection is not part of the portfolio.
+         */
+        public ConnectionPortfolioDto findByEntityAddress(String connectionEntityAddress) {
+            Integer connectionIndex = connectionIndexPerEntityAddress.get(connectionEntityAddress);
+            return connectionIndex == null ? null : get(connectionIndex);
+        }
+    }
+}
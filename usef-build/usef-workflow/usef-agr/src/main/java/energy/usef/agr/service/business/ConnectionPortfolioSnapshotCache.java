@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.agr.service.business;
+
+import energy.usef.core.util.DateTimeUtil;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+
+import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the {@link ConnectionPortfolioSnapshot} of each period, from the first time it is requested until the portfolio is
+ * modified (see {@link ConnectionPortfolioChangedEvent}). The snapshots of the past periods are dropped.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ConnectionPortfolioSnapshotCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPortfolioSnapshotCache.class);
+
+    private final Map<LocalDate, ConnectionPortfolioSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    // incremented at each invalidation, a snapshot built while the portfolio was modified is not kept.
+    private long version;
+
+    /**
+     * Returns the snapshot of the period, building it with the loader if there is none.
+     *
+     * @param period {@link LocalDate} period.
+     * @param loader {@link Function} building the snapshot of a period.
+     * @return the {@link ConnectionPortfolioSnapshot} of the period.
+     */
+    public ConnectionPortfolioSnapshot get(LocalDate period, Function<LocalDate, ConnectionPortfolioSnapshot> loader) {
+        ConnectionPortfolioSnapshot snapshot = snapshots.get(period);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        long loadedVersion;
+        synchronized (lock) {
+            loadedVersion = version;
+        }
+        snapshot = loader.apply(period);
+        synchronized (lock) {
+            if (loadedVersion == version) {
+                LOGGER.debug("Snapshot of the connection portfolio of period {} built with {} connections.", period,
+                        snapshot.size());
+                snapshots.keySet().removeIf(snapshotPeriod -> snapshotPeriod.isBefore(DateTimeUtil.getCurrentDate()));
+                snapshots.put(period, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drops the snapshots of the modified portfolio at the end of the transaction modifying it. This is also done on rollback,
+     * since a snapshot built in the same transaction may contain the rolled back modification.
+     *
+     * @param event {@link ConnectionPortfolioChangedEvent}.
+     */
+    public void invalidate(@Observes(during = TransactionPhase.AFTER_COMPLETION) ConnectionPortfolioChangedEvent event) {
+        synchronized (lock) {
+            version++;
+            if (event.getPeriod() == null) {
+                snapshots.clear();
+            } else {
+                snapshots.remove(event.getPeriod());
+            }
+        }
+    }
+}
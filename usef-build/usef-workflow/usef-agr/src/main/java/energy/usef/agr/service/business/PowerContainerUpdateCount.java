@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.agr.service.business;
+
+/**
+ * Outcome of an update of power containers: the number of rows (power values of one PTU or DTU) received from the PBC and the
+ * number of rows which actually changed and had to be written to the database.
+ */
+public final class PowerContainerUpdateCount {
+
+    private final long rowsReceived;
+    private final long rowsWritten;
+
+    /**
+     * Creates the count of an update.
+     *
+     * @param rowsReceived number of rows received.
+     * @param rowsWritten number of rows written.
+     */
+    public PowerContainerUpdateCount(long rowsReceived, long rowsWritten) {
+        this.rowsReceived = rowsReceived;
+        this.rowsWritten = rowsWritten;
+    }
+
+    public long getRowsReceived() {
+        return rowsReceived;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public String toString() {
+        return rowsWritten + " of " + rowsReceived + " received power container rows written";
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.agr.service.business;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+
+/**
+ * Counts, since startup, the power container rows received from the PBCs and the rows written to the database because their
+ * values changed. The ratio shows how much of the portfolio is actually modified by the updates.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PowerContainerUpdateCounter {
+
+    private final AtomicLong rowsReceived = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    /**
+     * Adds the rows of an update to the counters.
+     *
+     * @param updateCount {@link PowerContainerUpdateCount} of the update.
+     */
+    public void register(PowerContainerUpdateCount updateCount) {
+        rowsReceived.addAndGet(updateCount.getRowsReceived());
+        rowsWritten.addAndGet(updateCount.getRowsWritten());
+    }
+
+    /**
+     * Returns the number of power container rows received since startup.
+     *
+     * @return the received row count.
+     */
+    public long getRowsReceived() {
+        return rowsReceived.get();
+    }
+
+    /**
+     * Returns the number of power container rows written since startup.
+     *
+     * @return the written row count.
+     */
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.agr.service.business;
+
+import energy.usef.agr.repository.UdiRepository;
+import energy.usef.core.util.DateTimeUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the Udis per endpoint, with their id and validity, to find the Udi of a device message or of an udi event
+ * without querying the database. The index holds all the Udis which are still valid on or after the first day it is loaded
+ * for, so that it serves all the periods from that day. It is loaded on first use and dropped when the portfolio is modified
+ * (see {@link ConnectionPortfolioChangedEvent}).
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UdiEndpointIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UdiEndpointIndex.class);
+
+    @Inject
+    private UdiRepository udiRepository;
+
+    private final Object lock = new Object();
+    private volatile Index index;
+    // incremented at each invalidation, an index loaded while the portfolio was modified is not kept.
+    private long version;
+
+    /**
+     * Finds the id of the Udi with the given endpoint which is valid on the period.
+     *
+     * @param endpoint {@link String} endpoint of the Udi.
+     * @param period {@link LocalDate} period.
+     * @return the id of the Udi or <code>null</code> if none or multiple are valid.
+     */
+    public Long findUdiId(String endpoint, LocalDate period) {
+        return getIndex(period).findUdiId(endpoint, period);
+    }
+
+    /**
+     * Finds the ids of the Udis which are valid on the period, per endpoint.
+     *
+     * @param period {@link LocalDate} period.
+     * @return a {@link Map} with the id of the Udi per endpoint.
+     */
+    public Map<String, Long> findUdiIdsPerEndpoint(LocalDate period) {
+        Index currentIndex = getIndex(period);
+        Map<String, Long> udiIdsPerEndpoint = new HashMap<>();
+        for (String endpoint : currentIndex.udiValiditiesPerEndpoint.keySet()) {
+            Long udiId = currentIndex.findUdiId(endpoint, period);
+            if (udiId != null) {
+                udiIdsPerEndpoint.put(endpoint, udiId);
+            }
+        }
+        return udiIdsPerEndpoint;
+    }
+
+    /**
+     * Drops the index at the end of the transaction modifying the portfolio. This is also done on rollback, since an index loaded
+     * in the same transaction may contain the rolled back modification.
+     *
+     * @param event {@link ConnectionPortfolioChangedEvent}.
+     */
+    public void invalidate(@Observes(during = TransactionPhase.AFTER_COMPLETION) ConnectionPortfolioChangedEvent event) {
+        synchronized (lock) {
+            version++;
+            index = null;
+        }
+    }
+
+    private Index getIndex(LocalDate period) {
+        Index currentIndex = index;
+        if (currentIndex != null && !period.isBefore(currentIndex.firstDay)) {
+            return currentIndex;
+        }
+        long loadedVersion;
+        synchronized (lock) {
+            loadedVersion = version;
+        }
+        LocalDate today = DateTimeUtil.getCurrentDate();
+        Index loadedIndex = new Index(period.isBefore(today) ? period : today);
+        for (Object[] row : udiRepository.findUdiValidities(loadedIndex.firstDay)) {
+            loadedIndex.udiValiditiesPerEndpoint.computeIfAbsent((String) row[1], endpoint -> new ArrayList<>(1))
+                    .add(new UdiValidity((Long) row[0], new LocalDate(row[2]), new LocalDate(row[3])));
+        }
+        synchronized (lock) {
+            if (loadedVersion == version) {
+                LOGGER.debug("Udi endpoint index loaded from {} with {} endpoints.", loadedIndex.firstDay,
+                        loadedIndex.udiValiditiesPerEndpoint.size());
+                index = loadedIndex;
+            }
+        }
+        return loadedIndex;
+    }
+
+    /**
+     * Udis per endpoint which are valid on or after the first day of the index.
+     */
+    private static final class Index {
+        private final LocalDate firstDay;
+        private final Map<String, List<UdiValidity>> udiValiditiesPerEndpoint = new HashMap<>();
+
+        private Index(LocalDate firstDay) {
+            this.firstDay = firstDay;
+        }
+
+        private Long findUdiId(String endpoint, LocalDate period) {
+            Long udiId = null;
+            for (UdiValidity udiValidity : udiValiditiesPerEndpoint.getOrDefault(endpoint, Collections.emptyList())) {
+                if (udiValidity.isValidOn(period)) {
+                    if (udiId != null) {
+                        return null;
+                    }
+                    udiId = udiValidity.id;
+                }
+            }
+            return udiId;
+        }
+    }
+
+    /**
+     * Id and validity of an Udi, valid from (inclusive) until (exclusive).
+     */
+    private static final class UdiValidity {
+        private final Long id;
+        private final LocalDate validFrom;
+        private final LocalDate validUntil;
+
+        private UdiValidity(Long id, LocalDate validFrom, LocalDate validUntil) {
+            this.id = id;
+            this.validFrom = validFrom;
+            this.validUntil = validUntil;
+        }
+
+        private boolean isValidOn(LocalDate period) {
+            return !validFrom.isAfter(period) && validUntil.isAfter(period);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import energy.usef.agr.config.ConfigAgr;
 import energy.usef.agr.config.ConfigAgrParam;
 import energy.usef.agr.dto.ConnectionGroupPortfolioDto;
 import energy.usef.agr.service.business.AgrPortfolioBusinessService;
+import energy.usef.agr.service.business.PowerContainerUpdateCount;
 import energy.usef.agr.workflow.AgrWorkflowStep;
 import energy.usef.core.config.Config;
 import energy.usef.core.config.ConfigParam;
@@ -93,7 +94,9 @@ public class AgrNonUdiRetrieveAdsGoalRealizationCoordinator {
         // invocation of the PBC
         List<ConnectionGroupPortfolioDto> updatedPortfolio = invokePBC(period, connectionGroupPortfolioDtos);
         // update the portfolio with the updated values from the PBC.
-        agrPortfolioBusinessService.updateConnectionGroupPowerContainers(updatedPortfolio, period);
+        PowerContainerUpdateCount updateCount = agrPortfolioBusinessService.updateConnectionGroupPowerContainers(updatedPortfolio,
+                period);
+        LOGGER.info("ADS goal realization of period {} stored: {}.", period, updateCount);
         LOGGER.info(LOG_COORDINATOR_FINISHED_HANDLING_EVENT, event);
     }
 
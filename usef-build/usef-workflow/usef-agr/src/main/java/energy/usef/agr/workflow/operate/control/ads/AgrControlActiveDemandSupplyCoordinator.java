@@ -36,10 +36,17 @@ import energy.usef.core.workflow.DefaultWorkflowContext;
 import energy.usef.core.workflow.WorkflowContext;
 import energy.usef.core.workflow.step.WorkflowStepExecuter;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.ejb.Asynchronous;
 import javax.ejb.Stateless;
@@ -84,10 +91,15 @@ public class AgrControlActiveDemandSupplyCoordinator {
             @Observes(during = TransactionPhase.AFTER_COMPLETION) ControlActiveDemandSupplyEvent event) {
         LOGGER.info(LOG_COORDINATOR_START_HANDLING_EVENT, event);
 
+        List<DeviceMessage> deviceMessages = agrPortfolioBusinessService.findDeviceMessages(null, DeviceMessageStatus.NEW);
+        // the claim is committed before the sending starts, each final status is committed with one update per status.
+        agrPortfolioBusinessService.updateDeviceMessageStatus(toIds(deviceMessages), DeviceMessageStatus.IN_PROCESS);
+
         // pass each UDI Message Control to the PBC, using the thread pool.
         ExecutorService executorService = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-        List<DeviceMessage> deviceMessages = agrPortfolioBusinessService.findDeviceMessages(null, DeviceMessageStatus.NEW);
-        deviceMessages.forEach(deviceMessage -> executorService.submit(() -> handleUdiControlMessage(deviceMessage)));
+        Map<DeviceMessage, Future<DeviceMessageStatus>> statusPerDeviceMessage = new LinkedHashMap<>();
+        deviceMessages.forEach(deviceMessage -> statusPerDeviceMessage
+                .put(deviceMessage, executorService.submit(() -> handleUdiControlMessage(deviceMessage))));
 
         // shutdown and wait for the tasks to be terminated or reach a timeout.
         executorService.shutdown();
@@ -99,12 +111,34 @@ public class AgrControlActiveDemandSupplyCoordinator {
         }
         LOGGER.info("[{}] UDI Device Messages have been processed in the different threads.", deviceMessages.size());
 
+        // the device messages which are not processed in time remain in process.
+        Map<DeviceMessageStatus, List<DeviceMessage>> deviceMessagesPerStatus = new EnumMap<>(DeviceMessageStatus.class);
+        statusPerDeviceMessage.forEach((deviceMessage, status) -> {
+            if (status.isDone()) {
+                deviceMessagesPerStatus.computeIfAbsent(getStatus(deviceMessage, status), key -> new ArrayList<>())
+                        .add(deviceMessage);
+            }
+        });
+        deviceMessagesPerStatus.forEach((status, deviceMessagesWithStatus) -> agrPortfolioBusinessService
+                .updateDeviceMessageStatus(toIds(deviceMessagesWithStatus), status));
+
         LOGGER.info(LOG_COORDINATOR_FINISHED_HANDLING_EVENT, event);
     }
 
-    private void handleUdiControlMessage(DeviceMessage deviceMessage) {
-        agrPortfolioBusinessService.updateDeviceMessageStatus(deviceMessage, DeviceMessageStatus.IN_PROCESS);
+    private DeviceMessageStatus getStatus(DeviceMessage deviceMessage, Future<DeviceMessageStatus> status) {
+        try {
+            return status.get();
+        } catch (InterruptedException | ExecutionException e) {
+            LOGGER.error("Impossible to deliver the Device Message to endpoint [{}].", deviceMessage.getEndpoint(), e);
+            return DeviceMessageStatus.FAILURE;
+        }
+    }
+
+    private static List<Long> toIds(List<DeviceMessage> deviceMessages) {
+        return deviceMessages.stream().map(DeviceMessage::getId).collect(Collectors.toList());
+    }
 
+    private DeviceMessageStatus handleUdiControlMessage(DeviceMessage deviceMessage) {
         WorkflowContext context = new DefaultWorkflowContext();
         int ptuDuration = config.getIntegerProperty(ConfigParam.PTU_DURATION);
 
@@ -117,9 +151,8 @@ public class AgrControlActiveDemandSupplyCoordinator {
         if (returnedDeviceMessage != null) {
             // log the failure
             LOGGER.warn("Impossible to deliver the Device Message to endpoint [{}].", returnedDeviceMessage.getEndpoint());
-            agrPortfolioBusinessService.updateDeviceMessageStatus(deviceMessage, DeviceMessageStatus.FAILURE);
-        } else {
-            agrPortfolioBusinessService.updateDeviceMessageStatus(deviceMessage, DeviceMessageStatus.SENT);
+            return DeviceMessageStatus.FAILURE;
         }
+        return DeviceMessageStatus.SENT;
     }
 }
@@ -23,12 +23,14 @@ import energy.usef.agr.config.ConfigAgr;
 import energy.usef.agr.config.ConfigAgrParam;
 import energy.usef.agr.dto.ConnectionPortfolioDto;
 import energy.usef.agr.service.business.AgrPortfolioBusinessService;
+import energy.usef.agr.service.business.ConnectionPortfolioSnapshot;
 import energy.usef.agr.workflow.operate.reoptimize.ReOptimizePortfolioEvent;
 import energy.usef.agr.workflow.AgrWorkflowStep;
 import energy.usef.core.config.Config;
 import energy.usef.core.config.ConfigParam;
 import energy.usef.core.event.validation.EventValidationService;
 import energy.usef.core.exception.BusinessValidationException;
+import energy.usef.core.exception.TechnicalException;
 import energy.usef.core.service.business.CorePlanboardBusinessService;
 import energy.usef.core.util.DateTimeUtil;
 import energy.usef.core.util.PtuUtil;
@@ -39,10 +41,17 @@ import energy.usef.core.workflow.step.WorkflowStepExecuter;
 import energy.usef.core.workflow.transformer.PrognosisTransformer;
 import energy.usef.core.workflow.util.WorkflowUtil;
 
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -63,6 +72,8 @@ import org.slf4j.LoggerFactory;
 public class AgrDetectDeviationCoordinator {
     private static final Logger LOGGER = LoggerFactory.getLogger(AgrDetectDeviationCoordinator.class);
 
+    private static final int THREAD_POOL_SIZE = 10;
+
     @Inject
     private WorkflowStepExecuter workflowStepExecuter;
 
@@ -97,11 +108,13 @@ public class AgrDetectDeviationCoordinator {
 
         LocalDate period = event.getPeriod();
 
-        List<ConnectionPortfolioDto> connectionPortfolioDTOs = agrPortfolioBusinessService.findConnectionPortfolioDto(period);
+        // only the connections of the connection groups with a prognosis are materialized from the snapshot.
+        ConnectionPortfolioSnapshot.View connectionPortfolio = agrPortfolioBusinessService.findConnectionPortfolioSnapshot(period)
+                .view();
         Map<String, List<String>> connectionGroupsToConnectionsMap = corePlanboardBusinessService
                 .buildConnectionGroupsToConnectionsMap(period);
 
-        boolean deviationDetected = detectDeviation(event, connectionGroupsToConnectionsMap, connectionPortfolioDTOs);
+        boolean deviationDetected = detectDeviation(event, connectionGroupsToConnectionsMap, connectionPortfolio);
 
         if (deviationDetected) {
             LOGGER.warn("Deviation detected");
@@ -114,37 +127,62 @@ public class AgrDetectDeviationCoordinator {
     }
 
     private boolean detectDeviation(DetectDeviationEvent event, Map<String, List<String>> connectionGroupsToConnectionsMap,
-            List<ConnectionPortfolioDto> connectionPortfolioDtos) {
-        boolean deviationDetected = false;
-
+            ConnectionPortfolioSnapshot.View connectionPortfolio) {
         LocalDate period = event.getPeriod();
 
         Map<String, PrognosisDto> prognosisMap = findRelatedPrognoses(connectionGroupsToConnectionsMap.keySet(), period);
 
-        Iterator<String> iterator = connectionGroupsToConnectionsMap.keySet().iterator();
-        while (iterator.hasNext() && !deviationDetected) {
-            String usefIdentifier = iterator.next();
-            if (!prognosisMap.containsKey(usefIdentifier)) {
+        List<Callable<Boolean>> deviationDetections = new ArrayList<>();
+        for (Map.Entry<String, List<String>> connectionGroupToConnections : connectionGroupsToConnectionsMap.entrySet()) {
+            String usefIdentifier = connectionGroupToConnections.getKey();
+            PrognosisDto prognosisDto = prognosisMap.get(usefIdentifier);
+            if (prognosisDto == null) {
                 continue;
             }
-
-            List<String> relatedConnections = connectionGroupsToConnectionsMap.get(usefIdentifier);
-
-            List<ConnectionPortfolioDto> filteredConnections = connectionPortfolioDtos.stream()
-                    .filter(dto -> relatedConnections.contains(dto.getConnectionEntityAddress()))
+            List<ConnectionPortfolioDto> filteredConnections = connectionGroupToConnections.getValue().stream()
+                    .map(connectionPortfolio::findByEntityAddress)
+                    .filter(Objects::nonNull)
                     .collect(Collectors.toList());
+            deviationDetections.add(() -> invokeDetectDeviationPbc(period, usefIdentifier, filteredConnections, prognosisDto));
+        }
+        return detectFirstDeviation(deviationDetections);
+    }
 
-            deviationDetected = invokeDetectDeviationPbc(period, usefIdentifier, filteredConnections,
-                    prognosisMap.get(usefIdentifier));
+    /**
+     * Runs the deviation detections of the connection groups in the thread pool and stops as soon as one of them detects a
+     * deviation, since a single deviation is enough to trigger the re-optimization of the portfolio.
+     */
+    private boolean detectFirstDeviation(List<Callable<Boolean>> deviationDetections) {
+        if (deviationDetections.isEmpty()) {
+            return false;
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(THREAD_POOL_SIZE, deviationDetections.size()));
+        try {
+            CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executorService);
+            deviationDetections.forEach(completionService::submit);
+            for (int i = 0; i < deviationDetections.size(); i++) {
+                if (completionService.take().get()) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TechnicalException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new TechnicalException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            // the detections of the other connection groups are no longer needed.
+            executorService.shutdownNow();
         }
-        return deviationDetected;
     }
 
-    private Map<String, PrognosisDto> findRelatedPrognoses(Set<String> usefIdentifiers,
-            LocalDate period) {
-        return usefIdentifiers.stream()
-                .map(usefIdentifier -> corePlanboardBusinessService.findLastPrognoses(period, usefIdentifier))
-                .filter(prognoses -> !prognoses.isEmpty()).map(PrognosisTransformer::mapToPrognosis)
+    private Map<String, PrognosisDto> findRelatedPrognoses(Set<String> usefIdentifiers, LocalDate period) {
+        return corePlanboardBusinessService.findLastPrognoses(period).stream()
+                .filter(ptuPrognosis -> usefIdentifiers.contains(ptuPrognosis.getConnectionGroup().getUsefIdentifier()))
+                .collect(Collectors.groupingBy(ptuPrognosis -> ptuPrognosis.getConnectionGroup().getUsefIdentifier()))
+                .values().stream()
+                .map(PrognosisTransformer::mapToPrognosis)
                 .collect(Collectors.toMap(PrognosisDto::getConnectionGroupEntityAddress, Function.identity()));
     }
 
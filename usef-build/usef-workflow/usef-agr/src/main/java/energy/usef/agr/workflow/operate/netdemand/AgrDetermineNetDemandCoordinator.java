@@ -27,6 +27,7 @@ import energy.usef.agr.dto.ConnectionPortfolioDto;
 import energy.usef.agr.dto.device.capability.UdiEventDto;
 import energy.usef.agr.service.business.AgrDeviceCapabilityBusinessService;
 import energy.usef.agr.service.business.AgrPortfolioBusinessService;
+import energy.usef.agr.service.business.PowerContainerUpdateCount;
 import energy.usef.agr.transformer.UdiEventTransformer;
 import energy.usef.agr.workflow.operate.netdemand.DetermineNetDemandStepParameter.IN;
 import energy.usef.agr.workflow.operate.netdemand.DetermineNetDemandStepParameter.OUT;
@@ -116,7 +117,9 @@ public class AgrDetermineNetDemandCoordinator {
                     List.class);
             List<UdiEventDto> updatedUdiEvents = outContext.get(OUT.UPDATED_UDI_EVENT_DTO_LIST.name(), List.class);
             // process portfolio data
-            agrPortfolioBusinessService.updateConnectionPortfolio(period, updatedConnectionPortfolioDTO);
+            PowerContainerUpdateCount updateCount = agrPortfolioBusinessService.updateConnectionPortfolio(period,
+                    updatedConnectionPortfolioDTO);
+            LOGGER.info("Net demands of period [{}] stored: {}.", period, updateCount);
             agrDeviceCapabilityBusinessService.updateUdiEvents(period, updatedUdiEvents);
         }
 
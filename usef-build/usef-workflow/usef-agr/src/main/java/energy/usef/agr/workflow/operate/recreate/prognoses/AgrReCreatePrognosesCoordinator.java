@@ -120,7 +120,8 @@ public class AgrReCreatePrognosesCoordinator {
     @SuppressWarnings("unchecked")
     private boolean invokePbc(ReCreatePrognosesEvent event) {
         LocalDate period = event.getPeriod();
-        List<ConnectionPortfolioDto> connectionPortfolioDtos = agrPortfolioBusinessService.findConnectionPortfolioDto(period);
+        List<ConnectionPortfolioDto> connectionPortfolioDtos = agrPortfolioBusinessService.findConnectionPortfolioSnapshot(period)
+                .view();
 
         // Find A-Plans and fire creation of new A-Plan for connection groups without any
         List<PrognosisDto> aPlans = agrPlanboardBusinessService.findLastPrognoses(period, PrognosisType.A_PLAN, Optional.empty());
@@ -29,6 +29,7 @@ import energy.usef.agr.dto.device.request.DeviceMessageDto;
 import energy.usef.agr.model.Udi;
 import energy.usef.agr.service.business.AgrPlanboardBusinessService;
 import energy.usef.agr.service.business.AgrPortfolioBusinessService;
+import energy.usef.agr.service.business.PowerContainerUpdateCount;
 import energy.usef.agr.transformer.UdiEventTransformer;
 import energy.usef.agr.workflow.operate.control.ads.ControlActiveDemandSupplyEvent;
 import energy.usef.agr.workflow.operate.recreate.prognoses.ReCreatePrognosesEvent;
@@ -128,10 +129,10 @@ public class AgrReOptimizePortfolioCoordinator {
     public void trigger(@Observes(during = TransactionPhase.AFTER_COMPLETION) ReOptimizePortfolioEvent event) throws BusinessValidationException {
         LOGGER.info(LOG_COORDINATOR_START_HANDLING_EVENT, event);
         eventValidationService.validateEventPeriodTodayOrInFuture(event);
-        if (reOptimizeFlagHolder.isRunning(event.getPeriod())) {
-            reOptimizeFlagHolder.setToBeReoptimized(event.getPeriod(), true);
-        } else {
+        if (reOptimizeFlagHolder.trigger(event.getPeriod())) {
             executeReOptimizePortfolioEventEventManager.fire(new ExecuteReOptimizePortfolioEvent(event.getPeriod()));
+        } else {
+            LOGGER.debug("Re-optimization for period {} is running, a follow-up run has been scheduled.", event.getPeriod());
         }
         LOGGER.info(LOG_COORDINATOR_FINISHED_HANDLING_EVENT, event);
     }
@@ -145,17 +146,20 @@ public class AgrReOptimizePortfolioCoordinator {
     @Transactional(Transactional.TxType.REQUIRES_NEW)
     public void execute(@Observes(during = TransactionPhase.AFTER_COMPLETION) ExecuteReOptimizePortfolioEvent event) {
         LOGGER.info(LOG_COORDINATOR_START_HANDLING_EVENT, event);
-        reOptimizeFlagHolder.setIsRunning(event.getPtuDate(), true);
-
-        reOptimizePortfolio(event);
-
-        if (reOptimizeFlagHolder.toBeReoptimized(event.getPtuDate())) {
-            reOptimizeFlagHolder.setToBeReoptimized(event.getPtuDate(), false);
-            executeReOptimizePortfolioEventEventManager.fire(new ExecuteReOptimizePortfolioEvent(event.getPtuDate()));
-        } else {
-            reOptimizeFlagHolder.setIsRunning(event.getPtuDate(), false);
-            // Firing event to trigger ReCreatePrognoses workflow.
-            reCreatePrognosesEventManager.fire(new ReCreatePrognosesEvent(event.getPtuDate()));
+        boolean reOptimized = false;
+        try {
+            reOptimizePortfolio(event);
+            reOptimized = true;
+        } finally {
+            // always release the period, otherwise a failed run would block all future re-optimizations of the period.
+            if (reOptimizeFlagHolder.finishRun(event.getPtuDate())) {
+                executeReOptimizePortfolioEventEventManager.fire(new ExecuteReOptimizePortfolioEvent(event.getPtuDate()));
+            } else if (reOptimized) {
+                // Firing event to trigger ReCreatePrognoses workflow.
+                reCreatePrognosesEventManager.fire(new ReCreatePrognosesEvent(event.getPtuDate()));
+            }
+            LOGGER.debug("Re-optimization triggers received: {}, runs executed: {}.", reOptimizeFlagHolder.getTriggerCount(),
+                    reOptimizeFlagHolder.getRunCount());
         }
         LOGGER.info(LOG_COORDINATOR_FINISHED_HANDLING_EVENT, event);
     }
@@ -171,7 +175,8 @@ public class AgrReOptimizePortfolioCoordinator {
         LocalDate ptuDate = event.getPtuDate();
 
         // Getting Connection Portfolio
-        List<ConnectionPortfolioDto> connectionPortfolioDTOs = agrPortfolioBusinessService.findConnectionPortfolioDto(ptuDate);
+        List<ConnectionPortfolioDto> connectionPortfolioDTOs = agrPortfolioBusinessService.findConnectionPortfolioSnapshot(ptuDate)
+                .view();
 
         if (connectionPortfolioDTOs.isEmpty()) {
             LOGGER.warn("Empty Connection Portfolio");
@@ -211,7 +216,8 @@ public class AgrReOptimizePortfolioCoordinator {
             agrPortfolioBusinessService.storeDeviceMessages(deviceMessageDtos, udis);
         }
 
-        agrPortfolioBusinessService.updateConnectionPortfolio(period, reoptimizedPortfolio);
+        PowerContainerUpdateCount updateCount = agrPortfolioBusinessService.updateConnectionPortfolio(period, reoptimizedPortfolio);
+        LOGGER.info("Re-optimized portfolio of period {} stored: {}.", period, updateCount);
 
         // Change status of all flex orders to processed
         for (PtuFlexOrder ptuFlexorder : ptuFlexOrderList) {
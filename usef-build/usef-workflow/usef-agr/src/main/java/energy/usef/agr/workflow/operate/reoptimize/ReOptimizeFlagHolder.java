@@ -16,74 +16,106 @@
 
 package energy.usef.agr.workflow.operate.reoptimize;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-import javax.ejb.Lock;
-import javax.ejb.LockType;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
 
 import org.joda.time.LocalDate;
 
 /**
- * This class maintains the flags, whether Portfolio ReOptimization should be run again, or is already running.
+ * This class maintains, per period, whether Portfolio ReOptimization is idle, running, or running and should be run again
+ * (dirty). It coalesces triggers: at most one reoptimization runs per period and any number of triggers received while it is
+ * running result in exactly one follow-up run. The state is kept in a lock-free map, so callers do not serialize on the container
+ * lock. A period without an entry is idle.
  */
 @Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class ReOptimizeFlagHolder {
 
-    private Map<LocalDate, Boolean> isRunningMap = new HashMap<>();
-    private Map<LocalDate, Boolean> toBeReoptimizedMap = new HashMap<>();
+    private enum State {
+        RUNNING,
+        DIRTY
+    }
+
+    private final ConcurrentMap<LocalDate, State> states = new ConcurrentHashMap<>();
+    private final AtomicLong triggerCount = new AtomicLong();
+    private final AtomicLong runCount = new AtomicLong();
 
     /**
-     * Returns the Running Flag.
+     * Registers a trigger for the reoptimization of the period. When the period is idle, it becomes running and the caller is
+     * responsible for executing the reoptimization. Otherwise the period is marked dirty, so the running reoptimization is
+     * followed by exactly one more run.
      *
-     * @param period
-     * @return
+     * @param period {@link LocalDate} period of the reoptimization.
+     * @return <code>true</code> if the caller has to execute the reoptimization.
      */
-    @Lock(LockType.WRITE)
-    public boolean isRunning(LocalDate period) {
-        return isRunningMap.getOrDefault(period, false);
+    public boolean trigger(LocalDate period) {
+        triggerCount.incrementAndGet();
+        while (true) {
+            State state = states.putIfAbsent(period, State.RUNNING);
+            if (state == null) {
+                return true;
+            }
+            if (state == State.DIRTY || states.replace(period, State.RUNNING, State.DIRTY)) {
+                return false;
+            }
+            // the running reoptimization finished in the meantime, try again.
+        }
     }
 
     /**
-     * Returns the ToBeReoptimized Flag.
+     * Registers the end of a reoptimization run of the period. When triggers were received during the run, the period stays
+     * running and the caller is responsible for executing the follow-up reoptimization. Otherwise the period becomes idle.
      *
-     * @param period
-     * @return
+     * @param period {@link LocalDate} period of the reoptimization.
+     * @return <code>true</code> if the caller has to execute the reoptimization again.
      */
-    @Lock(LockType.WRITE)
-    public boolean toBeReoptimized(LocalDate period) {
-        return toBeReoptimizedMap.getOrDefault(period, false);
+    public boolean finishRun(LocalDate period) {
+        runCount.incrementAndGet();
+        while (true) {
+            if (states.replace(period, State.DIRTY, State.RUNNING)) {
+                return true;
+            }
+            if (states.remove(period, State.RUNNING)) {
+                return false;
+            }
+            if (!states.containsKey(period)) {
+                // not registered as running (should not happen), nothing to finish.
+                return false;
+            }
+        }
     }
 
     /**
-     * Sets the flag if true, other wise removes it.
+     * Returns whether a reoptimization of the period is running.
      *
-     * @param period
-     * @param value
+     * @param period {@link LocalDate} period of the reoptimization.
+     * @return <code>true</code> if running.
      */
-    @Lock(LockType.WRITE)
-    public void setIsRunning(LocalDate period, boolean value) {
-        if (value) {
-            isRunningMap.put(period, value);
-        } else {
-            isRunningMap.remove(period);
-        }
+    public boolean isRunning(LocalDate period) {
+        return states.containsKey(period);
     }
 
     /**
-     * Sets the flag if true, other wise removes it.
+     * Returns the number of triggers received since startup.
      *
-     * @param period
-     * @param value
+     * @return the trigger count.
      */
-    @Lock(LockType.WRITE)
-    public void setToBeReoptimized(LocalDate period, boolean value) {
-        if (value) {
-            toBeReoptimizedMap.put(period, value);
-        } else {
-            toBeReoptimizedMap.remove(period);
-        }
+    public long getTriggerCount() {
+        return triggerCount.get();
+    }
+
+    /**
+     * Returns the number of reoptimization runs executed since startup.
+     *
+     * @return the run count.
+     */
+    public long getRunCount() {
+        return runCount.get();
     }
 
 }
@@ -25,6 +25,7 @@ import energy.usef.agr.config.ConfigAgr;
 import energy.usef.agr.config.ConfigAgrParam;
 import energy.usef.agr.dto.ConnectionPortfolioDto;
 import energy.usef.agr.service.business.AgrPortfolioBusinessService;
+import energy.usef.agr.service.business.PowerContainerUpdateCount;
 import energy.usef.agr.workflow.plan.connection.forecast.ConnectionForecastStepParameter.IN;
 import energy.usef.agr.workflow.plan.connection.forecast.ConnectionForecastStepParameter.OUT;
 import energy.usef.core.config.Config;
@@ -95,7 +96,9 @@ public class AgrUpdateConnectionForecastCoordinator {
 
             // Saving portfolio data
             LOGGER.debug("Saving the forecast request results");
-            agrPortfolioBusinessService.updateConnectionPortfolio(forecastDay, connectionPortfolioResults);
+            PowerContainerUpdateCount updateCount = agrPortfolioBusinessService.updateConnectionPortfolio(forecastDay,
+                    connectionPortfolioResults);
+            LOGGER.info("ConnectionForecasts for date {} updated: {}.", forecastDay, updateCount);
         }
 
         LOGGER.info(LOG_COORDINATOR_FINISHED_HANDLING_EVENT, event);
@@ -108,6 +108,14 @@ public class AgrInitiateSettlementCoordinator extends AbstractSettlementCoordina
         return AgrWorkflowStep.AGR_INITIATE_SETTLEMENT.name();
     }
 
+    /**
+     * Initializes the workflow context with all the relevant information which will be given to the PBC. The context holds the
+     * settlement documents and the connection group portfolio of every day of the settlement period.
+     *
+     * @param startDate {@link LocalDate} start date of the settlement period (inclusive).
+     * @param endDate {@link LocalDate} end date of the settlement period (inclusive).
+     * @return a {@link WorkflowContext} object.
+     */
     @Override
     public WorkflowContext initiateWorkflowContext(LocalDate startDate, LocalDate endDate) {
         WorkflowContext inContext = new DefaultWorkflowContext();
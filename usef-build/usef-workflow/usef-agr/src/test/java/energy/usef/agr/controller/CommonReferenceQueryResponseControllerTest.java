@@ -36,12 +36,14 @@ import org.powermock.reflect.Whitebox;
 
 import energy.usef.agr.config.ConfigAgr;
 import energy.usef.agr.config.ConfigAgrParam;
+import energy.usef.agr.service.business.ConnectionPortfolioChangedEvent;
 import energy.usef.agr.workflow.plan.connection.profile.AgrUpdateElementDataStoreEvent;
 import energy.usef.core.data.xml.bean.message.CommonReferenceEntityType;
 import energy.usef.core.data.xml.bean.message.CommonReferenceQueryResponse;
 import energy.usef.core.data.xml.bean.message.DispositionSuccessFailure;
 import energy.usef.core.exception.BusinessException;
 import energy.usef.core.model.Message;
+import energy.usef.core.service.business.CommonReferenceQueryResponseAssemblerService;
 import energy.usef.core.service.business.CorePlanboardBusinessService;
 import energy.usef.core.service.business.MessageService;
 import energy.usef.core.service.helper.MessageMetadataBuilder;
@@ -63,16 +65,20 @@ public class CommonReferenceQueryResponseControllerTest {
 
     @Mock
     private Event<AgrUpdateElementDataStoreEvent> agrUpdateElementDataStoreEventManager;
+    @Mock
+    private Event<ConnectionPortfolioChangedEvent> connectionPortfolioChangedEventManager;
 
     private CommonReferenceQueryResponseController controller;
 
     @Before
     public void init() {
         controller = new CommonReferenceQueryResponseController();
+        Whitebox.setInternalState(controller, new CommonReferenceQueryResponseAssemblerService());
         Whitebox.setInternalState(controller, corePlanboardBusinessService);
         Whitebox.setInternalState(controller, messageService);
         Whitebox.setInternalState(controller, configAgr);
         Whitebox.setInternalState(controller, "agrUpdateElementDataStoreEventManager", agrUpdateElementDataStoreEventManager);
+        Whitebox.setInternalState(controller, "connectionPortfolioChangedEventManager", connectionPortfolioChangedEventManager);
         PowerMockito.when(messageService.getInitialMessageOfConversation(Matchers.any(String.class))).then(invocation -> {
             Message message = new Message();
             message.setCreationTime(new LocalDateTime(2015, 1, 1, 1, 0, 0));
@@ -103,6 +109,8 @@ public class CommonReferenceQueryResponseControllerTest {
                         Matchers.eq(new LocalDate(2015, 1, 2)), Matchers.eq(2));
         Mockito.verify(agrUpdateElementDataStoreEventManager, Mockito.times(1))
                 .fire(Matchers.any(AgrUpdateElementDataStoreEvent.class));
+        Mockito.verify(connectionPortfolioChangedEventManager, Mockito.times(1))
+                .fire(Matchers.any(ConnectionPortfolioChangedEvent.class));
     }
 
     /**
@@ -16,15 +16,29 @@
 
 package energy.usef.agr.repository;
 
+import energy.usef.agr.model.ConsumptionProductionType;
 import energy.usef.agr.model.DeviceMessage;
 import energy.usef.agr.model.DeviceMessageStatus;
+import energy.usef.agr.model.DeviceRequest;
+import energy.usef.agr.model.IncreaseRequest;
+import energy.usef.agr.model.ReduceRequest;
+import energy.usef.agr.model.Udi;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.joda.time.LocalDate;
 import org.junit.*;
+import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import static org.powermock.reflect.Whitebox.setInternalState;
 
@@ -44,7 +58,12 @@ public class DeviceMessageRepositoryTest {
     @BeforeClass
     public static void initTestFixture() throws Exception {
         // Get the entity manager for the tests.
-        entityManagerFactory = Persistence.createEntityManagerFactory("test");
+        // same JDBC batching as the deployment, with statistics to count the statements.
+        Map<String, String> properties = new HashMap<>();
+        properties.put("hibernate.jdbc.batch_size", "20");
+        properties.put("hibernate.generate_statistics", "true");
+        properties.put("hibernate.show_sql", "false");
+        entityManagerFactory = Persistence.createEntityManagerFactory("test", properties);
         entityManager = entityManagerFactory.createEntityManager();
     }
 
@@ -97,4 +116,49 @@ public class DeviceMessageRepositoryTest {
             Assert.fail(e.getMessage());
         }
     }
+
+    @Test
+    public void testUpdateDeviceMessageStatus() {
+        Assert.assertEquals(2, repository.updateDeviceMessageStatus(Arrays.asList(1L, 3L), DeviceMessageStatus.IN_PROCESS));
+        Assert.assertEquals(0, repository.updateDeviceMessageStatus(new ArrayList<>(), DeviceMessageStatus.IN_PROCESS));
+
+        Assert.assertEquals(1, repository.findDeviceMessages("ean.673685900012623654", DeviceMessageStatus.NEW).size());
+        Assert.assertEquals(2, repository.findDeviceMessages(null, DeviceMessageStatus.IN_PROCESS).size());
+    }
+
+    @Test
+    public void testPersistDeviceMessagesInJdbcBatches() {
+        final int deviceMessageCount = 10000;
+        Udi udi = entityManager.find(Udi.class, 1L);
+        List<DeviceMessage> deviceMessages = new ArrayList<>();
+        for (int i = 0; i < deviceMessageCount; i++) {
+            DeviceMessage deviceMessage = new DeviceMessage();
+            deviceMessage.setEndpoint(udi.getEndpoint());
+            deviceMessage.setUdi(udi);
+            deviceMessage.setDeviceMessageStatus(DeviceMessageStatus.NEW);
+            deviceMessage.getDeviceRequests().add(withId(new ReduceRequest(new LocalDate(2015, 11, 1), "event" + i, 1, 2,
+                    BigInteger.TEN, ConsumptionProductionType.CONSUMPTION)));
+            deviceMessage.getDeviceRequests().add(withId(new IncreaseRequest(new LocalDate(2015, 11, 1), "event" + i, 1, 2,
+                    BigInteger.TEN, ConsumptionProductionType.PRODUCTION)));
+            deviceMessages.add(deviceMessage);
+        }
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+
+        repository.persistDeviceMessages(deviceMessages);
+        repository.flush();
+
+        long statementCount = statistics.getPrepareStatementCount();
+        LoggerFactory.getLogger(DeviceMessageRepositoryTest.class).info("{} device messages and {} device requests stored with {} "
+                + "prepared statements.", deviceMessageCount, 2 * deviceMessageCount, statementCount);
+        Assert.assertEquals(3 * deviceMessageCount, statistics.getEntityInsertCount());
+        // the inserts of a table are sent in batches on the same prepared statement, the other statements fetch the ids of the
+        // device messages from the sequence.
+        Assert.assertTrue(statementCount <= deviceMessageCount + 3 * (deviceMessageCount / 20 + 1));
+    }
+
+    private static <T extends DeviceRequest> T withId(T deviceRequest) {
+        deviceRequest.setId(UUID.randomUUID().toString());
+        return deviceRequest;
+    }
 }
@@ -23,6 +23,7 @@ import energy.usef.agr.model.PowerContainer;
 import energy.usef.agr.model.Udi;
 import energy.usef.core.model.Connection;
 import energy.usef.core.model.ConnectionGroup;
+import energy.usef.core.model.ConnectionGroupState;
 
 import java.util.List;
 import java.util.Map;
@@ -114,6 +115,31 @@ public class PowerContainerRepositoryTest {
         repository.findConnectionPowerContainers(new LocalDate("2015-01-20"), Optional.empty(), Optional.empty());
     }
 
+    @Test
+    public void testFindPowerContainersOfConnectionInSeveralConnectionGroups() {
+        LocalDate testDate = new LocalDate("2015-01-20");
+        ConnectionGroup otherConnectionGroup = entityManager.find(ConnectionGroup.class,
+                "ea1.1992-01.com.usef-example:gridpoint.11111111-1111-1111-1112");
+        ConnectionGroupState connectionGroupState = new ConnectionGroupState();
+        connectionGroupState.setConnection(entityManager.find(Connection.class, "ean.871685900012636543"));
+        connectionGroupState.setConnectionGroup(otherConnectionGroup);
+        connectionGroupState.setValidFrom(testDate);
+        connectionGroupState.setValidUntil(testDate.plusDays(1));
+        entityManager.persist(connectionGroupState);
+
+        Map<Connection, List<PowerContainer>> connectionContainers = repository.findConnectionPowerContainers(testDate,
+                Optional.empty(), Optional.empty());
+        Assert.assertEquals("The power container is found once", 1, connectionContainers.values().iterator().next().size());
+        Assert.assertEquals(1, repository.findConnectionPowerContainers(testDate, Optional.empty(),
+                Optional.of(otherConnectionGroup)).size());
+        Assert.assertEquals(1, repository.findUdiPowerContainers(testDate, Optional.empty(), Optional.empty())
+                .values().iterator().next().size());
+
+        Assert.assertTrue(repository.findConnectionPowerContainers(testDate.plusDays(1), Optional.empty(),
+                Optional.of(otherConnectionGroup)).isEmpty());
+        Assert.assertTrue(repository.findConnectionGroupPowerContainers(testDate, Optional.of(otherConnectionGroup)).isEmpty());
+    }
+
     @Test
     public void testFindUdiPowerContainers() {
         Map<Udi, List<PowerContainer>> udiPowerContainers = repository
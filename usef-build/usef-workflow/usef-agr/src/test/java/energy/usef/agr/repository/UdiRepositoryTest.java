@@ -110,6 +110,18 @@ public class UdiRepositoryTest {
         Assert.assertEquals(1, udi.getDtuSize().intValue());
     }
 
+    @Test
+    public void testFindUdiValidities() {
+        // udi 4 is valid until 2015-12-01, the other udis are valid until 2015-01-20 or 2050-01-21.
+        List<Object[]> udiValidities = repository.findUdiValidities(new LocalDate(2015, 1, 20));
+
+        Assert.assertEquals(3, udiValidities.size());
+        Object[] udiValidity = udiValidities.stream().filter(row -> Long.valueOf(4).equals(row[0])).findFirst().get();
+        Assert.assertEquals("ean.12168590001263697.UDI", udiValidity[1]);
+        Assert.assertEquals(new LocalDate(2015, 12, 1), new LocalDate(udiValidity[2]));
+        Assert.assertEquals(new LocalDate(2015, 12, 1), new LocalDate(udiValidity[3]));
+    }
+
     @Test
     public void testFindActiveUdisPerConnectionByPeriod() {
         final LocalDate period = new LocalDate(2015, 1, 20);
@@ -19,6 +19,7 @@ package energy.usef.agr.service.business;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.powermock.reflect.Whitebox.setInternalState;
@@ -27,6 +28,7 @@ import energy.usef.agr.dto.device.capability.IncreaseCapabilityDto;
 import energy.usef.agr.dto.device.capability.ReportCapabilityDto;
 import energy.usef.agr.dto.device.capability.UdiEventDto;
 import energy.usef.agr.dto.device.capability.UdiEventTypeDto;
+import energy.usef.agr.model.Udi;
 import energy.usef.agr.model.UdiEvent;
 import energy.usef.agr.model.UdiEventType;
 import energy.usef.agr.model.device.capability.IncreaseCapability;
@@ -60,6 +62,8 @@ public class AgrDeviceCapabilityBusinessServiceTest {
     @Mock
     private UdiRepository udiRepository;
     @Mock
+    private UdiEndpointIndex udiEndpointIndex;
+    @Mock
     private UdiEventRepository udiEventRepository;
     @Mock
     private ShiftCapabilityRepository shiftCapabilityRepository;
@@ -76,6 +80,7 @@ public class AgrDeviceCapabilityBusinessServiceTest {
     public void setUp() {
         agrDeviceCapabilityBusinessService = new AgrDeviceCapabilityBusinessService();
         setInternalState(agrDeviceCapabilityBusinessService, udiRepository);
+        setInternalState(agrDeviceCapabilityBusinessService, udiEndpointIndex);
         setInternalState(agrDeviceCapabilityBusinessService, udiEventRepository);
         setInternalState(agrDeviceCapabilityBusinessService, shiftCapabilityRepository);
         setInternalState(agrDeviceCapabilityBusinessService, interruptCapabilityRepository);
@@ -88,6 +93,9 @@ public class AgrDeviceCapabilityBusinessServiceTest {
     public void testUpdateUdiEvents() throws Exception {
         final LocalDate period = new LocalDate(2015, 11, 9);
         PowerMockito.when(udiEventRepository.findUdiEventsForPeriod(eq(period))).thenReturn(buildDatabaseUdiEvents(period));
+        Udi udi = new Udi();
+        PowerMockito.when(udiEndpointIndex.findUdiId(any(String.class), eq(period))).thenReturn(1L);
+        PowerMockito.when(udiRepository.getReference(1L)).thenReturn(udi);
         // invocation
         agrDeviceCapabilityBusinessService.updateUdiEvents(period, buildUdiEventDtos(period));
         // assertions and verifications
@@ -100,6 +108,8 @@ public class AgrDeviceCapabilityBusinessServiceTest {
         verify(increaseCapabilityRepository, times(1)).persist(any(IncreaseCapability.class));
         assertEquals("2222-tobedeleted-2222", toBeDeletedCaptor.getValue().getId());
         assertEquals("3333-tobecreated-3333", toBeCreatedCaptor.getValue().getId());
+        assertEquals(udi, toBeCreatedCaptor.getValue().getUdi());
+        verify(udiRepository, never()).findByEndpoint(any(String.class), any(LocalDate.class));
     }
 
     private List<UdiEvent> buildDatabaseUdiEvents(LocalDate period) {
@@ -37,6 +37,7 @@ import energy.usef.agr.dto.device.request.InterruptRequestDto;
 import energy.usef.agr.dto.device.request.ReduceRequestDto;
 import energy.usef.agr.dto.device.request.ReportRequestDto;
 import energy.usef.agr.dto.device.request.ShiftRequestDto;
+import energy.usef.agr.model.ConnectionGroupPowerContainer;
 import energy.usef.agr.model.DeviceMessage;
 import energy.usef.agr.model.DeviceMessageStatus;
 import energy.usef.agr.model.PowerContainer;
@@ -45,12 +46,7 @@ import energy.usef.agr.model.Udi;
 import energy.usef.agr.model.UdiEvent;
 import energy.usef.agr.model.UdiPowerContainer;
 import energy.usef.agr.repository.DeviceMessageRepository;
-import energy.usef.agr.repository.IncreaseRequestRepository;
-import energy.usef.agr.repository.InterruptRequestRepository;
 import energy.usef.agr.repository.PowerContainerRepository;
-import energy.usef.agr.repository.ReduceRequestRepository;
-import energy.usef.agr.repository.ReportRequestRepository;
-import energy.usef.agr.repository.ShiftRequestRepository;
 import energy.usef.agr.repository.UdiEventRepository;
 import energy.usef.agr.repository.UdiRepository;
 import energy.usef.core.config.Config;
@@ -67,6 +63,7 @@ import energy.usef.core.workflow.dto.USEFRoleDto;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -76,6 +73,10 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Event;
+
 import org.joda.time.LocalDate;
 import org.junit.Assert;
 import org.junit.Before;
@@ -113,17 +114,13 @@ public class AgrPortfolioBusinessServiceTest {
     @Mock
     private DeviceMessageRepository deviceMessageRepository;
     @Mock
-    private ReduceRequestRepository reduceRequestRepository;
-    @Mock
-    private IncreaseRequestRepository increaseRequestRepository;
-    @Mock
-    private InterruptRequestRepository interruptRequestRepository;
+    private Event<ConnectionPortfolioChangedEvent> connectionPortfolioChangedEventManager;
     @Mock
-    private ReportRequestRepository reportRequestRepository;
-    @Mock
-    private ShiftRequestRepository shiftRequestRepository;
+    private UdiEndpointIndex udiEndpointIndex;
 
     private AgrPortfolioBusinessService agrPortfolioBusinessService;
+    private PowerContainerUpdateCounter powerContainerUpdateCounter;
+    private ConnectionPortfolioSnapshotCache connectionPortfolioSnapshotCache;
 
     @Before
     public void init() {
@@ -135,11 +132,13 @@ public class AgrPortfolioBusinessServiceTest {
         Whitebox.setInternalState(agrPortfolioBusinessService, deviceMessageRepository);
         Whitebox.setInternalState(agrPortfolioBusinessService, udiRepository);
         Whitebox.setInternalState(agrPortfolioBusinessService, udiEventRepository);
-        Whitebox.setInternalState(agrPortfolioBusinessService, "reduceRequestRepository", reduceRequestRepository);
-        Whitebox.setInternalState(agrPortfolioBusinessService, "increaseRequestRepository", increaseRequestRepository);
-        Whitebox.setInternalState(agrPortfolioBusinessService, "interruptRequestRepository", interruptRequestRepository);
-        Whitebox.setInternalState(agrPortfolioBusinessService, "reportRequestRepository", reportRequestRepository);
-        Whitebox.setInternalState(agrPortfolioBusinessService, "shiftRequestRepository", shiftRequestRepository);
+        powerContainerUpdateCounter = new PowerContainerUpdateCounter();
+        Whitebox.setInternalState(agrPortfolioBusinessService, powerContainerUpdateCounter);
+        connectionPortfolioSnapshotCache = new ConnectionPortfolioSnapshotCache();
+        Whitebox.setInternalState(agrPortfolioBusinessService, connectionPortfolioSnapshotCache);
+        Whitebox.setInternalState(agrPortfolioBusinessService, "connectionPortfolioChangedEventManager",
+                connectionPortfolioChangedEventManager);
+        Whitebox.setInternalState(agrPortfolioBusinessService, udiEndpointIndex);
 
         Mockito.when(configAgr.getBooleanProperty(ConfigAgrParam.AGR_IS_NON_UDI_AGGREGATOR)).thenReturn(false);
         Mockito.when(config.getIntegerProperty(ConfigParam.PTU_DURATION)).thenReturn(15);
@@ -215,6 +214,67 @@ public class AgrPortfolioBusinessServiceTest {
         // TODO: add some verifications / assertions to make sure the method is working.
     }
 
+    @Test
+    public void testUpdateConnectionPortfolioWritesOnlyChangedPowerContainers() {
+        final LocalDate period = DateTimeUtil.getCurrentDate();
+        final Connection connection = new Connection("ean.0000000001");
+        // index 1 is unchanged, index 2 has a different observed uncontrolled load.
+        PowerContainer unchangedPowerContainer = buildPowerContainer(period, 1);
+        PowerData unchangedObserved = unchangedPowerContainer.getObserved();
+        PowerContainer changedPowerContainer = buildPowerContainer(period, 2);
+        changedPowerContainer.getObserved().setUncontrolledLoad(BigInteger.valueOf(5));
+        Map<Udi, List<PowerContainer>> udiPowerContainers = new HashMap<>();
+        Map<Connection, List<Udi>> udisPerConnection = buildUdiPowerContainerMap(connection, udiPowerContainers);
+        // the udi power container has the values sent for its DTU.
+        udiPowerContainers.values().iterator().next().get(0).getObserved().setUncontrolledLoad(BigInteger.valueOf(SET_TIME_INDEX));
+
+        when(powerContainerRepository.findConnectionPowerContainers(eq(period), eq(Optional.empty()), eq(Optional.empty())))
+                .thenReturn(Collections.singletonMap(connection, Arrays.asList(unchangedPowerContainer, changedPowerContainer)));
+        when(udiRepository.findActiveUdisPerConnection(eq(period))).thenReturn(udisPerConnection);
+        when(powerContainerRepository.findUdiPowerContainers(eq(period), eq(Optional.empty()), eq(Optional.empty())))
+                .thenReturn(udiPowerContainers);
+
+        PowerContainerUpdateCount updateCount = agrPortfolioBusinessService
+                .updateConnectionPortfolio(period, buildConnectionPortfolioDTOList());
+
+        assertEquals(192, updateCount.getRowsReceived());
+        assertEquals(1, updateCount.getRowsWritten());
+        Assert.assertSame(unchangedObserved, unchangedPowerContainer.getObserved());
+        assertEquals(BigInteger.valueOf(2), changedPowerContainer.getObserved().getUncontrolledLoad());
+        assertEquals(192, powerContainerUpdateCounter.getRowsReceived());
+        assertEquals(1, powerContainerUpdateCounter.getRowsWritten());
+        // connection and udi power containers are flushed separately.
+        Mockito.verify(powerContainerRepository, Mockito.times(2)).flush();
+        Mockito.verify(powerContainerRepository, Mockito.never()).update(any(PowerContainer.class));
+        ArgumentCaptor<ConnectionPortfolioChangedEvent> eventCaptor = ArgumentCaptor.forClass(ConnectionPortfolioChangedEvent.class);
+        Mockito.verify(connectionPortfolioChangedEventManager, Mockito.times(1)).fire(eventCaptor.capture());
+        assertEquals(period, eventCaptor.getValue().getPeriod());
+    }
+
+    @Test
+    public void testFindConnectionPortfolioSnapshotIsKeptUntilThePortfolioChanges() {
+        final LocalDate period = DateTimeUtil.getCurrentDate();
+        final Connection connection = new Connection("ean.0000000001");
+        Mockito.when(corePlanboardBusinessService.findActiveConnections(period, Optional.empty()))
+                .thenReturn(Collections.singletonList(connection));
+        Mockito.when(powerContainerRepository.findConnectionPowerContainers(period, Optional.empty(), Optional.empty()))
+                .thenReturn(Collections.singletonMap(connection, Collections.singletonList(buildPowerContainer(period, 1))));
+        Mockito.when(udiRepository.findActiveUdisPerConnection(period, Optional.empty())).thenReturn(new HashMap<>());
+        Mockito.when(powerContainerRepository.findUdiPowerContainers(period, Optional.empty(), Optional.empty()))
+                .thenReturn(new HashMap<>());
+
+        ConnectionPortfolioSnapshot snapshot = agrPortfolioBusinessService.findConnectionPortfolioSnapshot(period);
+        Assert.assertSame(snapshot, agrPortfolioBusinessService.findConnectionPortfolioSnapshot(period));
+        assertEquals(1, snapshot.size());
+        assertEquals(1, snapshot.view().findByEntityAddress("ean.0000000001").getConnectionPowerPerPTU().size());
+        Mockito.verify(corePlanboardBusinessService, Mockito.times(1)).findActiveConnections(period, Optional.empty());
+
+        connectionPortfolioSnapshotCache.invalidate(new ConnectionPortfolioChangedEvent(period));
+
+        Assert.assertNotSame(snapshot, agrPortfolioBusinessService.findConnectionPortfolioSnapshot(period));
+        Mockito.verify(corePlanboardBusinessService, Mockito.times(2)).findActiveConnections(period, Optional.empty());
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void testCreateUdis() {
@@ -319,14 +379,52 @@ public class AgrPortfolioBusinessServiceTest {
             return Arrays.asList(connectionGroupState1, connectionGroupState2);
         });
         // invocation
-        agrPortfolioBusinessService.updateConnectionGroupPowerContainers(buildConnectionGroupPortfolioDtos(today), today);
+        PowerContainerUpdateCount updateCount = agrPortfolioBusinessService
+                .updateConnectionGroupPowerContainers(buildConnectionGroupPortfolioDtos(today), today);
         // verifications and assertions
         Mockito.verify(corePlanboardBusinessService, Mockito.times(1))
                 .findActiveConnectionGroupStates(eq(today), Matchers.isNull(Class.class));
         Mockito.verify(powerContainerRepository, Mockito.times(1))
                 .findConnectionGroupPowerContainers(eq(today), eq(Optional.empty()));
         Mockito.verify(powerContainerRepository, Mockito.times(2)).persist(any(PowerContainer.class));
+        assertEquals(2, updateCount.getRowsReceived());
+        assertEquals(2, updateCount.getRowsWritten());
+    }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUpdateConnectionGroupPowerContainersWritesOnlyChangedPowerContainers() {
+        final LocalDate today = DateTimeUtil.getCurrentDate();
+        BrpConnectionGroup brpConnectionGroup = new BrpConnectionGroup("brp.usef-example.com");
+        CongestionPointConnectionGroup congestionPoint = new CongestionPointConnectionGroup("ean.111111111111");
+        // the brp power container already has the observed production, the congestion point power container changes.
+        PowerContainer brpPowerContainer = new ConnectionGroupPowerContainer(brpConnectionGroup, today, 1);
+        brpPowerContainer.getObserved().setAverageProduction(BigInteger.valueOf(2000L));
+        brpPowerContainer.getObserved().setAverageConsumption(BigInteger.ZERO);
+        PowerContainer congestionPointPowerContainer = new ConnectionGroupPowerContainer(congestionPoint, today, 1);
+        congestionPointPowerContainer.getObserved().setAverageConsumption(BigInteger.TEN);
+        Map<ConnectionGroup, List<PowerContainer>> connectionGroupPowerContainers = new HashMap<>();
+        connectionGroupPowerContainers.put(brpConnectionGroup, Collections.singletonList(brpPowerContainer));
+        connectionGroupPowerContainers.put(congestionPoint, Collections.singletonList(congestionPointPowerContainer));
+        Mockito.when(powerContainerRepository.findConnectionGroupPowerContainers(any(LocalDate.class), any(Optional.class)))
+                .thenReturn(connectionGroupPowerContainers);
+        Mockito.when(corePlanboardBusinessService
+                .findActiveConnectionGroupStates(any(LocalDate.class), Matchers.isNull(Class.class))).then(call -> {
+            ConnectionGroupState connectionGroupState1 = new ConnectionGroupState();
+            ConnectionGroupState connectionGroupState2 = new ConnectionGroupState();
+            connectionGroupState1.setConnectionGroup(brpConnectionGroup);
+            connectionGroupState2.setConnectionGroup(congestionPoint);
+            return Arrays.asList(connectionGroupState1, connectionGroupState2);
+        });
+        // invocation
+        PowerContainerUpdateCount updateCount = agrPortfolioBusinessService
+                .updateConnectionGroupPowerContainers(buildConnectionGroupPortfolioDtos(today), today);
+        // verifications and assertions
+        assertEquals(2, updateCount.getRowsReceived());
+        assertEquals(1, updateCount.getRowsWritten());
+        assertEquals(BigInteger.ZERO, congestionPointPowerContainer.getObserved().getAverageConsumption());
+        Mockito.verify(powerContainerRepository, Mockito.never()).persist(any(PowerContainer.class));
+        Mockito.verify(powerContainerRepository, Mockito.never()).update(any(PowerContainer.class));
     }
 
     @Test
@@ -344,6 +442,21 @@ public class AgrPortfolioBusinessServiceTest {
     }
 
     @Test
+    public void testFindActiveUdisMappedPerEndpoint() {
+        final LocalDate period = DateTimeUtil.getCurrentDate();
+        Udi udi = new Udi();
+        when(udiEndpointIndex.findUdiIdsPerEndpoint(period)).thenReturn(Collections.singletonMap("endpoint", 1L));
+        when(udiRepository.getReference(1L)).thenReturn(udi);
+
+        Map<String, Udi> udis = agrPortfolioBusinessService.findActiveUdisMappedPerEndpoint(period);
+
+        assertEquals(1, udis.size());
+        Assert.assertSame(udi, udis.get("endpoint"));
+        Mockito.verify(udiRepository, Mockito.never()).findActiveUdisMappedPerEndpoint(any(LocalDate.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
     public void testStoreDeviceMessages() {
         Map<String, Udi> udis = new HashMap<>();
         Udi udi = new Udi();
@@ -359,7 +472,28 @@ public class AgrPortfolioBusinessServiceTest {
 
         agrPortfolioBusinessService.storeDeviceMessages(deviceMessages, udis);
 
-        Mockito.verify(deviceMessageRepository, Mockito.times(1)).persist(any(DeviceMessage.class));
+        ArgumentCaptor<List> deviceMessageCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(deviceMessageRepository, Mockito.times(1)).persistDeviceMessages(deviceMessageCaptor.capture());
+        assertEquals(1, deviceMessageCaptor.getValue().size());
+        DeviceMessage storedDeviceMessage = (DeviceMessage) deviceMessageCaptor.getValue().get(0);
+        assertEquals(udi, storedDeviceMessage.getUdi());
+        assertEquals(5, storedDeviceMessage.getDeviceRequests().size());
+    }
+
+    @Test
+    public void testUpdateDeviceMessageStatusOfSeveralDeviceMessages() throws Exception {
+        List<Long> deviceMessageIds = Arrays.asList(1L, 2L, 3L);
+        when(deviceMessageRepository.updateDeviceMessageStatus(deviceMessageIds, DeviceMessageStatus.SENT)).thenReturn(3);
+
+        agrPortfolioBusinessService.updateDeviceMessageStatus(deviceMessageIds, DeviceMessageStatus.SENT);
+
+        Mockito.verify(deviceMessageRepository, Mockito.times(1))
+                .updateDeviceMessageStatus(deviceMessageIds, DeviceMessageStatus.SENT);
+        // the status of several device messages is committed in its own transaction.
+        TransactionAttribute transactionAttribute = AgrPortfolioBusinessService.class
+                .getMethod("updateDeviceMessageStatus", Collection.class, DeviceMessageStatus.class)
+                .getAnnotation(TransactionAttribute.class);
+        assertEquals(TransactionAttributeType.REQUIRES_NEW, transactionAttribute.value());
     }
 
     private void addDeviceRequestsToDeviceMessage(DeviceMessageDto deviceMessage) {
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.agr.service.business;
+
+import static org.powermock.reflect.Whitebox.setInternalState;
+
+import energy.usef.agr.dto.ConnectionPortfolioDto;
+import energy.usef.agr.dto.PowerContainerDto;
+import energy.usef.agr.model.ConnectionPowerContainer;
+import energy.usef.agr.model.ForecastPowerData;
+import energy.usef.agr.model.PowerContainer;
+import energy.usef.agr.model.Udi;
+import energy.usef.agr.model.UdiPowerContainer;
+import energy.usef.agr.repository.PowerContainerRepository;
+import energy.usef.agr.repository.UdiRepository;
+import energy.usef.core.model.CongestionPointConnectionGroup;
+import energy.usef.core.model.Connection;
+import energy.usef.core.model.ConnectionGroup;
+import energy.usef.core.model.ConnectionGroupState;
+import energy.usef.core.repository.ConnectionGroupStateRepository;
+import energy.usef.core.repository.ConnectionRepository;
+import energy.usef.core.service.business.CorePlanboardBusinessService;
+
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Property based test checking that loading the portfolio of a period at once gives the same portfolio as loading it day by
+ * day, for randomly generated portfolios and periods.
+ */
+public class ConnectionPortfolioRangeLoadingTest {
+
+    private static final LocalDate WINDOW_START = new LocalDate(2030, 3, 1);
+    private static final int WINDOW_DAYS = 20;
+    private static final int PORTFOLIOS = 5;
+    private static final int PERIODS_PER_PORTFOLIO = 10;
+
+    private static EntityManagerFactory entityManagerFactory;
+    private static EntityManager entityManager;
+
+    private AgrPortfolioBusinessService service;
+
+    @BeforeClass
+    public static void initTestFixture() throws Exception {
+        entityManagerFactory = Persistence.createEntityManagerFactory("test");
+        entityManager = entityManagerFactory.createEntityManager();
+    }
+
+    @AfterClass
+    public static void closeTestFixture() {
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+
+    @Before
+    public void before() {
+        PowerContainerRepository powerContainerRepository = new PowerContainerRepository();
+        setInternalState(powerContainerRepository, "entityManager", entityManager);
+        UdiRepository udiRepository = new UdiRepository();
+        setInternalState(udiRepository, "entityManager", entityManager);
+        ConnectionRepository connectionRepository = new ConnectionRepository();
+        setInternalState(connectionRepository, "entityManager", entityManager);
+        ConnectionGroupStateRepository connectionGroupStateRepository = new ConnectionGroupStateRepository();
+        setInternalState(connectionGroupStateRepository, "entityManager", entityManager);
+        CorePlanboardBusinessService corePlanboardBusinessService = new CorePlanboardBusinessService();
+        setInternalState(corePlanboardBusinessService, "connectionRepository", connectionRepository);
+        setInternalState(corePlanboardBusinessService, "connectionGroupStateRepository", connectionGroupStateRepository);
+
+        service = new AgrPortfolioBusinessService();
+        setInternalState(service, "powerContainerRepository", powerContainerRepository);
+        setInternalState(service, "udiRepository", udiRepository);
+        setInternalState(service, "corePlanboardBusinessService", corePlanboardBusinessService);
+
+        entityManager.clear();
+        entityManager.getTransaction().begin();
+    }
+
+    @After
+    public void after() {
+        if (entityManager.getTransaction().isActive()) {
+            entityManager.getTransaction().rollback();
+        }
+    }
+
+    @Test
+    public void testPortfolioOfPeriodEqualsPortfolioPerDay() {
+        Random random = new Random(20151101L);
+        for (int portfolio = 0; portfolio < PORTFOLIOS; portfolio++) {
+            generatePortfolio(random, "p" + portfolio);
+            entityManager.flush();
+            entityManager.clear();
+
+            for (int period = 0; period < PERIODS_PER_PORTFOLIO; period++) {
+                // periods may start before and end after the generated data.
+                LocalDate startDate = WINDOW_START.plusDays(random.nextInt(WINDOW_DAYS + 4) - 2);
+                LocalDate endDate = startDate.plusDays(random.nextInt(WINDOW_DAYS / 2));
+
+                Map<LocalDate, List<ConnectionPortfolioDto>> portfolioPerDate = service.findConnectionPortfolioDto(startDate,
+                        endDate);
+
+                Assert.assertEquals(Days.daysBetween(startDate, endDate).getDays() + 1, portfolioPerDate.size());
+                for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+                    Assert.assertEquals("Portfolio " + portfolio + " differs on " + day + " for [" + startDate + ", " + endDate
+                            + "]", describe(service.findConnectionPortfolioDto(day)), describe(portfolioPerDate.get(day)));
+                }
+            }
+        }
+    }
+
+    private void generatePortfolio(Random random, String prefix) {
+        List<ConnectionGroup> connectionGroups = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ConnectionGroup connectionGroup = new CongestionPointConnectionGroup("ea1.property." + prefix + ".cg" + i);
+            entityManager.persist(connectionGroup);
+            connectionGroups.add(connectionGroup);
+        }
+        for (int i = 0; i < 15; i++) {
+            Connection connection = new Connection("ean.property." + prefix + "." + i);
+            entityManager.persist(connection);
+
+            // a connection may be part of several connection groups, possibly on the same days.
+            for (int j = random.nextInt(3); j >= 0; j--) {
+                ConnectionGroupState connectionGroupState = new ConnectionGroupState();
+                connectionGroupState.setConnection(connection);
+                connectionGroupState.setConnectionGroup(connectionGroups.get(random.nextInt(connectionGroups.size())));
+                LocalDate validFrom = randomDay(random);
+                connectionGroupState.setValidFrom(validFrom);
+                connectionGroupState.setValidUntil(validFrom.plusDays(1 + random.nextInt(10)));
+                entityManager.persist(connectionGroupState);
+            }
+
+            for (int j = random.nextInt(4); j > 0; j--) {
+                Udi udi = new Udi();
+                udi.setConnection(connection);
+                udi.setEndpoint(connection.getEntityAddress() + ".udi" + j);
+                udi.setDtuSize(1);
+                LocalDate validFrom = randomDay(random);
+                udi.setValidFrom(validFrom);
+                udi.setValidUntil(validFrom.plusDays(1 + random.nextInt(10)));
+                entityManager.persist(udi);
+                for (Map.Entry<LocalDate, Integer> key : randomPowerContainerKeys(random, 6)) {
+                    entityManager.persist(withForecast(new UdiPowerContainer(udi, key.getKey(), key.getValue()), random));
+                }
+            }
+
+            for (Map.Entry<LocalDate, Integer> key : randomPowerContainerKeys(random, 10)) {
+                entityManager.persist(
+                        withForecast(new ConnectionPowerContainer(connection, key.getKey(), key.getValue()), random));
+            }
+        }
+    }
+
+    private static LocalDate randomDay(Random random) {
+        return WINDOW_START.plusDays(random.nextInt(WINDOW_DAYS));
+    }
+
+    /**
+     * Generates distinct (period, time index) pairs, there is at most one power container per pair in a portfolio.
+     */
+    private static Set<Map.Entry<LocalDate, Integer>> randomPowerContainerKeys(Random random, int bound) {
+        Set<Map.Entry<LocalDate, Integer>> keys = new HashSet<>();
+        for (int k = random.nextInt(bound); k > 0; k--) {
+            keys.add(new AbstractMap.SimpleImmutableEntry<>(randomDay(random), 1 + random.nextInt(3)));
+        }
+        return keys;
+    }
+
+    private static PowerContainer withForecast(PowerContainer powerContainer, Random random) {
+        ForecastPowerData forecast = new ForecastPowerData();
+        forecast.setUncontrolledLoad(BigInteger.valueOf(random.nextInt(1000)));
+        powerContainer.setForecast(forecast);
+        return powerContainer;
+    }
+
+    /**
+     * Describes a portfolio independently of the order of the connections and the udis.
+     */
+    private static Map<String, String> describe(List<ConnectionPortfolioDto> connectionPortfolioDtos) {
+        Map<String, String> description = new TreeMap<>();
+        for (ConnectionPortfolioDto connectionPortfolioDto : connectionPortfolioDtos) {
+            String udis = connectionPortfolioDto.getUdis().stream()
+                    .map(udi -> udi.getEndpoint() + describe(udi.getUdiPowerPerDTU()))
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            String previous = description.put(connectionPortfolioDto.getConnectionEntityAddress(),
+                    describe(connectionPortfolioDto.getConnectionPowerPerPTU()) + " udis [" + udis + "]");
+            Assert.assertNull("Connection present twice: " + connectionPortfolioDto.getConnectionEntityAddress(), previous);
+        }
+        return description;
+    }
+
+    private static String describe(Map<Integer, PowerContainerDto> powerContainersPerIndex) {
+        return new TreeMap<>(powerContainersPerIndex).entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue().getForecast().getUncontrolledLoad())
+                .collect(Collectors.joining(", ", "{", "}"));
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.agr.service.business;
+
+import energy.usef.agr.dto.ConnectionPortfolioDto;
+import energy.usef.agr.dto.ForecastPowerDataDto;
+import energy.usef.agr.dto.PowerContainerDto;
+import energy.usef.agr.dto.PowerDataDto;
+import energy.usef.agr.model.ConnectionPowerContainer;
+import energy.usef.agr.model.ForecastPowerData;
+import energy.usef.agr.model.PowerContainer;
+import energy.usef.agr.model.PowerData;
+import energy.usef.agr.model.Udi;
+import energy.usef.agr.model.UdiPowerContainer;
+import energy.usef.agr.transformer.ConnectionPortfolioTransformer;
+import energy.usef.core.model.Connection;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.joda.time.LocalDate;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Test class in charge of the unit tests related to the {@link ConnectionPortfolioSnapshot}.
+ */
+public class ConnectionPortfolioSnapshotTest {
+
+    private static final LocalDate PERIOD = new LocalDate(2015, 11, 1);
+    private static final int PTU_COUNT = 96;
+
+    private List<Connection> connections;
+    private Map<Connection, List<PowerContainer>> connectionPowerContainers;
+    private Map<Connection, List<Udi>> udisPerConnection;
+    private Map<Udi, List<PowerContainer>> udiPowerContainers;
+
+    @Before
+    public void init() {
+        connections = new ArrayList<>();
+        connectionPowerContainers = new HashMap<>();
+        udisPerConnection = new HashMap<>();
+        udiPowerContainers = new HashMap<>();
+    }
+
+    @Test
+    public void testSnapshotGivesTheSamePortfolioAsTheTransformer() {
+        buildPortfolio(new Random(20151101L), 50);
+
+        List<ConnectionPortfolioDto> expected = ConnectionPortfolioTransformer
+                .transformToDTO(connections, connectionPowerContainers, udisPerConnection, udiPowerContainers);
+        ConnectionPortfolioSnapshot snapshot = ConnectionPortfolioSnapshot
+                .build(PERIOD, connections, connectionPowerContainers, udisPerConnection, udiPowerContainers);
+
+        Assert.assertEquals(PERIOD, snapshot.getPeriod());
+        Assert.assertEquals(connections.size(), snapshot.size());
+        Assert.assertEquals(describe(expected), describe(snapshot.view()));
+        Assert.assertEquals(describe(expected), describe(ConnectionPortfolioSnapshot.build(PERIOD, expected).view()));
+    }
+
+    @Test
+    public void testViewMaterializesConnectionsOnceAndSeparately() {
+        buildPortfolio(new Random(20151102L), 10);
+        ConnectionPortfolioSnapshot snapshot = ConnectionPortfolioSnapshot
+                .build(PERIOD, connections, connectionPowerContainers, udisPerConnection, udiPowerContainers);
+
+        ConnectionPortfolioSnapshot.View view = snapshot.view();
+        ConnectionPortfolioDto connectionPortfolioDto = view.findByEntityAddress("ean.snapshot.3");
+        Assert.assertEquals("ean.snapshot.3", connectionPortfolioDto.getConnectionEntityAddress());
+        Assert.assertSame(connectionPortfolioDto, view.get(3));
+        Assert.assertNull(view.findByEntityAddress("ean.unknown"));
+
+        // a modification of a view is neither seen by the snapshot nor by the other views.
+        String expected = describe(snapshot.view());
+        connectionPortfolioDto.getConnectionPowerPerPTU().clear();
+        connectionPortfolioDto.getUdis().clear();
+        Assert.assertEquals(expected, describe(snapshot.view()));
+        Assert.assertNotEquals(expected, describe(view));
+    }
+
+    @Test
+    public void testSnapshotIsCheaperThanTheDtoGraph() {
+        buildPortfolio(new Random(20151103L), 2000);
+
+        long start = System.currentTimeMillis();
+        List<ConnectionPortfolioDto> connectionPortfolioDtos = ConnectionPortfolioTransformer
+                .transformToDTO(connections, connectionPowerContainers, udisPerConnection, udiPowerContainers);
+        long transformerDuration = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        ConnectionPortfolioSnapshot snapshot = ConnectionPortfolioSnapshot
+                .build(PERIOD, connections, connectionPowerContainers, udisPerConnection, udiPowerContainers);
+        long snapshotDuration = System.currentTimeMillis() - start;
+
+        // a workflow of a connection group only reads a few connections of the portfolio.
+        start = System.currentTimeMillis();
+        ConnectionPortfolioSnapshot.View view = snapshot.view();
+        for (int i = 0; i < 20; i++) {
+            Assert.assertNotNull(view.findByEntityAddress("ean.snapshot." + (i * 100)));
+        }
+        long viewDuration = System.currentTimeMillis() - start;
+
+        LoggerFactory.getLogger(ConnectionPortfolioSnapshotTest.class).info(
+                "Portfolio of {} connections: DTO graph built in {} ms, snapshot built in {} ms, 20 connections read in {} ms",
+                connectionPortfolioDtos.size(), transformerDuration, snapshotDuration, viewDuration);
+        Assert.assertEquals(connectionPortfolioDtos.size(), view.size());
+    }
+
+    private void buildPortfolio(Random random, int connectionCount) {
+        for (int i = 0; i < connectionCount; i++) {
+            Connection connection = new Connection("ean.snapshot." + i);
+            connections.add(connection);
+            List<PowerContainer> powerContainers = new ArrayList<>();
+            for (int ptuIndex = 1; ptuIndex <= PTU_COUNT; ptuIndex++) {
+                powerContainers.add(withValues(new ConnectionPowerContainer(connection, PERIOD, ptuIndex), random));
+            }
+            connectionPowerContainers.put(connection, powerContainers);
+
+            List<Udi> udis = new ArrayList<>();
+            for (int j = random.nextInt(3); j > 0; j--) {
+                Udi udi = new Udi();
+                udi.setConnection(connection);
+                udi.setEndpoint(connection.getEntityAddress() + ".udi" + j);
+                udi.setDtuSize(1 + random.nextInt(2));
+                udi.setProfile("ADS_" + j);
+                udis.add(udi);
+                List<PowerContainer> udiContainers = new ArrayList<>();
+                for (int dtuIndex = 1; dtuIndex <= PTU_COUNT * udi.getDtuSize(); dtuIndex++) {
+                    udiContainers.add(withValues(new UdiPowerContainer(udi, PERIOD, dtuIndex), random));
+                }
+                udiPowerContainers.put(udi, udiContainers);
+            }
+            if (!udis.isEmpty()) {
+                udisPerConnection.put(connection, udis);
+            }
+        }
+    }
+
+    private static PowerContainer withValues(PowerContainer powerContainer, Random random) {
+        setValues(powerContainer.getProfile(), random);
+        setValues(powerContainer.getForecast(), random);
+        powerContainer.getForecast().setAllocatedFlexConsumption(randomValue(random));
+        powerContainer.getForecast().setAllocatedFlexProduction(randomValue(random));
+        if (random.nextBoolean()) {
+            setValues(powerContainer.getObserved(), random);
+        }
+        return powerContainer;
+    }
+
+    private static void setValues(PowerData powerData, Random random) {
+        powerData.setUncontrolledLoad(randomValue(random));
+        powerData.setAverageConsumption(randomValue(random));
+        powerData.setAverageProduction(randomValue(random));
+        powerData.setPotentialFlexConsumption(randomValue(random));
+        powerData.setPotentialFlexProduction(randomValue(random));
+    }
+
+    private static BigInteger randomValue(Random random) {
+        // some values are not set, some are negative.
+        return random.nextInt(4) == 0 ? null : BigInteger.valueOf(random.nextInt(20000) - 5000);
+    }
+
+    private static String describe(List<ConnectionPortfolioDto> connectionPortfolioDtos) {
+        return connectionPortfolioDtos.stream()
+                .map(connectionPortfolioDto -> connectionPortfolioDto.getConnectionEntityAddress()
+                        + describe(connectionPortfolioDto.getConnectionPowerPerPTU())
+                        + connectionPortfolioDto.getUdis().stream()
+                        .map(udi -> udi.getEndpoint() + "/" + udi.getDtuSize() + "/" + udi.getProfile()
+                                + describe(udi.getUdiPowerPerDTU()))
+                        .collect(Collectors.joining(", ", " udis [", "]")))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String describe(Map<Integer, PowerContainerDto> powerContainersPerIndex) {
+        return new TreeMap<>(powerContainersPerIndex).entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue().getPeriod() + "/" + entry.getValue().getTimeIndex()
+                        + describe(entry.getValue().getProfile()) + describe(entry.getValue().getForecast())
+                        + describe(entry.getValue().getObserved()))
+                .collect(Collectors.joining(", ", "{", "}"));
+    }
+
+    private static String describe(PowerDataDto powerDataDto) {
+        String description = "[" + powerDataDto.getUncontrolledLoad() + " " + powerDataDto.getAverageConsumption() + " "
+                + powerDataDto.getAverageProduction() + " " + powerDataDto.getPotentialFlexConsumption() + " "
+                + powerDataDto.getPotentialFlexProduction();
+        if (powerDataDto instanceof ForecastPowerDataDto) {
+            ForecastPowerDataDto forecast = (ForecastPowerDataDto) powerDataDto;
+            description += " " + forecast.getAllocatedFlexConsumption() + " " + forecast.getAllocatedFlexProduction();
+        }
+        return description + "]";
+    }
+}
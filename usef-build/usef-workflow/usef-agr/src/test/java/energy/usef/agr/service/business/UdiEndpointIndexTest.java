@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.agr.service.business;
+
+import static org.powermock.reflect.Whitebox.setInternalState;
+
+import energy.usef.agr.config.ConfigAgr;
+import energy.usef.agr.config.ConfigAgrParam;
+import energy.usef.agr.dto.ConnectionPortfolioDto;
+import energy.usef.agr.dto.UdiPortfolioDto;
+import energy.usef.agr.model.Udi;
+import energy.usef.agr.repository.UdiRepository;
+import energy.usef.core.model.Connection;
+import energy.usef.core.service.business.CorePlanboardBusinessService;
+import energy.usef.core.util.DateTimeUtil;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import javax.enterprise.event.Event;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+/**
+ * Test class in charge of the unit tests related to the {@link UdiEndpointIndex} class, with the Udis created by the
+ * {@link AgrPortfolioBusinessService}.
+ */
+public class UdiEndpointIndexTest {
+
+    private static final String CONNECTION_ENTITY_ADDRESS = "ean.673685900012623654";
+    private static final String ENDPOINT = "udi://index.test.udi";
+
+    private static EntityManagerFactory entityManagerFactory;
+    private static EntityManager entityManager;
+
+    private UdiRepository udiRepository;
+    private ConfigAgr configAgr;
+    private UdiEndpointIndex udiEndpointIndex;
+    private AgrPortfolioBusinessService agrPortfolioBusinessService;
+
+    @BeforeClass
+    public static void initTestFixture() throws Exception {
+        entityManagerFactory = Persistence.createEntityManagerFactory("test");
+        entityManager = entityManagerFactory.createEntityManager();
+    }
+
+    @AfterClass
+    public static void closeTestFixture() {
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void init() {
+        UdiRepository repository = new UdiRepository();
+        setInternalState(repository, "entityManager", entityManager);
+        udiRepository = Mockito.spy(repository);
+        udiEndpointIndex = new UdiEndpointIndex();
+        setInternalState(udiEndpointIndex, "udiRepository", udiRepository);
+
+        CorePlanboardBusinessService corePlanboardBusinessService = Mockito.mock(CorePlanboardBusinessService.class);
+        Mockito.when(corePlanboardBusinessService.findActiveConnections(Matchers.any(LocalDate.class), Matchers.eq(Optional.empty())))
+                .then(call -> Collections.singletonList(entityManager.find(Connection.class, CONNECTION_ENTITY_ADDRESS)));
+        configAgr = Mockito.mock(ConfigAgr.class);
+        // the events are observed at once instead of after the transaction.
+        Event<ConnectionPortfolioChangedEvent> eventManager = Mockito.mock(Event.class);
+        Mockito.doAnswer(call -> {
+            udiEndpointIndex.invalidate((ConnectionPortfolioChangedEvent) call.getArguments()[0]);
+            return null;
+        }).when(eventManager).fire(Matchers.any(ConnectionPortfolioChangedEvent.class));
+
+        agrPortfolioBusinessService = new AgrPortfolioBusinessService();
+        setInternalState(agrPortfolioBusinessService, "udiRepository", udiRepository);
+        setInternalState(agrPortfolioBusinessService, udiEndpointIndex);
+        setInternalState(agrPortfolioBusinessService, corePlanboardBusinessService);
+        setInternalState(agrPortfolioBusinessService, configAgr);
+        setInternalState(agrPortfolioBusinessService, "connectionPortfolioChangedEventManager", eventManager);
+
+        entityManager.clear();
+        entityManager.getTransaction().begin();
+    }
+
+    @After
+    public void after() {
+        if (entityManager.getTransaction().isActive()) {
+            entityManager.getTransaction().rollback();
+        }
+    }
+
+    @Test
+    public void testLookupsAreServedFromMemory() {
+        final LocalDate today = DateTimeUtil.getCurrentDate();
+        Long udiId = udiEndpointIndex.findUdiId("ean.12168590001263699.UDI", today);
+        Assert.assertEquals(Long.valueOf(1), udiId);
+        for (int day = 0; day < 100; day++) {
+            Assert.assertEquals(udiId, udiEndpointIndex.findUdiId("ean.12168590001263699.UDI", today.plusDays(day)));
+            Assert.assertEquals(udiId, udiEndpointIndex.findUdiIdsPerEndpoint(today.plusDays(day)).get("ean.12168590001263699.UDI"));
+        }
+        Mockito.verify(udiRepository, Mockito.times(1)).findUdiValidities(Matchers.any(LocalDate.class));
+    }
+
+    @Test
+    public void testLookupOfPastPeriod() {
+        // two udis share this endpoint, only one of them is valid on that day.
+        Assert.assertEquals(Long.valueOf(3), udiEndpointIndex.findUdiId("ean.12168590001263697.UDI", new LocalDate(2015, 1, 19)));
+        Assert.assertNull(udiEndpointIndex.findUdiId("ean.12168590001263697.UDI", new LocalDate(2015, 1, 20)));
+        Assert.assertNull(udiEndpointIndex.findUdiId("ean.12168590001263697.UDI", DateTimeUtil.getCurrentDate()));
+    }
+
+    @Test
+    public void testIndexIsInvalidatedWhenUdisAreCreated() {
+        final LocalDate today = DateTimeUtil.getCurrentDate();
+        Mockito.when(configAgr.getIntegerProperty(ConfigAgrParam.AGR_INITIALIZE_PLANBOARD_DAYS_INTERVAL)).thenReturn(10);
+        Assert.assertNull(udiEndpointIndex.findUdiId(ENDPOINT, today));
+
+        agrPortfolioBusinessService.createUdis(today, buildConnectionPortfolio());
+
+        Long udiId = udiEndpointIndex.findUdiId(ENDPOINT, today);
+        Assert.assertNotNull(udiId);
+        Assert.assertEquals(ENDPOINT, entityManager.find(Udi.class, udiId).getEndpoint());
+        Assert.assertEquals(udiId, udiEndpointIndex.findUdiId(ENDPOINT, today.plusDays(9)));
+        Assert.assertNull(udiEndpointIndex.findUdiId(ENDPOINT, today.plusDays(10)));
+        Assert.assertSame(entityManager.find(Udi.class, udiId),
+                agrPortfolioBusinessService.findActiveUdisMappedPerEndpoint(today).get(ENDPOINT));
+    }
+
+    @Test
+    public void testIndexIsInvalidatedWhenUdisExpire() {
+        final LocalDate today = DateTimeUtil.getCurrentDate();
+        Mockito.when(configAgr.getIntegerProperty(ConfigAgrParam.AGR_INITIALIZE_PLANBOARD_DAYS_INTERVAL)).thenReturn(10);
+        agrPortfolioBusinessService.createUdis(today, buildConnectionPortfolio());
+        Long udiId = udiEndpointIndex.findUdiId(ENDPOINT, today.plusDays(5));
+        Assert.assertNotNull(udiId);
+
+        // the validity of the existing udi is shortened.
+        Mockito.when(configAgr.getIntegerProperty(ConfigAgrParam.AGR_INITIALIZE_PLANBOARD_DAYS_INTERVAL)).thenReturn(2);
+        agrPortfolioBusinessService.createUdis(today, buildConnectionPortfolio());
+
+        Assert.assertNull(udiEndpointIndex.findUdiId(ENDPOINT, today.plusDays(5)));
+        Assert.assertEquals(udiId, udiEndpointIndex.findUdiId(ENDPOINT, today.plusDays(1)));
+        Mockito.verify(udiRepository, Mockito.times(2)).findUdiValidities(Matchers.any(LocalDate.class));
+    }
+
+    private static List<ConnectionPortfolioDto> buildConnectionPortfolio() {
+        ConnectionPortfolioDto connectionPortfolioDto = new ConnectionPortfolioDto(CONNECTION_ENTITY_ADDRESS);
+        connectionPortfolioDto.getUdis().add(new UdiPortfolioDto(ENDPOINT, 1, "ADS_1"));
+        return Collections.singletonList(connectionPortfolioDto);
+    }
+}
@@ -50,6 +50,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -95,6 +96,7 @@ public class AgrControlActiveDemandSupplyCoordinatorTest {
                 agrPortfolioBusinessService.findDeviceMessages(Matchers.any(String.class),
                         Matchers.any(DeviceMessageStatus.class))).then(invocation -> {
             DeviceMessage deviceMessage = new DeviceMessage();
+            Whitebox.setInternalState(deviceMessage, "id", 1L);
             deviceMessage.setDeviceMessageStatus((DeviceMessageStatus) invocation.getArguments()[1]);
             return Collections.singletonList(deviceMessage);
         });
@@ -115,7 +117,7 @@ public class AgrControlActiveDemandSupplyCoordinatorTest {
 
         // verify that we updated the status of the Device Message twice with the right values.
         Mockito.verify(agrPortfolioBusinessService, Mockito.times(2)).updateDeviceMessageStatus(
-                Matchers.any(DeviceMessage.class),
+                Matchers.eq(Collections.singletonList(1L)),
                 statusCaptor.capture());
         Assert.assertEquals(2, statusCaptor.getAllValues().size());
         Assert.assertEquals(DeviceMessageStatus.IN_PROCESS, statusCaptor.getAllValues().get(0));
@@ -135,13 +137,37 @@ public class AgrControlActiveDemandSupplyCoordinatorTest {
 
         // verify that we updated the status of the Device Message twice with the right values.
         Mockito.verify(agrPortfolioBusinessService, Mockito.times(2)).updateDeviceMessageStatus(
-                Matchers.any(DeviceMessage.class),
+                Matchers.eq(Collections.singletonList(1L)),
                 statusCaptor.capture());
         Assert.assertEquals(2, statusCaptor.getAllValues().size());
         Assert.assertEquals(DeviceMessageStatus.IN_PROCESS, statusCaptor.getAllValues().get(0));
         Assert.assertEquals(DeviceMessageStatus.FAILURE, statusCaptor.getAllValues().get(1));
     }
 
+    @Test
+    public void testClaimIsCommittedBeforeTheSendingStarts() {
+        Mockito.when(workflowStepExecuter.invoke(Mockito.eq(AGR_CONTROL_ACTIVE_DEMAND_SUPPLY.name()), Mockito.any()))
+                .then(invocation -> {
+                    // the claim has been made (in its own transaction) before any message is sent, the result is not yet.
+                    Mockito.verify(agrPortfolioBusinessService, Mockito.times(1))
+                            .updateDeviceMessageStatus(Collections.singletonList(1L), DeviceMessageStatus.IN_PROCESS);
+                    Mockito.verify(agrPortfolioBusinessService, Mockito.never())
+                            .updateDeviceMessageStatus(Collections.singletonList(1L), DeviceMessageStatus.SENT);
+                    return buildResultContext(null);
+                });
+
+        coordinator.controlActiveDemandSupply(new ControlActiveDemandSupplyEvent());
+
+        InOrder inOrder = Mockito.inOrder(agrPortfolioBusinessService, workflowStepExecuter);
+        inOrder.verify(agrPortfolioBusinessService, Mockito.times(1)).findDeviceMessages(null, DeviceMessageStatus.NEW);
+        inOrder.verify(agrPortfolioBusinessService, Mockito.times(1))
+                .updateDeviceMessageStatus(Collections.singletonList(1L), DeviceMessageStatus.IN_PROCESS);
+        inOrder.verify(workflowStepExecuter, Mockito.times(1))
+                .invoke(Mockito.eq(AGR_CONTROL_ACTIVE_DEMAND_SUPPLY.name()), Mockito.any());
+        inOrder.verify(agrPortfolioBusinessService, Mockito.times(1))
+                .updateDeviceMessageStatus(Collections.singletonList(1L), DeviceMessageStatus.SENT);
+    }
+
     private WorkflowContext buildResultContext(DeviceMessageDto outputDeviceMessageDto) {
         WorkflowContext context = new DefaultWorkflowContext();
         context.setValue(ControlActiveDemandSupplyStepParameter.OUT.FAILED_DEVICE_MESSAGE_DTO.name(), outputDeviceMessageDto);
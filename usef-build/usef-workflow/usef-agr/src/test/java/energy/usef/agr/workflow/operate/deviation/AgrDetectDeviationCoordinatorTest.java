@@ -26,6 +26,7 @@ import energy.usef.agr.config.ConfigAgrParam;
 import energy.usef.agr.dto.ConnectionPortfolioDto;
 import energy.usef.agr.dto.PowerContainerDto;
 import energy.usef.agr.service.business.AgrPortfolioBusinessService;
+import energy.usef.agr.service.business.ConnectionPortfolioSnapshot;
 import energy.usef.agr.util.ReflectionUtil;
 import energy.usef.agr.workflow.AgrWorkflowStep;
 import energy.usef.agr.workflow.operate.reoptimize.ReOptimizePortfolioEvent;
@@ -48,6 +49,7 @@ import energy.usef.core.workflow.step.WorkflowStepExecuter;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +57,7 @@ import java.util.Map;
 import javax.enterprise.event.Event;
 
 import org.joda.time.LocalDate;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -64,6 +67,7 @@ import org.mockito.Mockito;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Test class in charge of the unit tests related to the {@link AgrDetectDeviationCoordinator}.
@@ -129,10 +133,10 @@ public class AgrDetectDeviationCoordinatorTest {
         List<ConnectionPortfolioDto> connectionPortfolioDtos = buildConnections(CG_ENTITY_ADRESS);
         connectionPortfolioDtos.addAll(buildConnections(BRP_ENTITY_ADRESS));
 
-        Mockito.when(corePlanboardBusinessService.findLastPrognoses(Matchers.any(LocalDate.class), Matchers.any(String.class)))
-                .then(call -> buildPrognosisList((String) call.getArguments()[1]));
-        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioDto(Matchers.any(LocalDate.class)))
-                .thenReturn(connectionPortfolioDtos);
+        Mockito.when(corePlanboardBusinessService.findLastPrognoses(Matchers.any(LocalDate.class)))
+                .then(call -> buildPrognosisList(CG_ENTITY_ADRESS, BRP_ENTITY_ADRESS));
+        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioSnapshot(Matchers.any(LocalDate.class)))
+                .then(call -> ConnectionPortfolioSnapshot.build((LocalDate) call.getArguments()[0], connectionPortfolioDtos));
         Mockito.when(corePlanboardBusinessService
                 .buildConnectionGroupsToConnectionsMap(Matchers.any(LocalDate.class)))
                 .thenReturn(buildConnectionPortfolioMap());
@@ -141,12 +145,9 @@ public class AgrDetectDeviationCoordinatorTest {
 
         verify(workflowStepExecuter, times(2)).invoke(Matchers.eq(AgrWorkflowStep.AGR_DETECT_DEVIATION_FROM_PROGNOSES.name()),
                 Matchers.any(WorkflowContext.class));
-        verify(corePlanboardBusinessService, times(1))
-                .findLastPrognoses(Matchers.any(LocalDate.class), Matchers.eq(CG_ENTITY_ADRESS));
-        verify(corePlanboardBusinessService, times(1))
-                .findLastPrognoses(Matchers.any(LocalDate.class), Matchers.eq(BRP_ENTITY_ADRESS));
+        verify(corePlanboardBusinessService, times(1)).findLastPrognoses(Matchers.any(LocalDate.class));
         verify(agrPortfolioBusinessService, times(1))
-                .findConnectionPortfolioDto(Matchers.any(LocalDate.class));
+                .findConnectionPortfolioSnapshot(Matchers.any(LocalDate.class));
     }
 
     @SuppressWarnings("unchecked")
@@ -162,10 +163,10 @@ public class AgrDetectDeviationCoordinatorTest {
         List<ConnectionPortfolioDto> connectionPortfolioDtos = buildConnections(CG_ENTITY_ADRESS);
         connectionPortfolioDtos.addAll(buildConnections(BRP_ENTITY_ADRESS));
 
-        Mockito.when(corePlanboardBusinessService.findLastPrognoses(Matchers.any(LocalDate.class), Matchers.any(String.class)))
-                .then(call -> buildPrognosisList((String) call.getArguments()[1]));
-        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioDto(Matchers.any(LocalDate.class)))
-                .thenReturn(connectionPortfolioDtos);
+        Mockito.when(corePlanboardBusinessService.findLastPrognoses(Matchers.any(LocalDate.class)))
+                .then(call -> buildPrognosisList(CG_ENTITY_ADRESS, BRP_ENTITY_ADRESS));
+        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioSnapshot(Matchers.any(LocalDate.class)))
+                .then(call -> ConnectionPortfolioSnapshot.build((LocalDate) call.getArguments()[0], connectionPortfolioDtos));
         Mockito.when(corePlanboardBusinessService
                 .buildConnectionGroupsToConnectionsMap(Matchers.any(LocalDate.class)))
                 .thenReturn(buildConnectionPortfolioMap());
@@ -174,12 +175,100 @@ public class AgrDetectDeviationCoordinatorTest {
 
         verify(workflowStepExecuter, times(2)).invoke(Matchers.eq(AgrWorkflowStep.AGR_NON_UDI_DETECT_DEVIATION_FROM_PROGNOSES.name()),
                 Matchers.any(WorkflowContext.class));
-        verify(corePlanboardBusinessService, times(1))
-                .findLastPrognoses(Matchers.any(LocalDate.class), Matchers.eq(CG_ENTITY_ADRESS));
-        verify(corePlanboardBusinessService, times(1))
-                .findLastPrognoses(Matchers.any(LocalDate.class), Matchers.eq(BRP_ENTITY_ADRESS));
+        verify(corePlanboardBusinessService, times(1)).findLastPrognoses(Matchers.any(LocalDate.class));
         verify(agrPortfolioBusinessService, times(1))
-                .findConnectionPortfolioDto(Matchers.any(LocalDate.class));
+                .findConnectionPortfolioSnapshot(Matchers.any(LocalDate.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testInvokeWorkflowForManyConnectionGroups() throws BusinessValidationException {
+        final int connectionGroupCount = 500;
+        final int connectionsPerGroup = 100;
+        Mockito.when(configAgr.getBooleanProperty(ConfigAgrParam.AGR_IS_NON_UDI_AGGREGATOR)).thenReturn(false);
+
+        List<ConnectionPortfolioDto> connectionPortfolioDtos = new ArrayList<>();
+        Map<String, List<String>> connectionGroupsToConnectionsMap = new HashMap<>();
+        String[] usefIdentifiers = new String[connectionGroupCount];
+        for (int group = 0; group < connectionGroupCount; group++) {
+            usefIdentifiers[group] = "ean.cg" + group;
+            List<String> connections = new ArrayList<>();
+            for (int connection = 0; connection < connectionsPerGroup; connection++) {
+                String entityAddress = "ean.cg" + group + ".connection" + connection;
+                connections.add(entityAddress);
+                connectionPortfolioDtos.add(new ConnectionPortfolioDto(entityAddress));
+            }
+            connectionGroupsToConnectionsMap.put(usefIdentifiers[group], connections);
+        }
+        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioSnapshot(Matchers.any(LocalDate.class)))
+                .then(call -> ConnectionPortfolioSnapshot.build((LocalDate) call.getArguments()[0], connectionPortfolioDtos));
+        Mockito.when(corePlanboardBusinessService.buildConnectionGroupsToConnectionsMap(Matchers.any(LocalDate.class)))
+                .thenReturn(connectionGroupsToConnectionsMap);
+        Mockito.when(corePlanboardBusinessService.findLastPrognoses(Matchers.any(LocalDate.class)))
+                .thenReturn(buildPrognosisList(usefIdentifiers));
+
+        List<Integer> connectionCounts = Collections.synchronizedList(new ArrayList<>());
+        Mockito.when(workflowStepExecuter.invoke(Mockito.eq(AGR_DETECT_DEVIATION_FROM_PROGNOSES.name()), Mockito.any()))
+                .then(call -> {
+                    WorkflowContext inContext = (WorkflowContext) call.getArguments()[1];
+                    connectionCounts.add(inContext.get(DetectDeviationFromPrognosisStepParameter.IN.CONNECTION_PORTFOLIO_DTO.name(),
+                            List.class).size());
+                    WorkflowContext outContext = new DefaultWorkflowContext();
+                    outContext.setValue(DetectDeviationFromPrognosisStepParameter.OUT.DEVIATION_INDEX_LIST.name(),
+                            new ArrayList<Integer>());
+                    return outContext;
+                });
+
+        long start = System.currentTimeMillis();
+        coordinator.handleEvent(new DetectDeviationEvent(DateTimeUtil.getCurrentDate()));
+        LoggerFactory.getLogger(AgrDetectDeviationCoordinatorTest.class).info("Detected deviations of {} connections in {} connection groups in {} ms",
+                connectionGroupCount * connectionsPerGroup, connectionGroupCount, System.currentTimeMillis() - start);
+
+        // every connection group is evaluated with its own connections, prognoses are fetched only once.
+        Assert.assertEquals(connectionGroupCount, connectionCounts.size());
+        connectionCounts.forEach(connectionCount -> Assert.assertEquals(connectionsPerGroup, connectionCount.intValue()));
+        verify(corePlanboardBusinessService, times(1)).findLastPrognoses(Matchers.any(LocalDate.class));
+        verify(corePlanboardBusinessService, Mockito.never())
+                .findLastPrognoses(Matchers.any(LocalDate.class), Matchers.any(String.class));
+        verify(eventManager, Mockito.never()).fire(Matchers.any(ReOptimizePortfolioEvent.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testInvokeWorkflowStopsAtFirstDeviation() throws BusinessValidationException {
+        final int connectionGroupCount = 500;
+        Mockito.when(configAgr.getBooleanProperty(ConfigAgrParam.AGR_IS_NON_UDI_AGGREGATOR)).thenReturn(false);
+
+        List<ConnectionPortfolioDto> connectionPortfolioDtos = new ArrayList<>();
+        Map<String, List<String>> connectionGroupsToConnectionsMap = new HashMap<>();
+        String[] usefIdentifiers = new String[connectionGroupCount];
+        for (int group = 0; group < connectionGroupCount; group++) {
+            usefIdentifiers[group] = "ean.cg" + group;
+            connectionPortfolioDtos.addAll(buildConnections(usefIdentifiers[group]));
+            connectionGroupsToConnectionsMap.put(usefIdentifiers[group], Collections.singletonList(usefIdentifiers[group]));
+        }
+        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioSnapshot(Matchers.any(LocalDate.class)))
+                .then(call -> ConnectionPortfolioSnapshot.build((LocalDate) call.getArguments()[0], connectionPortfolioDtos));
+        Mockito.when(corePlanboardBusinessService.buildConnectionGroupsToConnectionsMap(Matchers.any(LocalDate.class)))
+                .thenReturn(connectionGroupsToConnectionsMap);
+        Mockito.when(corePlanboardBusinessService.findLastPrognoses(Matchers.any(LocalDate.class)))
+                .thenReturn(buildPrognosisList(usefIdentifiers));
+
+        // every connection group has a deviation at the first PTU.
+        WorkflowContext workflowContextIn = new DefaultWorkflowContext();
+        workflowContextIn.setValue(DetectDeviationFromPrognosisStepParameter.OUT.DEVIATION_INDEX_LIST.name(),
+                Collections.singletonList(1));
+        Mockito.when(workflowStepExecuter.invoke(Mockito.eq(AGR_DETECT_DEVIATION_FROM_PROGNOSES.name()), Mockito.any()))
+                .then(call -> {
+                    Thread.sleep(1);
+                    return workflowContextIn;
+                });
+
+        coordinator.handleEvent(new DetectDeviationEvent(DateTimeUtil.getCurrentDate()));
+
+        verify(eventManager, times(1)).fire(Matchers.any(ReOptimizePortfolioEvent.class));
+        verify(workflowStepExecuter, Mockito.atMost(connectionGroupCount - 1))
+                .invoke(Matchers.eq(AGR_DETECT_DEVIATION_FROM_PROGNOSES.name()), Matchers.any(WorkflowContext.class));
     }
 
     private Map<String, List<String>> buildConnectionPortfolioMap() {
@@ -205,15 +294,17 @@ public class AgrDetectDeviationCoordinatorTest {
         return connectionPortfolioDTOs;
     }
 
-    private List<PtuPrognosis> buildPrognosisList(String usefIdentifier) {
+    private List<PtuPrognosis> buildPrognosisList(String... usefIdentifiers) {
         List<PtuPrognosis> prognoses = new ArrayList<>();
-        ConnectionGroup connectionGroup = new CongestionPointConnectionGroup(usefIdentifier);
-        for (int i = 1; i <= 12; ++i) {
-            PtuPrognosis prognosis = new PtuPrognosis();
-            prognosis.setPtuContainer(new PtuContainer(DateTimeUtil.getCurrentDate(), i));
-            prognosis.setConnectionGroup(connectionGroup);
-            prognosis.setPower(BigInteger.valueOf(i));
-            prognoses.add(prognosis);
+        for (String usefIdentifier : usefIdentifiers) {
+            ConnectionGroup connectionGroup = new CongestionPointConnectionGroup(usefIdentifier);
+            for (int i = 1; i <= 12; ++i) {
+                PtuPrognosis prognosis = new PtuPrognosis();
+                prognosis.setPtuContainer(new PtuContainer(DateTimeUtil.getCurrentDate(), i));
+                prognosis.setConnectionGroup(connectionGroup);
+                prognosis.setPower(BigInteger.valueOf(i));
+                prognoses.add(prognosis);
+            }
         }
         return prognoses;
     }
@@ -25,6 +25,7 @@ import energy.usef.agr.dto.ForecastPowerDataDto;
 import energy.usef.agr.dto.PowerContainerDto;
 import energy.usef.agr.service.business.AgrPlanboardBusinessService;
 import energy.usef.agr.service.business.AgrPortfolioBusinessService;
+import energy.usef.agr.service.business.ConnectionPortfolioSnapshot;
 import energy.usef.agr.workflow.operate.recreate.prognoses.ReCreatePrognosesWorkflowParameter.OUT;
 import energy.usef.agr.workflow.plan.create.aplan.CreateAPlanEvent;
 import energy.usef.agr.workflow.plan.recreate.aplan.ReCreateAPlanEvent;
@@ -50,6 +51,7 @@ import energy.usef.core.workflow.step.WorkflowStepExecuter;
 
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -134,8 +136,8 @@ public class AgrReCreatePrognosesCoordinatorTest {
                         Matchers.eq(Optional.empty()))).thenReturn(latestDPrognoses);
         PowerMockito.when(corePlanboardBusinessService.findActiveConnectionGroupsWithConnections(Matchers.any(LocalDate.class)))
                 .thenReturn(buildConnectionGroupToConnections());
-        PowerMockito.when(agrPortfolioBusinessService.findConnectionPortfolioDto(Matchers.any(LocalDate.class)))
-                .thenReturn(buildConnectionPortfolio());
+        PowerMockito.when(agrPortfolioBusinessService.findConnectionPortfolioSnapshot(Matchers.any(LocalDate.class)))
+                .then(call -> ConnectionPortfolioSnapshot.build((LocalDate) call.getArguments()[0], buildConnectionPortfolio()));
 
         coordinator.handleEvent(buildReCreatePrognosesEvent(DateTimeUtil.getCurrentDate()));
 
@@ -171,6 +173,8 @@ public class AgrReCreatePrognosesCoordinatorTest {
                 agrPlanboardBusinessService.findLastPrognoses(Matchers.any(LocalDate.class),
                         Matchers.eq(PrognosisType.D_PROGNOSIS),
                         Matchers.any(Optional.class))).thenReturn(latestDPrognoses);
+        PowerMockito.when(agrPortfolioBusinessService.findConnectionPortfolioSnapshot(Matchers.any(LocalDate.class)))
+                .then(call -> ConnectionPortfolioSnapshot.build((LocalDate) call.getArguments()[0], Collections.emptyList()));
 
         coordinator.handleEvent(buildReCreatePrognosesEvent(DateTimeUtil.getCurrentDate().plusDays(1)));
 
@@ -28,6 +28,7 @@ import energy.usef.agr.dto.device.request.DeviceMessageDto;
 import energy.usef.agr.dto.device.request.ReduceRequestDto;
 import energy.usef.agr.service.business.AgrPlanboardBusinessService;
 import energy.usef.agr.service.business.AgrPortfolioBusinessService;
+import energy.usef.agr.service.business.ConnectionPortfolioSnapshot;
 import energy.usef.agr.workflow.operate.recreate.prognoses.ReCreatePrognosesEvent;
 import energy.usef.core.config.Config;
 import energy.usef.core.config.ConfigParam;
@@ -134,8 +135,8 @@ public class AgrReOptimizePortfolioCoordinatorTest {
         List<PtuFlexOrder> ptuFlexOrderList = buildPtuFlexOrderList(period);
         List<PtuFlexOffer> ptuFlexOfferList = buildPtuFlexOfferList(period);
         List<PtuPrognosis> ptuPrognosisList = buildPtuPrognosisList(period);
-        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioDto(period)).thenReturn(
-                buildConnectionPortfolio());
+        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioSnapshot(period))
+                .then(call -> ConnectionPortfolioSnapshot.build((LocalDate) call.getArguments()[0], buildConnectionPortfolio()));
 
         Mockito.when(corePlanboardBusinessService.findAcceptedFlexOrdersForUsefIdentifierOnDate(
                 Matchers.<Optional<String>>any(), Mockito.eq(period))).thenReturn(ptuFlexOrderList);
@@ -151,14 +152,14 @@ public class AgrReOptimizePortfolioCoordinatorTest {
 
         Mockito.when(corePlanboardBusinessService.findActiveConnectionGroupsWithConnections(Matchers.any(LocalDate.class)))
                 .thenReturn(buildConnectionGroupToConnections());
-        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioDto(Matchers.any(LocalDate.class)))
-                .thenReturn(buildConnectionPortfolio());
+        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioSnapshot(Matchers.any(LocalDate.class)))
+                .then(call -> ConnectionPortfolioSnapshot.build((LocalDate) call.getArguments()[0], buildConnectionPortfolio()));
 
         // actual invocation
         coordinator.execute(new ExecuteReOptimizePortfolioEvent(period));
         // verifications
         ArgumentCaptor<ReCreatePrognosesEvent> reCreatePrognosesEventCaptor = ArgumentCaptor.forClass(ReCreatePrognosesEvent.class);
-        Mockito.verify(agrPortfolioBusinessService, Mockito.times(1)).findConnectionPortfolioDto(Matchers.eq(period));
+        Mockito.verify(agrPortfolioBusinessService, Mockito.times(1)).findConnectionPortfolioSnapshot(Matchers.eq(period));
         Mockito.verify(agrPlanboardBusinessService, Mockito.times(12))
                 .changeStatusOfPtuFlexOrder(Matchers.any(PtuFlexOrder.class), Mockito.eq(AcknowledgementStatus.PROCESSED));
         Mockito.verify(reCreatePrognosesEventManager, Mockito.times(1)).fire(reCreatePrognosesEventCaptor.capture());
@@ -179,7 +180,8 @@ public class AgrReOptimizePortfolioCoordinatorTest {
         List<PtuFlexOrder> ptuFlexOrderList = buildPtuFlexOrderList(period);
         List<PtuFlexOffer> ptuFlexOfferList = buildPtuFlexOfferList(period);
         List<PtuPrognosis> ptuPrognosisList = buildPtuPrognosisList(period);
-        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioDto(period)).thenReturn(buildConnectionPortfolio());
+        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioSnapshot(period))
+                .then(call -> ConnectionPortfolioSnapshot.build((LocalDate) call.getArguments()[0], buildConnectionPortfolio()));
 
         Mockito.when(corePlanboardBusinessService.findAcceptedFlexOrdersForUsefIdentifierOnDate(
                 Matchers.<Optional<String>>any(), Mockito.eq(period))).thenReturn(ptuFlexOrderList);
@@ -195,15 +197,15 @@ public class AgrReOptimizePortfolioCoordinatorTest {
 
         Mockito.when(corePlanboardBusinessService.findActiveConnectionGroupsWithConnections(Matchers.any(LocalDate.class)))
                 .thenReturn(buildConnectionGroupToConnections());
-        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioDto(Matchers.any(LocalDate.class)))
-                .thenReturn(buildConnectionPortfolio());
+        Mockito.when(agrPortfolioBusinessService.findConnectionPortfolioSnapshot(Matchers.any(LocalDate.class)))
+                .then(call -> ConnectionPortfolioSnapshot.build((LocalDate) call.getArguments()[0], buildConnectionPortfolio()));
 
         // actual invocation
         coordinator.execute(new ExecuteReOptimizePortfolioEvent(period));
 
         // verifications
         ArgumentCaptor<ReCreatePrognosesEvent> reCreatePrognosesEventCaptor = ArgumentCaptor.forClass(ReCreatePrognosesEvent.class);
-        Mockito.verify(agrPortfolioBusinessService, Mockito.times(1)).findConnectionPortfolioDto(Matchers.eq(period));
+        Mockito.verify(agrPortfolioBusinessService, Mockito.times(1)).findConnectionPortfolioSnapshot(Matchers.eq(period));
         Mockito.verify(agrPlanboardBusinessService, Mockito.times(12))
                 .changeStatusOfPtuFlexOrder(Matchers.any(PtuFlexOrder.class), Mockito.eq(AcknowledgementStatus.PROCESSED));
         Mockito.verify(reCreatePrognosesEventManager, Mockito.times(1)).fire(reCreatePrognosesEventCaptor.capture());
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.agr.workflow.operate.reoptimize;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.LocalDate;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class in charge of the unit tests related to the {@link ReOptimizeFlagHolder} class.
+ */
+public class ReOptimizeFlagHolderTest {
+
+    private static final LocalDate PERIOD = new LocalDate(2015, 1, 1);
+
+    private ReOptimizeFlagHolder reOptimizeFlagHolder;
+
+    @Before
+    public void init() {
+        reOptimizeFlagHolder = new ReOptimizeFlagHolder();
+    }
+
+    @Test
+    public void testTriggersDuringRunAreCoalesced() {
+        Assert.assertTrue(reOptimizeFlagHolder.trigger(PERIOD));
+        Assert.assertTrue(reOptimizeFlagHolder.isRunning(PERIOD));
+        Assert.assertFalse(reOptimizeFlagHolder.trigger(PERIOD));
+        Assert.assertFalse(reOptimizeFlagHolder.trigger(PERIOD));
+        Assert.assertFalse(reOptimizeFlagHolder.trigger(PERIOD));
+
+        // exactly one follow-up run
+        Assert.assertTrue(reOptimizeFlagHolder.finishRun(PERIOD));
+        Assert.assertTrue(reOptimizeFlagHolder.isRunning(PERIOD));
+        Assert.assertFalse(reOptimizeFlagHolder.finishRun(PERIOD));
+        Assert.assertFalse(reOptimizeFlagHolder.isRunning(PERIOD));
+
+        Assert.assertEquals(4, reOptimizeFlagHolder.getTriggerCount());
+        Assert.assertEquals(2, reOptimizeFlagHolder.getRunCount());
+    }
+
+    @Test
+    public void testPeriodsAreIndependent() {
+        Assert.assertTrue(reOptimizeFlagHolder.trigger(PERIOD));
+        Assert.assertTrue(reOptimizeFlagHolder.trigger(PERIOD.plusDays(1)));
+        Assert.assertFalse(reOptimizeFlagHolder.finishRun(PERIOD));
+        Assert.assertTrue(reOptimizeFlagHolder.isRunning(PERIOD.plusDays(1)));
+    }
+
+    @Test
+    public void testConcurrentTriggers() throws Exception {
+        final int threads = 8;
+        final int triggersPerThread = 10000;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch triggersDone = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < triggersPerThread; j++) {
+                    if (reOptimizeFlagHolder.trigger(PERIOD)) {
+                        // the run is executed by another thread, like the asynchronous execute event.
+                        executor.submit(() -> run(running, maxRunning, runs));
+                    }
+                }
+                triggersDone.countDown();
+            });
+        }
+        Assert.assertTrue(triggersDone.await(30, TimeUnit.SECONDS));
+        while (reOptimizeFlagHolder.isRunning(PERIOD)) {
+            Thread.sleep(10);
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Assert.assertEquals(1, maxRunning.get());
+        Assert.assertEquals(threads * triggersPerThread, reOptimizeFlagHolder.getTriggerCount());
+        Assert.assertEquals(runs.get(), reOptimizeFlagHolder.getRunCount());
+        Assert.assertTrue(runs.get() <= threads * triggersPerThread);
+    }
+
+    private void run(AtomicInteger running, AtomicInteger maxRunning, AtomicInteger runs) {
+        boolean again = true;
+        while (again) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            runs.incrementAndGet();
+            running.decrementAndGet();
+            again = reOptimizeFlagHolder.finishRun(PERIOD);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package energy.usef.agr.workflow.settlement.initiate;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -43,6 +44,7 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.joda.time.LocalDate;
 import org.junit.Assert;
@@ -51,6 +53,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Matchers;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
@@ -79,14 +82,8 @@ public class AgrInitiateSettlementCoordinatorTest {
         Whitebox.setInternalState(coordinator, agrPortfolioBusinessService);
         Whitebox.setInternalState(coordinator, corePlanboardBusinessService);
         Whitebox.setInternalState(coordinator, config);
-        when(coreSettlementBusinessService.findRelevantPrognoses(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
-        when(coreSettlementBusinessService.findRelevantFlexRequests(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
-        when(coreSettlementBusinessService.findRelevantFlexOffers(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(buildPtuFlexOfferList());
-        when(coreSettlementBusinessService.findRelevantFlexOrders(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
+        doAnswer(call -> consumeDocument(call, buildPtuFlexOfferList())).when(coreSettlementBusinessService)
+                .findRelevantFlexOffers(any(LocalDate.class), any(LocalDate.class), any(Consumer.class));
         when(agrPortfolioBusinessService.findConnectionPortfolioDto(any(LocalDate.class), any(LocalDate.class)))
                 .thenReturn(new HashMap<>());
     }
@@ -143,6 +140,12 @@ public class AgrInitiateSettlementCoordinatorTest {
         Assert.assertNotNull(context.getValue(CoreInitiateSettlementParameter.IN.PROGNOSIS_DTO_LIST.name()));
     }
 
+    @SuppressWarnings("unchecked")
+    private Object consumeDocument(InvocationOnMock call, List<PtuFlexOffer> ptuFlexOffers) {
+        ((Consumer<List<PtuFlexOffer>>) call.getArguments()[2]).accept(ptuFlexOffers);
+        return null;
+    }
+
     private List<PtuFlexOffer> buildPtuFlexOfferList() {
         List<PtuFlexOffer> ptuFlexOfferList = new ArrayList<>();
         PtuFlexOffer ptuFlexOffer = new PtuFlexOffer();
@@ -167,6 +170,7 @@ public class AgrInitiateSettlementCoordinatorTest {
         FlexOrderDto flexOrderDto = new FlexOrderDto();
         flexOrderDto.setFlexOfferSequenceNumber(1l);
         flexOrderDto.setParticipantDomain("agr.usef-example.com");
+        flexOrderDto.setConnectionGroupEntityAddress("cp1");
         flexOrderSettlementDto.setFlexOrder(flexOrderDto);
         settlementDto.getFlexOrderSettlementDtos().add(flexOrderSettlementDto);
         return settlementDto;
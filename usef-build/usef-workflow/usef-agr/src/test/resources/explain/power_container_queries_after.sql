@@ -0,0 +1,265 @@
+-- H2 EXPLAIN plans of the PowerContainerRepository queries (after the active connection subquery was correlated on the
+-- connection group state foreign key), parameters replaced by DATE '2030-03-05'.
+
+-- findConnectionGroupPowerContainers(period, empty)
+-- JPQL: SELECT cgpc FROM ConnectionGroupPowerContainer cgpc WHERE cgpc.period = :period AND EXISTS (SELECT cgs.id FROM ConnectionGroupState cgs WHERE cgs.connectionGroup = cgpc.connectionGroup AND cgs.validFrom <= :period AND cgs.validUntil > :period)
+SELECT
+    CONNECTION0_.ID AS ID2_19_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_CONSUMPTION AS FORECAST3_19_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_PRODUCTION AS FORECAST4_19_,
+    CONNECTION0_1_.FORECAST_AVERAGE_CONSUMPTION AS FORECAST5_19_,
+    CONNECTION0_1_.FORECAST_AVERAGE_PRODUCTION AS FORECAST6_19_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_CONSUMPTION AS FORECAST7_19_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_PRODUCTION AS FORECAST8_19_,
+    CONNECTION0_1_.FORECAST_UNCONTROLLED_LOAD AS FORECAST9_19_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_CONSUMPTION AS OBSERVE10_19_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_PRODUCTION AS OBSERVE11_19_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_CONSUMPTION AS OBSERVE12_19_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_PRODUCTION AS OBSERVE13_19_,
+    CONNECTION0_1_.OBSERVED_UNCONTROLLED_LOAD AS OBSERVE14_19_,
+    CONNECTION0_1_.PERIOD AS PERIOD15_19_,
+    CONNECTION0_1_.PROFILE_AVERAGE_CONSUMPTION AS PROFILE16_19_,
+    CONNECTION0_1_.PROFILE_AVERAGE_PRODUCTION AS PROFILE17_19_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_CONSUMPTION AS PROFILE18_19_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_PRODUCTION AS PROFILE19_19_,
+    CONNECTION0_1_.PROFILE_UNCONTROLLED_LOAD AS PROFILE20_19_,
+    CONNECTION0_1_.TIME_INDEX AS TIME_IN21_19_,
+    CONNECTION0_.CONNECTION_GROUP_ID AS CONNECTI2_21_
+FROM PUBLIC.POWER_CONTAINER CONNECTION0_1_
+    /* PUBLIC.POWER_CONTAINER.tableScan */
+    /* WHERE CONNECTION0_1_.PERIOD = DATE '2030-03-05'
+    */
+INNER JOIN PUBLIC.POWER_CONTAINER_CONNECTION_GROUP CONNECTION0_
+    /* PUBLIC.PRIMARY_KEY_65: ID = CONNECTION0_1_.ID */
+    ON 1=1
+WHERE (CONNECTION0_.ID = CONNECTION0_1_.ID)
+    AND ((CONNECTION0_1_.PERIOD = DATE '2030-03-05')
+    AND EXISTS(
+    SELECT
+        CONNECTION1_.ID
+    FROM PUBLIC.CONNECTION_GROUP_STATE CONNECTION1_
+        /* PUBLIC.CGS_CONNECTION_GROUP_FK_INDEX_4: CONNECTION_GROUP_ID = CONNECTION0_.CONNECTION_GROUP_ID */
+    WHERE (CONNECTION1_.VALID_UNTIL > DATE '2030-03-05')
+        AND ((CONNECTION1_.VALID_FROM <= DATE '2030-03-05')
+        AND (CONNECTION1_.CONNECTION_GROUP_ID = CONNECTION0_.CONNECTION_GROUP_ID))));
+
+-- findConnectionPowerContainers(period, empty, empty)
+-- JPQL: SELECT cpc FROM ConnectionPowerContainer cpc JOIN FETCH cpc.connection conn WHERE cpc.period = :period AND EXISTS (SELECT cgs.id FROM ConnectionGroupState cgs WHERE cgs.connection = conn AND cgs.validFrom <= :period AND cgs.validUntil > :period)
+SELECT
+    CONNECTION0_.ID AS ID2_19_0_,
+    CONNECTION1_.ENTITY_ADDRESS AS ENTITY_A1_1_1_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_CONSUMPTION AS FORECAST3_19_0_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_PRODUCTION AS FORECAST4_19_0_,
+    CONNECTION0_1_.FORECAST_AVERAGE_CONSUMPTION AS FORECAST5_19_0_,
+    CONNECTION0_1_.FORECAST_AVERAGE_PRODUCTION AS FORECAST6_19_0_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_CONSUMPTION AS FORECAST7_19_0_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_PRODUCTION AS FORECAST8_19_0_,
+    CONNECTION0_1_.FORECAST_UNCONTROLLED_LOAD AS FORECAST9_19_0_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_CONSUMPTION AS OBSERVE10_19_0_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_PRODUCTION AS OBSERVE11_19_0_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_CONSUMPTION AS OBSERVE12_19_0_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_PRODUCTION AS OBSERVE13_19_0_,
+    CONNECTION0_1_.OBSERVED_UNCONTROLLED_LOAD AS OBSERVE14_19_0_,
+    CONNECTION0_1_.PERIOD AS PERIOD15_19_0_,
+    CONNECTION0_1_.PROFILE_AVERAGE_CONSUMPTION AS PROFILE16_19_0_,
+    CONNECTION0_1_.PROFILE_AVERAGE_PRODUCTION AS PROFILE17_19_0_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_CONSUMPTION AS PROFILE18_19_0_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_PRODUCTION AS PROFILE19_19_0_,
+    CONNECTION0_1_.PROFILE_UNCONTROLLED_LOAD AS PROFILE20_19_0_,
+    CONNECTION0_1_.TIME_INDEX AS TIME_IN21_19_0_,
+    CONNECTION0_.CONNECTION_ENTITY_ADDRESS AS CONNECTI2_20_0_
+FROM PUBLIC.POWER_CONTAINER CONNECTION0_1_
+    /* PUBLIC.POWER_CONTAINER.tableScan */
+    /* WHERE CONNECTION0_1_.PERIOD = DATE '2030-03-05'
+    */
+INNER JOIN PUBLIC.POWER_CONTAINER_CONNECTION CONNECTION0_
+    /* PUBLIC.PRIMARY_KEY_E0: ID = CONNECTION0_1_.ID */
+    ON 1=1
+    /* WHERE CONNECTION0_.ID = CONNECTION0_1_.ID
+    */
+INNER JOIN PUBLIC.CONNECTION CONNECTION1_
+    /* PUBLIC.PRIMARY_KEY_E: ENTITY_ADDRESS = CONNECTION0_.CONNECTION_ENTITY_ADDRESS
+        AND ENTITY_ADDRESS = CONNECTION0_.CONNECTION_ENTITY_ADDRESS
+     */
+    ON 1=1
+WHERE ((CONNECTION0_.CONNECTION_ENTITY_ADDRESS = CONNECTION1_.ENTITY_ADDRESS)
+    AND (CONNECTION0_.ID = CONNECTION0_1_.ID))
+    AND ((CONNECTION0_1_.PERIOD = DATE '2030-03-05')
+    AND EXISTS(
+    SELECT
+        CONNECTION2_.ID
+    FROM PUBLIC.CONNECTION_GROUP_STATE CONNECTION2_
+        /* PUBLIC.CGS_CONNECTION_FK_INDEX_4: CONNECTION_ID = CONNECTION1_.ENTITY_ADDRESS */
+    WHERE (CONNECTION2_.VALID_UNTIL > DATE '2030-03-05')
+        AND ((CONNECTION2_.VALID_FROM <= DATE '2030-03-05')
+        AND (CONNECTION2_.CONNECTION_ID = CONNECTION1_.ENTITY_ADDRESS))));
+
+-- findUdiPowerContainers(period, empty, empty)
+-- JPQL: SELECT upc FROM UdiPowerContainer upc JOIN FETCH upc.udi udi WHERE upc.period = :period AND EXISTS (SELECT cgs.id FROM ConnectionGroupState cgs WHERE cgs.connection = udi.connection AND cgs.validFrom <= :period AND cgs.validUntil > :period)
+SELECT
+    UDIPOWERCO0_.ID AS ID2_19_0_,
+    UDI1_.ID AS ID1_39_1_,
+    UDIPOWERCO0_1_.FORECAST_ALLOCATED_FLEX_CONSUMPTION AS FORECAST3_19_0_,
+    UDIPOWERCO0_1_.FORECAST_ALLOCATED_FLEX_PRODUCTION AS FORECAST4_19_0_,
+    UDIPOWERCO0_1_.FORECAST_AVERAGE_CONSUMPTION AS FORECAST5_19_0_,
+    UDIPOWERCO0_1_.FORECAST_AVERAGE_PRODUCTION AS FORECAST6_19_0_,
+    UDIPOWERCO0_1_.FORECAST_POTENTIAL_FLEX_CONSUMPTION AS FORECAST7_19_0_,
+    UDIPOWERCO0_1_.FORECAST_POTENTIAL_FLEX_PRODUCTION AS FORECAST8_19_0_,
+    UDIPOWERCO0_1_.FORECAST_UNCONTROLLED_LOAD AS FORECAST9_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_AVERAGE_CONSUMPTION AS OBSERVE10_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_AVERAGE_PRODUCTION AS OBSERVE11_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_POTENTIAL_FLEX_CONSUMPTION AS OBSERVE12_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_POTENTIAL_FLEX_PRODUCTION AS OBSERVE13_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_UNCONTROLLED_LOAD AS OBSERVE14_19_0_,
+    UDIPOWERCO0_1_.PERIOD AS PERIOD15_19_0_,
+    UDIPOWERCO0_1_.PROFILE_AVERAGE_CONSUMPTION AS PROFILE16_19_0_,
+    UDIPOWERCO0_1_.PROFILE_AVERAGE_PRODUCTION AS PROFILE17_19_0_,
+    UDIPOWERCO0_1_.PROFILE_POTENTIAL_FLEX_CONSUMPTION AS PROFILE18_19_0_,
+    UDIPOWERCO0_1_.PROFILE_POTENTIAL_FLEX_PRODUCTION AS PROFILE19_19_0_,
+    UDIPOWERCO0_1_.PROFILE_UNCONTROLLED_LOAD AS PROFILE20_19_0_,
+    UDIPOWERCO0_1_.TIME_INDEX AS TIME_IN21_19_0_,
+    UDIPOWERCO0_.UDI_ID AS UDI_ID2_22_0_,
+    UDI1_.CONNECTION_ID AS CONNECTI7_39_1_,
+    UDI1_.DTU_SIZE AS DTU_SIZE2_39_1_,
+    UDI1_.ENDPOINT AS ENDPOINT3_39_1_,
+    UDI1_.PROFILE AS PROFILE4_39_1_,
+    UDI1_.VALID_FROM AS VALID_FR5_39_1_,
+    UDI1_.VALID_UNTIL AS VALID_UN6_39_1_
+FROM PUBLIC.POWER_CONTAINER UDIPOWERCO0_1_
+    /* PUBLIC.POWER_CONTAINER.tableScan */
+    /* WHERE UDIPOWERCO0_1_.PERIOD = DATE '2030-03-05'
+    */
+INNER JOIN PUBLIC.POWER_CONTAINER_UDI UDIPOWERCO0_
+    /* PUBLIC.PRIMARY_KEY_EC: ID = UDIPOWERCO0_1_.ID */
+    ON 1=1
+    /* WHERE UDIPOWERCO0_.ID = UDIPOWERCO0_1_.ID
+    */
+INNER JOIN PUBLIC.UDI UDI1_
+    /* PUBLIC.PRIMARY_KEY_14: ID = UDIPOWERCO0_.UDI_ID
+        AND ID = UDIPOWERCO0_.UDI_ID
+     */
+    ON 1=1
+WHERE ((UDIPOWERCO0_.UDI_ID = UDI1_.ID)
+    AND (UDIPOWERCO0_.ID = UDIPOWERCO0_1_.ID))
+    AND ((UDIPOWERCO0_1_.PERIOD = DATE '2030-03-05')
+    AND EXISTS(
+    SELECT
+        CONNECTION2_.ID
+    FROM PUBLIC.CONNECTION_GROUP_STATE CONNECTION2_
+        /* PUBLIC.CGS_CONNECTION_FK_INDEX_4: CONNECTION_ID = UDI1_.CONNECTION_ID */
+    WHERE (CONNECTION2_.VALID_UNTIL > DATE '2030-03-05')
+        AND ((CONNECTION2_.VALID_FROM <= DATE '2030-03-05')
+        AND (CONNECTION2_.CONNECTION_ID = UDI1_.CONNECTION_ID))));
+
+-- findConnectionPowerContainers(startDate, endDate)
+-- JPQL: SELECT cpc FROM ConnectionPowerContainer cpc JOIN FETCH cpc.connection conn WHERE cpc.period BETWEEN :startDate AND :endDate AND EXISTS (SELECT cgs.id FROM ConnectionGroupState cgs WHERE cgs.connection = conn AND cgs.validFrom <= cpc.period AND cgs.validUntil > cpc.period)
+SELECT
+    CONNECTION0_.ID AS ID2_19_0_,
+    CONNECTION1_.ENTITY_ADDRESS AS ENTITY_A1_1_1_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_CONSUMPTION AS FORECAST3_19_0_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_PRODUCTION AS FORECAST4_19_0_,
+    CONNECTION0_1_.FORECAST_AVERAGE_CONSUMPTION AS FORECAST5_19_0_,
+    CONNECTION0_1_.FORECAST_AVERAGE_PRODUCTION AS FORECAST6_19_0_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_CONSUMPTION AS FORECAST7_19_0_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_PRODUCTION AS FORECAST8_19_0_,
+    CONNECTION0_1_.FORECAST_UNCONTROLLED_LOAD AS FORECAST9_19_0_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_CONSUMPTION AS OBSERVE10_19_0_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_PRODUCTION AS OBSERVE11_19_0_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_CONSUMPTION AS OBSERVE12_19_0_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_PRODUCTION AS OBSERVE13_19_0_,
+    CONNECTION0_1_.OBSERVED_UNCONTROLLED_LOAD AS OBSERVE14_19_0_,
+    CONNECTION0_1_.PERIOD AS PERIOD15_19_0_,
+    CONNECTION0_1_.PROFILE_AVERAGE_CONSUMPTION AS PROFILE16_19_0_,
+    CONNECTION0_1_.PROFILE_AVERAGE_PRODUCTION AS PROFILE17_19_0_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_CONSUMPTION AS PROFILE18_19_0_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_PRODUCTION AS PROFILE19_19_0_,
+    CONNECTION0_1_.PROFILE_UNCONTROLLED_LOAD AS PROFILE20_19_0_,
+    CONNECTION0_1_.TIME_INDEX AS TIME_IN21_19_0_,
+    CONNECTION0_.CONNECTION_ENTITY_ADDRESS AS CONNECTI2_20_0_
+FROM PUBLIC.POWER_CONTAINER CONNECTION0_1_
+    /* PUBLIC.POWER_CONTAINER.tableScan */
+    /* WHERE (CONNECTION0_1_.PERIOD >= DATE '2030-03-05')
+        AND (CONNECTION0_1_.PERIOD <= DATE '2030-03-05')
+    */
+INNER JOIN PUBLIC.POWER_CONTAINER_CONNECTION CONNECTION0_
+    /* PUBLIC.PRIMARY_KEY_E0: ID = CONNECTION0_1_.ID */
+    ON 1=1
+    /* WHERE CONNECTION0_.ID = CONNECTION0_1_.ID
+    */
+INNER JOIN PUBLIC.CONNECTION CONNECTION1_
+    /* PUBLIC.PRIMARY_KEY_E: ENTITY_ADDRESS = CONNECTION0_.CONNECTION_ENTITY_ADDRESS
+        AND ENTITY_ADDRESS = CONNECTION0_.CONNECTION_ENTITY_ADDRESS
+     */
+    ON 1=1
+WHERE ((CONNECTION0_.CONNECTION_ENTITY_ADDRESS = CONNECTION1_.ENTITY_ADDRESS)
+    AND (CONNECTION0_.ID = CONNECTION0_1_.ID))
+    AND (((CONNECTION0_1_.PERIOD >= DATE '2030-03-05')
+    AND (CONNECTION0_1_.PERIOD <= DATE '2030-03-05'))
+    AND EXISTS(
+    SELECT
+        CONNECTION2_.ID
+    FROM PUBLIC.CONNECTION_GROUP_STATE CONNECTION2_
+        /* PUBLIC.CGS_CONNECTION_FK_INDEX_4: CONNECTION_ID = CONNECTION1_.ENTITY_ADDRESS */
+    WHERE (CONNECTION2_.VALID_UNTIL > CONNECTION0_1_.PERIOD)
+        AND ((CONNECTION2_.CONNECTION_ID = CONNECTION1_.ENTITY_ADDRESS)
+        AND (CONNECTION2_.VALID_FROM <= CONNECTION0_1_.PERIOD))));
+
+-- findUdiPowerContainers(startDate, endDate)
+-- JPQL: SELECT upc FROM UdiPowerContainer upc JOIN FETCH upc.udi udi WHERE upc.period BETWEEN :startDate AND :endDate AND EXISTS (SELECT cgs.id FROM ConnectionGroupState cgs WHERE cgs.connection = udi.connection AND cgs.validFrom <= upc.period AND cgs.validUntil > upc.period)
+SELECT
+    UDIPOWERCO0_.ID AS ID2_19_0_,
+    UDI1_.ID AS ID1_39_1_,
+    UDIPOWERCO0_1_.FORECAST_ALLOCATED_FLEX_CONSUMPTION AS FORECAST3_19_0_,
+    UDIPOWERCO0_1_.FORECAST_ALLOCATED_FLEX_PRODUCTION AS FORECAST4_19_0_,
+    UDIPOWERCO0_1_.FORECAST_AVERAGE_CONSUMPTION AS FORECAST5_19_0_,
+    UDIPOWERCO0_1_.FORECAST_AVERAGE_PRODUCTION AS FORECAST6_19_0_,
+    UDIPOWERCO0_1_.FORECAST_POTENTIAL_FLEX_CONSUMPTION AS FORECAST7_19_0_,
+    UDIPOWERCO0_1_.FORECAST_POTENTIAL_FLEX_PRODUCTION AS FORECAST8_19_0_,
+    UDIPOWERCO0_1_.FORECAST_UNCONTROLLED_LOAD AS FORECAST9_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_AVERAGE_CONSUMPTION AS OBSERVE10_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_AVERAGE_PRODUCTION AS OBSERVE11_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_POTENTIAL_FLEX_CONSUMPTION AS OBSERVE12_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_POTENTIAL_FLEX_PRODUCTION AS OBSERVE13_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_UNCONTROLLED_LOAD AS OBSERVE14_19_0_,
+    UDIPOWERCO0_1_.PERIOD AS PERIOD15_19_0_,
+    UDIPOWERCO0_1_.PROFILE_AVERAGE_CONSUMPTION AS PROFILE16_19_0_,
+    UDIPOWERCO0_1_.PROFILE_AVERAGE_PRODUCTION AS PROFILE17_19_0_,
+    UDIPOWERCO0_1_.PROFILE_POTENTIAL_FLEX_CONSUMPTION AS PROFILE18_19_0_,
+    UDIPOWERCO0_1_.PROFILE_POTENTIAL_FLEX_PRODUCTION AS PROFILE19_19_0_,
+    UDIPOWERCO0_1_.PROFILE_UNCONTROLLED_LOAD AS PROFILE20_19_0_,
+    UDIPOWERCO0_1_.TIME_INDEX AS TIME_IN21_19_0_,
+    UDIPOWERCO0_.UDI_ID AS UDI_ID2_22_0_,
+    UDI1_.CONNECTION_ID AS CONNECTI7_39_1_,
+    UDI1_.DTU_SIZE AS DTU_SIZE2_39_1_,
+    UDI1_.ENDPOINT AS ENDPOINT3_39_1_,
+    UDI1_.PROFILE AS PROFILE4_39_1_,
+    UDI1_.VALID_FROM AS VALID_FR5_39_1_,
+    UDI1_.VALID_UNTIL AS VALID_UN6_39_1_
+FROM PUBLIC.POWER_CONTAINER UDIPOWERCO0_1_
+    /* PUBLIC.POWER_CONTAINER.tableScan */
+    /* WHERE (UDIPOWERCO0_1_.PERIOD >= DATE '2030-03-05')
+        AND (UDIPOWERCO0_1_.PERIOD <= DATE '2030-03-05')
+    */
+INNER JOIN PUBLIC.POWER_CONTAINER_UDI UDIPOWERCO0_
+    /* PUBLIC.PRIMARY_KEY_EC: ID = UDIPOWERCO0_1_.ID */
+    ON 1=1
+    /* WHERE UDIPOWERCO0_.ID = UDIPOWERCO0_1_.ID
+    */
+INNER JOIN PUBLIC.UDI UDI1_
+    /* PUBLIC.PRIMARY_KEY_14: ID = UDIPOWERCO0_.UDI_ID
+        AND ID = UDIPOWERCO0_.UDI_ID
+     */
+    ON 1=1
+WHERE ((UDIPOWERCO0_.UDI_ID = UDI1_.ID)
+    AND (UDIPOWERCO0_.ID = UDIPOWERCO0_1_.ID))
+    AND (((UDIPOWERCO0_1_.PERIOD >= DATE '2030-03-05')
+    AND (UDIPOWERCO0_1_.PERIOD <= DATE '2030-03-05'))
+    AND EXISTS(
+    SELECT
+        CONNECTION2_.ID
+    FROM PUBLIC.CONNECTION_GROUP_STATE CONNECTION2_
+        /* PUBLIC.CGS_CONNECTION_FK_INDEX_4: CONNECTION_ID = UDI1_.CONNECTION_ID */
+    WHERE (CONNECTION2_.VALID_UNTIL > UDIPOWERCO0_1_.PERIOD)
+        AND ((CONNECTION2_.CONNECTION_ID = UDI1_.CONNECTION_ID)
+        AND (CONNECTION2_.VALID_FROM <= UDIPOWERCO0_1_.PERIOD))));
+
@@ -0,0 +1,294 @@
+-- H2 EXPLAIN plans of the PowerContainerRepository queries (before the active connection subquery was correlated on the
+-- connection group state foreign key), parameters replaced by DATE '2030-03-05'.
+
+-- findConnectionGroupPowerContainers(period, empty)
+-- JPQL: SELECT cgpc FROM ConnectionGroupPowerContainer cgpc WHERE cgpc.connectionGroup.usefIdentifier IN ( SELECT DISTINCT cgs.connectionGroup.usefIdentifier FROM ConnectionGroupState cgs WHERE cgs.validFrom <= :period AND cgs.validUntil > :period ) AND cgpc.period = :period
+SELECT
+    CONNECTION0_.ID AS ID2_19_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_CONSUMPTION AS FORECAST3_19_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_PRODUCTION AS FORECAST4_19_,
+    CONNECTION0_1_.FORECAST_AVERAGE_CONSUMPTION AS FORECAST5_19_,
+    CONNECTION0_1_.FORECAST_AVERAGE_PRODUCTION AS FORECAST6_19_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_CONSUMPTION AS FORECAST7_19_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_PRODUCTION AS FORECAST8_19_,
+    CONNECTION0_1_.FORECAST_UNCONTROLLED_LOAD AS FORECAST9_19_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_CONSUMPTION AS OBSERVE10_19_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_PRODUCTION AS OBSERVE11_19_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_CONSUMPTION AS OBSERVE12_19_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_PRODUCTION AS OBSERVE13_19_,
+    CONNECTION0_1_.OBSERVED_UNCONTROLLED_LOAD AS OBSERVE14_19_,
+    CONNECTION0_1_.PERIOD AS PERIOD15_19_,
+    CONNECTION0_1_.PROFILE_AVERAGE_CONSUMPTION AS PROFILE16_19_,
+    CONNECTION0_1_.PROFILE_AVERAGE_PRODUCTION AS PROFILE17_19_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_CONSUMPTION AS PROFILE18_19_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_PRODUCTION AS PROFILE19_19_,
+    CONNECTION0_1_.PROFILE_UNCONTROLLED_LOAD AS PROFILE20_19_,
+    CONNECTION0_1_.TIME_INDEX AS TIME_IN21_19_,
+    CONNECTION0_.CONNECTION_GROUP_ID AS CONNECTI2_21_
+FROM PUBLIC.POWER_CONTAINER_CONNECTION_GROUP CONNECTION0_
+    /* PUBLIC.FK_9V2NC13WJH9FD8S7X8QKEBNOR_INDEX_6: CONNECTION_GROUP_ID IN(SELECT DISTINCT
+        CONNECTION1_.CONNECTION_GROUP_ID
+    FROM PUBLIC.CONNECTION_GROUP_STATE CONNECTION1_
+        /++ PUBLIC.CONNECTION_GROUP_STATE.tableScan ++/
+    WHERE (CONNECTION1_.VALID_FROM <= DATE '2030-03-05')
+        AND (CONNECTION1_.VALID_UNTIL > DATE '2030-03-05'))
+     */
+    /* WHERE CONNECTION0_.CONNECTION_GROUP_ID IN(
+        SELECT DISTINCT
+            CONNECTION1_.CONNECTION_GROUP_ID
+        FROM PUBLIC.CONNECTION_GROUP_STATE CONNECTION1_
+            /++ PUBLIC.CONNECTION_GROUP_STATE.tableScan ++/
+        WHERE (CONNECTION1_.VALID_FROM <= DATE '2030-03-05')
+            AND (CONNECTION1_.VALID_UNTIL > DATE '2030-03-05'))
+    */
+INNER JOIN PUBLIC.POWER_CONTAINER CONNECTION0_1_
+    /* PUBLIC.PRIMARY_KEY_CF: ID = CONNECTION0_.ID
+        AND ID = CONNECTION0_.ID
+     */
+    ON 1=1
+WHERE (CONNECTION0_.ID = CONNECTION0_1_.ID)
+    AND ((CONNECTION0_1_.PERIOD = DATE '2030-03-05')
+    AND (CONNECTION0_.CONNECTION_GROUP_ID IN(
+    SELECT DISTINCT
+        CONNECTION1_.CONNECTION_GROUP_ID
+    FROM PUBLIC.CONNECTION_GROUP_STATE CONNECTION1_
+        /* PUBLIC.CONNECTION_GROUP_STATE.tableScan */
+    WHERE (CONNECTION1_.VALID_FROM <= DATE '2030-03-05')
+        AND (CONNECTION1_.VALID_UNTIL > DATE '2030-03-05'))));
+
+-- findConnectionPowerContainers(period, empty, empty)
+-- JPQL: SELECT DISTINCT cpc FROM ConnectionPowerContainer cpc JOIN FETCH cpc.connection conn, ConnectionGroupState cgs WHERE conn.entityAddress = cgs.connection.entityAddress AND cpc.period = :period AND cgs.validFrom <= :period AND cgs.validUntil > :period
+SELECT DISTINCT
+    CONNECTION0_.ID AS ID2_19_0_,
+    CONNECTION1_.ENTITY_ADDRESS AS ENTITY_A1_1_1_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_CONSUMPTION AS FORECAST3_19_0_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_PRODUCTION AS FORECAST4_19_0_,
+    CONNECTION0_1_.FORECAST_AVERAGE_CONSUMPTION AS FORECAST5_19_0_,
+    CONNECTION0_1_.FORECAST_AVERAGE_PRODUCTION AS FORECAST6_19_0_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_CONSUMPTION AS FORECAST7_19_0_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_PRODUCTION AS FORECAST8_19_0_,
+    CONNECTION0_1_.FORECAST_UNCONTROLLED_LOAD AS FORECAST9_19_0_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_CONSUMPTION AS OBSERVE10_19_0_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_PRODUCTION AS OBSERVE11_19_0_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_CONSUMPTION AS OBSERVE12_19_0_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_PRODUCTION AS OBSERVE13_19_0_,
+    CONNECTION0_1_.OBSERVED_UNCONTROLLED_LOAD AS OBSERVE14_19_0_,
+    CONNECTION0_1_.PERIOD AS PERIOD15_19_0_,
+    CONNECTION0_1_.PROFILE_AVERAGE_CONSUMPTION AS PROFILE16_19_0_,
+    CONNECTION0_1_.PROFILE_AVERAGE_PRODUCTION AS PROFILE17_19_0_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_CONSUMPTION AS PROFILE18_19_0_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_PRODUCTION AS PROFILE19_19_0_,
+    CONNECTION0_1_.PROFILE_UNCONTROLLED_LOAD AS PROFILE20_19_0_,
+    CONNECTION0_1_.TIME_INDEX AS TIME_IN21_19_0_,
+    CONNECTION0_.CONNECTION_ENTITY_ADDRESS AS CONNECTI2_20_0_
+FROM PUBLIC.POWER_CONTAINER CONNECTION0_1_
+    /* PUBLIC.POWER_CONTAINER.tableScan */
+    /* WHERE CONNECTION0_1_.PERIOD = DATE '2030-03-05'
+    */
+INNER JOIN PUBLIC.POWER_CONTAINER_CONNECTION CONNECTION0_
+    /* PUBLIC.PRIMARY_KEY_E0: ID = CONNECTION0_1_.ID */
+    ON 1=1
+    /* WHERE CONNECTION0_.ID = CONNECTION0_1_.ID
+    */
+INNER JOIN PUBLIC.CONNECTION CONNECTION1_
+    /* PUBLIC.PRIMARY_KEY_E: ENTITY_ADDRESS = CONNECTION0_.CONNECTION_ENTITY_ADDRESS
+        AND ENTITY_ADDRESS = CONNECTION0_.CONNECTION_ENTITY_ADDRESS
+     */
+    ON 1=1
+    /* WHERE CONNECTION0_.CONNECTION_ENTITY_ADDRESS = CONNECTION1_.ENTITY_ADDRESS
+    */
+INNER JOIN PUBLIC.CONNECTION_GROUP_STATE CONNECTION2_
+    /* PUBLIC.CGS_CONNECTION_FK_INDEX_4: CONNECTION_ID = CONNECTION1_.ENTITY_ADDRESS */
+    ON 1=1
+WHERE ((CONNECTION0_.CONNECTION_ENTITY_ADDRESS = CONNECTION1_.ENTITY_ADDRESS)
+    AND (CONNECTION0_.ID = CONNECTION0_1_.ID))
+    AND ((CONNECTION2_.VALID_UNTIL > DATE '2030-03-05')
+    AND ((CONNECTION2_.VALID_FROM <= DATE '2030-03-05')
+    AND ((CONNECTION0_1_.PERIOD = DATE '2030-03-05')
+    AND (CONNECTION1_.ENTITY_ADDRESS = CONNECTION2_.CONNECTION_ID))));
+
+-- findUdiPowerContainers(period, empty, empty)
+-- JPQL: SELECT DISTINCT upc FROM UdiPowerContainer upc JOIN FETCH upc.udi udi JOIN udi.connection conn, ConnectionGroupState cgs WHERE conn.entityAddress = cgs.connection.entityAddress AND upc.period = :period AND cgs.validFrom <= :period AND cgs.validUntil > :period
+SELECT DISTINCT
+    UDIPOWERCO0_.ID AS ID2_19_0_,
+    UDI1_.ID AS ID1_39_1_,
+    UDIPOWERCO0_1_.FORECAST_ALLOCATED_FLEX_CONSUMPTION AS FORECAST3_19_0_,
+    UDIPOWERCO0_1_.FORECAST_ALLOCATED_FLEX_PRODUCTION AS FORECAST4_19_0_,
+    UDIPOWERCO0_1_.FORECAST_AVERAGE_CONSUMPTION AS FORECAST5_19_0_,
+    UDIPOWERCO0_1_.FORECAST_AVERAGE_PRODUCTION AS FORECAST6_19_0_,
+    UDIPOWERCO0_1_.FORECAST_POTENTIAL_FLEX_CONSUMPTION AS FORECAST7_19_0_,
+    UDIPOWERCO0_1_.FORECAST_POTENTIAL_FLEX_PRODUCTION AS FORECAST8_19_0_,
+    UDIPOWERCO0_1_.FORECAST_UNCONTROLLED_LOAD AS FORECAST9_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_AVERAGE_CONSUMPTION AS OBSERVE10_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_AVERAGE_PRODUCTION AS OBSERVE11_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_POTENTIAL_FLEX_CONSUMPTION AS OBSERVE12_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_POTENTIAL_FLEX_PRODUCTION AS OBSERVE13_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_UNCONTROLLED_LOAD AS OBSERVE14_19_0_,
+    UDIPOWERCO0_1_.PERIOD AS PERIOD15_19_0_,
+    UDIPOWERCO0_1_.PROFILE_AVERAGE_CONSUMPTION AS PROFILE16_19_0_,
+    UDIPOWERCO0_1_.PROFILE_AVERAGE_PRODUCTION AS PROFILE17_19_0_,
+    UDIPOWERCO0_1_.PROFILE_POTENTIAL_FLEX_CONSUMPTION AS PROFILE18_19_0_,
+    UDIPOWERCO0_1_.PROFILE_POTENTIAL_FLEX_PRODUCTION AS PROFILE19_19_0_,
+    UDIPOWERCO0_1_.PROFILE_UNCONTROLLED_LOAD AS PROFILE20_19_0_,
+    UDIPOWERCO0_1_.TIME_INDEX AS TIME_IN21_19_0_,
+    UDIPOWERCO0_.UDI_ID AS UDI_ID2_22_0_,
+    UDI1_.CONNECTION_ID AS CONNECTI7_39_1_,
+    UDI1_.DTU_SIZE AS DTU_SIZE2_39_1_,
+    UDI1_.ENDPOINT AS ENDPOINT3_39_1_,
+    UDI1_.PROFILE AS PROFILE4_39_1_,
+    UDI1_.VALID_FROM AS VALID_FR5_39_1_,
+    UDI1_.VALID_UNTIL AS VALID_UN6_39_1_
+FROM PUBLIC.POWER_CONTAINER UDIPOWERCO0_1_
+    /* PUBLIC.POWER_CONTAINER.tableScan */
+    /* WHERE UDIPOWERCO0_1_.PERIOD = DATE '2030-03-05'
+    */
+INNER JOIN PUBLIC.POWER_CONTAINER_UDI UDIPOWERCO0_
+    /* PUBLIC.PRIMARY_KEY_EC: ID = UDIPOWERCO0_1_.ID */
+    ON 1=1
+    /* WHERE UDIPOWERCO0_.ID = UDIPOWERCO0_1_.ID
+    */
+INNER JOIN PUBLIC.UDI UDI1_
+    /* PUBLIC.PRIMARY_KEY_14: ID = UDIPOWERCO0_.UDI_ID
+        AND ID = UDIPOWERCO0_.UDI_ID
+     */
+    ON 1=1
+    /* WHERE UDIPOWERCO0_.UDI_ID = UDI1_.ID
+    */
+INNER JOIN PUBLIC.CONNECTION CONNECTION2_
+    /* PUBLIC.PRIMARY_KEY_E: ENTITY_ADDRESS = UDI1_.CONNECTION_ID
+        AND ENTITY_ADDRESS = UDI1_.CONNECTION_ID
+     */
+    ON 1=1
+    /* WHERE UDI1_.CONNECTION_ID = CONNECTION2_.ENTITY_ADDRESS
+    */
+INNER JOIN PUBLIC.CONNECTION_GROUP_STATE CONNECTION3_
+    /* PUBLIC.CGS_CONNECTION_FK_INDEX_4: CONNECTION_ID = CONNECTION2_.ENTITY_ADDRESS */
+    ON 1=1
+WHERE ((CONNECTION3_.VALID_UNTIL > DATE '2030-03-05')
+    AND ((CONNECTION3_.VALID_FROM <= DATE '2030-03-05')
+    AND ((UDIPOWERCO0_1_.PERIOD = DATE '2030-03-05')
+    AND (CONNECTION2_.ENTITY_ADDRESS = CONNECTION3_.CONNECTION_ID))))
+    AND ((UDI1_.CONNECTION_ID = CONNECTION2_.ENTITY_ADDRESS)
+    AND ((UDIPOWERCO0_.UDI_ID = UDI1_.ID)
+    AND (UDIPOWERCO0_.ID = UDIPOWERCO0_1_.ID)));
+
+-- findConnectionPowerContainers(startDate, endDate)
+-- JPQL: SELECT DISTINCT cpc FROM ConnectionPowerContainer cpc JOIN FETCH cpc.connection conn, ConnectionGroupState cgs WHERE conn.entityAddress = cgs.connection.entityAddress AND cpc.period BETWEEN :startDate AND :endDate AND cgs.validFrom <= cpc.period AND cgs.validUntil > cpc.period
+SELECT DISTINCT
+    CONNECTION0_.ID AS ID2_19_0_,
+    CONNECTION1_.ENTITY_ADDRESS AS ENTITY_A1_1_1_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_CONSUMPTION AS FORECAST3_19_0_,
+    CONNECTION0_1_.FORECAST_ALLOCATED_FLEX_PRODUCTION AS FORECAST4_19_0_,
+    CONNECTION0_1_.FORECAST_AVERAGE_CONSUMPTION AS FORECAST5_19_0_,
+    CONNECTION0_1_.FORECAST_AVERAGE_PRODUCTION AS FORECAST6_19_0_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_CONSUMPTION AS FORECAST7_19_0_,
+    CONNECTION0_1_.FORECAST_POTENTIAL_FLEX_PRODUCTION AS FORECAST8_19_0_,
+    CONNECTION0_1_.FORECAST_UNCONTROLLED_LOAD AS FORECAST9_19_0_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_CONSUMPTION AS OBSERVE10_19_0_,
+    CONNECTION0_1_.OBSERVED_AVERAGE_PRODUCTION AS OBSERVE11_19_0_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_CONSUMPTION AS OBSERVE12_19_0_,
+    CONNECTION0_1_.OBSERVED_POTENTIAL_FLEX_PRODUCTION AS OBSERVE13_19_0_,
+    CONNECTION0_1_.OBSERVED_UNCONTROLLED_LOAD AS OBSERVE14_19_0_,
+    CONNECTION0_1_.PERIOD AS PERIOD15_19_0_,
+    CONNECTION0_1_.PROFILE_AVERAGE_CONSUMPTION AS PROFILE16_19_0_,
+    CONNECTION0_1_.PROFILE_AVERAGE_PRODUCTION AS PROFILE17_19_0_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_CONSUMPTION AS PROFILE18_19_0_,
+    CONNECTION0_1_.PROFILE_POTENTIAL_FLEX_PRODUCTION AS PROFILE19_19_0_,
+    CONNECTION0_1_.PROFILE_UNCONTROLLED_LOAD AS PROFILE20_19_0_,
+    CONNECTION0_1_.TIME_INDEX AS TIME_IN21_19_0_,
+    CONNECTION0_.CONNECTION_ENTITY_ADDRESS AS CONNECTI2_20_0_
+FROM PUBLIC.POWER_CONTAINER CONNECTION0_1_
+    /* PUBLIC.POWER_CONTAINER.tableScan */
+    /* WHERE (CONNECTION0_1_.PERIOD >= DATE '2030-03-05')
+        AND (CONNECTION0_1_.PERIOD <= DATE '2030-03-05')
+    */
+INNER JOIN PUBLIC.POWER_CONTAINER_CONNECTION CONNECTION0_
+    /* PUBLIC.PRIMARY_KEY_E0: ID = CONNECTION0_1_.ID */
+    ON 1=1
+    /* WHERE CONNECTION0_.ID = CONNECTION0_1_.ID
+    */
+INNER JOIN PUBLIC.CONNECTION CONNECTION1_
+    /* PUBLIC.PRIMARY_KEY_E: ENTITY_ADDRESS = CONNECTION0_.CONNECTION_ENTITY_ADDRESS
+        AND ENTITY_ADDRESS = CONNECTION0_.CONNECTION_ENTITY_ADDRESS
+     */
+    ON 1=1
+    /* WHERE CONNECTION0_.CONNECTION_ENTITY_ADDRESS = CONNECTION1_.ENTITY_ADDRESS
+    */
+INNER JOIN PUBLIC.CONNECTION_GROUP_STATE CONNECTION2_
+    /* PUBLIC.CGS_CONNECTION_FK_INDEX_4: CONNECTION_ID = CONNECTION1_.ENTITY_ADDRESS */
+    ON 1=1
+WHERE ((CONNECTION0_.CONNECTION_ENTITY_ADDRESS = CONNECTION1_.ENTITY_ADDRESS)
+    AND (CONNECTION0_.ID = CONNECTION0_1_.ID))
+    AND ((CONNECTION2_.VALID_UNTIL > CONNECTION0_1_.PERIOD)
+    AND ((CONNECTION2_.VALID_FROM <= CONNECTION0_1_.PERIOD)
+    AND ((CONNECTION1_.ENTITY_ADDRESS = CONNECTION2_.CONNECTION_ID)
+    AND ((CONNECTION0_1_.PERIOD >= DATE '2030-03-05')
+    AND (CONNECTION0_1_.PERIOD <= DATE '2030-03-05')))));
+
+-- findUdiPowerContainers(startDate, endDate)
+-- JPQL: SELECT DISTINCT upc FROM UdiPowerContainer upc JOIN FETCH upc.udi udi JOIN udi.connection conn, ConnectionGroupState cgs WHERE conn.entityAddress = cgs.connection.entityAddress AND upc.period BETWEEN :startDate AND :endDate AND cgs.validFrom <= upc.period AND cgs.validUntil > upc.period
+SELECT DISTINCT
+    UDIPOWERCO0_.ID AS ID2_19_0_,
+    UDI1_.ID AS ID1_39_1_,
+    UDIPOWERCO0_1_.FORECAST_ALLOCATED_FLEX_CONSUMPTION AS FORECAST3_19_0_,
+    UDIPOWERCO0_1_.FORECAST_ALLOCATED_FLEX_PRODUCTION AS FORECAST4_19_0_,
+    UDIPOWERCO0_1_.FORECAST_AVERAGE_CONSUMPTION AS FORECAST5_19_0_,
+    UDIPOWERCO0_1_.FORECAST_AVERAGE_PRODUCTION AS FORECAST6_19_0_,
+    UDIPOWERCO0_1_.FORECAST_POTENTIAL_FLEX_CONSUMPTION AS FORECAST7_19_0_,
+    UDIPOWERCO0_1_.FORECAST_POTENTIAL_FLEX_PRODUCTION AS FORECAST8_19_0_,
+    UDIPOWERCO0_1_.FORECAST_UNCONTROLLED_LOAD AS FORECAST9_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_AVERAGE_CONSUMPTION AS OBSERVE10_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_AVERAGE_PRODUCTION AS OBSERVE11_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_POTENTIAL_FLEX_CONSUMPTION AS OBSERVE12_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_POTENTIAL_FLEX_PRODUCTION AS OBSERVE13_19_0_,
+    UDIPOWERCO0_1_.OBSERVED_UNCONTROLLED_LOAD AS OBSERVE14_19_0_,
+    UDIPOWERCO0_1_.PERIOD AS PERIOD15_19_0_,
+    UDIPOWERCO0_1_.PROFILE_AVERAGE_CONSUMPTION AS PROFILE16_19_0_,
+    UDIPOWERCO0_1_.PROFILE_AVERAGE_PRODUCTION AS PROFILE17_19_0_,
+    UDIPOWERCO0_1_.PROFILE_POTENTIAL_FLEX_CONSUMPTION AS PROFILE18_19_0_,
+    UDIPOWERCO0_1_.PROFILE_POTENTIAL_FLEX_PRODUCTION AS PROFILE19_19_0_,
+    UDIPOWERCO0_1_.PROFILE_UNCONTROLLED_LOAD AS PROFILE20_19_0_,
+    UDIPOWERCO0_1_.TIME_INDEX AS TIME_IN21_19_0_,
+    UDIPOWERCO0_.UDI_ID AS UDI_ID2_22_0_,
+    UDI1_.CONNECTION_ID AS CONNECTI7_39_1_,
+    UDI1_.DTU_SIZE AS DTU_SIZE2_39_1_,
+    UDI1_.ENDPOINT AS ENDPOINT3_39_1_,
+    UDI1_.PROFILE AS PROFILE4_39_1_,
+    UDI1_.VALID_FROM AS VALID_FR5_39_1_,
+    UDI1_.VALID_UNTIL AS VALID_UN6_39_1_
+FROM PUBLIC.POWER_CONTAINER UDIPOWERCO0_1_
+    /* PUBLIC.POWER_CONTAINER.tableScan */
+    /* WHERE (UDIPOWERCO0_1_.PERIOD >= DATE '2030-03-05')
+        AND (UDIPOWERCO0_1_.PERIOD <= DATE '2030-03-05')
+    */
+INNER JOIN PUBLIC.POWER_CONTAINER_UDI UDIPOWERCO0_
+    /* PUBLIC.PRIMARY_KEY_EC: ID = UDIPOWERCO0_1_.ID */
+    ON 1=1
+    /* WHERE UDIPOWERCO0_.ID = UDIPOWERCO0_1_.ID
+    */
+INNER JOIN PUBLIC.UDI UDI1_
+    /* PUBLIC.PRIMARY_KEY_14: ID = UDIPOWERCO0_.UDI_ID
+        AND ID = UDIPOWERCO0_.UDI_ID
+     */
+    ON 1=1
+    /* WHERE UDIPOWERCO0_.UDI_ID = UDI1_.ID
+    */
+INNER JOIN PUBLIC.CONNECTION CONNECTION2_
+    /* PUBLIC.PRIMARY_KEY_E: ENTITY_ADDRESS = UDI1_.CONNECTION_ID
+        AND ENTITY_ADDRESS = UDI1_.CONNECTION_ID
+     */
+    ON 1=1
+    /* WHERE UDI1_.CONNECTION_ID = CONNECTION2_.ENTITY_ADDRESS
+    */
+INNER JOIN PUBLIC.CONNECTION_GROUP_STATE CONNECTION3_
+    /* PUBLIC.CGS_CONNECTION_FK_INDEX_4: CONNECTION_ID = CONNECTION2_.ENTITY_ADDRESS */
+    ON 1=1
+WHERE ((UDI1_.CONNECTION_ID = CONNECTION2_.ENTITY_ADDRESS)
+    AND ((UDIPOWERCO0_.UDI_ID = UDI1_.ID)
+    AND (UDIPOWERCO0_.ID = UDIPOWERCO0_1_.ID)))
+    AND ((CONNECTION3_.VALID_UNTIL > UDIPOWERCO0_1_.PERIOD)
+    AND ((CONNECTION3_.VALID_FROM <= UDIPOWERCO0_1_.PERIOD)
+    AND ((CONNECTION2_.ENTITY_ADDRESS = CONNECTION3_.CONNECTION_ID)
+    AND ((UDIPOWERCO0_1_.PERIOD >= DATE '2030-03-05')
+    AND (UDIPOWERCO0_1_.PERIOD <= DATE '2030-03-05')))));
+
@@ -29,6 +29,7 @@ public enum ConfigBrpParam {
     BRP_INITIALIZE_PLANBOARD_DAYS_AHEAD(Integer.class),
     BRP_FLEXORDER_INITIAL_DELAY_IN_SECONDS(Long.class),
     BRP_FLEXORDER_INTERVAL_IN_SECONDS(Long.class),
+    BRP_FLEXORDER_THREAD_POOL_SIZE(Integer.class),
     BRP_FINALIZE_APLANS_PTUS_BEFORE_GATE_CLOSURE(Integer.class),
     BRP_INITIATE_SETTLEMENT_TIME(String.class),
     BRP_INITIATE_SETTLEMENT_DAY_OF_MONTH(Integer.class),
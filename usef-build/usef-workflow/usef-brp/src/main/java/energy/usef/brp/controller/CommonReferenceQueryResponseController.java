@@ -24,8 +24,11 @@ import energy.usef.core.data.xml.bean.message.CommonReferenceQueryResponse;
 import energy.usef.core.data.xml.bean.message.DispositionSuccessFailure;
 import energy.usef.core.exception.BusinessException;
 import energy.usef.core.model.Message;
+import energy.usef.core.service.business.CommonReferenceQueryResponseAssemblerService;
 import energy.usef.core.service.business.CorePlanboardBusinessService;
 
+import java.util.Optional;
+
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 
@@ -44,6 +47,9 @@ public class CommonReferenceQueryResponseController extends BaseIncomingResponse
     @Inject
     private CorePlanboardBusinessService corePlanboardBusinessService;
 
+    @Inject
+    private CommonReferenceQueryResponseAssemblerService commonReferenceQueryResponseAssemblerService;
+
     @Inject
     private ConfigBrp configBrp;
 
@@ -51,7 +57,13 @@ public class CommonReferenceQueryResponseController extends BaseIncomingResponse
      * {@inheritDoc}
      */
     @Override
-    public void action(CommonReferenceQueryResponse message, Message savedMessage) throws BusinessException {
+    public void action(CommonReferenceQueryResponse messagePart, Message savedMessage) throws BusinessException {
+        // a response which the CRO has split is processed once all its parts have been received.
+        Optional<CommonReferenceQueryResponse> response = commonReferenceQueryResponseAssemblerService.assemble(messagePart);
+        if (!response.isPresent()) {
+            return;
+        }
+        CommonReferenceQueryResponse message = response.get();
         LOGGER.info("Received a CommonReferenceQueryResponse from [{}] with result [{}].",
                 message.getMessageMetadata().getSenderDomain(), message.getResult().name());
         if (DispositionSuccessFailure.SUCCESS.equals(message.getResult())) {
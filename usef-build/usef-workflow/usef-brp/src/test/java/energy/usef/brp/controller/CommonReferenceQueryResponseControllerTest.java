@@ -26,6 +26,7 @@ import energy.usef.core.data.xml.bean.message.DispositionSuccessFailure;
 import energy.usef.core.data.xml.bean.message.USEFRole;
 import energy.usef.core.exception.BusinessException;
 import energy.usef.core.model.Message;
+import energy.usef.core.service.business.CommonReferenceQueryResponseAssemblerService;
 import energy.usef.core.service.business.CorePlanboardBusinessService;
 import energy.usef.core.service.business.MessageService;
 import energy.usef.core.service.helper.MessageMetadataBuilder;
@@ -66,6 +67,7 @@ public class CommonReferenceQueryResponseControllerTest {
     @Before
     public void init() {
         controller = new CommonReferenceQueryResponseController();
+        Whitebox.setInternalState(controller, new CommonReferenceQueryResponseAssemblerService());
         Whitebox.setInternalState(controller, configBrp);
         Whitebox.setInternalState(controller, corePlanboardBusinessService);
         Whitebox.setInternalState(controller, messageService);
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package energy.usef.brp.workflow.plan.flexorder.place;
+
+import energy.usef.brp.workflow.BrpWorkflowStep;
+import energy.usef.core.config.Config;
+import energy.usef.core.config.ConfigParam;
+import energy.usef.core.model.AcknowledgementStatus;
+import energy.usef.core.model.AgrConnectionGroup;
+import energy.usef.core.model.DocumentStatus;
+import energy.usef.core.model.DocumentType;
+import energy.usef.core.model.PlanboardMessage;
+import energy.usef.core.model.PtuContainer;
+import energy.usef.core.model.PtuFlexOffer;
+import energy.usef.core.service.business.CorePlanboardBusinessService;
+import energy.usef.core.service.business.SequenceGeneratorService;
+import energy.usef.core.service.helper.JMSHelperService;
+import energy.usef.core.util.DateTimeUtil;
+import energy.usef.core.workflow.WorkflowContext;
+import energy.usef.core.workflow.step.WorkflowStepExecuter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
+
+/**
+ * Test class in charge of the unit tests related to the {@link BrpConnectionGroupFlexOrderCoordinator} class.
+ */
+@RunWith(PowerMockRunner.class)
+public class BrpConnectionGroupFlexOrderCoordinatorTest {
+
+    private static final String AGR_DOMAIN = "agr1.usef-example.com";
+
+    @Mock
+    private Config config;
+    @Mock
+    private JMSHelperService jmsHelperService;
+    @Mock
+    private WorkflowStepExecuter workflowStepExecuter;
+    @Mock
+    private CorePlanboardBusinessService corePlanboardBusinessService;
+
+    private BrpConnectionGroupFlexOrderCoordinator coordinator;
+
+    @Before
+    public void init() {
+        coordinator = new BrpConnectionGroupFlexOrderCoordinator();
+        Whitebox.setInternalState(coordinator, config);
+        Whitebox.setInternalState(coordinator, jmsHelperService);
+        Whitebox.setInternalState(coordinator, workflowStepExecuter);
+        Whitebox.setInternalState(coordinator, corePlanboardBusinessService);
+        Whitebox.setInternalState(coordinator, new SequenceGeneratorService());
+
+        PowerMockito.when(config.getIntegerProperty(ConfigParam.PTU_DURATION)).thenReturn(15);
+    }
+
+    @Test
+    public void testPlaceFlexOrdersMarksOfferOfThisTransactionAsProcessed() {
+        PlanboardMessage offer = buildOffer();
+        PlanboardMessage managedOffer = buildOffer();
+        PowerMockito.when(corePlanboardBusinessService.findPtuFlexOffer(1L, AGR_DOMAIN)).thenReturn(buildPtuFlexOffers());
+        PowerMockito.when(corePlanboardBusinessService.findAPlansRelatedToFlexOffers(Matchers.any(), Matchers.eq(AGR_DOMAIN)))
+                .thenReturn(new HashMap<>());
+        PowerMockito.when(corePlanboardBusinessService.findSinglePlanboardMessage(1L, DocumentType.FLEX_OFFER, AGR_DOMAIN))
+                .thenReturn(managedOffer);
+        PowerMockito.when(workflowStepExecuter.invoke(Mockito.eq(BrpWorkflowStep.BRP_GET_NOT_DESIRABLE_FLEX_OFFERS.name()),
+                Mockito.any())).then(call -> {
+            WorkflowContext context = (WorkflowContext) call.getArguments()[1];
+            context.setValue(GetNotDesirableFlexOffersParameter.OUT.NOT_DESIRABLE_FLEX_OFFER_SEQUENCE_LIST.name(),
+                    new ArrayList<Long>());
+            return context;
+        });
+        PowerMockito.when(workflowStepExecuter.invoke(Mockito.eq(BrpWorkflowStep.BRP_PLACE_FLEX_ORDERS.name()), Mockito.any()))
+                .then(call -> {
+                    WorkflowContext context = (WorkflowContext) call.getArguments()[1];
+                    context.setValue(PlaceFlexOrdersStepParameter.OUT.ACCEPTED_FLEX_OFFER_SEQUENCE_LIST.name(),
+                            Collections.singletonList(1L));
+                    return context;
+                });
+
+        Assert.assertEquals(1, coordinator.placeFlexOrders(AGR_DOMAIN, Collections.singletonList(offer)));
+
+        Mockito.verify(corePlanboardBusinessService, Mockito.times(1)).storeFlexOrder(Matchers.eq(AGR_DOMAIN), Matchers.any(),
+                Matchers.eq(DocumentStatus.SENT), Matchers.eq(AGR_DOMAIN), Matchers.eq(AcknowledgementStatus.SENT));
+        Mockito.verify(jmsHelperService, Mockito.times(1)).sendMessageToOutQueue(Matchers.anyString());
+        Assert.assertEquals(DocumentStatus.PROCESSED, managedOffer.getDocumentStatus());
+    }
+
+    private PlanboardMessage buildOffer() {
+        PlanboardMessage offer = new PlanboardMessage();
+        offer.setSequence(1L);
+        offer.setParticipantDomain(AGR_DOMAIN);
+        offer.setDocumentType(DocumentType.FLEX_OFFER);
+        offer.setDocumentStatus(DocumentStatus.ACCEPTED);
+        offer.setConnectionGroup(new AgrConnectionGroup(AGR_DOMAIN));
+        return offer;
+    }
+
+    private Map<Integer, PtuFlexOffer> buildPtuFlexOffers() {
+        Map<Integer, PtuFlexOffer> ptuFlexOffers = new HashMap<>();
+        for (int i = 1; i <= 4; ++i) {
+            PtuContainer ptuContainer = new PtuContainer();
+            ptuContainer.setPtuDate(DateTimeUtil.getCurrentDate());
+            ptuContainer.setPtuIndex(i);
+            PtuFlexOffer ptuFlexOffer = new PtuFlexOffer();
+            ptuFlexOffer.setConnectionGroup(new AgrConnectionGroup(AGR_DOMAIN));
+            ptuFlexOffer.setPtuContainer(ptuContainer);
+            ptuFlexOffer.setPower(BigInteger.valueOf(800L));
+            ptuFlexOffer.setSequence(1L);
+            ptuFlexOffer.setPrice(BigDecimal.valueOf(100d));
+            ptuFlexOffers.put(i, ptuFlexOffer);
+        }
+        return ptuFlexOffers;
+    }
+}
@@ -17,10 +17,12 @@
 package energy.usef.brp.workflow.plan.flexorder.place;
 
 import energy.usef.brp.config.ConfigBrp;
+import energy.usef.brp.config.ConfigBrpParam;
 import energy.usef.brp.service.business.BrpPlanboardBusinessService;
 import energy.usef.brp.workflow.BrpWorkflowStep;
 import energy.usef.core.config.Config;
 import energy.usef.core.config.ConfigParam;
+import energy.usef.core.data.xml.bean.message.FlexOrder;
 import energy.usef.core.model.AgrConnectionGroup;
 import energy.usef.core.model.ConnectionGroup;
 import energy.usef.core.model.DocumentStatus;
@@ -35,6 +37,7 @@ import energy.usef.core.service.business.CorePlanboardBusinessService;
 import energy.usef.core.service.business.SequenceGeneratorService;
 import energy.usef.core.service.helper.JMSHelperService;
 import energy.usef.core.util.DateTimeUtil;
+import energy.usef.core.util.XMLUtil;
 import energy.usef.core.workflow.WorkflowContext;
 import energy.usef.core.workflow.WorkflowStep;
 import energy.usef.core.workflow.step.WorkflowStepExecuter;
@@ -43,9 +46,13 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -92,20 +99,25 @@ public class BrpFlexOrderCoordinatorTest {
 
     @Before
     public void init() {
-        coordinator = new BrpFlexOrderCoordinator();
+        BrpConnectionGroupFlexOrderCoordinator connectionGroupCoordinator = new BrpConnectionGroupFlexOrderCoordinator();
         SequenceGeneratorService sequenceGeneratorService = new SequenceGeneratorService();
-        Whitebox.setInternalState(coordinator, config);
+        Whitebox.setInternalState(connectionGroupCoordinator, config);
+        Whitebox.setInternalState(connectionGroupCoordinator, jmsHelperService);
+        Whitebox.setInternalState(connectionGroupCoordinator, workflowStubLoader);
+        Whitebox.setInternalState(connectionGroupCoordinator, corePlanboardBusinessService);
+        Whitebox.setInternalState(connectionGroupCoordinator, sequenceGeneratorService);
+
+        coordinator = new BrpFlexOrderCoordinator();
         Whitebox.setInternalState(coordinator, configBrp);
         Whitebox.setInternalState(coordinator, brpPlanboardBusinessService);
-        Whitebox.setInternalState(coordinator, jmsHelperService);
-        Whitebox.setInternalState(coordinator, workflowStubLoader);
-        Whitebox.setInternalState(coordinator, corePlanboardBusinessService);
-        Whitebox.setInternalState(coordinator, sequenceGeneratorService);
+        Whitebox.setInternalState(coordinator, connectionGroupCoordinator);
 
         PowerMockito.when(config.getIntegerProperty(ConfigParam.PTU_DURATION)).thenReturn(15);
+        PowerMockito.when(configBrp.getIntegerProperty(ConfigBrpParam.BRP_FLEXORDER_THREAD_POOL_SIZE)).thenReturn(4);
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     public void testHandleEventPlacesOneOrder() {
         // stubbing of the brpPlanboardBusinessService
         PowerMockito.when(brpPlanboardBusinessService.findOrderableFlexOffers()).thenReturn(buildProcessableFlexOffers());
@@ -127,8 +139,9 @@ public class BrpFlexOrderCoordinatorTest {
                 return mockNotDesirableFlexOffersWorkflowContext(context, new ArrayList<>());
             }
         });
-        PowerMockito.when(corePlanboardBusinessService.findAPlanRelatedToFlexOffer(Matchers.any(), Matchers.anyString()))
-                .then(call -> buildAplan((Long) call.getArguments()[0], (String) call.getArguments()[1]));
+        PowerMockito.when(corePlanboardBusinessService.findAPlansRelatedToFlexOffers(Matchers.any(), Matchers.anyString()))
+                .then(call -> ((Collection<Long>) call.getArguments()[0]).stream().collect(Collectors.toMap(Function.identity(),
+                        sequence -> buildAplan(sequence, (String) call.getArguments()[1]))));
 
         PowerMockito.when(corePlanboardBusinessService.findPtuFlexOffer(Matchers.eq(1L), Matchers.eq(AGR1_DOMAIN))).thenReturn(
                 buildAggregatorPtuFlexOffers(1l, AGR1_DOMAIN));
@@ -141,11 +154,107 @@ public class BrpFlexOrderCoordinatorTest {
         ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
         Mockito.verify(jmsHelperService, Mockito.times(2)).sendMessageToOutQueue(messageCaptor.capture());
 
+        Mockito.verify(corePlanboardBusinessService, Mockito.times(1))
+                .findAPlansRelatedToFlexOffers(Matchers.any(), Matchers.eq(AGR1_DOMAIN));
+        Mockito.verify(corePlanboardBusinessService, Mockito.times(1))
+                .findAPlansRelatedToFlexOffers(Matchers.any(), Matchers.eq(AGR2_DOMAIN));
+        Mockito.verify(corePlanboardBusinessService, Mockito.never())
+                .findAPlanRelatedToFlexOffer(Matchers.any(), Matchers.anyString());
+
         String xmlMessage = messageCaptor.getValue();
         Assert.assertNotNull(xmlMessage);
         LOGGER.debug(xmlMessage);
     }
 
+    @Test
+    public void testHandleEventPlacesOrdersOfOtherConnectionGroupsWhenOneFails() {
+        stubOrderableFlexOffersWithoutNotDesirableOffers();
+        PowerMockito.when(workflowStubLoader.invoke(Mockito.eq(BrpWorkflowStep.BRP_PLACE_FLEX_ORDERS.name()), Mockito.any()))
+                .then(call -> {
+                    WorkflowContext context = (WorkflowContext) call.getArguments()[1];
+                    if (AGR1_DOMAIN.equals(context.getValue(PlaceFlexOrdersStepParameter.IN.CONNECTION_GROUP_IDENTIFIER.name()))) {
+                        throw new IllegalStateException("PBC failure for " + AGR1_DOMAIN);
+                    }
+                    context.setValue(PlaceFlexOrdersStepParameter.OUT.ACCEPTED_FLEX_OFFER_SEQUENCE_LIST.name(),
+                            Collections.singletonList(2L));
+                    return context;
+                });
+
+        coordinator.handleEvent(new FlexOrderEvent());
+
+        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jmsHelperService, Mockito.times(1)).sendMessageToOutQueue(messageCaptor.capture());
+        FlexOrder flexOrder = XMLUtil.xmlToMessage(messageCaptor.getValue(), FlexOrder.class);
+        Assert.assertEquals(AGR2_DOMAIN, flexOrder.getMessageMetadata().getRecipientDomain());
+        Assert.assertEquals(2L, flexOrder.getFlexOfferSequence());
+    }
+
+    @Test
+    public void testHandleEventWithThreadPoolSizeLowerThanOne() {
+        PowerMockito.when(configBrp.getIntegerProperty(ConfigBrpParam.BRP_FLEXORDER_THREAD_POOL_SIZE)).thenReturn(0);
+        stubOrderableFlexOffersWithoutNotDesirableOffers();
+        PowerMockito.when(workflowStubLoader.invoke(Mockito.eq(BrpWorkflowStep.BRP_PLACE_FLEX_ORDERS.name()), Mockito.any()))
+                .then(call -> {
+                    WorkflowContext context = (WorkflowContext) call.getArguments()[1];
+                    boolean firstConnectionGroup = AGR1_DOMAIN.equals(
+                            context.getValue(PlaceFlexOrdersStepParameter.IN.CONNECTION_GROUP_IDENTIFIER.name()));
+                    context.setValue(PlaceFlexOrdersStepParameter.OUT.ACCEPTED_FLEX_OFFER_SEQUENCE_LIST.name(),
+                            Collections.singletonList(firstConnectionGroup ? 1L : 2L));
+                    return context;
+                });
+
+        coordinator.handleEvent(new FlexOrderEvent());
+
+        // the connection groups are processed one by one.
+        Mockito.verify(jmsHelperService, Mockito.times(2)).sendMessageToOutQueue(Matchers.anyString());
+    }
+
+    @Test(timeout = 10000)
+    public void testHandleEventPlacesOrdersOfConnectionGroupsInParallel() {
+        stubOrderableFlexOffersWithoutNotDesirableOffers();
+        // the placement of the first connection group only finishes once the order of the second one has been sent.
+        CountDownLatch secondOrderSent = new CountDownLatch(1);
+        PowerMockito.when(workflowStubLoader.invoke(Mockito.eq(BrpWorkflowStep.BRP_PLACE_FLEX_ORDERS.name()), Mockito.any()))
+                .then(call -> {
+                    WorkflowContext context = (WorkflowContext) call.getArguments()[1];
+                    if (AGR1_DOMAIN.equals(context.getValue(PlaceFlexOrdersStepParameter.IN.CONNECTION_GROUP_IDENTIFIER.name()))) {
+                        Assert.assertTrue(secondOrderSent.await(5, TimeUnit.SECONDS));
+                        context.setValue(PlaceFlexOrdersStepParameter.OUT.ACCEPTED_FLEX_OFFER_SEQUENCE_LIST.name(),
+                                Collections.singletonList(1L));
+                    } else {
+                        context.setValue(PlaceFlexOrdersStepParameter.OUT.ACCEPTED_FLEX_OFFER_SEQUENCE_LIST.name(),
+                                Collections.singletonList(2L));
+                    }
+                    return context;
+                });
+        Mockito.doAnswer(call -> {
+            if (XMLUtil.xmlToMessage((String) call.getArguments()[0], FlexOrder.class).getFlexOfferSequence() == 2L) {
+                secondOrderSent.countDown();
+            }
+            return null;
+        }).when(jmsHelperService).sendMessageToOutQueue(Matchers.anyString());
+
+        coordinator.handleEvent(new FlexOrderEvent());
+
+        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jmsHelperService, Mockito.times(2)).sendMessageToOutQueue(messageCaptor.capture());
+        Assert.assertEquals(2L, XMLUtil.xmlToMessage(messageCaptor.getAllValues().get(0), FlexOrder.class).getFlexOfferSequence());
+        Assert.assertEquals(1L, XMLUtil.xmlToMessage(messageCaptor.getAllValues().get(1), FlexOrder.class).getFlexOfferSequence());
+    }
+
+    private void stubOrderableFlexOffersWithoutNotDesirableOffers() {
+        PowerMockito.when(brpPlanboardBusinessService.findOrderableFlexOffers()).thenReturn(buildProcessableFlexOffers());
+        PowerMockito.when(workflowStubLoader.invoke(Mockito.eq(BrpWorkflowStep.BRP_GET_NOT_DESIRABLE_FLEX_OFFERS.name()),
+                Mockito.any())).then(call -> mockNotDesirableFlexOffersWorkflowContext((WorkflowContext) call.getArguments()[1],
+                new ArrayList<>()));
+        PowerMockito.when(corePlanboardBusinessService.findAPlansRelatedToFlexOffers(Matchers.any(), Matchers.anyString()))
+                .thenReturn(new HashMap<>());
+        PowerMockito.when(corePlanboardBusinessService.findPtuFlexOffer(Matchers.eq(1L), Matchers.eq(AGR1_DOMAIN)))
+                .thenReturn(buildAggregatorPtuFlexOffers(1L, AGR1_DOMAIN));
+        PowerMockito.when(corePlanboardBusinessService.findPtuFlexOffer(Matchers.eq(2L), Matchers.eq(AGR2_DOMAIN)))
+                .thenReturn(buildAggregatorPtuFlexOffers(2L, AGR2_DOMAIN));
+    }
+
     private PlanboardMessage buildAplan(long sequence, String agr) {
         PlanboardMessage aPlan = new PlanboardMessage();
         aPlan.setSequence(sequence);
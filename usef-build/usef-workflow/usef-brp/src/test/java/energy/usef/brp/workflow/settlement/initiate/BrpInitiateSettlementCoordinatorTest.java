@@ -20,7 +20,6 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -102,14 +101,6 @@ public class BrpInitiateSettlementCoordinatorTest {
         Whitebox.setInternalState(coordinator, brpBusinessService);
         Whitebox.setInternalState(coordinator, sequenceGeneratorService);
         Whitebox.setInternalState(coordinator, "checkInitiateSettlementDoneEvent", checkInitiateSettlementDoneEvent);
-        when(coreSettlementBusinessService.findRelevantPrognoses(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
-        when(coreSettlementBusinessService.findRelevantFlexRequests(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
-        when(coreSettlementBusinessService.findRelevantFlexOffers(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
-        when(coreSettlementBusinessService.findRelevantFlexOrders(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
         when(configDso.getIntegerProperty(ConfigBrpParam.BRP_METER_DATA_QUERY_EXPIRATION_IN_HOURS)).thenReturn(12);
         when(workflowStepExecuter.invoke(eq(BrpWorkflowStep.BRP_INITIATE_SETTLEMENT.name()),
                 any(WorkflowContext.class))).then(call -> {
@@ -23,7 +23,8 @@ package energy.usef.cro.config;
  * define the config parameter more type safe (before a string value was used).
  */
 public enum ConfigCroParam {
-    COMMON_REFERENCE_MODE(String.class);
+    COMMON_REFERENCE_MODE(String.class),
+    COMMON_REFERENCE_QUERY_RESPONSE_MAX_CONNECTIONS(Integer.class);
 
     private Class<?> propertyClass;
 
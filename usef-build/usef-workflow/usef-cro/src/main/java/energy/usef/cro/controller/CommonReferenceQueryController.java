@@ -34,7 +34,6 @@ import energy.usef.core.model.Message;
 import energy.usef.core.service.helper.JMSHelperService;
 import energy.usef.core.service.helper.MessageMetadataBuilder;
 import energy.usef.core.util.DateTimeUtil;
-import energy.usef.core.util.XMLUtil;
 import energy.usef.cro.config.ConfigCro;
 import energy.usef.cro.config.ConfigCroParam;
 import energy.usef.cro.model.Connection;
@@ -107,8 +106,13 @@ public class CommonReferenceQueryController extends BaseIncomingMessageControlle
             handleBRPQuery(request, response, closedMode);
         }
 
-        LOGGER.debug("CommonReferenceQuery request processed, sending message to out queue");
-        jmsHelperService.sendMessageToOutQueue(XMLUtil.messageObjectToXml(response));
+        // every part of a split response has its own message ID, all of them share the conversation ID of the query.
+        CommonReferenceQueryResponseWriter responseWriter = new CommonReferenceQueryResponseWriter(
+                () -> messageMetadataBuilder.messageID().timeStamp().build(),
+                configCro.getIntegerProperty(ConfigCroParam.COMMON_REFERENCE_QUERY_RESPONSE_MAX_CONNECTIONS),
+                jmsHelperService::sendMessageToOutQueue);
+        int messageCount = responseWriter.write(response);
+        LOGGER.debug("CommonReferenceQuery request processed, {} message(s) sent to out queue", messageCount);
     }
 
     private void handleBRPQuery(CommonReferenceQuery request, CommonReferenceQueryResponse response, boolean closedMode) {
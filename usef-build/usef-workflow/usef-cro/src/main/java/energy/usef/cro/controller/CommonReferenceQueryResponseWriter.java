@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.cro.controller;
+
+import energy.usef.core.data.xml.bean.message.CommonReferenceQueryResponse;
+import energy.usef.core.data.xml.bean.message.CongestionPoint;
+import energy.usef.core.data.xml.bean.message.Connection;
+import energy.usef.core.data.xml.bean.message.MessageMetadata;
+import energy.usef.core.util.XMLUtil;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Writes a {@link CommonReferenceQueryResponse} as one or more messages of at most a maximum number of connections. When the
+ * response is split, every part gets its own {@link MessageMetadata} from the given supplier, which is expected to give the
+ * conversation ID of the query to all the parts, and the PartIndex and PartCount attributes, so that the receiver can reassemble
+ * the response. A response which is not split is sent as it is, without these attributes.
+ * <p>
+ * A congestion point is never split over several parts, a congestion point with more connections than the maximum is sent in a
+ * part of its own.
+ */
+public class CommonReferenceQueryResponseWriter {
+
+    private final Supplier<MessageMetadata> messageMetadataSupplier;
+    private final int maxConnectionsPerMessage;
+    private final Consumer<String> messageSender;
+
+    /**
+     * Creates a writer for responses.
+     *
+     * @param messageMetadataSupplier {@link Supplier} of the {@link MessageMetadata} of each part.
+     * @param maxConnectionsPerMessage the maximum number of connections per message, less than 1 when a response may not be
+     * split.
+     * @param messageSender {@link Consumer} sending each message (xml).
+     */
+    public CommonReferenceQueryResponseWriter(Supplier<MessageMetadata> messageMetadataSupplier, int maxConnectionsPerMessage,
+            Consumer<String> messageSender) {
+        this.messageMetadataSupplier = messageMetadataSupplier;
+        this.maxConnectionsPerMessage = maxConnectionsPerMessage;
+        this.messageSender = messageSender;
+    }
+
+    /**
+     * Sends the response, split into parts when it has more connections than the maximum.
+     *
+     * @param response the complete {@link CommonReferenceQueryResponse}.
+     * @return the number of messages sent.
+     */
+    public int write(CommonReferenceQueryResponse response) {
+        List<CommonReferenceQueryResponse> parts = split(response);
+        parts.stream().map(XMLUtil::messageObjectToXml).forEach(messageSender);
+        return parts.size();
+    }
+
+    private List<CommonReferenceQueryResponse> split(CommonReferenceQueryResponse response) {
+        List<CommonReferenceQueryResponse> parts = new ArrayList<>();
+        if (maxConnectionsPerMessage < 1) {
+            parts.add(response);
+            return parts;
+        }
+
+        CommonReferenceQueryResponse part = null;
+        int connectionsInPart = 0;
+        for (CongestionPoint congestionPoint : response.getCongestionPoint()) {
+            // a congestion point counts as one connection when it has none (e.g. in a response to a DSO)
+            int connections = Math.max(1, congestionPoint.getConnection().size());
+            if (part == null || connectionsInPart + connections > maxConnectionsPerMessage) {
+                part = newPart(response, parts);
+                connectionsInPart = 0;
+            }
+            part.getCongestionPoint().add(congestionPoint);
+            connectionsInPart += connections;
+        }
+        for (Connection connection : response.getConnection()) {
+            if (part == null || connectionsInPart + 1 > maxConnectionsPerMessage) {
+                part = newPart(response, parts);
+                connectionsInPart = 0;
+            }
+            part.getConnection().add(connection);
+            connectionsInPart++;
+        }
+
+        if (parts.size() <= 1) {
+            parts.clear();
+            parts.add(response);
+            return parts;
+        }
+        parts.get(0).getAny().addAll(response.getAny());
+        BigInteger partCount = BigInteger.valueOf(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            parts.get(i).setPartIndex(BigInteger.valueOf(i + 1L));
+            parts.get(i).setPartCount(partCount);
+        }
+        return parts;
+    }
+
+    private CommonReferenceQueryResponse newPart(CommonReferenceQueryResponse response, List<CommonReferenceQueryResponse> parts) {
+        CommonReferenceQueryResponse part = new CommonReferenceQueryResponse();
+        part.setMessageMetadata(messageMetadataSupplier.get());
+        part.setResult(response.getResult());
+        part.setMessage(response.getMessage());
+        parts.add(part);
+        return part;
+    }
+}
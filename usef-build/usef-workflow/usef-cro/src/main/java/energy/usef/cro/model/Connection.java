@@ -16,12 +16,15 @@
 
 package energy.usef.cro.model;
 
+import java.util.Locale;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
@@ -30,7 +33,8 @@ import javax.persistence.Table;
  * Entity class {@link Connection}: This class is a representation of a Connection for the CRO role.
  */
 @Entity
-@Table(name = "CONNECTION")
+@Table(name = "CONNECTION", indexes = {
+        @Index(name = "CON_NORM_ENTITY_ADDRESS_IDX", columnList = "NORMALISED_ENTITY_ADDRESS", unique = false) })
 public class Connection {
 
     @Id
@@ -41,6 +45,9 @@ public class Connection {
     @Column(name = "ENTITY_ADDRESS", unique = true, nullable = false)
     private String entityAddress;
 
+    @Column(name = "NORMALISED_ENTITY_ADDRESS", nullable = false)
+    private String normalisedEntityAddress;
+
     @ManyToOne
     @JoinColumn(name = "CONGESTION_POINT_ID", foreignKey = @ForeignKey(name = "CNP_CGP_FK"), nullable = true)
     private CongestionPoint congestionPoint;
@@ -67,7 +74,7 @@ public class Connection {
      *
      */
     public Connection(String entityAddress) {
-        this.entityAddress = entityAddress;
+        setEntityAddress(entityAddress);
     }
 
     public Long getId() {
@@ -84,6 +91,11 @@ public class Connection {
 
     public void setEntityAddress(String entityAddress) {
         this.entityAddress = entityAddress;
+        this.normalisedEntityAddress = entityAddress == null ? null : normaliseEntityAddress(entityAddress);
+    }
+
+    public String getNormalisedEntityAddress() {
+        return normalisedEntityAddress;
     }
 
     public CongestionPoint getCongestionPoint() {
@@ -110,6 +122,16 @@ public class Connection {
         this.balanceResponsibleParty = balanceResponsibleParty;
     }
 
+    /**
+     * Normalises an entity address to compare it with other addresses regardless of their case.
+     *
+     * @param entityAddress entity address
+     * @return the lower-cased entity address.
+     */
+    public static String normaliseEntityAddress(String entityAddress) {
+        return entityAddress.toLowerCase(Locale.ROOT);
+    }
+
     @Override
     public String toString() {
         return "Connection" + "[" +
@@ -58,6 +58,10 @@ public class CongestionPointRepository extends BaseRepository<CongestionPoint> {
 
     /**
      * Gets CongestionPoints related to a DSO, either all or for a specific entityAdress.
+     * <p>
+     * The congestion points, their DSO and their connections (with aggregator and BRP) are fetched with one query returning a
+     * (congestion point, connection, aggregator) row per connection, the counts are computed from these rows. The connections of
+     * the returned congestion points are therefore initialized and can be used without loading them per congestion point.
      *
      * @param dsoDomain - The domain of the requesting party
      * @param entityAddress - (optional) The congestionPoint entity address
@@ -69,11 +73,13 @@ public class CongestionPointRepository extends BaseRepository<CongestionPoint> {
         Map<String, Object> parameters = new HashMap<>();
 
         StringBuilder sql = new StringBuilder();
-        sql.append("SELECT cp, aggregator, count(connections) ");
+        sql.append("SELECT cp, connection.id, aggregator ");
         sql.append("FROM CongestionPoint cp ");
-        sql.append("  LEFT JOIN cp.connections connections ");
-        sql.append("  LEFT JOIN connections.aggregator aggregator ");
-        sql.append("WHERE cp.distributionSystemOperator.domain = :dsoDomain ");
+        sql.append("  JOIN FETCH cp.distributionSystemOperator dso ");
+        sql.append("  LEFT JOIN FETCH cp.connections connection ");
+        sql.append("  LEFT JOIN connection.aggregator aggregator ");
+        sql.append("  LEFT JOIN FETCH connection.balanceResponsibleParty ");
+        sql.append("WHERE dso.domain = :dsoDomain ");
 
         parameters.put("dsoDomain", dsoDomain);
 
@@ -82,25 +88,27 @@ public class CongestionPointRepository extends BaseRepository<CongestionPoint> {
             parameters.put("entityAddress", entityAddress);
         }
 
-        sql.append("GROUP BY cp, aggregator ");
-
         Query query = entityManager.createQuery(sql.toString(), Object[].class);
         List<Object[]> resultList = addNamedParams(query, parameters).getResultList();
 
-        // Map Results to Maps
+        // Map Results to Maps, a congestion point without connections has a count of 0 for the null aggregator.
         Map<CongestionPoint, Map<Aggregator, Long>> resultsMap = new HashMap<>();
         for (Object[] row : resultList) {
-            CongestionPoint congestionPoint = (CongestionPoint) row[0];
-            if (!resultsMap.containsKey(congestionPoint)) {
-                resultsMap.put(congestionPoint, new HashMap<>());
+            Map<Aggregator, Long> aggregatorCounts = resultsMap.computeIfAbsent((CongestionPoint) row[0], cp -> new HashMap<>());
+            if (row[1] == null) {
+                aggregatorCounts.putIfAbsent(null, 0L);
+            } else {
+                aggregatorCounts.merge((Aggregator) row[2], 1L, Long::sum);
             }
-            resultsMap.get(congestionPoint).put((Aggregator) row[1], (Long) row[2]);
         }
         return resultsMap;
     }
 
     /**
      * Gets Connections and CongestionPoints related to an AGR, either all or for a specific entityAdress.
+     * <p>
+     * The connections are fetched with their congestion point (with DSO), aggregator and BRP in one query returning a
+     * (congestion point, connection, aggregator) row per connection.
      *
      * @param agrDomain - The domain of the requesting party
      * @param entityAddress - (optional) The congestionPoint entity address
@@ -110,29 +118,28 @@ public class CongestionPointRepository extends BaseRepository<CongestionPoint> {
     public Map<CongestionPoint, Set<Connection>> findConnectionsForCongestionPointsByAGR(String agrDomain, String entityAddress) {
         Map<String, Object> parameters = new HashMap<>();
 
-        String queryString = "SELECT connection FROM Connection connection "
-                + " WHERE connection.aggregator.domain = :agrDomain AND connection.congestionPoint != null";
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT cp, connection, aggregator ");
+        sql.append("FROM Connection connection ");
+        sql.append("  JOIN connection.congestionPoint cp ");
+        sql.append("  JOIN FETCH cp.distributionSystemOperator ");
+        sql.append("  JOIN connection.aggregator aggregator ");
+        sql.append("  LEFT JOIN FETCH connection.balanceResponsibleParty ");
+        sql.append("WHERE aggregator.domain = :agrDomain ");
         parameters.put("agrDomain", agrDomain);
 
         if (StringUtils.isNotEmpty(entityAddress)) {
-            queryString += " AND connection.congestionPoint.entityAddress = :entityAddress ";
+            sql.append("  AND cp.entityAddress = :entityAddress ");
             parameters.put("entityAddress", entityAddress);
         }
 
-        Query query = entityManager.createQuery(queryString, Object[].class);
-        List<Object> resultList = addNamedParams(query, parameters).getResultList();
+        Query query = entityManager.createQuery(sql.toString(), Object[].class);
+        List<Object[]> resultList = addNamedParams(query, parameters).getResultList();
 
         // Map Results to Maps
         Map<CongestionPoint, Set<Connection>> resultsMap = new HashMap<>();
-        for (Object object : resultList) {
-            Connection connection = (Connection) object;
-            if (!resultsMap.containsKey(connection.getCongestionPoint())) {
-                Set<Connection> set = new HashSet<>();
-                set.add(connection);
-                resultsMap.put(connection.getCongestionPoint(), set);
-            } else {
-                resultsMap.get(connection.getCongestionPoint()).add(connection);
-            }
+        for (Object[] row : resultList) {
+            resultsMap.computeIfAbsent((CongestionPoint) row[0], cp -> new HashSet<>()).add((Connection) row[1]);
         }
         return resultsMap;
     }
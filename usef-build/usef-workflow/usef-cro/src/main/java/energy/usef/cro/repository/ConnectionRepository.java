@@ -17,15 +17,27 @@
 package energy.usef.cro.repository;
 
 import energy.usef.core.repository.BaseRepository;
+import energy.usef.cro.model.CongestionPoint;
 import energy.usef.cro.model.Connection;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Connection Repository for CRO.
  */
 public class ConnectionRepository extends BaseRepository<Connection> {
 
+    /**
+     * Maximum number of entity addresses or ids bound to the IN clause of one query.
+     */
+    public static final int IN_CLAUSE_BATCH_SIZE = 1000;
+
     /**
      * Finds a Connection entity by an entity address.
      *
@@ -44,6 +56,107 @@ public class ConnectionRepository extends BaseRepository<Connection> {
         return result.get(0);
     }
 
+    /**
+     * Finds the {@link Connection}s with the given entity addresses, ignoring the case of the addresses. The addresses are
+     * looked up on the indexed normalised entity address (see {@link Connection#normaliseEntityAddress(String)}), in batches
+     * of {@value #IN_CLAUSE_BATCH_SIZE} addresses, so that only the connections of interest are loaded, whatever the case in
+     * which they are stored.
+     *
+     * @param entityAddresses the entity addresses of the connections.
+     * @return a {@link Map} of the normalised entity address to the {@link Connection}. When several connections only differ by
+     * the case of their address, the first one found is kept.
+     */
+    public Map<String, Connection> findConnectionsByEntityAddressIgnoreCase(Collection<String> entityAddresses) {
+        List<String> normalisedEntityAddresses = entityAddresses.stream()
+                .map(ConnectionRepository::normaliseEntityAddress)
+                .distinct()
+                .collect(Collectors.toList());
+
+        Map<String, Connection> result = new HashMap<>();
+        findConnectionsByEntityAddress(normalisedEntityAddresses, "SELECT c FROM Connection c ", "c.normalisedEntityAddress")
+                .forEach(connection -> result.putIfAbsent(connection.getNormalisedEntityAddress(), connection));
+        return result;
+    }
+
+    /**
+     * Finds the {@link Connection}s with the given entity addresses, together with their congestion point and its distribution
+     * system operator, their aggregator and their balance responsible party. The addresses are looked up in batches of
+     * {@value #IN_CLAUSE_BATCH_SIZE}.
+     *
+     * @param entityAddresses the entity addresses of the connections.
+     * @return a {@link Map} of the entity address to the {@link Connection}.
+     */
+    public Map<String, Connection> findConnectionsByEntityAddress(Collection<String> entityAddresses) {
+        return findConnectionsByEntityAddress(new ArrayList<>(entityAddresses), "SELECT c FROM Connection c "
+                + "LEFT JOIN FETCH c.congestionPoint cp LEFT JOIN FETCH cp.distributionSystemOperator "
+                + "LEFT JOIN FETCH c.aggregator LEFT JOIN FETCH c.balanceResponsibleParty ", "c.entityAddress").stream()
+                .collect(Collectors.toMap(Connection::getEntityAddress, Function.identity()));
+    }
+
+    private List<Connection> findConnectionsByEntityAddress(List<String> entityAddresses, String selectClause,
+            String entityAddressExpression) {
+        List<Connection> result = new ArrayList<>();
+        for (int fromIndex = 0; fromIndex < entityAddresses.size(); fromIndex += IN_CLAUSE_BATCH_SIZE) {
+            List<String> batch = entityAddresses.subList(fromIndex,
+                    Math.min(fromIndex + IN_CLAUSE_BATCH_SIZE, entityAddresses.size()));
+            result.addAll(entityManager.createQuery(selectClause + "WHERE " + entityAddressExpression + " IN :entityAddresses",
+                    Connection.class)
+                    .setParameter("entityAddresses", batch)
+                    .getResultList());
+        }
+        return result;
+    }
+
+    /**
+     * Removes the given {@link Connection}s from their congestion point. The connections with an aggregator are kept without
+     * congestion point, the other ones are deleted. This is done with one bulk update and one bulk delete per batch of
+     * {@value #IN_CLAUSE_BATCH_SIZE} connections, bypassing the persistence context.
+     *
+     * @param connectionIds the ids of the connections.
+     * @return the number of deleted connections.
+     */
+    public int removeConnectionsFromCongestionPoint(Collection<Long> connectionIds) {
+        List<Long> connectionIdList = new ArrayList<>(connectionIds);
+        int deleted = 0;
+        for (int fromIndex = 0; fromIndex < connectionIdList.size(); fromIndex += IN_CLAUSE_BATCH_SIZE) {
+            List<Long> batch = connectionIdList.subList(fromIndex,
+                    Math.min(fromIndex + IN_CLAUSE_BATCH_SIZE, connectionIdList.size()));
+            entityManager.createQuery("UPDATE Connection c SET c.congestionPoint = NULL "
+                    + "WHERE c.aggregator IS NOT NULL AND c.id IN :connectionIds")
+                    .setParameter("connectionIds", batch).executeUpdate();
+            deleted += entityManager.createQuery("DELETE FROM Connection c WHERE c.aggregator IS NULL AND c.id IN :connectionIds")
+                    .setParameter("connectionIds", batch).executeUpdate();
+        }
+        return deleted;
+    }
+
+    /**
+     * Removes all the {@link Connection}s of a congestion point, as {@link #removeConnectionsFromCongestionPoint(Collection)}
+     * does, with one bulk update and one bulk delete.
+     *
+     * @param congestionPoint the {@link CongestionPoint}.
+     * @return the number of deleted connections.
+     */
+    public int removeAllConnectionsFromCongestionPoint(CongestionPoint congestionPoint) {
+        entityManager.createQuery("UPDATE Connection c SET c.congestionPoint = NULL "
+                + "WHERE c.aggregator IS NOT NULL AND c.congestionPoint = :congestionPoint")
+                .setParameter("congestionPoint", congestionPoint).executeUpdate();
+        return entityManager.createQuery("DELETE FROM Connection c "
+                + "WHERE c.aggregator IS NULL AND c.congestionPoint = :congestionPoint")
+                .setParameter("congestionPoint", congestionPoint).executeUpdate();
+    }
+
+    /**
+     * Normalises an entity address to compare it with other addresses regardless of their case, see
+     * {@link Connection#normaliseEntityAddress(String)}.
+     *
+     * @param entityAddress entity address
+     * @return the lower-cased entity address.
+     */
+    public static String normaliseEntityAddress(String entityAddress) {
+        return Connection.normaliseEntityAddress(entityAddress);
+    }
+
     /**
      * Finds all the {@link Connection}s.
      *
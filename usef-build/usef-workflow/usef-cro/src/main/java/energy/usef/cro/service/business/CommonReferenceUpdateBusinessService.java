@@ -36,7 +36,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -100,7 +99,8 @@ public class CommonReferenceUpdateBusinessService {
         }
 
         Set<String> connectionXmlElementSet = createEntityAddressSetFromXml(message);
-        if (!validateConnections(message, connectionXmlElementSet, errors)) {
+        Map<String, Connection> connections = connectionRepository.findConnectionsByEntityAddress(connectionXmlElementSet);
+        if (!validateConnections(message, connectionXmlElementSet, connections, errors)) {
             LOGGER.debug("Errors validating Connections " + errors);
             return;
         }
@@ -116,7 +116,7 @@ public class CommonReferenceUpdateBusinessService {
         CongestionPoint congestionPoint = updateCongestionPoint(message);
 
         // Updating connections
-        updateConnections(congestionPoint, message, connectionXmlElementSet);
+        updateConnections(congestionPoint, message, connectionXmlElementSet, connections);
     }
 
     /**
@@ -261,7 +261,8 @@ public class CommonReferenceUpdateBusinessService {
             return;
         }
 
-        congestionPoint.getConnections().forEach(this::deleteConnection);
+        int deletedConnections = connectionRepository.removeAllConnectionsFromCongestionPoint(congestionPoint);
+        LOGGER.debug("Deleted {} connections of congestion point {}.", deletedConnections, entityAddress);
         congestionPointRepository.delete(congestionPoint);
 
         LOGGER.info("Deleted congestion point with the entity adress: {}", entityAddress);
@@ -347,12 +348,13 @@ public class CommonReferenceUpdateBusinessService {
         return errors.isEmpty();
     }
 
-    private boolean validateConnections(CommonReferenceUpdate message, Set<String> connectionXmlElementSet, List<String> errors) {
+    private boolean validateConnections(CommonReferenceUpdate message, Set<String> connectionXmlElementSet,
+            Map<String, Connection> connections, List<String> errors) {
         final String congestionPointEntityAddress = message.getEntityAddress();
         final String senderDomain = message.getMessageMetadata().getSenderDomain();
 
         for (String connectionEntityAddress : connectionXmlElementSet) {
-            Connection connection = connectionRepository.findConnectionByEntityAddress(connectionEntityAddress);
+            Connection connection = connections.get(connectionEntityAddress);
             if (connection != null && connection.getCongestionPoint() != null &&
                     !congestionPointEntityAddress.equals(connection.getCongestionPoint().getEntityAddress()) &&
                     !senderDomain.equals(connection.getCongestionPoint().getDistributionSystemOperator().getDomain())) {
@@ -385,7 +387,7 @@ public class CommonReferenceUpdateBusinessService {
     }
 
     private void updateConnections(CongestionPoint congestionPoint,
-            CommonReferenceUpdate message, Set<String> connectionXmlElementSet) {
+            CommonReferenceUpdate message, Set<String> connectionXmlElementSet, Map<String, Connection> connections) {
         LOGGER.debug("Update connection for congestionPoint {}", congestionPoint);
         Map<String, Connection> connectionToDeleteMap = getCongestionPointConnectionMap(congestionPoint);
 
@@ -395,7 +397,7 @@ public class CommonReferenceUpdateBusinessService {
                 connectionToDeleteMap.remove(entityAddress);
             } else {
                 // Looking for an unrelated connection or a connection related to another congestion point in the DB
-                Connection connection = connectionRepository.findConnectionByEntityAddress(entityAddress);
+                Connection connection = connections.get(entityAddress);
                 if (connection != null) {
                     // Set the connection in the DB
                     LOGGER.debug("Setting CongestionPoint {} for connection {}", congestionPoint, entityAddress);
@@ -412,7 +414,12 @@ public class CommonReferenceUpdateBusinessService {
         }
 
         // Deleting redundant connections
-        connectionToDeleteMap.values().forEach(this::deleteConnection);
+        if (!connectionToDeleteMap.isEmpty()) {
+            int deletedConnections = connectionRepository.removeConnectionsFromCongestionPoint(connectionToDeleteMap.values()
+                    .stream().map(Connection::getId).collect(Collectors.toList()));
+            LOGGER.debug("Removed {} connections from congestion point {}, {} of them deleted.", connectionToDeleteMap.size(),
+                    congestionPoint, deletedConnections);
+        }
 
         LOGGER.info("Updated connections for congestion point with entity address: {}", message.getEntityAddress());
     }
@@ -422,14 +429,12 @@ public class CommonReferenceUpdateBusinessService {
         if (message.getConnection().isEmpty()) {
             LOGGER.warn("No connections to update for {}", aggregator);
         }
-        List<Connection> connections = connectionRepository.findAll();
+        Map<String, Connection> connections = findConnectionsOfMessage(message);
         for (final energy.usef.core.data.xml.bean.message.Connection xmlConnection : message.getConnection()) {
-            Optional<Connection> optionalConnection = connections
-                    .stream()
-                    .filter(a -> a.getEntityAddress().equalsIgnoreCase(xmlConnection.getEntityAddress()))
-                    .findFirst();
+            String normalisedEntityAddress = ConnectionRepository.normaliseEntityAddress(xmlConnection.getEntityAddress());
+            Connection existingConnection = connections.get(normalisedEntityAddress);
 
-            if (!optionalConnection.isPresent()) {
+            if (existingConnection == null) {
                 if (xmlConnection.isIsCustomer()) {
                     LOGGER.debug("Creating connection with entity address {} for {}", xmlConnection.getEntityAddress(), aggregator);
                     // A new connection will be created.
@@ -437,12 +442,11 @@ public class CommonReferenceUpdateBusinessService {
                     connection.setEntityAddress(xmlConnection.getEntityAddress());
                     connection.setAggregator(aggregator);
                     connectionRepository.persist(connection);
-                // Assure that the newly created connection will be found in case of duplicates
-                connections.add(connection);
+                    // Assure that the newly created connection will be found in case of duplicates
+                    connections.put(normalisedEntityAddress, connection);
                 }
             } else {
-                Connection connection = optionalConnection.get();
-                updateConnectionWithAggregator(aggregator, xmlConnection, connection);
+                updateConnectionWithAggregator(aggregator, xmlConnection, existingConnection);
 
             }
             LOGGER.debug("Updated connections for {} and connection: {}", aggregator, xmlConnection.getEntityAddress());
@@ -480,16 +484,13 @@ public class CommonReferenceUpdateBusinessService {
             LOGGER.warn("No connections to update for {}", balanceResponsibleParty);
         }
 
-        List<Connection> connections = connectionRepository.findAll();
+        Map<String, Connection> connections = findConnectionsOfMessage(message);
 
         for (final energy.usef.core.data.xml.bean.message.Connection xmlConnection : message.getConnection()) {
+            String normalisedEntityAddress = ConnectionRepository.normaliseEntityAddress(xmlConnection.getEntityAddress());
+            Connection existingConnection = connections.get(normalisedEntityAddress);
 
-            Optional<Connection> optionalConnection = connections
-                    .stream()
-                    .filter(a -> a.getEntityAddress().equalsIgnoreCase(xmlConnection.getEntityAddress()))
-                    .findFirst();
-
-            if (!optionalConnection.isPresent()) {
+            if (existingConnection == null) {
                 // Connection does not exist and will be created
                 LOGGER.debug("Creating connection with entity address {} for {}", xmlConnection.getEntityAddress(),
                         balanceResponsibleParty);
@@ -500,28 +501,24 @@ public class CommonReferenceUpdateBusinessService {
                 connectionRepository.persist(connection);
 
                 // Assure that the newly created connection will be found in case of duplicates
-                connections.add(connection);
+                connections.put(normalisedEntityAddress, connection);
             } else {
                 LOGGER.debug("Updating connection with entity address {} for {}", xmlConnection.getEntityAddress(),
                         balanceResponsibleParty);
                 // Connection exists.
-                Connection connection = optionalConnection.get();
-                connection.setBalanceResponsibleParty(balanceResponsibleParty);
+                existingConnection.setBalanceResponsibleParty(balanceResponsibleParty);
             }
             LOGGER.debug("Updated connections for {} and connection: {}", balanceResponsibleParty, xmlConnection.getEntityAddress());
         }
     }
 
-    private void deleteConnection(Connection connection) {
-        if (connection.getAggregator() != null) {
-            // Connection has an aggregator, it can not be deleted
-            LOGGER.debug("Resetting CongestionPoint for connection " + connection);
-            connection.setCongestionPoint(null);
-        } else {
-            // No aggregator, connection can be deleted
-            LOGGER.debug("Deleting Connection " + connection);
-            connectionRepository.delete(connection);
-        }
+    /**
+     * Finds the existing connections named in the message, mapped per normalised entity address.
+     */
+    private Map<String, Connection> findConnectionsOfMessage(CommonReferenceUpdate message) {
+        return connectionRepository.findConnectionsByEntityAddressIgnoreCase(message.getConnection().stream()
+                .map(energy.usef.core.data.xml.bean.message.Connection::getEntityAddress)
+                .collect(Collectors.toList()));
     }
 
     private Set<String> createEntityAddressSetFromXml(CommonReferenceUpdate message) {
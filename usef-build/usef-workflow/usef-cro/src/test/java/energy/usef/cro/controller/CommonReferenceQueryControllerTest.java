@@ -20,10 +20,14 @@ import energy.usef.core.config.Config;
 import energy.usef.core.config.ConfigParam;
 import energy.usef.core.data.xml.bean.message.CommonReferenceEntityType;
 import energy.usef.core.data.xml.bean.message.CommonReferenceQuery;
+import energy.usef.core.data.xml.bean.message.CommonReferenceQueryResponse;
+import energy.usef.core.data.xml.bean.message.DispositionSuccessFailure;
 import energy.usef.core.data.xml.bean.message.MessageMetadata;
 import energy.usef.core.data.xml.bean.message.USEFRole;
 import energy.usef.core.exception.BusinessException;
+import energy.usef.core.service.business.CommonReferenceQueryResponseAssemblerService;
 import energy.usef.core.service.helper.JMSHelperService;
+import energy.usef.core.util.XMLUtil;
 import energy.usef.cro.config.ConfigCro;
 import energy.usef.cro.config.ConfigCroParam;
 import energy.usef.cro.model.Aggregator;
@@ -36,16 +40,20 @@ import energy.usef.cro.service.business.CommonReferenceUpdateBusinessService;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.math.BigInteger;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -61,6 +69,8 @@ public class CommonReferenceQueryControllerTest {
     private static final String SENDER_DOMAIN = "usef-example.com";
     private static final String DSO_DOMAIN = "usef-dso.com";
     private static final String AGR_DOMAIN = "tesla.com";
+    private static final String CONVERSATION_ID_1 = "b78d0af7-2486-4d5f-a680-44d915b9c43c";
+    private static final String CONVERSATION_ID_2 = "fa1fd0b2-ec92-4635-b347-c1eabc4324bf";
 
     @Mock
     private CommonReferenceUpdateBusinessService commonReferenceUpdateBusinessService;
@@ -200,6 +210,162 @@ public class CommonReferenceQueryControllerTest {
         testWithOutRoleAgrQuery();
     }
 
+    /**
+     * Tests that a CongestionPoint query from AGR is split in parts of at most the configured number of connections, which are
+     * reassembled into the response which is not split.
+     */
+    @Test
+    public void testAGRQueryResponseIsSplitInParts() {
+        setMode("OPEN");
+        Map<CongestionPoint, Set<Connection>> results = new LinkedHashMap<>();
+        int[] connectionCounts = { 1, 3, 2, 0, 1, 2 };
+        for (int i = 0; i < connectionCounts.length; i++) {
+            CongestionPoint congestionPoint = buildCongestionPoint("ea1.1992-01.com.usef-example:gridpoint." + i);
+            results.put(congestionPoint, new HashSet<>());
+            for (int j = 0; j < connectionCounts[i]; j++) {
+                results.get(congestionPoint).add(new Connection(String.format("ean.%012d", 100 * i + j)));
+            }
+        }
+        Mockito.when(commonReferenceUpdateBusinessService.findConnectionsForCongestionPointsByAGR(SENDER_DOMAIN, null))
+                .thenReturn(results);
+
+        CommonReferenceQuery commonReferenceQuery = new CommonReferenceQuery();
+        commonReferenceQuery.setEntity(CommonReferenceEntityType.CONGESTION_POINT);
+        commonReferenceQuery.setMessageMetadata(new MessageMetadata());
+        commonReferenceQuery.getMessageMetadata().setSenderDomain(SENDER_DOMAIN);
+        commonReferenceQuery.getMessageMetadata().setSenderRole(USEFRole.AGR);
+        commonReferenceQuery.getMessageMetadata().setConversationID(CONVERSATION_ID_1);
+
+        List<CommonReferenceQueryResponse> original = sendQuery(commonReferenceQuery, -1);
+        List<CommonReferenceQueryResponse> parts = sendQuery(commonReferenceQuery, 2);
+
+        Assert.assertEquals(1, original.size());
+        Assert.assertNull(original.get(0).getPartCount());
+        // [cp0], [cp1], [cp2], [cp3, cp4], [cp5]: a congestion point is never split, an empty one counts as one connection.
+        Assert.assertEquals(5, parts.size());
+        Assert.assertEquals(2, parts.get(3).getCongestionPoint().size());
+        assertParts(parts, CONVERSATION_ID_1);
+
+        CommonReferenceQueryResponse reassembled = reassemble(parts);
+        Assert.assertEquals(describe(original.get(0)), describe(reassembled));
+    }
+
+    /**
+     * Tests that an Aggregator query from BRP is split in parts of at most the configured number of connections, which are
+     * reassembled into the response which is not split.
+     */
+    @Test
+    public void testBRPQueryResponseIsSplitInParts() {
+        setMode("OPEN");
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            Connection connection = new Connection(String.format("ean.%012d", i));
+            connection.setAggregator(new Aggregator(AGR_DOMAIN));
+            connections.add(connection);
+        }
+        Mockito.when(commonReferenceQueryBusinessService.findAllConnectionsForBRPDomain(SENDER_DOMAIN)).thenReturn(connections);
+
+        CommonReferenceQuery commonReferenceQuery = new CommonReferenceQuery();
+        commonReferenceQuery.setEntity(CommonReferenceEntityType.AGGREGATOR);
+        commonReferenceQuery.setMessageMetadata(new MessageMetadata());
+        commonReferenceQuery.getMessageMetadata().setSenderDomain(SENDER_DOMAIN);
+        commonReferenceQuery.getMessageMetadata().setSenderRole(USEFRole.BRP);
+        commonReferenceQuery.getMessageMetadata().setConversationID(CONVERSATION_ID_2);
+
+        List<CommonReferenceQueryResponse> original = sendQuery(commonReferenceQuery, -1);
+        List<CommonReferenceQueryResponse> parts = sendQuery(commonReferenceQuery, 1000);
+
+        Assert.assertEquals(1, original.size());
+        Assert.assertEquals(3, parts.size());
+        Assert.assertEquals(1000, parts.get(0).getConnection().size());
+        Assert.assertEquals(500, parts.get(2).getConnection().size());
+        assertParts(parts, CONVERSATION_ID_2);
+
+        CommonReferenceQueryResponse reassembled = reassemble(parts);
+        Assert.assertEquals(original.get(0).getConnection().size(), reassembled.getConnection().size());
+        Assert.assertEquals(describe(original.get(0)), describe(reassembled));
+    }
+
+    /**
+     * Tests that a response which fits the configured number of connections is sent as it is.
+     */
+    @Test
+    public void testSmallResponseIsNotSplit() {
+        setMode("OPEN");
+        List<Connection> connections = new ArrayList<>();
+        connections.add(new Connection("ean.000000000001"));
+        Mockito.when(commonReferenceQueryBusinessService.findAllConnectionsForBRPDomain(SENDER_DOMAIN)).thenReturn(connections);
+
+        CommonReferenceQuery commonReferenceQuery = new CommonReferenceQuery();
+        commonReferenceQuery.setEntity(CommonReferenceEntityType.AGGREGATOR);
+        commonReferenceQuery.setMessageMetadata(new MessageMetadata());
+        commonReferenceQuery.getMessageMetadata().setSenderDomain(SENDER_DOMAIN);
+        commonReferenceQuery.getMessageMetadata().setSenderRole(USEFRole.BRP);
+        commonReferenceQuery.getMessageMetadata().setConversationID(CONVERSATION_ID_2);
+
+        List<CommonReferenceQueryResponse> responses = sendQuery(commonReferenceQuery, 1000);
+
+        Assert.assertEquals(1, responses.size());
+        Assert.assertNull(responses.get(0).getPartIndex());
+        Assert.assertNull(responses.get(0).getPartCount());
+    }
+
+    private List<CommonReferenceQueryResponse> sendQuery(CommonReferenceQuery commonReferenceQuery, int maxConnections) {
+        Properties props = Whitebox.getInternalState(configCro, "properties");
+        props.setProperty(ConfigCroParam.COMMON_REFERENCE_QUERY_RESPONSE_MAX_CONNECTIONS.name(), String.valueOf(maxConnections));
+        Mockito.reset(jmsHelperService);
+
+        try {
+            commonReferenceQueryController.action(commonReferenceQuery, null);
+        } catch (BusinessException e) {
+            Assert.fail(e.getMessage());
+        }
+
+        ArgumentCaptor<String> xmlCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jmsHelperService, Mockito.atLeastOnce()).sendMessageToOutQueue(xmlCaptor.capture());
+        return xmlCaptor.getAllValues().stream()
+                .map(xml -> XMLUtil.xmlToMessage(xml, CommonReferenceQueryResponse.class, true))
+                .collect(Collectors.toList());
+    }
+
+    private static void assertParts(List<CommonReferenceQueryResponse> parts, String conversationId) {
+        for (int i = 0; i < parts.size(); i++) {
+            CommonReferenceQueryResponse part = parts.get(i);
+            Assert.assertEquals(DispositionSuccessFailure.SUCCESS, part.getResult());
+            Assert.assertEquals(conversationId, part.getMessageMetadata().getConversationID());
+            Assert.assertEquals(BigInteger.valueOf(i + 1L), part.getPartIndex());
+            Assert.assertEquals(BigInteger.valueOf(parts.size()), part.getPartCount());
+        }
+        Assert.assertEquals(parts.size(),
+                parts.stream().map(part -> part.getMessageMetadata().getMessageID()).distinct().count());
+    }
+
+    /**
+     * Reassembles the parts the way a receiving participant does, in reverse order of arrival.
+     */
+    private static CommonReferenceQueryResponse reassemble(List<CommonReferenceQueryResponse> parts) {
+        CommonReferenceQueryResponseAssemblerService assemblerService = new CommonReferenceQueryResponseAssemblerService();
+        for (int i = parts.size() - 1; i > 0; i--) {
+            Assert.assertFalse(assemblerService.assemble(parts.get(i)).isPresent());
+        }
+        return assemblerService.assemble(parts.get(0)).get();
+    }
+
+    /**
+     * Describes the congestion points and connections of a response, in order.
+     */
+    private static List<String> describe(CommonReferenceQueryResponse response) {
+        List<String> description = new ArrayList<>();
+        for (energy.usef.core.data.xml.bean.message.CongestionPoint congestionPoint : response.getCongestionPoint()) {
+            description.add(congestionPoint.getEntityAddress() + " " + congestionPoint.getDSODomain());
+            congestionPoint.getConnection().forEach(
+                    connection -> description.add(congestionPoint.getEntityAddress() + " > " + connection.getEntityAddress()));
+        }
+        response.getConnection()
+                .forEach(connection -> description.add(connection.getEntityAddress() + " " + connection.getAGRDomain()));
+        return description;
+    }
+
     private void setMode(String mode) {
         Properties props = Whitebox.getInternalState(configCro, "properties");
         props.setProperty(ConfigCroParam.COMMON_REFERENCE_MODE.name(), mode);
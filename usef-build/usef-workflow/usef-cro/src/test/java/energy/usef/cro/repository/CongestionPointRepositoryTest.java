@@ -16,6 +16,7 @@
 
 package energy.usef.cro.repository;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.powermock.reflect.Whitebox.setInternalState;
@@ -24,6 +25,7 @@ import energy.usef.cro.model.Aggregator;
 import energy.usef.cro.model.CongestionPoint;
 import energy.usef.cro.model.Connection;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -33,6 +35,8 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
@@ -62,8 +66,10 @@ public class CongestionPointRepositoryTest {
 
     @BeforeClass
     public static void initTestFixture() throws Exception {
-        // Get the entity manager for the tests.
-        entityManagerFactory = Persistence.createEntityManagerFactory("test");
+        // Get the entity manager for the tests, with statistics to count the statements.
+        Map<String, String> properties = new HashMap<>();
+        properties.put("hibernate.generate_statistics", "true");
+        entityManagerFactory = Persistence.createEntityManagerFactory("test", properties);
         entityManager = entityManagerFactory.createEntityManager();
     }
 
@@ -214,6 +220,67 @@ public class CongestionPointRepositoryTest {
         assertNotNull(results);
     }
 
+    /**
+     * Tests that the congestion points of a DSO and of an AGR are found with one statement, whatever the number of congestion
+     * points, including the DSO and the connections used to build the responses.
+     */
+    @Test
+    public void testFindCongestionPointsWithConstantNumberOfStatements() {
+        entityManager.getTransaction().begin();
+        try {
+            // 5000 congestion points of DSO 1, the first 4000 with 2 connections. Every fourth connection has no aggregator.
+            entityManager.createNativeQuery("INSERT INTO CONGESTION_POINT (ID, ENTITY_ADDRESS, DISTRIBUTION_SYSTEM_OPERATOR_ID) "
+                    + "SELECT -X, 'ea1.2015-01.com.example:gridpoint.many.' || X, 1 FROM SYSTEM_RANGE(1, 5000)").executeUpdate();
+            entityManager.createNativeQuery("INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, "
+                    + "CONGESTION_POINT_ID, AGGREGATOR_ID, BALANCE_RESPONSIBLE_PARTY_ID) "
+                    + "SELECT -X, 'ean.many.' || X, 'ean.many.' || X, -((X + 1) / 2), "
+                    + "CASEWHEN(MOD(X, 4) = 0, NULL, 1 + MOD(X, 3)), 1 + MOD(X, 2) FROM SYSTEM_RANGE(1, 8000)").executeUpdate();
+            entityManager.clear();
+
+            Statistics statistics = statistics();
+            Map<CongestionPoint, Map<Aggregator, Long>> dsoResults = repository.findAggregatorCountForCongestionPointsByDSO(
+                    "usef-example.com", null);
+            long connectionCount = 0;
+            for (Entry<CongestionPoint, Map<Aggregator, Long>> entry : dsoResults.entrySet()) {
+                assertEquals("usef-example.com", entry.getKey().getDistributionSystemOperator().getDomain());
+                for (Connection connection : entry.getKey().getConnections()) {
+                    assertNotNull(connection.getEntityAddress());
+                    connectionCount += connection.getBalanceResponsibleParty() == null ? 0 : 1;
+                }
+            }
+            assertEquals(1, statistics.getPrepareStatementCount());
+            // the 2 congestion points of the test data and the 5000 new ones.
+            assertEquals(5002, dsoResults.size());
+            assertEquals(8001, connectionCount);
+
+            entityManager.clear();
+            statistics = statistics();
+            Map<CongestionPoint, Set<Connection>> agrResults = repository.findConnectionsForCongestionPointsByAGR("tesla.com",
+                    null);
+            connectionCount = 0;
+            for (Entry<CongestionPoint, Set<Connection>> entry : agrResults.entrySet()) {
+                assertNotNull(entry.getKey().getDistributionSystemOperator().getDomain());
+                for (Connection connection : entry.getValue()) {
+                    assertEquals("tesla.com", connection.getAggregator().getDomain());
+                    connectionCount += connection.getBalanceResponsibleParty() == null ? 0 : 1;
+                }
+            }
+            assertEquals(1, statistics.getPrepareStatementCount());
+            // MOD(X, 3) = 0 and MOD(X, 4) != 0: 2000 connections on as many congestion points, and the 3 connections of the
+            // test data on 2 congestion points, of which 1 has a BRP.
+            assertEquals(2002, agrResults.size());
+            assertEquals(2001, connectionCount);
+        } finally {
+            entityManager.getTransaction().rollback();
+        }
+    }
+
+    private static Statistics statistics() {
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
     @Test
     public void findCongestionPointForAgr() {
         String agrDomain = "tesla.com";
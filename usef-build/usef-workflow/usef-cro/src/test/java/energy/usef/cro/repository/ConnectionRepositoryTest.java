@@ -21,14 +21,21 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.powermock.reflect.Whitebox.setInternalState;
 
+import energy.usef.cro.model.CongestionPoint;
 import energy.usef.cro.model.Connection;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -54,7 +61,10 @@ public class ConnectionRepositoryTest {
     @BeforeClass
     public static void initTestFixture() throws Exception {
         // Get the entity manager for the tests.
-        entityManagerFactory = Persistence.createEntityManagerFactory("test");
+        // with statistics to count the statements.
+        Map<String, String> properties = new HashMap<>();
+        properties.put("hibernate.generate_statistics", "true");
+        entityManagerFactory = Persistence.createEntityManagerFactory("test", properties);
         entityManager = entityManagerFactory.createEntityManager();
     }
 
@@ -105,6 +115,138 @@ public class ConnectionRepositoryTest {
         Connection connection = repository.findConnectionByEntityAddress(entityAddress);
         assertNull("Nonexistent Connection", connection);
     }
+    @Test
+    public void testFindConnectionsByEntityAddressIgnoreCase() {
+        Map<String, Connection> connections = repository.findConnectionsByEntityAddressIgnoreCase(
+                Arrays.asList("EAN.871685900012636543", "ean.121685900012636999", "Ean.121685900012636999", "XXX.000000000000000000"));
+        assertEquals(2, connections.size());
+        assertEquals("ean.871685900012636543", connections.get("ean.871685900012636543").getEntityAddress());
+        assertNotNull(connections.get("ean.121685900012636999"));
+    }
+
+    @Test
+    public void testFindConnectionsByEntityAddressIgnoreCaseStoredInMixedCase() {
+        entityManager.getTransaction().begin();
+        try {
+            repository.persist(new Connection("Ean.555685900012636543"));
+            entityManager.flush();
+            entityManager.clear();
+            Statistics statistics = statistics();
+
+            Map<String, Connection> connections = repository.findConnectionsByEntityAddressIgnoreCase(
+                    Arrays.asList("EAN.555685900012636543", "ean.871685900012636543"));
+
+            assertEquals(2, connections.size());
+            assertEquals("Ean.555685900012636543", connections.get("ean.555685900012636543").getEntityAddress());
+            // both are found through the indexed normalised address, whatever the case in which they are stored.
+            assertEquals(1, statistics.getQueryExecutionCount());
+        } finally {
+            entityManager.getTransaction().rollback();
+        }
+    }
+
+    @Test
+    public void testFindConnectionsByEntityAddressIgnoreCaseAllMatched() {
+        Statistics statistics = statistics();
+
+        repository.findConnectionsByEntityAddressIgnoreCase(Arrays.asList("EAN.871685900012636543"));
+
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void testFindConnectionsByEntityAddressIgnoreCaseOfNewConnections() {
+        Statistics statistics = statistics();
+
+        Map<String, Connection> connections = repository.findConnectionsByEntityAddressIgnoreCase(
+                Arrays.asList("EAN.999685900012636543", "ean.999685900012636544", "EAN.871685900012636543"));
+
+        assertEquals(1, connections.size());
+        // the new connections do not cause any additional lookup.
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void testPersistedConnectionHasNormalisedEntityAddress() {
+        entityManager.getTransaction().begin();
+        try {
+            repository.persist(new Connection("EAN.555685900012636543"));
+            entityManager.flush();
+
+            assertEquals("ean.555685900012636543", entityManager.createNativeQuery(
+                    "SELECT NORMALISED_ENTITY_ADDRESS FROM CONNECTION WHERE ENTITY_ADDRESS = 'EAN.555685900012636543'")
+                    .getSingleResult());
+        } finally {
+            entityManager.getTransaction().rollback();
+        }
+    }
+
+    @Test
+    public void testFindConnectionsByEntityAddressInBatches() {
+        List<String> entityAddresses = new ArrayList<>();
+        entityAddresses.add("ean.871685900012636543");
+        entityAddresses.add("ean.673685900012637348");
+        for (int i = 0; i < 2 * ConnectionRepository.IN_CLAUSE_BATCH_SIZE; i++) {
+            entityAddresses.add("ean.unknown." + i);
+        }
+        Statistics statistics = statistics();
+
+        Map<String, Connection> connections = repository.findConnectionsByEntityAddress(entityAddresses);
+
+        assertEquals(2, connections.size());
+        assertEquals("usef-example.com", connections.get("ean.871685900012636543").getCongestionPoint()
+                .getDistributionSystemOperator().getDomain());
+        assertNull(connections.get("ean.673685900012637348").getCongestionPoint());
+        assertEquals("The related entities are fetched with the connections", 3,
+                statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testRemoveConnectionsFromCongestionPoint() {
+        entityManager.getTransaction().begin();
+        try {
+            Statistics statistics = statistics();
+
+            // connection 2 has an aggregator, connection 8 does not.
+            int deleted = repository.removeConnectionsFromCongestionPoint(Arrays.asList(2L, 8L));
+
+            assertEquals(1, deleted);
+            assertEquals(2, statistics.getPrepareStatementCount());
+            assertNull(repository.find(2L).getCongestionPoint());
+            assertNull(repository.find(8L));
+        } finally {
+            entityManager.getTransaction().rollback();
+        }
+    }
+
+    @Test
+    public void testRemoveAllConnectionsFromCongestionPoint() {
+        entityManager.getTransaction().begin();
+        try {
+            CongestionPoint congestionPoint = entityManager.find(CongestionPoint.class, 1L);
+            Statistics statistics = statistics();
+
+            // connections 1, 2 and 3 have an aggregator, connections 8 and 9 do not.
+            int deleted = repository.removeAllConnectionsFromCongestionPoint(congestionPoint);
+
+            assertEquals(2, deleted);
+            assertEquals(2, statistics.getPrepareStatementCount());
+            entityManager.clear();
+            assertEquals(0L, entityManager.createQuery("SELECT COUNT(c) FROM Connection c WHERE c.congestionPoint.id = 1")
+                    .getSingleResult());
+            assertNotNull(repository.find(1L));
+            assertNull(repository.find(9L));
+        } finally {
+            entityManager.getTransaction().rollback();
+        }
+    }
+
+    private static Statistics statistics() {
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
     @Test
     public void testFindConnectionsForAggregator() {
         String senderDomain = "tesla.com";
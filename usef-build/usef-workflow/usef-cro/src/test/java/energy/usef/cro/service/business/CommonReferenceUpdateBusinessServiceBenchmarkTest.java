@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package energy.usef.cro.service.business;
+
+import static org.powermock.reflect.Whitebox.setInternalState;
+
+import energy.usef.core.data.xml.bean.message.CommonReferenceEntityType;
+import energy.usef.core.data.xml.bean.message.CommonReferenceUpdate;
+import energy.usef.core.data.xml.bean.message.MessageMetadata;
+import energy.usef.cro.config.ConfigCro;
+import energy.usef.cro.repository.BalanceResponsiblePartyRepository;
+import energy.usef.cro.repository.ConnectionRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of the update of the connections of a Balance Responsible Party in a large connection registry. The update only
+ * loads the connections named in the message, also when none of them is registered yet. The benchmark takes a few minutes
+ * and only runs with <code>-Dusef.benchmark=true</code>.
+ */
+public class CommonReferenceUpdateBusinessServiceBenchmarkTest {
+
+    private static final int REGISTRY_SIZE = 1000000;
+    private static final int MESSAGE_SIZE = 50000;
+
+    private static EntityManagerFactory entityManagerFactory;
+    private static EntityManager entityManager;
+
+    private CommonReferenceUpdateBusinessService service;
+
+    @BeforeClass
+    public static void initTestFixture() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("usef.benchmark"));
+        Map<String, String> properties = new HashMap<>();
+        // a database of its own, dropped with the entity manager factory, avoids rolling back the registry.
+        properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:CroBenchmarkDB");
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.jdbc.batch_size", "50");
+        entityManagerFactory = Persistence.createEntityManagerFactory("test", properties);
+        entityManager = entityManagerFactory.createEntityManager();
+
+        long start = System.currentTimeMillis();
+        entityManager.getTransaction().begin();
+        // negative ids do not collide with the ids of the sequence.
+        entityManager.createNativeQuery("INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS) "
+                + "SELECT -X, 'ean.benchmark.' || X, 'ean.benchmark.' || X FROM SYSTEM_RANGE(1, " + REGISTRY_SIZE + ")")
+                .executeUpdate();
+        entityManager.getTransaction().commit();
+        LoggerFactory.getLogger(CommonReferenceUpdateBusinessServiceBenchmarkTest.class).info(
+                "Registry of {} connections created in {} ms", REGISTRY_SIZE, System.currentTimeMillis() - start);
+    }
+
+    @AfterClass
+    public static void closeTestFixture() {
+        if (entityManagerFactory != null) {
+            entityManager.close();
+            entityManagerFactory.close();
+        }
+    }
+
+    @Before
+    public void before() {
+        ConnectionRepository connectionRepository = new ConnectionRepository();
+        setInternalState(connectionRepository, "entityManager", entityManager);
+        BalanceResponsiblePartyRepository balanceResponsiblePartyRepository = new BalanceResponsiblePartyRepository();
+        setInternalState(balanceResponsiblePartyRepository, "entityManager", entityManager);
+
+        service = new CommonReferenceUpdateBusinessService();
+        setInternalState(service, "connectionRepository", connectionRepository);
+        setInternalState(service, "balanceResponsiblePartyRepository", balanceResponsiblePartyRepository);
+        setInternalState(service, "configCro", new ConfigCro());
+
+        entityManager.clear();
+        entityManager.getTransaction().begin();
+    }
+
+    @After
+    public void after() {
+        if (entityManager.getTransaction().isActive()) {
+            entityManager.getTransaction().commit();
+        }
+    }
+
+    @Test
+    public void testUpdateBalanceResponsiblePartyConnectionsInLargeRegistry() {
+        // half of the message names registered connections (in another case), the other half new connections.
+        List<String> entityAddresses = new ArrayList<>();
+        for (int i = 0; i < MESSAGE_SIZE; i++) {
+            entityAddresses.add(i % 2 == 0 ? "Ean.Benchmark." + (i * 19 + 1) : "ean.benchmark.new." + i);
+        }
+
+        runBenchmark("brp.benchmark.com", entityAddresses, MESSAGE_SIZE / 2);
+    }
+
+    @Test
+    public void testRegisterNewBalanceResponsiblePartyConnectionsInLargeRegistry() {
+        // a batch of connections which are all new, none of them is found in the registry.
+        List<String> entityAddresses = new ArrayList<>();
+        for (int i = 0; i < MESSAGE_SIZE; i++) {
+            entityAddresses.add("Ean.Benchmark.Added." + i);
+        }
+
+        runBenchmark("brp.benchmark.new.com", entityAddresses, MESSAGE_SIZE);
+    }
+
+    private void runBenchmark(String brpDomain, List<String> entityAddresses, int expectedNewConnections) {
+        CommonReferenceUpdate message = new CommonReferenceUpdate();
+        message.setEntity(CommonReferenceEntityType.BRP);
+        MessageMetadata messageMetadata = new MessageMetadata();
+        messageMetadata.setMessageID("benchmark");
+        messageMetadata.setSenderDomain(brpDomain);
+        message.setMessageMetadata(messageMetadata);
+        for (String entityAddress : entityAddresses) {
+            energy.usef.core.data.xml.bean.message.Connection connection = new energy.usef.core.data.xml.bean.message.Connection();
+            connection.setEntityAddress(entityAddress);
+            connection.setIsCustomer(true);
+            message.getConnection().add(connection);
+        }
+        int connectionsBefore = countConnections();
+
+        long start = System.currentTimeMillis();
+        List<String> errors = new ArrayList<>();
+        service.updateBalanceResponsiblePartyConnections(message, errors);
+        entityManager.flush();
+        long updateDuration = System.currentTimeMillis() - start;
+
+        LoggerFactory.getLogger(CommonReferenceUpdateBusinessServiceBenchmarkTest.class).info(
+                "Update of {} connections ({} new) in a registry of {} connections processed in {} ms", entityAddresses.size(),
+                expectedNewConnections, REGISTRY_SIZE, updateDuration);
+
+        Assert.assertTrue(errors.isEmpty());
+        Long updatedConnections = entityManager.createQuery(
+                "SELECT COUNT(c) FROM Connection c WHERE c.balanceResponsibleParty.domain = :domain", Long.class)
+                .setParameter("domain", brpDomain).getSingleResult();
+        Assert.assertEquals(entityAddresses.size(), updatedConnections.intValue());
+        Assert.assertEquals(connectionsBefore + expectedNewConnections, countConnections());
+    }
+
+    private static int countConnections() {
+        return entityManager.createQuery("SELECT COUNT(c) FROM Connection c", Long.class).getSingleResult().intValue();
+    }
+}
@@ -20,6 +20,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -203,6 +204,7 @@ public class CommonReferenceUpdateBusinessServiceTest {
 
         service.updateCongestionPoints(message, errors);
 
+        Mockito.verify(connectionRepository, Mockito.times(1)).removeAllConnectionsFromCongestionPoint(congestionPoint);
         Mockito.verify(congestionPointRepository, Mockito.times(1))
                 .delete(Matchers.any(CongestionPoint.class));
     }
@@ -221,8 +223,9 @@ public class CommonReferenceUpdateBusinessServiceTest {
         congestionPoint.setEntityAddress(CONGESTION_POINT_ANOTHER_ENTITY_ADDRESS);
         connection.setCongestionPoint(congestionPoint);
 
-        when(connectionRepository
-                .findConnectionByEntityAddress(CONNECTION_ENTITY_ADDRESS)).thenReturn(connection);
+        connection.setEntityAddress(CONNECTION_ENTITY_ADDRESS);
+        when(connectionRepository.findConnectionsByEntityAddress(Matchers.anyCollectionOf(String.class)))
+                .thenReturn(mapByEntityAddress(connection));
 
         service.updateCongestionPoints(message, errors);
 
@@ -435,7 +438,8 @@ public class CommonReferenceUpdateBusinessServiceTest {
 
         // do the business call
         service.updateAggregatorConnections(message, errors);
-        Mockito.verify(connectionRepository, Mockito.times(1)).findAll();
+        Mockito.verify(connectionRepository, Mockito.times(1))
+                .findConnectionsByEntityAddressIgnoreCase(Matchers.eq(Collections.singletonList(CONNECTION_ENTITY_ADDRESS)));
         Mockito.verify(connectionRepository, Mockito.times(1)).persist(captorConnection.capture());
 //
         Assert.assertEquals(expectedAggregator, captorConnection.getValue().getAggregator());
@@ -455,10 +459,9 @@ public class CommonReferenceUpdateBusinessServiceTest {
 
         Connection connection = new Connection();
         connection.setEntityAddress(CONNECTION_ENTITY_ADDRESS);
-        List<Connection> connectionList = new ArrayList<>();
-        connectionList.add(connection);
 
-        when(connectionRepository.findAll()).thenReturn(connectionList);
+        when(connectionRepository.findConnectionsByEntityAddressIgnoreCase(Matchers.anyCollectionOf(String.class)))
+                .thenReturn(mapByEntityAddress(connection));
 
         // do the business call
         service.updateAggregatorConnections(message, errors);
@@ -481,9 +484,8 @@ public class CommonReferenceUpdateBusinessServiceTest {
 
         Connection connection = new Connection();
         connection.setEntityAddress(CONNECTION_ENTITY_ADDRESS);
-        List<Connection> connectionList = new ArrayList<>();
-        connectionList.add(connection);
-        when(connectionRepository.findAll()).thenReturn(connectionList);
+        when(connectionRepository.findConnectionsByEntityAddressIgnoreCase(Matchers.anyCollectionOf(String.class)))
+                .thenReturn(mapByEntityAddress(connection));
 
         // do the business call
         service.updateAggregatorConnections(message, errors);
@@ -530,9 +532,8 @@ public class CommonReferenceUpdateBusinessServiceTest {
 
         Connection connection = new Connection();
         connection.setEntityAddress(CONNECTION_ENTITY_ADDRESS);
-        List<Connection> connectionList = new ArrayList<>();
-        connectionList.add(connection);
-        when(connectionRepository.findAll()).thenReturn(connectionList);
+        when(connectionRepository.findConnectionsByEntityAddressIgnoreCase(Matchers.anyCollectionOf(String.class)))
+                .thenReturn(mapByEntityAddress(connection));
 
         // do the business call
         service.updateAggregatorConnections(message, errors);
@@ -602,10 +603,9 @@ public class CommonReferenceUpdateBusinessServiceTest {
 
         Connection connection = new Connection();
         connection.setEntityAddress(CONNECTION_ENTITY_ADDRESS);
-        List<Connection> connectionList = new ArrayList<>();
-        connectionList.add(connection);
 
-        when(connectionRepository.findAll()).thenReturn(connectionList);
+        when(connectionRepository.findConnectionsByEntityAddressIgnoreCase(Matchers.anyCollectionOf(String.class)))
+                .thenReturn(mapByEntityAddress(connection));
 
         // do the business call
         service.updateBalanceResponsiblePartyConnections(message, errors);
@@ -631,9 +631,8 @@ public class CommonReferenceUpdateBusinessServiceTest {
 
         Connection connection = new Connection();
         connection.setEntityAddress(CONNECTION_ENTITY_ADDRESS);
-        List<Connection> connectionList = new ArrayList<>();
-        connectionList.add(connection);
-        when(connectionRepository.findAll()).thenReturn(connectionList);
+        when(connectionRepository.findConnectionsByEntityAddressIgnoreCase(Matchers.anyCollectionOf(String.class)))
+                .thenReturn(mapByEntityAddress(connection));
 
         // do the business call
         service.updateBalanceResponsiblePartyConnections(message, errors);
@@ -656,4 +655,10 @@ public class CommonReferenceUpdateBusinessServiceTest {
 
         Mockito.verify(meterDataCompanyRepository, Mockito.times(1)).findByDomain(Matchers.eq("mdc1.usef-example.com"));
     }
+
+    private static Map<String, Connection> mapByEntityAddress(Connection connection) {
+        Map<String, Connection> connections = new HashMap<>();
+        connections.put(ConnectionRepository.normaliseEntityAddress(connection.getEntityAddress()), connection);
+        return connections;
+    }
 }
@@ -30,14 +30,14 @@ INSERT INTO CONGESTION_POINT (ID, ENTITY_ADDRESS, DISTRIBUTION_SYSTEM_OPERATOR_I
 INSERT INTO CONGESTION_POINT (ID, ENTITY_ADDRESS, DISTRIBUTION_SYSTEM_OPERATOR_ID) VALUES (2, 'ea1.1992-02.com.otherexample:gridpoint.4f76ff19-a53b-49f5-99e9', 2);
 INSERT INTO CONGESTION_POINT (ID, ENTITY_ADDRESS, DISTRIBUTION_SYSTEM_OPERATOR_ID) VALUES (3, 'ea1.1992-03.com.otherexample:gridpoint.4f76ff19-a53b-49f5-99e9', 1);
 
-INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID, BALANCE_RESPONSIBLE_PARTY_ID) VALUES (1, 'ean.871685900012636543', 1, 1, 1);
-INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID) VALUES (2, 'ean.121685900012636999', 1, 1);
-INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID) VALUES (3, 'ean.789685900012636123', 1, 2);
-INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID) VALUES (4, 'ean.673685900012637348', NULL, 2);
-INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID) VALUES (5, 'ean.673685923012637348', 3, 3);
-INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, AGGREGATOR_ID) VALUES (6, 'ean.789685900012636129', 3);
-INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, AGGREGATOR_ID) VALUES (7, 'ean.673685900012637341', 3);
-INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, CONGESTION_POINT_ID) VALUES (8, 'ean.789685901012636129', 1);
-INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, CONGESTION_POINT_ID) VALUES (9, 'ean.673685902012637341', 1);
-INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID) VALUES (10, 'ean.771685900112636461', 2, 1);
+INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID, BALANCE_RESPONSIBLE_PARTY_ID) VALUES (1, 'ean.871685900012636543', 'ean.871685900012636543', 1, 1, 1);
+INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID) VALUES (2, 'ean.121685900012636999', 'ean.121685900012636999', 1, 1);
+INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID) VALUES (3, 'ean.789685900012636123', 'ean.789685900012636123', 1, 2);
+INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID) VALUES (4, 'ean.673685900012637348', 'ean.673685900012637348', NULL, 2);
+INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID) VALUES (5, 'ean.673685923012637348', 'ean.673685923012637348', 3, 3);
+INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, AGGREGATOR_ID) VALUES (6, 'ean.789685900012636129', 'ean.789685900012636129', 3);
+INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, AGGREGATOR_ID) VALUES (7, 'ean.673685900012637341', 'ean.673685900012637341', 3);
+INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, CONGESTION_POINT_ID) VALUES (8, 'ean.789685901012636129', 'ean.789685901012636129', 1);
+INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, CONGESTION_POINT_ID) VALUES (9, 'ean.673685902012637341', 'ean.673685902012637341', 1);
+INSERT INTO CONNECTION (ID, ENTITY_ADDRESS, NORMALISED_ENTITY_ADDRESS, CONGESTION_POINT_ID, AGGREGATOR_ID) VALUES (10, 'ean.771685900112636461', 'ean.771685900112636461', 2, 1);
 
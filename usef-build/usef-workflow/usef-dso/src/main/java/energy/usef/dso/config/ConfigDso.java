@@ -105,4 +105,14 @@ public class ConfigDso extends AbstractConfig {
         return Integer.parseInt(properties.getProperty(configParam.name()));
     }
 
+    /**
+     * Gets a property value as a {@link boolean}.
+     *
+     * @param configParam the configuration parameter
+     * @return property value
+     */
+    public boolean getBooleanProperty(ConfigDsoParam configParam) {
+        return Boolean.parseBoolean(properties.getProperty(configParam.name()));
+    }
+
 }
@@ -29,6 +29,7 @@ public enum ConfigDsoParam {
     DSO_CONNECTION_FORECAST_TIME(String.class),
     DSO_CONNECTION_FORECAST_DAYS_INTERVAL(Integer.class),
     DSO_GRID_SAFETY_ANALYSIS_EXPIRATION_IN_MINUTES(Long.class),
+    DSO_GRID_SAFETY_ANALYSIS_INCREMENTAL(Boolean.class),
     DSO_FLEXORDER_INITIAL_DELAY_IN_SECONDS(Long.class),
     DSO_FLEXORDER_INTERVAL_IN_SECONDS(Long.class),
     DSO_INITIATE_SETTLEMENT_TIME(String.class),
@@ -29,6 +29,7 @@ import energy.usef.core.model.PtuContainer;
 import energy.usef.core.model.PtuContainerState;
 import energy.usef.core.model.PtuState;
 import energy.usef.core.model.RegimeType;
+import energy.usef.core.service.business.CommonReferenceQueryResponseAssemblerService;
 import energy.usef.core.service.business.CorePlanboardBusinessService;
 import energy.usef.core.service.business.SequenceGeneratorService;
 import energy.usef.dso.config.ConfigDso;
@@ -36,6 +37,7 @@ import energy.usef.dso.config.ConfigDsoParam;
 import energy.usef.dso.service.business.DsoPlanboardBusinessService;
 
 import java.util.List;
+import java.util.Optional;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -54,6 +56,8 @@ public class CommonReferenceQueryResponseController extends BaseIncomingResponse
     @Inject
     private CorePlanboardBusinessService corePlanboardBusinessService;
     @Inject
+    private CommonReferenceQueryResponseAssemblerService commonReferenceQueryResponseAssemblerService;
+    @Inject
     private DsoPlanboardBusinessService dsoPlanboardBusinessService;
     @Inject
     private ConfigDso configDso;
@@ -63,7 +67,13 @@ public class CommonReferenceQueryResponseController extends BaseIncomingResponse
     /**
      * {@inheritDoc}
      */
-    public void action(CommonReferenceQueryResponse message, Message savedMessage) throws BusinessException {
+    public void action(CommonReferenceQueryResponse messagePart, Message savedMessage) throws BusinessException {
+        // a response which the CRO has split is processed once all its parts have been received.
+        Optional<CommonReferenceQueryResponse> response = commonReferenceQueryResponseAssemblerService.assemble(messagePart);
+        if (!response.isPresent()) {
+            return;
+        }
+        CommonReferenceQueryResponse message = response.get();
         LOGGER.debug("CommonReferenceQueryResponse received");
         if (DispositionSuccessFailure.SUCCESS.equals(message.getResult())) {
             Integer initializationDelay = 1;
@@ -159,4 +159,26 @@ public class GridSafetyAnalysisRepository extends BaseRepository<GridSafetyAnaly
                 .setParameter("ptuDate", period.toDateMidnight().toDate())
                 .executeUpdate();
     }
+
+    /**
+     * Delete the {@link GridSafetyAnalysis} objects for a certain date and congestion point of the PTUs before the given PTU
+     * index.
+     *
+     * @param entityAddress {@link String} related Congestion Point entity address.
+     * @param period {@link LocalDate} Period of the PTU.
+     * @param ptuIndex the index of the first PTU of which the {@link GridSafetyAnalysis} objects are kept.
+     * @return the number of {@link GridSafetyAnalysis} objects deleted.
+     */
+    public int deleteGridSafetyAnalysisBeforePtu(String entityAddress, LocalDate period, int ptuIndex) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("DELETE FROM GridSafetyAnalysis gsa ");
+        sql.append("WHERE gsa.connectionGroup.usefIdentifier = :entityAddress ");
+        sql.append("AND gsa.ptuContainer IN (SELECT pc FROM PtuContainer pc WHERE pc.ptuDate = :ptuDate AND pc.ptuIndex < :ptuIndex)");
+
+        return getEntityManager().createQuery(sql.toString())
+                .setParameter("entityAddress", entityAddress)
+                .setParameter("ptuDate", period.toDateMidnight().toDate())
+                .setParameter("ptuIndex", ptuIndex)
+                .executeUpdate();
+    }
 }
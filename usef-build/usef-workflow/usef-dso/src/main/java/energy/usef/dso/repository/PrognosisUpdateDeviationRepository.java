@@ -16,6 +16,8 @@
 
 package energy.usef.dso.repository;
 
+import java.util.List;
+
 import javax.ejb.Stateless;
 
 import org.joda.time.LocalDate;
@@ -28,6 +30,20 @@ import energy.usef.dso.model.PrognosisUpdateDeviation;
  */
 @Stateless
 public class PrognosisUpdateDeviationRepository extends BaseRepository<PrognosisUpdateDeviation> {
+    /**
+     * Persists all the given {@link PrognosisUpdateDeviation}s and flushes them to the database in one go, so that the JDBC
+     * inserts can be batched. The persistence context is not cleared.
+     *
+     * @param deviations {@link List} of {@link PrognosisUpdateDeviation}.
+     */
+    public void persistAll(List<PrognosisUpdateDeviation> deviations) {
+        if (deviations.isEmpty()) {
+            return;
+        }
+        deviations.forEach(entityManager::persist);
+        entityManager.flush();
+    }
+
     /**
      * Delete all {@link PrognosisUpdateDeviation}s for a certain date.
      *
@@ -18,7 +18,6 @@ package energy.usef.dso.service.business;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,7 +48,6 @@ import energy.usef.core.model.DocumentType;
 import energy.usef.core.model.Exchange;
 import energy.usef.core.model.PlanboardMessage;
 import energy.usef.core.model.PtuContainer;
-import energy.usef.core.model.PtuFlexOffer;
 import energy.usef.core.model.PtuFlexOrder;
 import energy.usef.core.model.PtuPrognosis;
 import energy.usef.core.model.PtuState;
@@ -57,7 +55,6 @@ import energy.usef.core.repository.CongestionPointConnectionGroupRepository;
 import energy.usef.core.repository.ConnectionRepository;
 import energy.usef.core.repository.PlanboardMessageRepository;
 import energy.usef.core.repository.PtuContainerRepository;
-import energy.usef.core.repository.PtuFlexOfferRepository;
 import energy.usef.core.repository.PtuFlexOrderRepository;
 import energy.usef.core.repository.PtuPrognosisRepository;
 import energy.usef.core.repository.PtuStateRepository;
@@ -147,9 +144,6 @@ public class DsoPlanboardBusinessService {
     @Inject
     private PtuContainerRepository ptuContainerRepository;
 
-    @Inject
-    private PtuFlexOfferRepository ptuFlexOfferRepository;
-
     @Inject
     private PtuFlexOrderRepository ptuFlexOrderRepository;
 
@@ -401,40 +395,53 @@ public class DsoPlanboardBusinessService {
         LOGGER.info("Found {} related flex orders for the prognosis with sequence {}.", planboardFlexOrders.size(),
                 latestPrognosisSequence);
 
-        // 2. Find all the PTU Flex Orders for each FlexOrder message.
-        List<PtuFlexOrder> ptuFlexOrders = new ArrayList<>();
-        for (PlanboardMessage planboardFlexOrder : planboardFlexOrders) {
-            ptuFlexOrders.addAll(ptuFlexOrderRepository.findFlexOrdersBySequence(planboardFlexOrder.getSequence()));
+        // 2. If there are no flex orders at the moment, log it and persist the updated prognosis.
+        if (planboardFlexOrders.isEmpty()) {
+            LOGGER.info("No orders have been placed. Updated prognosis has no impact.");
+            return;
         }
 
-        // 3.1. If there are no flex orders at the moment, log it and persist the updated prognosis.
-        if (ptuFlexOrders.isEmpty()) {
-            LOGGER.info("No orders have been placed. Updated prognosis has no impact.");
-        } else {
-            // 3.2. If there are existing flex orders.
-            // 3.2.1. Create a map of PTUIndex / List of flex orders for the ptu.
-            Map<Integer, List<PtuFlexOrder>> ptuFlexOrdersMap = sortAndMapPtuFlexOrders(ptuFlexOrders);
-            for (PTU ptu : PtuListConverter.normalize(prognosis.getPTU())) {
-                // 3.2.2. For each ptu, sum the flex ordered.
-                BigInteger power = sumPowerOfFlexOrders(ptuFlexOrdersMap.get(ptu.getStart().intValue()));
-                PtuPrognosis previousPtuPrognosis = fetchPreviousPtuPrognosis(existingPtuPrognoses, aggregatorDomain,
-                        ptu.getStart().intValue());
-                /*
-                 * 3.2.3. If there is a gap between the difference between previous prognosed power and order flex, and with the
-                 * updated prognosed power, record the fact in the database.
-                 */
-                if (!(previousPtuPrognosis.getPower().add(power)).equals(ptu.getPower())) {
-                    LOGGER.warn(
-                            "Sum of the flex ordered summed to previous prognosis power does not match updated prognosed power "
-                                    + "for the PTU with index {} on {} for prognosis {})!", ptu.getStart().intValue(),
-                            prognosis.getPeriod(), prognosis.getSequence());
-                    prognosisUpdateDeviationRepository.persist(
-                            new PrognosisUpdateDeviation(prognosis.getSequence(), aggregatorDomain,
-                                    prognosis.getPeriod().toDateMidnight().toDate(), ptu.getStart().intValue(), power,
-                                    previousPtuPrognosis.getPower(), ptu.getPower()));
-                }
+        // 3. Sum the ordered flex per PTU index for all the flex order messages at once (orders joined with their offers).
+        Map<Integer, BigInteger> orderedPowerPerPtuIndex = ptuFlexOrderRepository.sumOrderedPowerPerPtuIndex(
+                planboardFlexOrders.stream().map(PlanboardMessage::getSequence).collect(Collectors.toList()));
+
+        // 4. Index the previous prognoses of the aggregator and the ordered power by PTU index.
+        List<PTU> ptus = PtuListConverter.normalize(prognosis.getPTU());
+        int maxPtuIndex = ptus.stream().mapToInt(ptu -> ptu.getStart().intValue()).max().orElse(0);
+        BigInteger[] orderedPower = new BigInteger[maxPtuIndex + 1];
+        PtuPrognosis[] previousPtuPrognoses = new PtuPrognosis[maxPtuIndex + 1];
+        orderedPowerPerPtuIndex.forEach((ptuIndex, power) -> {
+            if (ptuIndex <= maxPtuIndex) {
+                orderedPower[ptuIndex] = power;
+            }
+        });
+        for (PtuPrognosis ptuPrognosis : existingPtuPrognoses) {
+            int ptuIndex = ptuPrognosis.getPtuContainer().getPtuIndex();
+            if (ptuIndex <= maxPtuIndex && previousPtuPrognoses[ptuIndex] == null && aggregatorDomain.equals(
+                    ptuPrognosis.getParticipantDomain())) {
+                previousPtuPrognoses[ptuIndex] = ptuPrognosis;
+            }
+        }
+
+        // 5. Record every PTU where the previous prognosed power plus the ordered flex differs from the updated prognosed power.
+        List<PrognosisUpdateDeviation> deviations = new ArrayList<>();
+        for (PTU ptu : ptus) {
+            int ptuIndex = ptu.getStart().intValue();
+            PtuPrognosis previousPtuPrognosis = previousPtuPrognoses[ptuIndex];
+            if (previousPtuPrognosis == null) {
+                continue;
+            }
+            BigInteger power = orderedPower[ptuIndex] == null ? BigInteger.ZERO : orderedPower[ptuIndex];
+            if (!(previousPtuPrognosis.getPower().add(power)).equals(ptu.getPower())) {
+                LOGGER.warn("Sum of the flex ordered summed to previous prognosis power does not match updated prognosed power "
+                        + "for the PTU with index {} on {} for prognosis {})!", ptuIndex, prognosis.getPeriod(),
+                        prognosis.getSequence());
+                deviations.add(new PrognosisUpdateDeviation(prognosis.getSequence(), aggregatorDomain,
+                        prognosis.getPeriod().toDateMidnight().toDate(), ptuIndex, power, previousPtuPrognosis.getPower(),
+                        ptu.getPower()));
             }
         }
+        prognosisUpdateDeviationRepository.persistAll(deviations);
     }
 
     /**
@@ -457,74 +464,6 @@ public class DsoPlanboardBusinessService {
         return result;
     }
 
-    /**
-     * Maps a list of {@link PtuFlexOrder} with their PTU index.
-     *
-     * @param ptuFlexOrders {@link List} of {@link PtuFlexOrder}.
-     * @return a mapping between the PTU index and the list of {@link PtuFlexOrder} for this very PTU index.
-     */
-    private Map<Integer, List<PtuFlexOrder>> sortAndMapPtuFlexOrders(List<PtuFlexOrder> ptuFlexOrders) {
-        Map<Integer, List<PtuFlexOrder>> result = new HashMap<>();
-        Integer ptuIndex;
-        for (PtuFlexOrder ptuFlexOrder : ptuFlexOrders) {
-            ptuIndex = ptuFlexOrder.getPtuContainer().getPtuIndex();
-            if (result.get(ptuIndex) == null) {
-                result.put(ptuIndex, new ArrayList<>(Collections.singletonList(ptuFlexOrder)));
-            } else {
-                result.get(ptuIndex).add(ptuFlexOrder);
-            }
-        }
-        return result;
-    }
-
-    /**
-     * Sums the power of the Flex Orders.
-     *
-     * @param ptuFlexOrders {@link List} of {@link PtuFlexOrder}.
-     * @return the sum of the power.
-     */
-    private BigInteger sumPowerOfFlexOrders(List<PtuFlexOrder> ptuFlexOrders) {
-        BigInteger result = BigInteger.ZERO;
-        for (PtuFlexOrder ptuFlexOrder : ptuFlexOrders) {
-            if (AcknowledgementStatus.ACCEPTED != ptuFlexOrder.getAcknowledgementStatus()) {
-                continue;
-            }
-            PtuFlexOffer ptuFlexOffer = getRelatedPtuFlexOffer(ptuFlexOrder);
-            result = result.add(ptuFlexOffer.getPower());
-        }
-        return result;
-    }
-
-    /**
-     * Gets the flex offer related to a flex order on a given PTU.
-     *
-     * @param ptuFlexOrder {@link PtuFlexOrder}.
-     * @return a {@link PtuFlexOffer} or <code>null</code>.
-     */
-    private PtuFlexOffer getRelatedPtuFlexOffer(PtuFlexOrder ptuFlexOrder) {
-        return ptuFlexOfferRepository.findPtuFlexOfferWithSequence(ptuFlexOrder.getFlexOfferSequence(),
-                ptuFlexOrder.getParticipantDomain(), ptuFlexOrder.getPtuContainer().getPtuIndex());
-    }
-
-    /**
-     * In the list of all previous prognoses for all aggregators, this method fetches the one for a given aggregator and a given ptu
-     * index.
-     *
-     * @param lastPtuPrognoses {@link List} of previous {@link PtuPrognosis}.
-     * @param aggregatorDomain {@link String} domain name of the aggregator.
-     * @param ptuIndex {@link Integer} index of the PTU.
-     * @return a {@link PtuPrognosis} or <code>null</code>.
-     */
-    private PtuPrognosis fetchPreviousPtuPrognosis(List<PtuPrognosis> lastPtuPrognoses, String aggregatorDomain, Integer ptuIndex) {
-        for (PtuPrognosis prognosis : lastPtuPrognoses) {
-            if (aggregatorDomain.equals(prognosis.getParticipantDomain()) && ptuIndex.equals(
-                    prognosis.getPtuContainer().getPtuIndex())) {
-                return prognosis;
-            }
-        }
-        return null;
-    }
-
     /**
      * Saves Non Aggregator Connection Forecast.
      *
@@ -879,6 +818,18 @@ public class DsoPlanboardBusinessService {
     public int deletePreviousGridSafetyAnalysis(String entityAddress, LocalDate period) {
         return gridSafetyAnalysisRepository.deletePreviousGridSafetyAnalysis(entityAddress, period);
     }
+
+    /**
+     * Deletes the {@link GridSafetyAnalysis} entities for a given day and congestion point of the PTUs before the given PTU index.
+     *
+     * @param entityAddress {@link String} related Congestion Point entity address.
+     * @param period {@link LocalDate} Period of the PTU.
+     * @param ptuIndex the index of the first PTU of which the {@link GridSafetyAnalysis} entities are kept.
+     * @return the number of {@link GridSafetyAnalysis} entities deleted.
+     */
+    public int deleteGridSafetyAnalysisBeforePtu(String entityAddress, LocalDate period, int ptuIndex) {
+        return gridSafetyAnalysisRepository.deleteGridSafetyAnalysisBeforePtu(entityAddress, period, ptuIndex);
+    }
 }
 
 
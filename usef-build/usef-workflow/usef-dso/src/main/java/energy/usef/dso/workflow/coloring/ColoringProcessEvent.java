@@ -17,12 +17,13 @@
 package energy.usef.dso.workflow.coloring;
 
 import energy.usef.core.event.ExpirableEvent;
+import energy.usef.core.event.MonitoredEvent;
 import org.joda.time.LocalDate;
 
 /**
  * Event implementation for starting the Coloring Process workflow to determine if PTU(s) become orange.
  */
-public class ColoringProcessEvent implements ExpirableEvent {
+public class ColoringProcessEvent implements ExpirableEvent, MonitoredEvent {
 
     private LocalDate period;
     private String congestionPoint;
@@ -22,6 +22,7 @@ import static energy.usef.core.constant.USEFConstants.LOG_COORDINATOR_START_HAND
 import energy.usef.core.config.Config;
 import energy.usef.core.config.ConfigParam;
 import energy.usef.core.dto.PtuContainerDto;
+import energy.usef.core.event.EventMonitoringInterceptor;
 import energy.usef.core.event.validation.EventValidationService;
 import energy.usef.core.exception.BusinessValidationException;
 import energy.usef.core.model.ConnectionGroup;
@@ -46,6 +47,7 @@ import javax.ejb.Stateless;
 import javax.enterprise.event.Observes;
 import javax.enterprise.event.TransactionPhase;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import javax.transaction.Transactional;
 
 import org.joda.time.LocalDate;
@@ -56,6 +58,7 @@ import org.slf4j.LoggerFactory;
  * The "coloring process" workflow to determine if PTU(s) become orange.
  */
 @Stateless
+@Interceptors(EventMonitoringInterceptor.class)
 @Transactional(Transactional.TxType.REQUIRES_NEW)
 public class DsoColoringProcessCoordinator {
 
@@ -16,10 +16,12 @@
 
 package energy.usef.dso.workflow.plan.connection.forecast;
 
+import energy.usef.core.event.MonitoredEvent;
+
 /**
  * Event implementation for starting CommonReferenceQuery workflow.
  */
-public class CommonReferenceQueryEvent {
+public class CommonReferenceQueryEvent implements MonitoredEvent {
 
     @Override
     public String toString() {
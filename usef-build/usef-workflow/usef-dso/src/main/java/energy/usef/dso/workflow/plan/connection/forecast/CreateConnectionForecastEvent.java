@@ -16,11 +16,13 @@
 
 package energy.usef.dso.workflow.plan.connection.forecast;
 
+import energy.usef.core.event.MonitoredEvent;
+
 
 /**
  * Event implementation for starting the DSO Non-Aggregator connection forecast workflow.
  */
-public class CreateConnectionForecastEvent {
+public class CreateConnectionForecastEvent implements MonitoredEvent {
 
     @Override
     public String toString() {
@@ -26,6 +26,7 @@ import energy.usef.core.data.xml.bean.message.CommonReferenceEntityType;
 import energy.usef.core.data.xml.bean.message.CommonReferenceQuery;
 import energy.usef.core.data.xml.bean.message.MessageMetadata;
 import energy.usef.core.data.xml.bean.message.USEFRole;
+import energy.usef.core.event.EventMonitoringInterceptor;
 import energy.usef.core.service.business.CorePlanboardBusinessService;
 import energy.usef.core.service.helper.JMSHelperService;
 import energy.usef.core.util.DateTimeUtil;
@@ -42,6 +43,7 @@ import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,6 +52,7 @@ import org.slf4j.LoggerFactory;
  * DSO coordinator class for the DSO Non Aggregator Connection Forecast workflow.
  */
 @Singleton
+@Interceptors(EventMonitoringInterceptor.class)
 public class DsoCommonReferenceQueryCoordinator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DsoCommonReferenceQueryCoordinator.class);
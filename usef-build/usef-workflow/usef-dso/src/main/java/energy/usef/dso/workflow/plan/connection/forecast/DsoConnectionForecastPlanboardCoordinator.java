@@ -31,6 +31,7 @@ import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
 import javax.enterprise.event.TransactionPhase;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 
 import org.joda.time.LocalDate;
 import org.slf4j.Logger;
@@ -38,6 +39,7 @@ import org.slf4j.LoggerFactory;
 
 import energy.usef.core.config.Config;
 import energy.usef.core.config.ConfigParam;
+import energy.usef.core.event.EventMonitoringInterceptor;
 import energy.usef.core.event.RequestMoveToValidateEvent;
 import energy.usef.core.model.CongestionPointConnectionGroup;
 import energy.usef.core.model.Connection;
@@ -58,6 +60,7 @@ import energy.usef.dso.workflow.DsoWorkflowStep;
  * DSO Non Aggreagator Connection Forecast workflow, Plan board sub-flow workflow coordinator.
  */
 @Singleton
+@Interceptors(EventMonitoringInterceptor.class)
 public class DsoConnectionForecastPlanboardCoordinator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DsoConnectionForecastPlanboardCoordinator.class);
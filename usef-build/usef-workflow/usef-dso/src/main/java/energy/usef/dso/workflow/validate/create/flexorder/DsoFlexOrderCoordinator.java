@@ -25,6 +25,7 @@ import energy.usef.core.config.ConfigParam;
 import energy.usef.core.data.xml.bean.message.FlexOrder;
 import energy.usef.core.data.xml.bean.message.PTU;
 import energy.usef.core.data.xml.bean.message.USEFRole;
+import energy.usef.core.event.EventMonitoringInterceptor;
 import energy.usef.core.model.AcknowledgementStatus;
 import energy.usef.core.model.DocumentStatus;
 import energy.usef.core.model.PlanboardMessage;
@@ -57,6 +58,7 @@ import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 
 import org.joda.time.LocalDate;
 import org.joda.time.LocalDateTime;
@@ -68,6 +70,7 @@ import org.slf4j.LoggerFactory;
  * This coordinater executes the business logic for Creating and Sending FlexOffer's.
  */
 @Singleton
+@Interceptors(EventMonitoringInterceptor.class)
 public class DsoFlexOrderCoordinator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DsoFlexOrderCoordinator.class);
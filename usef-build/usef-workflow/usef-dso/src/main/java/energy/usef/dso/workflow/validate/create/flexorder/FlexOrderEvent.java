@@ -16,11 +16,13 @@
 
 package energy.usef.dso.workflow.validate.create.flexorder;
 
+import energy.usef.core.event.MonitoredEvent;
+
 
 /**
  * The FlexOfferEvent, requires no paramaters.
  */
-public class FlexOrderEvent {
+public class FlexOrderEvent implements MonitoredEvent {
 
     @Override
     public String toString() {
@@ -21,11 +21,12 @@ import java.util.Arrays;
 import org.joda.time.LocalDate;
 
 import energy.usef.core.event.ExpirableEvent;
+import energy.usef.core.event.MonitoredEvent;
 
 /**
  * Event class used to trigger the 'Create Flew Request' DSO workflow.
  */
-public class CreateFlexRequestEvent implements ExpirableEvent {
+public class CreateFlexRequestEvent implements ExpirableEvent, MonitoredEvent {
 
     private final String congestionPointEntityAddress;
     private final LocalDate period;
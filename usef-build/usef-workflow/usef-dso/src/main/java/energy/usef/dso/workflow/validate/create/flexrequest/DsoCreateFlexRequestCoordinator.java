@@ -30,8 +30,10 @@ import javax.ejb.Stateless;
 import javax.enterprise.event.Observes;
 import javax.enterprise.event.TransactionPhase;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import javax.transaction.Transactional;
 
+import energy.usef.core.event.EventMonitoringInterceptor;
 import energy.usef.core.event.validation.EventValidationService;
 import energy.usef.core.exception.BusinessValidationException;
 import org.joda.time.Period;
@@ -69,6 +71,7 @@ import energy.usef.dso.workflow.transformer.GridSafetyAnalysisDtoTransformer;
  * Stateless, because this process can and should be executed simultaneous / aggregator
  */
 @Stateless
+@Interceptors(EventMonitoringInterceptor.class)
 @Transactional(Transactional.TxType.REQUIRES_NEW)
 public class DsoCreateFlexRequestCoordinator {
 
@@ -28,8 +28,10 @@ import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
 import javax.enterprise.event.TransactionPhase;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import javax.transaction.Transactional;
 
+import energy.usef.core.event.EventMonitoringInterceptor;
 import energy.usef.core.event.validation.EventValidationService;
 import energy.usef.core.exception.BusinessValidationException;
 import org.joda.time.LocalDate;
@@ -64,6 +66,7 @@ import energy.usef.dso.workflow.DsoWorkflowStep;
  * This is not a singleton, because this process should be able to run per congestionPoint.
  */
 @Stateless
+@Interceptors(EventMonitoringInterceptor.class)
 @Transactional(Transactional.TxType.REQUIRES_NEW)
 public class DsoCreateMissingDPrognosisCoordinator {
     private static final Logger LOGGER = LoggerFactory.getLogger(DsoCreateMissingDPrognosisCoordinator.class);
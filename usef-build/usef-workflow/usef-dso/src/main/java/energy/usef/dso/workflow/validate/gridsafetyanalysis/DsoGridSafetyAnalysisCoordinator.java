@@ -25,8 +25,10 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.ejb.Asynchronous;
@@ -35,8 +37,10 @@ import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
 import javax.enterprise.event.TransactionPhase;
 import javax.inject.Inject;
+import javax.interceptor.Interceptors;
 import javax.transaction.Transactional;
 
+import energy.usef.core.event.EventMonitoringInterceptor;
 import energy.usef.core.event.validation.EventValidationService;
 import energy.usef.core.exception.BusinessValidationException;
 import org.joda.time.LocalDate;
@@ -81,6 +85,7 @@ import energy.usef.dso.workflow.validate.create.flexrequest.CreateFlexRequestEve
  * This is not a singleton, because this process should be able to run per congestionPoint.
  */
 @Stateless
+@Interceptors(EventMonitoringInterceptor.class)
 @Transactional(Transactional.TxType.REQUIRES_NEW)
 public class DsoGridSafetyAnalysisCoordinator {
     private static final Logger LOGGER = LoggerFactory.getLogger(DsoGridSafetyAnalysisCoordinator.class);
@@ -170,6 +175,10 @@ public class DsoGridSafetyAnalysisCoordinator {
     /**
      * This method process the StoreGridSafetyAnalysisEvent. Now that gridsafety PBC is async,
      * this process is completely seperate from the initiation of the GSA.
+     * <p>
+     * When {@link ConfigDsoParam#DSO_GRID_SAFETY_ANALYSIS_INCREMENTAL} is enabled, the rows of the previous analysis are updated
+     * instead of replaced and flex requests are only sent for the requested PTUs which did not have one yet. Otherwise the
+     * previous analysis is replaced entirely. In both modes only the PTUs from the start PTU onwards are kept.
      *
      * @param event
      */
@@ -192,14 +201,9 @@ public class DsoGridSafetyAnalysisCoordinator {
         Map<Integer, List<PtuPrognosis>> prognosisByPtuIndex = lastPrognosisList.stream()
                 .collect(Collectors.groupingBy(p -> p.getPtuContainer().getPtuIndex()));
 
-        List<PtuGridSafetyAnalysisDto> flexRequestList = new ArrayList<>();
-
         ConnectionGroup connectionGroup = corePlanboardBusinessService.findConnectionGroup(entityAddress);
         Map<Integer, PtuContainer> ptuContainers = dsoPlanboardBusinessService.findPTUContainersForPeriod(period);
 
-        int numberOfRowsDeleted = dsoPlanboardBusinessService.deletePreviousGridSafetyAnalysis(entityAddress, period);
-        LOGGER.debug("Number of previous GSA records deleted {}",numberOfRowsDeleted);
-
         int currentPtuIndex = PtuUtil.getPtuIndex(DateTimeUtil.getCurrentDateTime(),
                 config.getIntegerProperty(ConfigParam.PTU_DURATION));
         LocalDate today = DateTimeUtil.getCurrentDate();
@@ -212,11 +216,48 @@ public class DsoGridSafetyAnalysisCoordinator {
             startPtu = currentPtuIndex;
         }
 
+        List<PtuGridSafetyAnalysisDto> flexRequestList;
+        if (configDso.getBooleanProperty(ConfigDsoParam.DSO_GRID_SAFETY_ANALYSIS_INCREMENTAL)) {
+            flexRequestList = storeChangedGridSafetyAnalysis(event, sequence, connectionGroup, startPtu,
+                    prognosisByPtuIndex, ptuContainers, aggregatorsAvailable);
+        } else {
+            flexRequestList = replaceGridSafetyAnalysis(event, sequence, connectionGroup, startPtu,
+                    prognosisByPtuIndex, ptuContainers, aggregatorsAvailable);
+        }
+
+        // fire next steps
+        if (!flexRequestList.isEmpty()) {
+            // there are flex requests possible, send them
+            sendFlexRequests(event, flexRequestList);
+        } else if (!aggregatorsAvailable || !hasRequestedPtu(event.getGridSafetyAnalysisDto(), startPtu)) {
+            // no flex requests possible, start the coloring process
+            startColoringProcess(event);
+        } else {
+            LOGGER.debug("Flex requests were already sent for all the requested PTUs of {} on {}", entityAddress, period);
+        }
+
+        LOGGER.debug("Ended saving GridSafetyAnalysis");
+    }
+
+    /*
+     * Deletes the previous grid safety analysis and stores all the PTUs of the new one from the start PTU onwards. Returns the
+     * PTUs with disposition requested.
+     */
+    private List<PtuGridSafetyAnalysisDto> replaceGridSafetyAnalysis(StoreGridSafetyAnalysisEvent event,
+            long sequence, ConnectionGroup connectionGroup, int startPtu, Map<Integer, List<PtuPrognosis>> prognosisByPtuIndex,
+            Map<Integer, PtuContainer> ptuContainers, boolean aggregatorsAvailable) {
+        List<PtuGridSafetyAnalysisDto> flexRequestList = new ArrayList<>();
+
+        int numberOfRowsDeleted = dsoPlanboardBusinessService.deletePreviousGridSafetyAnalysis(
+                event.getCongestionPointEntityAddress(), event.getPeriod());
+        LOGGER.debug("Number of previous GSA records deleted {}",numberOfRowsDeleted);
+
         GridSafetyAnalysisDto gridSafetyAnalysisDto = event.getGridSafetyAnalysisDto();
         for (int ptuIndex = startPtu; ptuIndex <= gridSafetyAnalysisDto.getPtus().size(); ptuIndex++) {
             PtuGridSafetyAnalysisDto ptuGridSafetyAnalysisDto = gridSafetyAnalysisDto.getPtus().get(ptuIndex - 1);
-            GridSafetyAnalysis gridSafetyAnalysis;
-            gridSafetyAnalysis = createGridSafetyAnalysis(sequence, prognosisByPtuIndex, connectionGroup, ptuContainers,
+            GridSafetyAnalysis gridSafetyAnalysis = new GridSafetyAnalysis();
+            gridSafetyAnalysis.setConnectionGroup(connectionGroup);
+            populateGridSafetyAnalysis(gridSafetyAnalysis, sequence, prognosisByPtuIndex, ptuContainers,
                     ptuGridSafetyAnalysisDto);
 
             dsoPlanboardBusinessService.storeGridSafetyAnalysis(gridSafetyAnalysis);
@@ -230,17 +271,77 @@ public class DsoGridSafetyAnalysisCoordinator {
                 flexRequestList.add(ptuGridSafetyAnalysisDto);
             }
         }
+        return flexRequestList;
+    }
 
-        // fire next steps
-        if (flexRequestList.isEmpty()) {
-            // no flex requests possible, start the coloring process
-            startColoringProcess(event);
-        } else {
-            // there are flex requests possible, send them
-            sendFlexRequests(event, flexRequestList);
+    /*
+     * Updates the previous grid safety analysis with the new one, the PTUs before the start PTU are deleted like in the replace
+     * mode. Every kept PTU is linked to the sequence and the prognoses of the new analysis. Returns the requested PTUs of which
+     * the disposition changed to requested or which did not get a flex request yet (their regime is still green, for instance
+     * because no aggregator was active before).
+     */
+    private List<PtuGridSafetyAnalysisDto> storeChangedGridSafetyAnalysis(StoreGridSafetyAnalysisEvent event,
+            long sequence, ConnectionGroup connectionGroup, int startPtu, Map<Integer, List<PtuPrognosis>> prognosisByPtuIndex,
+            Map<Integer, PtuContainer> ptuContainers, boolean aggregatorsAvailable) {
+        List<PtuGridSafetyAnalysisDto> flexRequestList = new ArrayList<>();
+
+        int numberOfRowsDeleted = dsoPlanboardBusinessService.deleteGridSafetyAnalysisBeforePtu(
+                event.getCongestionPointEntityAddress(), event.getPeriod(), startPtu);
+        LOGGER.debug("Number of previous GSA records deleted {}", numberOfRowsDeleted);
+
+        Map<Integer, GridSafetyAnalysis> previousByPtuIndex = dsoPlanboardBusinessService
+                .findGridSafetyAnalysis(event.getCongestionPointEntityAddress(), event.getPeriod())
+                .stream()
+                .filter(gsa -> gsa.getPtuContainer().getPtuIndex() >= startPtu)
+                .collect(Collectors.toMap(gsa -> gsa.getPtuContainer().getPtuIndex(), Function.identity(),
+                        (gsa1, gsa2) -> gsa1.getSequence() >= gsa2.getSequence() ? gsa1 : gsa2));
+
+        int numberOfRowsChanged = 0;
+        GridSafetyAnalysisDto gridSafetyAnalysisDto = event.getGridSafetyAnalysisDto();
+        for (int ptuIndex = startPtu; ptuIndex <= gridSafetyAnalysisDto.getPtus().size(); ptuIndex++) {
+            PtuGridSafetyAnalysisDto ptuGridSafetyAnalysisDto = gridSafetyAnalysisDto.getPtus().get(ptuIndex - 1);
+            GridSafetyAnalysis gridSafetyAnalysis = previousByPtuIndex.get(ptuGridSafetyAnalysisDto.getPtuIndex());
+            boolean previouslyRequested;
+            if (gridSafetyAnalysis == null) {
+                previouslyRequested = false;
+                numberOfRowsChanged++;
+                gridSafetyAnalysis = new GridSafetyAnalysis();
+                gridSafetyAnalysis.setConnectionGroup(connectionGroup);
+                populateGridSafetyAnalysis(gridSafetyAnalysis, sequence, prognosisByPtuIndex, ptuContainers,
+                        ptuGridSafetyAnalysisDto);
+                dsoPlanboardBusinessService.storeGridSafetyAnalysis(gridSafetyAnalysis);
+            } else {
+                previouslyRequested = gridSafetyAnalysis.getDisposition() == DispositionAvailableRequested.REQUESTED;
+                if (isChanged(gridSafetyAnalysis, ptuGridSafetyAnalysisDto)) {
+                    numberOfRowsChanged++;
+                }
+                // the entity is managed, the changes are written when the transaction commits.
+                populateGridSafetyAnalysis(gridSafetyAnalysis, sequence, prognosisByPtuIndex, ptuContainers,
+                        ptuGridSafetyAnalysisDto);
+            }
+
+            if (DispositionTypeDto.REQUESTED.equals(ptuGridSafetyAnalysisDto.getDisposition()) && aggregatorsAvailable) {
+                PtuState ptuState = corePlanboardBusinessService.findOrCreatePtuState(gridSafetyAnalysis.getPtuContainer(),
+                        gridSafetyAnalysis.getConnectionGroup());
+                if (!previouslyRequested || ptuState.getRegime() == RegimeType.GREEN) {
+                    ptuState.setRegime(RegimeType.YELLOW);
+                    flexRequestList.add(ptuGridSafetyAnalysisDto);
+                }
+            }
         }
+        LOGGER.debug("Number of GSA records changed {} (flex requests needed: {})", numberOfRowsChanged, flexRequestList.size());
+        return flexRequestList;
+    }
 
-        LOGGER.debug("Ended saving GridSafetyAnalysis");
+    private boolean hasRequestedPtu(GridSafetyAnalysisDto gridSafetyAnalysisDto, int startPtu) {
+        return gridSafetyAnalysisDto.getPtus().stream()
+                .skip(startPtu - 1L)
+                .anyMatch(ptuGridSafetyAnalysisDto -> DispositionTypeDto.REQUESTED.equals(ptuGridSafetyAnalysisDto.getDisposition()));
+    }
+
+    private boolean isChanged(GridSafetyAnalysis gridSafetyAnalysis, PtuGridSafetyAnalysisDto ptuGridSafetyAnalysisDto) {
+        return gridSafetyAnalysis.getDisposition() != toDisposition(ptuGridSafetyAnalysisDto.getDisposition())
+                || !Objects.equals(gridSafetyAnalysis.getPower(), ptuGridSafetyAnalysisDto.getPower());
     }
 
     private List<PtuPrognosis> findLastPrognoses(LocalDate period, String usefIdentifier) {
@@ -280,22 +381,21 @@ public class DsoGridSafetyAnalysisCoordinator {
         return nonAggregatorForecastDto;
     }
 
-    private GridSafetyAnalysis createGridSafetyAnalysis(long sequence, Map<Integer, List<PtuPrognosis>> prognosisByPtuIndex,
-            ConnectionGroup connectionGroup, Map<Integer, PtuContainer> ptuContainers,
+    private void populateGridSafetyAnalysis(GridSafetyAnalysis gridSafetyAnalysis, long sequence,
+            Map<Integer, List<PtuPrognosis>> prognosisByPtuIndex, Map<Integer, PtuContainer> ptuContainers,
             PtuGridSafetyAnalysisDto ptuGridSafetyAnalysisDto) {
-        GridSafetyAnalysis gridSafetyAnalysis = new GridSafetyAnalysis();
-        gridSafetyAnalysis.setConnectionGroup(connectionGroup);
         gridSafetyAnalysis.setSequence(sequence);
         gridSafetyAnalysis.setPtuContainer(ptuContainers.get(ptuGridSafetyAnalysisDto.getPtuIndex()));
         gridSafetyAnalysis.setPrognoses(prognosisByPtuIndex.get(ptuGridSafetyAnalysisDto.getPtuIndex()));
         gridSafetyAnalysis.setPower(ptuGridSafetyAnalysisDto.getPower());
+        gridSafetyAnalysis.setDisposition(toDisposition(ptuGridSafetyAnalysisDto.getDisposition()));
+    }
 
-        if (DispositionTypeDto.AVAILABLE.equals(ptuGridSafetyAnalysisDto.getDisposition())) {
-            gridSafetyAnalysis.setDisposition(DispositionAvailableRequested.AVAILABLE);
-        } else {
-            gridSafetyAnalysis.setDisposition(DispositionAvailableRequested.REQUESTED);
+    private DispositionAvailableRequested toDisposition(DispositionTypeDto disposition) {
+        if (DispositionTypeDto.AVAILABLE.equals(disposition)) {
+            return DispositionAvailableRequested.AVAILABLE;
         }
-        return gridSafetyAnalysis;
+        return DispositionAvailableRequested.REQUESTED;
     }
 
     /**
@@ -17,12 +17,13 @@
 package energy.usef.dso.workflow.validate.gridsafetyanalysis;
 
 import energy.usef.core.event.ExpirableEvent;
+import energy.usef.core.event.MonitoredEvent;
 import org.joda.time.LocalDate;
 
 /**
  * Event implementation for starting the Grid Safety Analysis workflow.
  */
-public class GridSafetyAnalysisEvent implements ExpirableEvent {
+public class GridSafetyAnalysisEvent implements ExpirableEvent, MonitoredEvent {
 
     private String congestionPointEntityAddress;
     private LocalDate period;
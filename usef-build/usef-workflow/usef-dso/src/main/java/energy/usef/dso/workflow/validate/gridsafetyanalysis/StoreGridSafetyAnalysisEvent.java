@@ -17,6 +17,7 @@
 package energy.usef.dso.workflow.validate.gridsafetyanalysis;
 
 import energy.usef.core.event.ExpirableEvent;
+import energy.usef.core.event.MonitoredEvent;
 import org.joda.time.LocalDate;
 
 import energy.usef.dso.workflow.dto.GridSafetyAnalysisDto;
@@ -24,7 +25,7 @@ import energy.usef.dso.workflow.dto.GridSafetyAnalysisDto;
 /**
  * Event implementation for starting the Grid Safety Analysis workflow.
  */
-public class StoreGridSafetyAnalysisEvent implements ExpirableEvent {
+public class StoreGridSafetyAnalysisEvent implements ExpirableEvent, MonitoredEvent {
 
     private String congestionPointEntityAddress;
     private LocalDate period;
@@ -47,6 +47,7 @@ import energy.usef.core.model.ConnectionGroupState;
 import energy.usef.core.model.Message;
 import energy.usef.core.model.PtuContainer;
 import energy.usef.core.model.PtuState;
+import energy.usef.core.service.business.CommonReferenceQueryResponseAssemblerService;
 import energy.usef.core.service.business.CorePlanboardBusinessService;
 import energy.usef.core.service.business.MessageService;
 import energy.usef.core.service.business.SequenceGeneratorService;
@@ -75,6 +76,7 @@ public class CommonReferenceQueryResponseControllerTest {
     @Before
     public void init() {
         controller = new CommonReferenceQueryResponseController();
+        Whitebox.setInternalState(controller, new CommonReferenceQueryResponseAssemblerService());
         SequenceGeneratorService sequenceGeneratorService = new SequenceGeneratorService();
 
         Whitebox.setInternalState(controller, corePlanboardBusinessService);
@@ -137,4 +137,17 @@ public class GridSafetyAnalysisRepositoryTest {
         Assert.assertEquals("Expected no deleted objects", 0, repository.deletePreviousGridSafetyAnalysis(entityAddress, new LocalDate("1999-12-29")));
     }
 
+    @Test
+    public void testDeleteGridSafetyAnalysisBeforePtu() {
+        String entityAddress = "ea1.1992-01.com.example:gridpoint.4f76ff19-a53b-49f5-84e7";
+        // the analysis of 1999-12-29 only has PTU 1, which is linked to a prognosis.
+        Assert.assertEquals("Expected no deleted objects", 0,
+                repository.deleteGridSafetyAnalysisBeforePtu(entityAddress, new LocalDate("1999-12-29"), 1));
+        Assert.assertEquals("Expected deleted objects", 1,
+                repository.deleteGridSafetyAnalysisBeforePtu(entityAddress, new LocalDate("1999-12-29"), 2));
+        Assert.assertTrue(repository.findGridSafetyAnalysis(entityAddress, new LocalDate("1999-12-29")).isEmpty());
+        Assert.assertEquals("Expected the other day to be kept", 1,
+                repository.findGridSafetyAnalysis(entityAddress, new LocalDate("1999-12-30")).size());
+    }
+
 }
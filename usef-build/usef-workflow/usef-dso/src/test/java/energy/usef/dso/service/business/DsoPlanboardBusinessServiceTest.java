@@ -23,6 +23,7 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -59,14 +60,11 @@ import energy.usef.core.model.DocumentStatus;
 import energy.usef.core.model.DocumentType;
 import energy.usef.core.model.PlanboardMessage;
 import energy.usef.core.model.PtuContainer;
-import energy.usef.core.model.PtuFlexOffer;
-import energy.usef.core.model.PtuFlexOrder;
 import energy.usef.core.model.PtuPrognosis;
 import energy.usef.core.repository.CongestionPointConnectionGroupRepository;
 import energy.usef.core.repository.ConnectionRepository;
 import energy.usef.core.repository.PlanboardMessageRepository;
 import energy.usef.core.repository.PtuContainerRepository;
-import energy.usef.core.repository.PtuFlexOfferRepository;
 import energy.usef.core.repository.PtuFlexOrderRepository;
 import energy.usef.core.repository.PtuFlexRequestRepository;
 import energy.usef.core.repository.PtuPrognosisRepository;
@@ -149,8 +147,6 @@ public class DsoPlanboardBusinessServiceTest {
     @Mock
     private PtuFlexOrderRepository ptuFlexOrderRepository;
     @Mock
-    private PtuFlexOfferRepository ptuFlexOfferRepository;
-    @Mock
     private PtuContainerRepository ptuContainerRepository;
     @Mock
     private PrognosisUpdateDeviationRepository prognosisUpdateDeviationRepository;
@@ -184,7 +180,6 @@ public class DsoPlanboardBusinessServiceTest {
         Whitebox.setInternalState(planboardService, "nonAggregatorForecastRepository", nonAggregatorForecastRepository);
         Whitebox.setInternalState(planboardService, "planboardMessageRepository", planboardMessageRepository);
         Whitebox.setInternalState(planboardService, "ptuContainerRepository", ptuContainerRepository);
-        Whitebox.setInternalState(planboardService, "ptuFlexOfferRepository", ptuFlexOfferRepository);
         Whitebox.setInternalState(planboardService, "ptuFlexOrderRepository", ptuFlexOrderRepository);
         Whitebox.setInternalState(planboardService, "ptuGridMonitorRepository", ptuGridMonitorRepository);
         Whitebox.setInternalState(planboardService, "ptuPrognosisRepository", ptuPrognosisRepository);
@@ -347,34 +342,71 @@ public class DsoPlanboardBusinessServiceTest {
 
     @Test
     public void testInvokeForUpdatedPrognosis() throws BusinessException {
-        PowerMockito.when(ptuPrognosisRepository
-                .findLastPrognoses(Matchers.any(LocalDate.class), Matchers.any(Optional.class), Matchers.any(Optional.class),
-                        Matchers.eq(Optional.empty()))).thenReturn(buildPtuPrognosisList());
         PowerMockito.when(
                 planboardMessageRepository.findFlexOrdersRelatedToPrognosis(Matchers.any(Long.class), Matchers.any(String.class)))
                 .thenReturn(buildPlanboardMessages());
-        PowerMockito.when(ptuFlexOrderRepository.findFlexOrdersBySequence(Matchers.any(Long.class))).thenReturn(buildFlexOrders());
 
         // 0. Previous prognosis prognosed 1000 Power
         // 1. Flex Offer for PTU 1 will contain -100 power, which will be OK for the 900 Power on updated Prognosis on PTU 1
         // (1000 + (-100) = 900)
-        PowerMockito.when(ptuFlexOfferRepository.findPtuFlexOfferWithSequence(Matchers.any(Long.class), Matchers.any(String.class),
-                Matchers.eq(1))).thenReturn(buildFlexOffer(1));
         // 2. Flex Offer for PTU 2 will contain -200 power which wil not be OK for the 900 Power on updated Prognosis on PTU 2
         // (1000 + (-200) != 900)
-        PowerMockito.when(ptuFlexOfferRepository.findPtuFlexOfferWithSequence(Matchers.any(Long.class), Matchers.any(String.class),
-                Matchers.eq(2))).thenReturn(buildFlexOffer(2));
+        PowerMockito.when(ptuFlexOrderRepository.sumOrderedPowerPerPtuIndex(Matchers.anyCollectionOf(Long.class)))
+                .thenReturn(buildOrderedPowerPerPtuIndex(2));
 
         Prognosis prognosis = buildPrognosis();
         planboardService.handleUpdatedPrognosis(prognosis, buildPtuPrognosisList());
 
-        ArgumentCaptor<PrognosisUpdateDeviation> prognosisUpdateErrorCaptor = ArgumentCaptor.forClass(
-                PrognosisUpdateDeviation.class);
+        ArgumentCaptor<List> prognosisUpdateErrorCaptor = ArgumentCaptor.forClass(List.class);
         // verify that we record a deviation in the planboard for the PTU 2
-        verify(prognosisUpdateDeviationRepository, times(1)).persist(prognosisUpdateErrorCaptor.capture());
-        PrognosisUpdateDeviation error = prognosisUpdateErrorCaptor.getValue();
+        verify(prognosisUpdateDeviationRepository, times(1)).persistAll(prognosisUpdateErrorCaptor.capture());
+        Assert.assertEquals(1, prognosisUpdateErrorCaptor.getValue().size());
+        PrognosisUpdateDeviation error = (PrognosisUpdateDeviation) prognosisUpdateErrorCaptor.getValue().get(0);
         Assert.assertNotNull("Did not expect a null PrognosisUpdateError", error);
         Assert.assertEquals("PTU index mismatch.", 2, error.getPtuIndex().intValue());
+        Assert.assertEquals(BigInteger.valueOf(-200), error.getOrderedPower());
+    }
+
+    @Test
+    public void testInvokeForUpdatedPrognosisOfManyAggregators() {
+        final int aggregators = 500;
+        final int ptusPerDay = 96;
+        PowerMockito.when(
+                planboardMessageRepository.findFlexOrdersRelatedToPrognosis(Matchers.any(Long.class), Matchers.any(String.class)))
+                .thenReturn(buildPlanboardMessages());
+        PowerMockito.when(ptuFlexOrderRepository.sumOrderedPowerPerPtuIndex(Matchers.anyCollectionOf(Long.class)))
+                .thenReturn(buildOrderedPowerPerPtuIndex(ptusPerDay));
+
+        for (int aggregator = 0; aggregator < aggregators; aggregator++) {
+            String aggregatorDomain = "agr" + aggregator + ".usef-example.com";
+            List<PtuPrognosis> previousPtuPrognoses = new ArrayList<>();
+            Prognosis prognosis = buildPrognosis();
+            prognosis.getMessageMetadata().setSenderDomain(aggregatorDomain);
+            prognosis.getPTU().clear();
+            for (int ptuIndex = 1; ptuIndex <= ptusPerDay; ++ptuIndex) {
+                PtuContainer ptuContainer = new PtuContainer();
+                ptuContainer.setPtuIndex(ptuIndex);
+                PtuPrognosis ptuPrognosis = new PtuPrognosis();
+                ptuPrognosis.setParticipantDomain(aggregatorDomain);
+                ptuPrognosis.setSequence(1L);
+                ptuPrognosis.setPtuContainer(ptuContainer);
+                ptuPrognosis.setPower(BigInteger.valueOf(1000));
+                previousPtuPrognoses.add(ptuPrognosis);
+
+                PTU ptu = new PTU();
+                ptu.setStart(BigInteger.valueOf(ptuIndex));
+                ptu.setPower(BigInteger.valueOf(900));
+                prognosis.getPTU().add(ptu);
+            }
+            planboardService.handleUpdatedPrognosis(prognosis, previousPtuPrognoses);
+        }
+        // the number of queries and writes per updated prognosis is constant, whatever the number of orders or PTUs.
+        verify(ptuFlexOrderRepository, times(aggregators)).sumOrderedPowerPerPtuIndex(Matchers.anyCollectionOf(Long.class));
+        verify(ptuFlexOrderRepository, times(0)).findFlexOrdersBySequence(Matchers.any(Long.class));
+        ArgumentCaptor<List> deviationsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(prognosisUpdateDeviationRepository, times(aggregators)).persistAll(deviationsCaptor.capture());
+        // only the first PTU (1000 + (-100) = 900) does not deviate.
+        deviationsCaptor.getAllValues().forEach(deviations -> Assert.assertEquals(ptusPerDay - 1, deviations.size()));
     }
 
     @Test
@@ -440,38 +472,12 @@ public class DsoPlanboardBusinessServiceTest {
         return new ArrayList<>(Collections.singletonList(pm1));
     }
 
-    private List<PtuFlexOrder> buildFlexOrders() {
-        PtuFlexOrder order1 = new PtuFlexOrder();
-        PtuFlexOrder order2 = new PtuFlexOrder();
-
-        PtuContainer ptu1 = new PtuContainer();
-        ptu1.setPtuIndex(1);
-        ptu1.setPtuDate(new LocalDate());
-        PtuContainer ptu2 = new PtuContainer();
-        ptu2.setPtuIndex(2);
-        ptu2.setPtuDate(new LocalDate());
-
-        order1.setPtuContainer(ptu1);
-        order1.setParticipantDomain("agr.usef-example.com");
-        order1.setAcknowledgementStatus(AcknowledgementStatus.ACCEPTED);
-        order1.setFlexOfferSequence(-1l);
-
-        order2.setPtuContainer(ptu2);
-        order2.setParticipantDomain("agr.usef-example.com");
-        order2.setAcknowledgementStatus(AcknowledgementStatus.ACCEPTED);
-        order2.setFlexOfferSequence(-1l);
-
-        return new ArrayList<>(Arrays.asList(order1, order2));
-    }
-
-    private PtuFlexOffer buildFlexOffer(int ptuIndex) {
-        PtuContainer ptu = new PtuContainer();
-        ptu.setPtuIndex(ptuIndex);
-        ptu.setPtuDate(new LocalDate());
-
-        PtuFlexOffer offer = new PtuFlexOffer();
-        offer.setPower(BigInteger.valueOf(-100).multiply(BigInteger.valueOf(ptuIndex)));
-        return offer;
+    private Map<Integer, BigInteger> buildOrderedPowerPerPtuIndex(int ptus) {
+        Map<Integer, BigInteger> result = new HashMap<>();
+        for (int ptuIndex = 1; ptuIndex <= ptus; ++ptuIndex) {
+            result.put(ptuIndex, BigInteger.valueOf(-100).multiply(BigInteger.valueOf(ptuIndex)));
+        }
+        return result;
     }
 
     private List<GridSafetyAnalysis> buildGridSafetyAnalysisList() {
@@ -27,6 +27,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -41,6 +42,7 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
@@ -117,14 +119,6 @@ public class DsoInitiateSettlementCoordinatorTest {
         Whitebox.setInternalState(coordinator, sequenceGeneratorService);
         Whitebox.setInternalState(coordinator, "finalizeInitiateSettlementEventManager", finalizeInitiateSettlementEventManager);
         Whitebox.setInternalState(coordinator, "checkInitiateSettlementDoneEvent", checkInitiateSettlementDoneEvent);
-        when(coreSettlementBusinessService.findRelevantPrognoses(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
-        when(coreSettlementBusinessService.findRelevantFlexRequests(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
-        when(coreSettlementBusinessService.findRelevantFlexOffers(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
-        when(coreSettlementBusinessService.findRelevantFlexOrders(any(LocalDate.class),
-                any(LocalDate.class))).thenReturn(new ArrayList<>());
         when(configDso.getIntegerProperty(ConfigDsoParam.DSO_METER_DATA_QUERY_EXPIRATION_IN_HOURS)).thenReturn(12);
         when(workflowStepExecuter.invoke(eq(DsoWorkflowStep.DSO_INITIATE_SETTLEMENT.name()),
                 any(WorkflowContext.class))).then(call -> {
@@ -218,8 +212,8 @@ public class DsoInitiateSettlementCoordinatorTest {
     public void testhandleDsoInitiateSettlement() {
         when(coreSettlementBusinessService.isEachFlexOrderReadyForSettlement(any(Integer.class), any(Integer.class)))
                 .thenReturn(Boolean.TRUE);
-        when(coreSettlementBusinessService.findRelevantFlexOffers(Matchers.eq(START_DATE), Matchers.eq(END_DATE)))
-                .thenReturn(buildPtuFlexOfferList());
+        doAnswer(call -> consumeDocument(call, buildPtuFlexOfferList())).when(coreSettlementBusinessService)
+                .findRelevantFlexOffers(Matchers.eq(START_DATE), Matchers.eq(END_DATE), any(Consumer.class));
         when(workflowStepExecuter.invoke(
                 Matchers.eq(DsoWorkflowStep.DSO_INITIATE_SETTLEMENT.name()), any(WorkflowContext.class))).then(call -> {
             WorkflowContext inContext = ((WorkflowContext) call.getArguments()[1]);
@@ -255,6 +249,12 @@ public class DsoInitiateSettlementCoordinatorTest {
         Assert.assertNotNull(context.getValue(CoreInitiateSettlementParameter.IN.PROGNOSIS_DTO_LIST.name()));
     }
 
+    @SuppressWarnings("unchecked")
+    private Object consumeDocument(InvocationOnMock call, List<PtuFlexOffer> ptuFlexOffers) {
+        ((Consumer<List<PtuFlexOffer>>) call.getArguments()[2]).accept(ptuFlexOffers);
+        return null;
+    }
+
     private List<PtuFlexOffer> buildPtuFlexOfferList() {
         List<PtuFlexOffer> ptuFlexOfferList = new ArrayList<>();
         PtuFlexOffer ptuFlexOffer = new PtuFlexOffer();
@@ -277,6 +277,7 @@ public class DsoInitiateSettlementCoordinatorTest {
         flexOrderSettlementDto.getPtuSettlementDtos().add(ptuSettlementDto);
         FlexOrderDto flexOrderDto = new FlexOrderDto();
         flexOrderDto.setFlexOfferSequenceNumber(1l);
+        flexOrderDto.setConnectionGroupEntityAddress("cp1");
         flexOrderSettlementDto.setFlexOrder(flexOrderDto);
         flexOrderDto.setParticipantDomain("agr.usef-example.com");
         settlementDto.getFlexOrderSettlementDtos().add(flexOrderSettlementDto);
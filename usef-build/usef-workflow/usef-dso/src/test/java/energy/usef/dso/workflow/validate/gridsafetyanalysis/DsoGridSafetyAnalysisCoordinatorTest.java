@@ -19,7 +19,9 @@ package energy.usef.dso.workflow.validate.gridsafetyanalysis;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -54,6 +56,7 @@ import energy.usef.core.model.PrognosisType;
 import energy.usef.core.model.PtuContainer;
 import energy.usef.core.model.PtuPrognosis;
 import energy.usef.core.model.PtuState;
+import energy.usef.core.model.RegimeType;
 import energy.usef.core.service.business.CorePlanboardBusinessService;
 import energy.usef.core.service.business.SequenceGeneratorService;
 import energy.usef.core.workflow.DefaultWorkflowContext;
@@ -252,6 +255,170 @@ public class DsoGridSafetyAnalysisCoordinatorTest {
         Mockito.verify(dsoPlanboardBusinessService, Mockito.times(96)).storeGridSafetyAnalysis(Matchers.any(GridSafetyAnalysis.class));
     }
 
+    @Test
+    public void testIncrementalGridSafetyAnalysisOnlyChangesChangedPtus() throws BusinessValidationException {
+        LocalDate ptuDate = new LocalDate().plusDays(2);
+        Mockito.when(configDso.getBooleanProperty(ConfigDsoParam.DSO_GRID_SAFETY_ANALYSIS_INCREMENTAL)).thenReturn(true);
+        Mockito.when(dsoPlanboardBusinessService.countActiveAggregatorsForCongestionPointOnDay(Matchers.any(String.class),
+                Matchers.any(LocalDate.class))).thenReturn(1L);
+        Mockito.when(corePlanboardBusinessService.findLastPrognoses(Matchers.any(LocalDate.class),
+                Matchers.eq(PrognosisType.D_PROGNOSIS), Matchers.eq(ENTITY_ADDRESS))).thenReturn(createDPrognoses(ptuDate));
+        Map<Integer, PtuState> ptuStates = stubPtuStates(RegimeType.YELLOW);
+
+        // previous analysis: every PTU requested with power 10, except PTU 5 which was available.
+        List<GridSafetyAnalysis> previousAnalysis = buildLatestSafetyAnalysis(ENTITY_ADDRESS, ptuDate);
+        previousAnalysis.get(4).setDisposition(DispositionAvailableRequested.AVAILABLE);
+        Mockito.when(dsoPlanboardBusinessService.findGridSafetyAnalysis(Matchers.any(String.class), Matchers.any(LocalDate.class)))
+                .thenReturn(previousAnalysis);
+
+        // new analysis: PTU 5 flips to requested, PTU 6 changes power and PTU 7 flips to available.
+        GridSafetyAnalysisDto dto = buildGridSafetyAnalysisDto(i -> i == 6 ? 20L : 10L,
+                i -> i == 7 ? DispositionTypeDto.AVAILABLE : DispositionTypeDto.REQUESTED);
+
+        dsoGridSafetyAnalysisCoordinator.saveAndProcessGridSafetyAnalysis(new StoreGridSafetyAnalysisEvent(ENTITY_ADDRESS, ptuDate, dto));
+
+        Mockito.verify(dsoPlanboardBusinessService, Mockito.times(0)).deletePreviousGridSafetyAnalysis(Matchers.any(String.class),
+                Matchers.any(LocalDate.class));
+        Mockito.verify(dsoPlanboardBusinessService, Mockito.times(1)).deleteGridSafetyAnalysisBeforePtu(ENTITY_ADDRESS, ptuDate, 1);
+        Mockito.verify(dsoPlanboardBusinessService, Mockito.times(0)).storeGridSafetyAnalysis(Matchers.any(GridSafetyAnalysis.class));
+        Assert.assertEquals(DispositionAvailableRequested.REQUESTED, previousAnalysis.get(4).getDisposition());
+        Assert.assertEquals(20L, previousAnalysis.get(5).getPower().longValue());
+        Assert.assertEquals(DispositionAvailableRequested.AVAILABLE, previousAnalysis.get(6).getDisposition());
+
+        // every kept PTU refers to the new analysis and to the last prognoses, not only the changed ones.
+        long sequence = previousAnalysis.get(0).getSequence();
+        Assert.assertNotEquals(-1L, sequence);
+        previousAnalysis.forEach(gsa -> {
+            Assert.assertEquals(sequence, gsa.getSequence().longValue());
+            Assert.assertEquals(1, gsa.getPrognoses().size());
+            Assert.assertEquals(gsa.getPtuContainer().getPtuIndex().longValue(), gsa.getPrognoses().get(0).getId().longValue());
+        });
+
+        // only the PTU of which the disposition flipped to requested gets a flex request.
+        ArgumentCaptor<CreateFlexRequestEvent> flexRequestEventCaptor = ArgumentCaptor.forClass(CreateFlexRequestEvent.class);
+        Mockito.verify(flexRequestEventManager, Mockito.times(1)).fire(flexRequestEventCaptor.capture());
+        Assert.assertArrayEquals(new Integer[] { 5 }, flexRequestEventCaptor.getValue().getPtuIndexes());
+        Assert.assertEquals(RegimeType.YELLOW, ptuStates.get(5).getRegime());
+        Mockito.verify(coloringEventManager, Mockito.times(0)).fire(Matchers.any(ColoringProcessEvent.class));
+    }
+
+    @Test
+    public void testIncrementalGridSafetyAnalysisSendsFlexRequestsOnceAnAggregatorIsActive() throws BusinessValidationException {
+        LocalDate ptuDate = new LocalDate().plusDays(2);
+        Mockito.when(configDso.getBooleanProperty(ConfigDsoParam.DSO_GRID_SAFETY_ANALYSIS_INCREMENTAL)).thenReturn(true);
+        Mockito.when(dsoPlanboardBusinessService.countActiveAggregatorsForCongestionPointOnDay(Matchers.any(String.class),
+                Matchers.any(LocalDate.class))).thenReturn(1L);
+        // the PTUs were requested while no aggregator was active, they did not get a flex request.
+        Map<Integer, PtuState> ptuStates = stubPtuStates(RegimeType.GREEN);
+        List<GridSafetyAnalysis> previousAnalysis = buildLatestSafetyAnalysis(ENTITY_ADDRESS, ptuDate);
+        Mockito.when(dsoPlanboardBusinessService.findGridSafetyAnalysis(Matchers.any(String.class), Matchers.any(LocalDate.class)))
+                .thenReturn(previousAnalysis);
+
+        // the new analysis is identical.
+        dsoGridSafetyAnalysisCoordinator.saveAndProcessGridSafetyAnalysis(new StoreGridSafetyAnalysisEvent(ENTITY_ADDRESS, ptuDate,
+                buildGridSafetyAnalysisDto(i -> 10L, i -> DispositionTypeDto.REQUESTED)));
+
+        ArgumentCaptor<CreateFlexRequestEvent> flexRequestEventCaptor = ArgumentCaptor.forClass(CreateFlexRequestEvent.class);
+        Mockito.verify(flexRequestEventManager, Mockito.times(1)).fire(flexRequestEventCaptor.capture());
+        Assert.assertArrayEquals(IntStream.rangeClosed(1, PTUS_PER_DAY).boxed().toArray(Integer[]::new),
+                flexRequestEventCaptor.getValue().getPtuIndexes());
+        Assert.assertTrue(ptuStates.values().stream().allMatch(ptuState -> ptuState.getRegime() == RegimeType.YELLOW));
+        Mockito.verify(coloringEventManager, Mockito.times(0)).fire(Matchers.any(ColoringProcessEvent.class));
+    }
+
+    @Test
+    public void testIncrementalGridSafetyAnalysisWithoutNewFlexRequestsSendsNothing() throws BusinessValidationException {
+        LocalDate ptuDate = new LocalDate().plusDays(2);
+        Mockito.when(configDso.getBooleanProperty(ConfigDsoParam.DSO_GRID_SAFETY_ANALYSIS_INCREMENTAL)).thenReturn(true);
+        Mockito.when(dsoPlanboardBusinessService.countActiveAggregatorsForCongestionPointOnDay(Matchers.any(String.class),
+                Matchers.any(LocalDate.class))).thenReturn(1L);
+        stubPtuStates(RegimeType.YELLOW);
+
+        // the previous analysis requests every PTU with power 10 and got its flex requests, the new one is identical.
+        List<GridSafetyAnalysis> previousAnalysis = buildLatestSafetyAnalysis(ENTITY_ADDRESS, ptuDate);
+        Mockito.when(dsoPlanboardBusinessService.findGridSafetyAnalysis(Matchers.any(String.class), Matchers.any(LocalDate.class)))
+                .thenReturn(previousAnalysis);
+
+        dsoGridSafetyAnalysisCoordinator.saveAndProcessGridSafetyAnalysis(new StoreGridSafetyAnalysisEvent(ENTITY_ADDRESS, ptuDate,
+                buildGridSafetyAnalysisDto(i -> 10L, i -> DispositionTypeDto.REQUESTED)));
+
+        // the congestion is still handled by the flex requests sent for the previous analysis.
+        Assert.assertTrue(previousAnalysis.stream().noneMatch(gsa -> gsa.getSequence() == -1L));
+        Mockito.verify(flexRequestEventManager, Mockito.times(0)).fire(Matchers.any(CreateFlexRequestEvent.class));
+        Mockito.verify(coloringEventManager, Mockito.times(0)).fire(Matchers.any(ColoringProcessEvent.class));
+    }
+
+    @Test
+    public void testIncrementalGridSafetyAnalysisWithoutRequestedPtusStartsColoring() throws BusinessValidationException {
+        LocalDate ptuDate = new LocalDate().plusDays(2);
+        Mockito.when(configDso.getBooleanProperty(ConfigDsoParam.DSO_GRID_SAFETY_ANALYSIS_INCREMENTAL)).thenReturn(true);
+        Mockito.when(dsoPlanboardBusinessService.countActiveAggregatorsForCongestionPointOnDay(Matchers.any(String.class),
+                Matchers.any(LocalDate.class))).thenReturn(1L);
+        stubPtuStates(RegimeType.YELLOW);
+        Mockito.when(dsoPlanboardBusinessService.findGridSafetyAnalysis(Matchers.any(String.class), Matchers.any(LocalDate.class)))
+                .thenReturn(buildLatestSafetyAnalysis(ENTITY_ADDRESS, ptuDate));
+
+        dsoGridSafetyAnalysisCoordinator.saveAndProcessGridSafetyAnalysis(new StoreGridSafetyAnalysisEvent(ENTITY_ADDRESS, ptuDate,
+                buildGridSafetyAnalysisDto(i -> 10L, i -> DispositionTypeDto.AVAILABLE)));
+
+        Mockito.verify(flexRequestEventManager, Mockito.times(0)).fire(Matchers.any(CreateFlexRequestEvent.class));
+        Mockito.verify(coloringEventManager, Mockito.times(1)).fire(Matchers.any(ColoringProcessEvent.class));
+    }
+
+    @Test
+    public void testGridSafetyAnalysisKeepsTheSamePtusInBothModes() throws BusinessValidationException {
+        LocalDate ptuDate = new LocalDate();
+        stubPtuStates(RegimeType.GREEN);
+        GridSafetyAnalysisDto dto = buildGridSafetyAnalysisDto(i -> 10L, i -> DispositionTypeDto.AVAILABLE);
+
+        // replace mode: every previous PTU is deleted, the PTUs from the start PTU onwards are stored again.
+        dsoGridSafetyAnalysisCoordinator.saveAndProcessGridSafetyAnalysis(new StoreGridSafetyAnalysisEvent(ENTITY_ADDRESS, ptuDate, dto));
+        ArgumentCaptor<GridSafetyAnalysis> storedCaptor = ArgumentCaptor.forClass(GridSafetyAnalysis.class);
+        Mockito.verify(dsoPlanboardBusinessService, Mockito.times(1)).deletePreviousGridSafetyAnalysis(ENTITY_ADDRESS, ptuDate);
+        Mockito.verify(dsoPlanboardBusinessService, Mockito.atLeastOnce()).storeGridSafetyAnalysis(storedCaptor.capture());
+        List<Integer> replacedPtus = storedCaptor.getAllValues().stream()
+                .map(gsa -> gsa.getPtuContainer().getPtuIndex())
+                .collect(Collectors.toList());
+
+        // incremental mode: the PTUs before the start PTU are deleted, the other ones are updated.
+        Mockito.when(configDso.getBooleanProperty(ConfigDsoParam.DSO_GRID_SAFETY_ANALYSIS_INCREMENTAL)).thenReturn(true);
+        List<GridSafetyAnalysis> previousAnalysis = buildLatestSafetyAnalysis(ENTITY_ADDRESS, ptuDate);
+        Mockito.when(dsoPlanboardBusinessService.findGridSafetyAnalysis(Matchers.any(String.class), Matchers.any(LocalDate.class)))
+                .thenReturn(previousAnalysis);
+        dsoGridSafetyAnalysisCoordinator.saveAndProcessGridSafetyAnalysis(new StoreGridSafetyAnalysisEvent(ENTITY_ADDRESS, ptuDate, dto));
+        ArgumentCaptor<Integer> startPtuCaptor = ArgumentCaptor.forClass(Integer.class);
+        Mockito.verify(dsoPlanboardBusinessService, Mockito.times(1)).deleteGridSafetyAnalysisBeforePtu(Matchers.eq(ENTITY_ADDRESS),
+                Matchers.eq(ptuDate), startPtuCaptor.capture());
+        List<Integer> updatedPtus = previousAnalysis.stream()
+                .filter(gsa -> gsa.getSequence() != -1L)
+                .map(gsa -> gsa.getPtuContainer().getPtuIndex())
+                .collect(Collectors.toList());
+
+        Assert.assertEquals(startPtuCaptor.getValue(), replacedPtus.get(0));
+        Assert.assertEquals(replacedPtus, updatedPtus);
+    }
+
+    private GridSafetyAnalysisDto buildGridSafetyAnalysisDto(Function<Integer, Long> power,
+            Function<Integer, DispositionTypeDto> disposition) {
+        GridSafetyAnalysisDto dto = new GridSafetyAnalysisDto();
+        dto.setPtus(IntStream.rangeClosed(1, PTUS_PER_DAY).mapToObj(i -> {
+            PtuGridSafetyAnalysisDto ptuGridSafetyAnalysisDto = new PtuGridSafetyAnalysisDto();
+            ptuGridSafetyAnalysisDto.setPtuIndex(i);
+            ptuGridSafetyAnalysisDto.setPower(power.apply(i));
+            ptuGridSafetyAnalysisDto.setDisposition(disposition.apply(i));
+            return ptuGridSafetyAnalysisDto;
+        }).collect(Collectors.toList()));
+        return dto;
+    }
+
+    private Map<Integer, PtuState> stubPtuStates(RegimeType regime) {
+        Map<Integer, PtuState> ptuStates = new HashMap<>();
+        Mockito.when(corePlanboardBusinessService.findOrCreatePtuState(Mockito.any(PtuContainer.class),
+                Mockito.any(ConnectionGroup.class))).then(call -> ptuStates.computeIfAbsent(
+                ((PtuContainer) call.getArguments()[0]).getPtuIndex(), ptuIndex -> new PtuState(regime, null)));
+        return ptuStates;
+    }
+
     private WorkflowContext prepareResultTestContext(WorkflowContext context, LocalDate ptuDate) {
 
         GridSafetyAnalysisDto outputDto = new GridSafetyAnalysisDto();
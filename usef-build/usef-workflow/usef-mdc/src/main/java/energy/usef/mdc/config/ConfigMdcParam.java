@@ -23,7 +23,12 @@ package energy.usef.mdc.config;
  * type safe (before a string value was used).
  */
 public enum ConfigMdcParam {
-    MDC_COMMON_REFERENCE_QUERY_TIME(String.class);
+    MDC_COMMON_REFERENCE_QUERY_TIME(String.class),
+    MDC_COMMON_REFERENCE_QUERY_BATCH_SIZE(Integer.class),
+    MDC_COMMON_REFERENCE_QUERY_MAX_RETRIES(Integer.class),
+    MDC_COMMON_REFERENCE_QUERY_RETRY_DELAY_IN_SECONDS(Integer.class),
+    MDC_METER_DATA_QUERY_THREAD_POOL_SIZE(Integer.class),
+    MDC_METER_DATA_QUERY_TIMEOUT_IN_SECONDS(Integer.class);
 
     private Class<?> propertyClass;
 
@@ -17,16 +17,25 @@
 package energy.usef.mdc.controller;
 
 import energy.usef.core.controller.BaseIncomingResponseMessageController;
+import energy.usef.core.data.xml.bean.message.CommonReferenceQuery;
 import energy.usef.core.data.xml.bean.message.CommonReferenceQueryResponse;
 import energy.usef.core.data.xml.bean.message.DispositionSuccessFailure;
 import energy.usef.core.exception.BusinessException;
 import energy.usef.core.model.Message;
+import energy.usef.core.service.business.CommonReferenceQueryResponseAssemblerService;
 import energy.usef.core.util.DateTimeUtil;
+import energy.usef.core.util.XMLUtil;
+import energy.usef.mdc.config.ConfigMdc;
+import energy.usef.mdc.config.ConfigMdcParam;
 import energy.usef.mdc.model.CommonReferenceQueryState;
 import energy.usef.mdc.model.CommonReferenceQueryStatus;
 import energy.usef.mdc.service.business.MdcCoreBusinessService;
+import energy.usef.mdc.workflow.CommonReferenceQueryRetryEvent;
+
+import java.util.Optional;
 
 import javax.ejb.Stateless;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
@@ -43,10 +52,28 @@ public class CommonReferenceQueryResponseController extends BaseIncomingResponse
     @Inject
     private MdcCoreBusinessService mdcCoreBusinessService;
 
+    @Inject
+    private CommonReferenceQueryResponseAssemblerService commonReferenceQueryResponseAssemblerService;
+
+    @Inject
+    private ConfigMdc configMdc;
+
+    @Inject
+    private Event<CommonReferenceQueryRetryEvent> commonReferenceQueryRetryEventManager;
+
     @Override
-    public void action(CommonReferenceQueryResponse message, Message savedMessage) throws BusinessException {
+    public void action(CommonReferenceQueryResponse messagePart, Message savedMessage) throws BusinessException {
+        // a response which the CRO has split is processed once all its parts have been received.
+        Optional<CommonReferenceQueryResponse> response = commonReferenceQueryResponseAssemblerService.assemble(messagePart);
+        if (!response.isPresent()) {
+            return;
+        }
+        CommonReferenceQueryResponse message = response.get();
         LOGGER.info("Received CommonReferenceQueryResponse message for conversation [{}] with result [{}].",
                 message.getMessageMetadata().getConversationID(), message.getResult());
+        // the query of the batch of connections this message responds to.
+        CommonReferenceQuery commonReferenceQuery = XMLUtil.xmlToMessage(findFirstMessageOfConversation(message).getXml(),
+                CommonReferenceQuery.class);
 
         // in any case, persist the status of the common reference query
         CommonReferenceQueryState commonReferenceQueryState = new CommonReferenceQueryState();
@@ -55,11 +82,30 @@ public class CommonReferenceQueryResponseController extends BaseIncomingResponse
 
         if (DispositionSuccessFailure.SUCCESS == message.getResult()) {
             mdcCoreBusinessService.storeConnectionsForCommonReferenceOperator(message.getConnection(),
-                    message.getMessageMetadata().getSenderDomain());
+                    message.getMessageMetadata().getSenderDomain(), commonReferenceQuery.getConnectionEntityAddress());
             commonReferenceQueryState.setStatus(CommonReferenceQueryStatus.SUCCESS);
+            mdcCoreBusinessService.storeCommonReferenceQueryState(commonReferenceQueryState);
         } else {
             commonReferenceQueryState.setStatus(CommonReferenceQueryStatus.FAILURE);
+            mdcCoreBusinessService.storeCommonReferenceQueryState(commonReferenceQueryState);
+            retry(commonReferenceQuery);
+        }
+    }
+
+    /*
+     * Sends the batch of connections of the failed query again, unless it failed more than the maximum number of retries. The
+     * coordinator waits before sending it, longer with every failure.
+     */
+    private void retry(CommonReferenceQuery commonReferenceQuery) {
+        String conversationId = commonReferenceQuery.getMessageMetadata().getConversationID();
+        long failures = mdcCoreBusinessService.countFailedCommonReferenceQueries(conversationId);
+        if (failures > configMdc.getIntegerProperty(ConfigMdcParam.MDC_COMMON_REFERENCE_QUERY_MAX_RETRIES)) {
+            LOGGER.error("Common reference query of conversation [{}] with {} connections failed {} times, it is not sent again.",
+                    conversationId, commonReferenceQuery.getConnectionEntityAddress().size(), failures);
+            return;
         }
-        mdcCoreBusinessService.storeCommonReferenceQueryState(commonReferenceQueryState);
+        LOGGER.warn("Common reference query of conversation [{}] failed {} times, it is sent again after a delay.", conversationId,
+                failures);
+        commonReferenceQueryRetryEventManager.fire(new CommonReferenceQueryRetryEvent(commonReferenceQuery, failures));
     }
 }
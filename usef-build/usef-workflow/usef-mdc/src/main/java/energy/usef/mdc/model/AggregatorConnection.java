@@ -43,9 +43,12 @@ public class AggregatorConnection {
     @Column(name = "ID")
     private Long id;
 
-    @ManyToOne
-    @JoinColumn(name = "CONNECTION_ENTITY_ADDRESS", nullable = false)
-    private Connection connection;
+    /**
+     * Entity address of the {@link Connection}. It is not a foreign key, so that the closed states of a connection are kept when
+     * the connection is removed from the MDC.
+     */
+    @Column(name = "CONNECTION_ENTITY_ADDRESS", nullable = false)
+    private String connectionEntityAddress;
 
     @ManyToOne
     @JoinColumn(name = "AGGREGATOR_DOMAIN", nullable = false)
@@ -71,12 +74,12 @@ public class AggregatorConnection {
         this.id = id;
     }
 
-    public Connection getConnection() {
-        return connection;
+    public String getConnectionEntityAddress() {
+        return connectionEntityAddress;
     }
 
-    public void setConnection(Connection connection) {
-        this.connection = connection;
+    public void setConnectionEntityAddress(String connectionEntityAddress) {
+        this.connectionEntityAddress = connectionEntityAddress;
     }
 
     public Aggregator getAggregator() {
@@ -16,6 +16,9 @@
 
 package energy.usef.mdc.repository;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -36,6 +39,11 @@ import energy.usef.mdc.model.AggregatorConnection;
 @Stateless
 public class AggregatorConnectionRepository extends BaseRepository<AggregatorConnection> {
 
+    /**
+     * Maximum number of entity addresses bound to the IN clause of one query.
+     */
+    public static final int IN_CLAUSE_BATCH_SIZE = 1000;
+
     /**
      * Finds the list of active {@link AggregatorConnection} for the given aggregator at a given time.
      *
@@ -71,7 +79,7 @@ public class AggregatorConnectionRepository extends BaseRepository<AggregatorCon
             LocalDate date) {
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT ac FROM AggregatorConnection ac ");
-        sql.append("WHERE ac.connection.entityAddress = :connectionEntityAddress ");
+        sql.append("WHERE ac.connectionEntityAddress = :connectionEntityAddress ");
         sql.append("  AND ac.validFrom <= :date ");
         sql.append("  AND (ac.validUntil is null OR ac.validUntil > :date) ");
         List<AggregatorConnection> resultList = getEntityManager().createQuery(sql.toString(),
@@ -110,6 +118,57 @@ public class AggregatorConnectionRepository extends BaseRepository<AggregatorCon
                 .getResultList();
     }
 
+    /**
+     * Finds the list of active {@link AggregatorConnection} for the given Common Reference Operator domain and the given
+     * connections, using one query per batch of {@value #IN_CLAUSE_BATCH_SIZE} connections.
+     *
+     * @param croDomain {@link java.lang.String} domain name of the Common Reference Operator.
+     * @param date {@link org.joda.time.LocalDate} validity date.
+     * @param connectionEntityAddressList {@link List} of connection entity addresses.
+     * @return a {@link java.util.List} of {@link AggregatorConnection}.
+     */
+    public List<AggregatorConnection> findActiveAggregatorConnectionsForCommonReferenceOperator(String croDomain,
+            LocalDate date, List<String> connectionEntityAddressList) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ac FROM AggregatorConnection ac ");
+        sql.append("  JOIN FETCH ac.aggregator ");
+        sql.append("WHERE ac.commonReferenceOperator.domain = :croDomain ");
+        sql.append("  AND ac.connectionEntityAddress IN (:connectionEntityAddressList) ");
+        sql.append("  AND ac.validFrom <= :date ");
+        sql.append("  AND (ac.validUntil is null OR ac.validUntil > :date) ");
+
+        List<AggregatorConnection> result = new ArrayList<>();
+        for (int fromIndex = 0; fromIndex < connectionEntityAddressList.size(); fromIndex += IN_CLAUSE_BATCH_SIZE) {
+            result.addAll(getEntityManager().createQuery(sql.toString(), AggregatorConnection.class)
+                    .setParameter("croDomain", croDomain)
+                    .setParameter("date", date.toDateMidnight().toDate(), TemporalType.DATE)
+                    .setParameter("connectionEntityAddressList", connectionEntityAddressList.subList(fromIndex,
+                            Math.min(fromIndex + IN_CLAUSE_BATCH_SIZE, connectionEntityAddressList.size())))
+                    .getResultList());
+        }
+        return result;
+    }
+
+    /**
+     * Closes the active {@link AggregatorConnection}s of the given connection, e.g. when the connection is removed from the MDC.
+     * The closed states are kept, so that the aggregator of the connection can still be found for the days before.
+     *
+     * @param connectionEntityAddress {@link java.lang.String} entity address of the connection.
+     * @param date {@link org.joda.time.LocalDate} validity date, which becomes the end of the validity of the states.
+     * @return the number of closed states.
+     */
+    public int closeActiveAggregatorConnectionsForConnection(String connectionEntityAddress, LocalDate date) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("UPDATE AggregatorConnection ac SET ac.validUntil = :date ");
+        sql.append("WHERE ac.connectionEntityAddress = :connectionEntityAddress ");
+        sql.append("  AND ac.validFrom <= :date ");
+        sql.append("  AND (ac.validUntil is null OR ac.validUntil > :date) ");
+        return getEntityManager().createQuery(sql.toString())
+                .setParameter("connectionEntityAddress", connectionEntityAddress)
+                .setParameter("date", date.toDateMidnight().toDate(), TemporalType.DATE)
+                .executeUpdate();
+    }
+
     /**
      * Find the list of aggregator entity addresses and domains valid on a given date for a list of connections.
      *
@@ -120,9 +179,9 @@ public class AggregatorConnectionRepository extends BaseRepository<AggregatorCon
     @SuppressWarnings("unchecked")
     public Map<String, String> findAggregatorForEachConnection(LocalDate date, List<String> connectionEntityAddressList) {
         StringBuilder sql = new StringBuilder();
-        sql.append("SELECT ac.connection.entityAddress, ac.aggregator.domain ");
+        sql.append("SELECT ac.connectionEntityAddress, ac.aggregator.domain ");
         sql.append(" FROM AggregatorConnection ac ");
-        sql.append("WHERE ac.connection.entityAddress IN (:connectionEntityAddressList) ");
+        sql.append("WHERE ac.connectionEntityAddress IN (:connectionEntityAddressList) ");
         sql.append("  AND ac.validFrom <= :date ");
         sql.append("  AND (ac.validUntil is null OR ac.validUntil > :date) ");
         Query query = getEntityManager().createQuery(sql.toString());
@@ -132,6 +191,47 @@ public class AggregatorConnectionRepository extends BaseRepository<AggregatorCon
                 .stream().collect(Collectors.toMap(record -> (String) record[0], record -> (String) record[1]));
     }
 
+    /**
+     * Find the aggregator domain of a list of connections for every day of a period. For each day, this gives the same result as
+     * {@link #findAggregatorForEachConnection(LocalDate, List)}, using one query per batch of {@value #IN_CLAUSE_BATCH_SIZE}
+     * connections whatever the number of days.
+     *
+     * @param startDate {@link LocalDate} start date of the period (inclusive).
+     * @param endDate {@link LocalDate} end date of the period (inclusive).
+     * @param connectionEntityAddressList {@link List} of connection entity addresses.
+     * @return a {@link Map} with per day a {@link Map} of the connection entity address to the aggregator domain. Days without
+     * any aggregator are not present in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<LocalDate, Map<String, String>> findAggregatorForEachConnection(LocalDate startDate, LocalDate endDate,
+            List<String> connectionEntityAddressList) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ac.connectionEntityAddress, ac.aggregator.domain, ac.validFrom, ac.validUntil ");
+        sql.append(" FROM AggregatorConnection ac ");
+        sql.append("WHERE ac.connectionEntityAddress IN (:connectionEntityAddressList) ");
+        sql.append("  AND ac.validFrom <= :endDate ");
+        sql.append("  AND (ac.validUntil is null OR ac.validUntil > :startDate) ");
+
+        Map<LocalDate, Map<String, String>> result = new HashMap<>();
+        for (int fromIndex = 0; fromIndex < connectionEntityAddressList.size(); fromIndex += IN_CLAUSE_BATCH_SIZE) {
+            Query query = getEntityManager().createQuery(sql.toString());
+            query.setParameter("startDate", startDate.toDateMidnight().toDate(), TemporalType.DATE);
+            query.setParameter("endDate", endDate.toDateMidnight().toDate(), TemporalType.DATE);
+            query.setParameter("connectionEntityAddressList", connectionEntityAddressList.subList(fromIndex,
+                    Math.min(fromIndex + IN_CLAUSE_BATCH_SIZE, connectionEntityAddressList.size())));
+            for (Object[] record : (List<Object[]>) query.getResultList()) {
+                // the state is valid from validFrom (inclusive) until validUntil (exclusive), restricted to the period.
+                LocalDate validFrom = new LocalDate((Date) record[2]);
+                LocalDate day = validFrom.isBefore(startDate) ? startDate : validFrom;
+                LocalDate lastDay = record[3] == null ? endDate : new LocalDate((Date) record[3]).minusDays(1);
+                for (; !day.isAfter(endDate) && !day.isAfter(lastDay); day = day.plusDays(1)) {
+                    result.computeIfAbsent(day, date -> new HashMap<>()).put((String) record[0], (String) record[1]);
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Delete all {@link AggregatorConnection}s for a given period.
      *
@@ -22,12 +22,33 @@ import org.joda.time.LocalDate;
 
 import energy.usef.core.repository.BaseRepository;
 import energy.usef.mdc.model.CommonReferenceQueryState;
+import energy.usef.mdc.model.CommonReferenceQueryStatus;
 
 /**
  * Repository class for the {@link CommonReferenceQueryState} entity.
  */
 @Stateless
 public class CommonReferenceQueryStateRepository extends BaseRepository<CommonReferenceQueryState> {
+
+    /**
+     * Counts the {@link CommonReferenceQueryState}s with the given status of the responses in a conversation.
+     *
+     * @param conversationId {@link String} conversation ID of the common reference query.
+     * @param status {@link CommonReferenceQueryStatus} status of the responses.
+     * @return the number of {@link CommonReferenceQueryState}s.
+     */
+    public long countCommonReferenceQueryStates(String conversationId, CommonReferenceQueryStatus status) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT COUNT(crqs) FROM CommonReferenceQueryState crqs ");
+        sql.append("WHERE crqs.message.conversationId = :conversationId ");
+        sql.append("  AND crqs.status = :status");
+
+        return entityManager.createQuery(sql.toString(), Long.class)
+                .setParameter("conversationId", conversationId)
+                .setParameter("status", status)
+                .getSingleResult();
+    }
+
     /**
      * Delete all {@link CommonReferenceQueryState}s for a certain date.
      *
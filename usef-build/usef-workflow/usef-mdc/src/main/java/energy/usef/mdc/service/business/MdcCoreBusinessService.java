@@ -24,6 +24,7 @@ import energy.usef.mdc.model.AggregatorConnection;
 import energy.usef.mdc.model.BalanceResponsibleParty;
 import energy.usef.mdc.model.CommonReferenceOperator;
 import energy.usef.mdc.model.CommonReferenceQueryState;
+import energy.usef.mdc.model.CommonReferenceQueryStatus;
 import energy.usef.mdc.model.Connection;
 import energy.usef.mdc.model.DistributionSystemOperator;
 import energy.usef.mdc.repository.AggregatorConnectionRepository;
@@ -34,6 +35,7 @@ import energy.usef.mdc.repository.CommonReferenceQueryStateRepository;
 import energy.usef.mdc.repository.DistributionSystemOperatorRepository;
 import energy.usef.mdc.repository.MdcConnectionRepository;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -94,77 +96,56 @@ public class MdcCoreBusinessService {
     }
 
     /**
-     * Store new or modify existing connections resulting from the common reference query of the specified common reference
-     * operator.
+     * Store new or modify existing connections resulting from a batch of the common reference query of the specified common
+     * reference operator. Only the states of the connections of the batch are modified, so that the responses of the batches
+     * together give the states of all the connections.
      *
      * @param xmlConnections {@link java.util.List} of {@link energy.usef.core.data.xml.bean.message.Connection}.
      * @param croDomain {@link String} CRO domain name.
+     * @param queriedConnectionEntityAddresses {@link java.util.List} of the entity addresses of the connections of the batch.
      */
     public void storeConnectionsForCommonReferenceOperator(List<energy.usef.core.data.xml.bean.message.Connection> xmlConnections,
-            String croDomain) {
+            String croDomain, List<String> queriedConnectionEntityAddresses) {
         LocalDate modificationDate = DateTimeUtil.getCurrentDate();
-        List<AggregatorConnection> currentStates = aggregatorConnectionRepository
-                .findActiveAggregatorConnectionsForCommonReferenceOperator(croDomain, modificationDate);
-
-        // for each connection in the message for which no state is there, create one
-        xmlConnections
-                .stream()
-                .collect(Collectors.toMap(xmlConnection -> xmlConnection.getEntityAddress(), Function.identity()))
-                .entrySet()
+        Map<String, AggregatorConnection> currentStates = aggregatorConnectionRepository
+                .findActiveAggregatorConnectionsForCommonReferenceOperator(croDomain, modificationDate,
+                        queriedConnectionEntityAddresses)
                 .stream()
-                .filter(entry -> currentStates.stream()
-                        .map(connection -> connection.getConnection().getEntityAddress())
-                        .noneMatch(address -> entry.getKey().equals(address)))
-                .forEach(
-                        entry -> {
-                            LOGGER.debug("New connection [{}] in the CommonReferenceQueryResponse with aggregator [{}].",
-                                    entry.getKey(),
-                                    entry.getValue().getAGRDomain());
-                            createAggregatorOnConnectionState(entry.getKey(), entry.getValue().getAGRDomain(), croDomain,
-                                    modificationDate);
-                        });
+                .collect(Collectors.toMap(AggregatorConnection::getConnectionEntityAddress, Function.identity()));
+        Map<String, energy.usef.core.data.xml.bean.message.Connection> receivedConnections = xmlConnections.stream()
+                .collect(Collectors.toMap(xmlConnection -> xmlConnection.getEntityAddress(), Function.identity()));
+
+        CommonReferenceOperator commonReferenceOperator = commonReferenceOperatorRepository.find(croDomain);
+        Map<String, Aggregator> aggregators = new HashMap<>();
+        for (energy.usef.core.data.xml.bean.message.Connection xmlConnection : receivedConnections.values()) {
+            AggregatorConnection currentState = currentStates.get(xmlConnection.getEntityAddress());
+            if (currentState == null) {
+                // for each connection in the message for which no state is there, create one
+                LOGGER.debug("New connection [{}] in the CommonReferenceQueryResponse with aggregator [{}].",
+                        xmlConnection.getEntityAddress(), xmlConnection.getAGRDomain());
+            } else if (!xmlConnection.getAGRDomain().equals(currentState.getAggregator().getDomain())) {
+                // for each connection in the current states for which the aggregator changed, close it and create a new one
+                LOGGER.debug("Aggregator has changed from [{}] to [{}] for connection [{}]. Previous state will be closed "
+                                + "and a new one will be created.", currentState.getAggregator().getDomain(),
+                        xmlConnection.getAGRDomain(), xmlConnection.getEntityAddress());
+                currentState.setValidUntil(modificationDate);
+            } else {
+                continue;
+            }
+            createAggregatorOnConnectionState(xmlConnection.getEntityAddress(),
+                    aggregators.computeIfAbsent(xmlConnection.getAGRDomain(), aggregatorRepository::findOrCreate),
+                    commonReferenceOperator, modificationDate);
+        }
 
         // for each connection in the current states which is not in the message close it
-        currentStates.stream()
-                .collect(Collectors.toMap(state -> state.getConnection().getEntityAddress(), Function.identity()))
-                .entrySet()
-                .stream()
-                .filter(entry -> xmlConnections.stream()
-                        .map(xmlConnection -> xmlConnection.getEntityAddress())
-                        .noneMatch(xmlAddress -> xmlAddress.equals(entry.getKey())))
-                .forEach(entry -> {
-                    LOGGER.debug(
-                            "The connection [{}] (with aggregator [{}]) is not in the CommonReferenceQueryResponse anymore. State"
-                                    + " will be closed.", entry.getValue().getConnection().getEntityAddress(),
-                            entry.getValue().getAggregator().getDomain());
-                    entry.getValue().setValidUntil(modificationDate);
+        currentStates.values().stream()
+                .filter(state -> !receivedConnections.containsKey(state.getConnectionEntityAddress()))
+                .forEach(state -> {
+                    LOGGER.debug("The connection [{}] (with aggregator [{}]) is not in the CommonReferenceQueryResponse anymore. "
+                                    + "State will be closed.", state.getConnectionEntityAddress(),
+                            state.getAggregator().getDomain());
+                    state.setValidUntil(modificationDate);
                 });
-
-        // for each connection in the current states for which the aggregator changed, close it and create a new one
-        currentStates
-                .stream()
-                .collect(Collectors.toMap(state -> state.getConnection().getEntityAddress(), Function.identity()))
-                .entrySet()
-                .stream()
-                .forEach(
-                        entry -> xmlConnections
-                                .stream()
-                                .filter(xmlConnection -> xmlConnection.getEntityAddress().equals(entry.getKey()))
-                                .filter(xmlConnection -> !xmlConnection.getAGRDomain().equals(
-                                        entry.getValue().getAggregator().getDomain()))
-                                .findAny()
-                                .ifPresent(
-                                        xmlConnection -> {
-                                            LOGGER.debug(
-                                                    "Aggregator has changed from [{}] to [{}] for connection [{}]. Previous state will be closed "
-                                                            + "and a new one will be created.",
-                                                    entry.getValue().getAggregator().getDomain(), xmlConnection.getAGRDomain(),
-                                                    xmlConnection.getEntityAddress());
-                                            entry.getValue().setValidUntil(modificationDate);
-                                            createAggregatorOnConnectionState(xmlConnection.getEntityAddress(),
-                                                    xmlConnection.getAGRDomain(),
-                                                    croDomain, modificationDate);
-                                        }));
     }
 
     /**
@@ -176,23 +157,31 @@ public class MdcCoreBusinessService {
         commonReferenceQueryStateRepository.persist(state);
     }
 
+    /**
+     * Counts the failed responses to the common reference query of a conversation, i.e. of a batch of connections.
+     *
+     * @param conversationId {@link String} conversation ID of the common reference query.
+     * @return the number of responses with a {@link CommonReferenceQueryStatus#FAILURE} status.
+     */
+    public long countFailedCommonReferenceQueries(String conversationId) {
+        return commonReferenceQueryStateRepository.countCommonReferenceQueryStates(conversationId,
+                CommonReferenceQueryStatus.FAILURE);
+    }
+
     /**
      * Creates a new {@link AggregatorConnection} with the given parameters.
      *
      * @param connectionEntityAddress {@link String} entity address of the connection.
-     * @param aggregatorDomain {@link String} domain name of the aggregator.
-     * @param croDomain {@link String} CRO domain name.
+     * @param aggregator {@link Aggregator} aggregator of the connection.
+     * @param commonReferenceOperator {@link CommonReferenceOperator} CRO of the connection.
      * @param validFrom {@link org.joda.time.LocalDateTime} valid from date.
      */
-    private void createAggregatorOnConnectionState(String connectionEntityAddress, String aggregatorDomain, String croDomain,
-            LocalDate validFrom) {
-        Aggregator aggregator = aggregatorRepository.findOrCreate(aggregatorDomain);
-        CommonReferenceOperator commonReferenceOperator = commonReferenceOperatorRepository.find(croDomain);
-        Connection connection = mdcConnectionRepository.find(connectionEntityAddress);
+    private void createAggregatorOnConnectionState(String connectionEntityAddress, Aggregator aggregator,
+            CommonReferenceOperator commonReferenceOperator, LocalDate validFrom) {
         AggregatorConnection state = new AggregatorConnection();
         state.setAggregator(aggregator);
         state.setCommonReferenceOperator(commonReferenceOperator);
-        state.setConnection(connection);
+        state.setConnectionEntityAddress(connectionEntityAddress);
         state.setValidFrom(validFrom);
         aggregatorConnectionRepository.persist(state);
     }
@@ -208,6 +197,19 @@ public class MdcCoreBusinessService {
         return aggregatorConnectionRepository.findAggregatorForEachConnection(date, connectionEntityAddress);
     }
 
+    /**
+     * This method finds the ConnectionState of every day of a period at once.
+     *
+     * @param startDate The start date of the period (inclusive).
+     * @param endDate The end date of the period (inclusive).
+     * @param connectionEntityAddress The list of connection for which data is requested.
+     * @return a {@link Map} with per day a {@link Map} of the connection entity address to the aggregator domain.
+     */
+    public Map<LocalDate, Map<String, String>> findConnectionStates(LocalDate startDate, LocalDate endDate,
+            List<String> connectionEntityAddress) {
+        return aggregatorConnectionRepository.findAggregatorForEachConnection(startDate, endDate, connectionEntityAddress);
+    }
+
     /**
      * Find the DistributionSystemOperator.
      *
@@ -24,6 +24,7 @@ import energy.usef.core.config.Role;
 import energy.usef.core.exception.BusinessValidationException;
 import energy.usef.core.rest.RestResult;
 import energy.usef.core.rest.RestResultFactory;
+import energy.usef.core.util.DateTimeUtil;
 import energy.usef.core.util.JsonUtil;
 import energy.usef.mdc.dto.ConnectionAction;
 import energy.usef.mdc.dto.ParticipantAction;
@@ -31,6 +32,7 @@ import energy.usef.mdc.model.BalanceResponsibleParty;
 import energy.usef.mdc.model.CommonReferenceOperator;
 import energy.usef.mdc.model.Connection;
 import energy.usef.mdc.model.DistributionSystemOperator;
+import energy.usef.mdc.repository.AggregatorConnectionRepository;
 import energy.usef.mdc.repository.BalanceResponsiblePartyRepository;
 import energy.usef.mdc.repository.CommonReferenceOperatorRepository;
 import energy.usef.mdc.repository.DistributionSystemOperatorRepository;
@@ -74,6 +76,9 @@ public class MeterDataCompanyTopologyBusinessService {
     @Inject
     MdcConnectionRepository mdcConnectionRepository;
 
+    @Inject
+    AggregatorConnectionRepository aggregatorConnectionRepository;
+
     @Inject
     MeterDataCompanyValidationBusinessService validationService;
 
@@ -486,6 +491,8 @@ public class MeterDataCompanyTopologyBusinessService {
         RestResult result = RestResultFactory.getJsonRestResult();
         try {
             validationService.checkExistingConnection(domain);
+            // the connection is not queried anymore, its aggregator states are closed rather than removed.
+            aggregatorConnectionRepository.closeActiveAggregatorConnectionsForConnection(domain, DateTimeUtil.getCurrentDate());
             mdcConnectionRepository.deleteByEntityAddress(domain);
             result.setCode(HttpResponseCodes.SC_OK);
             LOGGER.info("Connection {} deleted", domain);
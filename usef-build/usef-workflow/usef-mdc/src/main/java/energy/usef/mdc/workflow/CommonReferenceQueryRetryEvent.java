@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.mdc.workflow;
+
+import energy.usef.core.data.xml.bean.message.CommonReferenceQuery;
+
+/**
+ * Event class to send a batch of the Common Reference Query of the MDC participant again, after the CRO responded with a
+ * failure.
+ */
+public class CommonReferenceQueryRetryEvent {
+
+    private final CommonReferenceQuery commonReferenceQuery;
+    private final long failures;
+
+    /**
+     * Constructor.
+     *
+     * @param commonReferenceQuery {@link CommonReferenceQuery} the query of the batch which failed.
+     * @param failures the number of times the batch failed so far.
+     */
+    public CommonReferenceQueryRetryEvent(CommonReferenceQuery commonReferenceQuery, long failures) {
+        this.commonReferenceQuery = commonReferenceQuery;
+        this.failures = failures;
+    }
+
+    public CommonReferenceQuery getCommonReferenceQuery() {
+        return commonReferenceQuery;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return "CommonReferenceQueryRetryEvent" + "[" +
+                "conversationId=" + commonReferenceQuery.getMessageMetadata().getConversationID() +
+                ", croDomain=" + commonReferenceQuery.getMessageMetadata().getRecipientDomain() +
+                ", failures=" + failures +
+                "]";
+    }
+}
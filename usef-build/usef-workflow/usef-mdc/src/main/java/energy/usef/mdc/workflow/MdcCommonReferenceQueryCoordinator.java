@@ -26,15 +26,22 @@ import energy.usef.core.data.xml.bean.message.CommonReferenceQuery;
 import energy.usef.core.data.xml.bean.message.USEFRole;
 import energy.usef.core.service.helper.JMSHelperService;
 import energy.usef.core.service.helper.MessageMetadataBuilder;
+import energy.usef.core.util.DateTimeUtil;
 import energy.usef.core.util.XMLUtil;
+import energy.usef.mdc.config.ConfigMdc;
+import energy.usef.mdc.config.ConfigMdcParam;
 import energy.usef.mdc.service.business.MdcCoreBusinessService;
 
 import java.util.List;
 
+import javax.annotation.Resource;
 import javax.ejb.Asynchronous;
 import javax.ejb.Lock;
 import javax.ejb.LockType;
 import javax.ejb.Singleton;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerService;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 
@@ -49,15 +56,26 @@ public class MdcCommonReferenceQueryCoordinator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MdcCommonReferenceQueryCoordinator.class);
 
+    private static final long MILLIS_PER_SECOND = 1000L;
+    // caps the doubling of the retry delay, the number of retries is normally far below it.
+    private static final int MAX_RETRY_DELAY_DOUBLINGS = 10;
+
+    @Resource
+    private TimerService timerService;
+
     @Inject
     private MdcCoreBusinessService mdcCoreBusinessService;
     @Inject
     private JMSHelperService jmsHelperService;
     @Inject
     private Config config;
+    @Inject
+    private ConfigMdc configMdc;
 
     /**
-     * Handle the event triggering the Common Reference Query workflow.
+     * Handle the event triggering the Common Reference Query workflow. The connections are queried in batches of at most
+     * MDC_COMMON_REFERENCE_QUERY_BATCH_SIZE connections, each batch in a conversation of its own, so that the response of a batch
+     * can be processed and a failed batch can be sent again independently of the other batches.
      *
      * @param event a {@link CommonReferenceQueryEvent}.
      */
@@ -67,24 +85,69 @@ public class MdcCommonReferenceQueryCoordinator {
         LOGGER.info(LOG_COORDINATOR_START_HANDLING_EVENT, event);
         List<String> commonReferenceOperatorDomains = mdcCoreBusinessService.findAllCommonReferenceOperatorDomains();
         List<String> connectionEntityAddresses = mdcCoreBusinessService.findAllConnectionEntityAddresses();
-        commonReferenceOperatorDomains.stream()
-                .forEach(domain -> sendCommonReferenceQuery(buildCommonReferenceQuery(domain, connectionEntityAddresses)));
+        int batchSize = configMdc.getIntegerProperty(ConfigMdcParam.MDC_COMMON_REFERENCE_QUERY_BATCH_SIZE);
+        for (String domain : commonReferenceOperatorDomains) {
+            for (int fromIndex = 0; fromIndex < connectionEntityAddresses.size(); fromIndex += batchSize) {
+                List<String> batch = connectionEntityAddresses.subList(fromIndex,
+                        Math.min(fromIndex + batchSize, connectionEntityAddresses.size()));
+                sendCommonReferenceQuery(buildCommonReferenceQuery(domain, MessageMetadataBuilder.uuid(), batch));
+            }
+        }
 
         LOGGER.info(LOG_COORDINATOR_FINISHED_HANDLING_EVENT, event);
     }
 
+    /**
+     * Handle the event sending a batch of the Common Reference Query again. The batch is not sent right away, a timer sends it
+     * after MDC_COMMON_REFERENCE_QUERY_RETRY_DELAY_IN_SECONDS, doubled for every previous failure of the batch, so that the
+     * retries do not hit the CRO again before it could recover.
+     *
+     * @param event a {@link CommonReferenceQueryRetryEvent}.
+     */
+    @Asynchronous
+    @Lock(LockType.WRITE)
+    public void handleEvent(@Observes CommonReferenceQueryRetryEvent event) {
+        LOGGER.info(LOG_COORDINATOR_START_HANDLING_EVENT, event);
+        long retryDelay = configMdc.getIntegerProperty(ConfigMdcParam.MDC_COMMON_REFERENCE_QUERY_RETRY_DELAY_IN_SECONDS)
+                * MILLIS_PER_SECOND;
+        long delay = retryDelay << Math.min(Math.max(event.getFailures() - 1, 0), MAX_RETRY_DELAY_DOUBLINGS);
+        LOGGER.info("Setting a programmatic timeout for {} milliseconds from now.", delay);
+        timerService.createTimer(delay / DateTimeUtil.getTimeFactor(),
+                XMLUtil.messageObjectToXml(event.getCommonReferenceQuery()));
+        LOGGER.info(LOG_COORDINATOR_FINISHED_HANDLING_EVENT, event);
+    }
+
+    /**
+     * Sends the batch of the failed Common Reference Query held by the expired timer again. The batch is sent in the same
+     * conversation, with a new message ID.
+     *
+     * @param timer the {@link Timer} created for the failed query.
+     */
+    @Timeout
+    @Lock(LockType.WRITE)
+    public void timeoutAction(Timer timer) {
+        CommonReferenceQuery failedQuery = XMLUtil.xmlToMessage((String) timer.getInfo(), CommonReferenceQuery.class);
+        LOGGER.info("Sending the Common Reference Query of conversation [{}] again.",
+                failedQuery.getMessageMetadata().getConversationID());
+        sendCommonReferenceQuery(buildCommonReferenceQuery(failedQuery.getMessageMetadata().getRecipientDomain(),
+                failedQuery.getMessageMetadata().getConversationID(), failedQuery.getConnectionEntityAddress()));
+    }
+
     /**
      * Builds the common reference query message with the given CRO domain and the given list of connection addresses.
      *
      * @param croDomain {@link String} CRO domain name.
+     * @param conversationID {@link String} conversation ID of the batch of connections.
      * @param connectionEntityAddresses {@link java.util.List} of {@link String} containing the connection entity addresses.
      * @return a {@link CommonReferenceQuery} message ready to be sent.
      */
-    private CommonReferenceQuery buildCommonReferenceQuery(String croDomain, List<String> connectionEntityAddresses) {
-        LOGGER.debug("Building Common Reference Query for CRO [{}].", croDomain);
+    private CommonReferenceQuery buildCommonReferenceQuery(String croDomain, String conversationID,
+            List<String> connectionEntityAddresses) {
+        LOGGER.debug("Building Common Reference Query for CRO [{}] with {} connections in conversation [{}].", croDomain,
+                connectionEntityAddresses.size(), conversationID);
         CommonReferenceQuery commonReferenceQuery = new CommonReferenceQuery();
         commonReferenceQuery.setMessageMetadata(new MessageMetadataBuilder().messageID()
-                .conversationID()
+                .conversationID(conversationID)
                 .timeStamp()
                 .recipientDomain(croDomain)
                 .recipientRole(USEFRole.CRO)
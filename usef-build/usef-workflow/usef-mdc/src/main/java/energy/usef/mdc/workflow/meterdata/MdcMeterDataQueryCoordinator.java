@@ -33,6 +33,7 @@ import energy.usef.core.data.xml.bean.message.MeterDataQueryResponse;
 import energy.usef.core.data.xml.bean.message.MeterDataQueryType;
 import energy.usef.core.data.xml.bean.message.MeterDataSet;
 import energy.usef.core.data.xml.bean.message.USEFRole;
+import energy.usef.core.exception.TechnicalException;
 import energy.usef.core.service.helper.JMSHelperService;
 import energy.usef.core.service.helper.MessageMetadataBuilder;
 import energy.usef.core.util.XMLUtil;
@@ -41,6 +42,8 @@ import energy.usef.core.workflow.WorkflowContext;
 import energy.usef.core.workflow.dto.MeterDataQueryTypeDto;
 import energy.usef.core.workflow.step.WorkflowStepExecuter;
 import energy.usef.core.workflow.util.WorkflowUtil;
+import energy.usef.mdc.config.ConfigMdc;
+import energy.usef.mdc.config.ConfigMdcParam;
 import energy.usef.mdc.dto.ConnectionMeterDataDto;
 import energy.usef.mdc.dto.MeterDataDto;
 import energy.usef.mdc.dto.PtuMeterDataDto;
@@ -51,9 +54,17 @@ import energy.usef.mdc.workflow.MdcWorkflowStep;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import javax.ejb.Stateless;
@@ -61,6 +72,7 @@ import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.transaction.Transactional;
 
+import org.joda.time.LocalDate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,6 +84,12 @@ import org.slf4j.LoggerFactory;
 public class MdcMeterDataQueryCoordinator {
     private static final Logger LOGGER = LoggerFactory.getLogger(MdcMeterDataQueryCoordinator.class);
 
+    /**
+     * Maximum number of PTUs between the first and the last PTU start for which the power is accumulated in an array ({@value}).
+     * The power of PTU starts further apart is summed per start.
+     */
+    private static final int MAX_DENSE_PTU_RANGE = 1 << 16;
+
 
     @Inject
     private JMSHelperService jmsHelperService;
@@ -79,6 +97,9 @@ public class MdcMeterDataQueryCoordinator {
     @Inject
     private Config config;
 
+    @Inject
+    private ConfigMdc configMdc;
+
     @Inject
     private WorkflowStepExecuter workflowStepExecuter;
 
@@ -113,13 +134,31 @@ public class MdcMeterDataQueryCoordinator {
                 USEFRole.BRP.equals(messageMetadata.getSenderRole())
                         && mdcCoreBusinessService.findBalanceResponsibleParty(messageMetadata.getSenderDomain()) != null)) {
             // invoke PBC
-            Map<MeterDataSet, List<MeterDataDto>> meterDataDtos = invokePBCMeterData(event);
+            List<String> timedOutConnectionGroups = new ArrayList<>();
+            List<String> failedConnectionGroups = new ArrayList<>();
+            Map<MeterDataSet, List<MeterDataDto>> meterDataDtos = invokePBCMeterData(event, timedOutConnectionGroups,
+                    failedConnectionGroups);
             if (!meterDataDtos.values().stream().flatMap(Collection::stream).collect(Collectors.toList()).isEmpty()) {
                 meterDataQueryResponse.setResult(DispositionSuccessFailure.SUCCESS);
                 fillMeterDataQueryResponse(meterDataQueryResponse, meterDataDtos);
-            } else {
+            } else if (timedOutConnectionGroups.isEmpty() && failedConnectionGroups.isEmpty()) {
                 meterDataQueryResponse.setMessage("No data available for any of the days requested.");
             }
+            // partial (or no) result, the failure details are given for the connection groups left out.
+            List<String> failureDetails = new ArrayList<>();
+            if (!timedOutConnectionGroups.isEmpty()) {
+                failureDetails.add("No data available for the connection groups " + timedOutConnectionGroups
+                        + ", the query timed out.");
+                LOGGER.warn("Meter data query {} timed out for the connection groups {}.", messageMetadata.getMessageID(),
+                        timedOutConnectionGroups);
+            }
+            if (!failedConnectionGroups.isEmpty()) {
+                failureDetails.add("No data available for the connection groups " + failedConnectionGroups
+                        + ", the meter data could not be retrieved.");
+            }
+            if (!failureDetails.isEmpty()) {
+                meterDataQueryResponse.setMessage(String.join(" ", failureDetails));
+            }
         } else {
             meterDataQueryResponse.setMessage("Sender is not a configured customer.");
         }
@@ -139,32 +178,92 @@ public class MdcMeterDataQueryCoordinator {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<MeterDataSet, List<MeterDataDto>> invokePBCMeterData(MeterDataQueryEvent event) {
-        WorkflowContext context = new DefaultWorkflowContext();
-        Map<MeterDataSet, List<MeterDataDto>> resultMap = new HashMap<>();
-
-        for (Connections connectionGroup : event.getMeterDataQuery().getConnections()) {
-            context.setValue(PTU_DURATION.name(), config.getIntegerProperty(ConfigParam.PTU_DURATION));
-            context.setValue(DATE_RANGE_START.name(), event.getMeterDataQuery().getDateRangeStart());
-            context.setValue(DATE_RANGE_END.name(), event.getMeterDataQuery().getDateRangeEnd());
-            context.setValue(CONNECTIONS.name(), connectionGroup.getConnection());
-            context.setValue(META_DATA_QUERY_TYPE.name(), convertToMeterDataQueryTypeDto(event.getMeterDataQuery().getQueryType()));
-            // invoke PBC
-            context = workflowStepExecuter.invoke(MdcWorkflowStep.MDC_METER_DATA_QUERY.name(), context);
-            WorkflowUtil.validateContext(MdcWorkflowStep.MDC_METER_DATA_QUERY.name(), context,
-                    MeterDataQueryStepParameter.OUT.values());
-            List<MeterDataDto> meterDataDtos = context.get(MeterDataQueryStepParameter.OUT.METER_DATA.name(), List.class);
-            MeterDataSet meterDataSet = mapToMeterDataSet(connectionGroup);
-            if (event.getMeterDataQuery().getQueryType() == MeterDataQueryType.USAGE) {
-                // regroup
-                resultMap.put(meterDataSet, reGroupByAggregator(connectionGroup.getConnection(), meterDataDtos));
-            } else {
-                resultMap.put(meterDataSet, meterDataDtos);
+    /*
+     * Invokes the PBC for every connection group of the query on a bounded thread pool, each with its own context. The results
+     * are merged in the order of the connection groups of the query. The connection groups of which the PBC has not finished
+     * before the deadline of the query, or has failed, are left out and added to the given lists.
+     */
+    private Map<MeterDataSet, List<MeterDataDto>> invokePBCMeterData(MeterDataQueryEvent event,
+            List<String> timedOutConnectionGroups, List<String> failedConnectionGroups) {
+        Map<MeterDataSet, List<MeterDataDto>> resultMap = new LinkedHashMap<>();
+        List<Connections> connectionGroups = event.getMeterDataQuery().getConnections();
+        if (connectionGroups.isEmpty()) {
+            return resultMap;
+        }
+        Map<LocalDate, Map<String, String>> connectionStatesPerDay = findConnectionStates(event);
+        Integer ptuDuration = config.getIntegerProperty(ConfigParam.PTU_DURATION);
+        long deadline = System.nanoTime()
+                + TimeUnit.SECONDS.toNanos(configMdc.getIntegerProperty(ConfigMdcParam.MDC_METER_DATA_QUERY_TIMEOUT_IN_SECONDS));
+
+        // a pool size lower than 1 is not a valid configuration, the connection groups are then invoked one by one.
+        int threadPoolSize = Math.max(1, configMdc.getIntegerProperty(ConfigMdcParam.MDC_METER_DATA_QUERY_THREAD_POOL_SIZE));
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threadPoolSize, connectionGroups.size()));
+        try {
+            List<Future<List<MeterDataDto>>> invocations = new ArrayList<>();
+            for (Connections connectionGroup : connectionGroups) {
+                invocations.add(executorService.submit(() -> invokePBCMeterData(event, connectionGroup, ptuDuration)));
             }
+            for (int i = 0; i < connectionGroups.size(); i++) {
+                Connections connectionGroup = connectionGroups.get(i);
+                List<MeterDataDto> meterDataDtos;
+                try {
+                    meterDataDtos = invocations.get(i).get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    invocations.get(i).cancel(true);
+                    timedOutConnectionGroups.add(connectionGroup.getParent());
+                    continue;
+                } catch (ExecutionException e) {
+                    LOGGER.error("Unable to retrieve the meter data of the connection group {}.", connectionGroup.getParent(),
+                            e.getCause());
+                    failedConnectionGroups.add(connectionGroup.getParent());
+                    continue;
+                }
+                MeterDataSet meterDataSet = mapToMeterDataSet(connectionGroup);
+                if (event.getMeterDataQuery().getQueryType() == MeterDataQueryType.USAGE) {
+                    // regroup
+                    resultMap.put(meterDataSet, reGroupByAggregator(connectionStatesPerDay, meterDataDtos));
+                } else {
+                    resultMap.put(meterDataSet, meterDataDtos);
+                }
+            }
+            return resultMap;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TechnicalException(e.getMessage(), e);
+        } finally {
+            // the invocations which timed out are no longer needed.
+            executorService.shutdownNow();
         }
+    }
 
-        return resultMap;
+    @SuppressWarnings("unchecked")
+    private List<MeterDataDto> invokePBCMeterData(MeterDataQueryEvent event, Connections connectionGroup, Integer ptuDuration) {
+        WorkflowContext context = new DefaultWorkflowContext();
+        context.setValue(PTU_DURATION.name(), ptuDuration);
+        context.setValue(DATE_RANGE_START.name(), event.getMeterDataQuery().getDateRangeStart());
+        context.setValue(DATE_RANGE_END.name(), event.getMeterDataQuery().getDateRangeEnd());
+        context.setValue(CONNECTIONS.name(), connectionGroup.getConnection());
+        context.setValue(META_DATA_QUERY_TYPE.name(), convertToMeterDataQueryTypeDto(event.getMeterDataQuery().getQueryType()));
+        // invoke PBC
+        context = workflowStepExecuter.invoke(MdcWorkflowStep.MDC_METER_DATA_QUERY.name(), context);
+        WorkflowUtil.validateContext(MdcWorkflowStep.MDC_METER_DATA_QUERY.name(), context,
+                MeterDataQueryStepParameter.OUT.values());
+        return context.get(MeterDataQueryStepParameter.OUT.METER_DATA.name(), List.class);
+    }
+
+    /*
+     * Finds the aggregator of the connections of all the connection groups of a USAGE query for every day of the query at once.
+     */
+    private Map<LocalDate, Map<String, String>> findConnectionStates(MeterDataQueryEvent event) {
+        if (event.getMeterDataQuery().getQueryType() != MeterDataQueryType.USAGE) {
+            return Collections.emptyMap();
+        }
+        List<String> connections = event.getMeterDataQuery().getConnections().stream()
+                .flatMap(connectionGroup -> connectionGroup.getConnection().stream())
+                .distinct()
+                .collect(Collectors.toList());
+        return mdcCoreBusinessService.findConnectionStates(event.getMeterDataQuery().getDateRangeStart(),
+                event.getMeterDataQuery().getDateRangeEnd(), connections);
     }
 
     private MeterDataQueryTypeDto convertToMeterDataQueryTypeDto(MeterDataQueryType type) {
@@ -176,14 +275,15 @@ public class MdcMeterDataQueryCoordinator {
         return MeterDataQueryTypeDto.ANY;
     }
 
-    private List<MeterDataDto> reGroupByAggregator(List<String> connections, List<MeterDataDto> meterDataDtos) {
+    private List<MeterDataDto> reGroupByAggregator(Map<LocalDate, Map<String, String>> connectionStatesPerDay,
+            List<MeterDataDto> meterDataDtos) {
         List<MeterDataDto> result = new ArrayList<>(meterDataDtos.size());
         // for each meterData
         for (MeterDataDto meterDataDto : meterDataDtos) {
 
             // find entityAddres -> aggregator map.
-            Map<String, String> connectionAggregatorMap = mdcCoreBusinessService.findConnectionState(meterDataDto.getPeriod(),
-                    connections);
+            Map<String, String> connectionAggregatorMap = connectionStatesPerDay.getOrDefault(meterDataDto.getPeriod(),
+                    Collections.emptyMap());
 
             // set aggregator
             meterDataDto.getConnectionMeterDataDtos()
@@ -205,7 +305,7 @@ public class MdcMeterDataQueryCoordinator {
                         connectionMeterDataDto.setEntityCount(BigInteger.valueOf(entry.getValue().size()));
 
                         // merge ptuMeterData
-                        mergePtuMeterData(entry.getValue(), connectionMeterDataDto);
+                        connectionMeterDataDto.getPtuMeterDataDtos().addAll(mergePtuMeterData(entry.getValue()));
 
                         return connectionMeterDataDto;
                     })
@@ -223,20 +323,93 @@ public class MdcMeterDataQueryCoordinator {
         return result;
     }
 
-    private void mergePtuMeterData(List<ConnectionMeterDataDto> connectionMeterDataList,
-            ConnectionMeterDataDto connectionMeterData) {
-        connectionMeterData.getPtuMeterDataDtos()
-                .addAll(connectionMeterDataList.stream().flatMap(value -> value.getPtuMeterDataDtos().stream())
-                        // group into <PTUIndex, PTUMeterData>
-                        .collect(Collectors.groupingBy(PtuMeterDataDto::getStart)).entrySet().stream().map(ptuSet -> {
-                            // map to one PTUMeterData
-                            PtuMeterDataDto ptuMeterDataDto = new PtuMeterDataDto();
-                            ptuMeterDataDto.setStart(ptuSet.getKey());
-                            ptuMeterDataDto.setDuration(BigInteger.ONE);
-                            ptuMeterDataDto.setPower(
-                                    ptuSet.getValue().stream().map(PtuMeterDataDto::getPower).reduce(BigInteger::add).get());
-                            return ptuMeterDataDto;
-                        }).collect(Collectors.toList()));
+    /**
+     * Merges the PTU meter data of the given connections into one PTU meter data per PTU start, with the sum of the power of the
+     * connections, ordered by start. The sums are accumulated in a dense array of longs indexed by PTU; only the PTUs of which
+     * the sum does not fit in a long are summed as {@link BigInteger}.
+     *
+     * @param connectionMeterDataList {@link List} of {@link ConnectionMeterDataDto} with the meter data of the connections.
+     * @return {@link List} of the merged {@link PtuMeterDataDto}.
+     */
+    static List<PtuMeterDataDto> mergePtuMeterData(List<ConnectionMeterDataDto> connectionMeterDataList) {
+        // determine the range of the PTU starts.
+        long firstStart = Long.MAX_VALUE;
+        long lastStart = Long.MIN_VALUE;
+        for (ConnectionMeterDataDto connectionMeterData : connectionMeterDataList) {
+            for (PtuMeterDataDto ptuMeterData : connectionMeterData.getPtuMeterDataDtos()) {
+                if (ptuMeterData.getStart().bitLength() > Integer.SIZE - 1) {
+                    return mergePtuMeterDataPerStart(connectionMeterDataList);
+                }
+                long start = ptuMeterData.getStart().longValue();
+                firstStart = Math.min(firstStart, start);
+                lastStart = Math.max(lastStart, start);
+            }
+        }
+        if (firstStart > lastStart) {
+            return new ArrayList<>();
+        }
+        if (lastStart - firstStart >= MAX_DENSE_PTU_RANGE) {
+            return mergePtuMeterDataPerStart(connectionMeterDataList);
+        }
+
+        int ptuCount = (int) (lastStart - firstStart + 1);
+        long[] powers = new long[ptuCount];
+        boolean[] present = new boolean[ptuCount];
+        // only allocated when the sum of a PTU does not fit in a long.
+        BigInteger[] overflowPowers = null;
+        for (ConnectionMeterDataDto connectionMeterData : connectionMeterDataList) {
+            for (PtuMeterDataDto ptuMeterData : connectionMeterData.getPtuMeterDataDtos()) {
+                int index = (int) (ptuMeterData.getStart().longValue() - firstStart);
+                BigInteger power = ptuMeterData.getPower();
+                present[index] = true;
+                if (overflowPowers != null && overflowPowers[index] != null) {
+                    overflowPowers[index] = overflowPowers[index].add(power);
+                    continue;
+                }
+                long value = power.longValue();
+                long sum = powers[index] + value;
+                // the sum overflows when both operands have another sign than the sum.
+                if (power.bitLength() < Long.SIZE && ((powers[index] ^ sum) & (value ^ sum)) >= 0) {
+                    powers[index] = sum;
+                } else {
+                    if (overflowPowers == null) {
+                        overflowPowers = new BigInteger[ptuCount];
+                    }
+                    overflowPowers[index] = BigInteger.valueOf(powers[index]).add(power);
+                }
+            }
+        }
+
+        List<PtuMeterDataDto> ptuMeterDataDtos = new ArrayList<>(ptuCount);
+        for (int index = 0; index < ptuCount; index++) {
+            if (present[index]) {
+                PtuMeterDataDto ptuMeterDataDto = new PtuMeterDataDto();
+                ptuMeterDataDto.setStart(BigInteger.valueOf(firstStart + index));
+                ptuMeterDataDto.setDuration(BigInteger.ONE);
+                ptuMeterDataDto.setPower(overflowPowers != null && overflowPowers[index] != null ? overflowPowers[index]
+                        : BigInteger.valueOf(powers[index]));
+                ptuMeterDataDtos.add(ptuMeterDataDto);
+            }
+        }
+        return ptuMeterDataDtos;
+    }
+
+    /*
+     * Merges the PTU meter data per start as BigInteger, for the PTU starts which are too far apart to index an array.
+     */
+    private static List<PtuMeterDataDto> mergePtuMeterDataPerStart(List<ConnectionMeterDataDto> connectionMeterDataList) {
+        return connectionMeterDataList.stream().flatMap(value -> value.getPtuMeterDataDtos().stream())
+                // group into <PTUIndex, power>
+                .collect(Collectors.groupingBy(PtuMeterDataDto::getStart, TreeMap::new,
+                        Collectors.reducing(BigInteger.ZERO, PtuMeterDataDto::getPower, BigInteger::add)))
+                .entrySet().stream().map(ptuSet -> {
+                    // map to one PTUMeterData
+                    PtuMeterDataDto ptuMeterDataDto = new PtuMeterDataDto();
+                    ptuMeterDataDto.setStart(ptuSet.getKey());
+                    ptuMeterDataDto.setDuration(BigInteger.ONE);
+                    ptuMeterDataDto.setPower(ptuSet.getValue());
+                    return ptuMeterDataDto;
+                }).collect(Collectors.toList());
     }
 
     private MeterDataSet mapToMeterDataSet(Connections connectionGroup) {
@@ -16,15 +16,31 @@
 
 package energy.usef.mdc.controller;
 
+import energy.usef.core.data.xml.bean.message.CommonReferenceEntityType;
+import energy.usef.core.data.xml.bean.message.CommonReferenceQuery;
 import energy.usef.core.data.xml.bean.message.CommonReferenceQueryResponse;
+import energy.usef.core.data.xml.bean.message.Connection;
 import energy.usef.core.data.xml.bean.message.DispositionSuccessFailure;
+import energy.usef.core.data.xml.bean.message.MessagePrecedence;
 import energy.usef.core.data.xml.bean.message.USEFRole;
+import energy.usef.core.model.Message;
+import energy.usef.core.service.business.CommonReferenceQueryResponseAssemblerService;
+import energy.usef.core.service.business.MessageService;
 import energy.usef.core.service.helper.MessageMetadataBuilder;
+import energy.usef.core.util.XMLUtil;
+import energy.usef.mdc.config.ConfigMdc;
+import energy.usef.mdc.config.ConfigMdcParam;
 import energy.usef.mdc.service.business.MdcCoreBusinessService;
 import energy.usef.mdc.model.CommonReferenceQueryState;
 import energy.usef.mdc.model.CommonReferenceQueryStatus;
+import energy.usef.mdc.workflow.CommonReferenceQueryRetryEvent;
 
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.enterprise.event.Event;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -43,15 +59,32 @@ import org.powermock.reflect.Whitebox;
 @RunWith(PowerMockRunner.class)
 public class CommonReferenceQueryResponseControllerTest {
 
+    private static final String CONVERSATION_ID = "0678bc1b-2cac-4305-aae3-02f9ad1f3451";
+
     private CommonReferenceQueryResponseController controller;
 
     @Mock
     private MdcCoreBusinessService mdcCoreBusinessService;
 
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private ConfigMdc configMdc;
+
+    @Mock
+    private Event<CommonReferenceQueryRetryEvent> commonReferenceQueryRetryEventManager;
+
     @Before
     public void setUp() {
         controller = new CommonReferenceQueryResponseController();
+        Whitebox.setInternalState(controller, new CommonReferenceQueryResponseAssemblerService());
         Whitebox.setInternalState(controller, mdcCoreBusinessService);
+        Whitebox.setInternalState(controller, messageService);
+        Whitebox.setInternalState(controller, configMdc);
+        Whitebox.setInternalState(controller, commonReferenceQueryRetryEventManager);
+        Mockito.when(configMdc.getIntegerProperty(ConfigMdcParam.MDC_COMMON_REFERENCE_QUERY_MAX_RETRIES)).thenReturn(3);
+        Mockito.when(messageService.getInitialMessageOfConversation(CONVERSATION_ID)).thenReturn(buildQueryMessage());
     }
 
     @SuppressWarnings("unchecked")
@@ -59,30 +92,85 @@ public class CommonReferenceQueryResponseControllerTest {
     public void testActionOnSuccessfulResult() throws Exception {
         controller.action(buildMessage(DispositionSuccessFailure.SUCCESS), null);
         ArgumentCaptor<CommonReferenceQueryState> stateCaptor = ArgumentCaptor.forClass(CommonReferenceQueryState.class);
+        // only the connections of the batch of the query are updated.
         Mockito.verify(mdcCoreBusinessService, Mockito.times(1))
-                .storeConnectionsForCommonReferenceOperator(Matchers.any(List.class), Matchers.eq("cro.usef-example.com"));
+                .storeConnectionsForCommonReferenceOperator(Matchers.any(List.class), Matchers.eq("cro.usef-example.com"),
+                        Matchers.eq(Arrays.asList("ean.000000000001", "ean.000000000002")));
         Mockito.verify(mdcCoreBusinessService, Mockito.times(1)).storeCommonReferenceQueryState(stateCaptor.capture());
         CommonReferenceQueryState state = stateCaptor.getValue();
         Assert.assertNotNull(state);
         Assert.assertEquals(CommonReferenceQueryStatus.SUCCESS, state.getStatus());
+        Mockito.verifyZeroInteractions(commonReferenceQueryRetryEventManager);
     }
 
     @SuppressWarnings("unchecked")
     @Test
     public void testActionOnFailureResult() throws Exception {
+        Mockito.when(mdcCoreBusinessService.countFailedCommonReferenceQueries(CONVERSATION_ID)).thenReturn(1L);
+
         controller.action(buildMessage(DispositionSuccessFailure.FAILURE), null);
         ArgumentCaptor<CommonReferenceQueryState> stateCaptor = ArgumentCaptor.forClass(CommonReferenceQueryState.class);
         Mockito.verify(mdcCoreBusinessService, Mockito.times(0))
-                .storeConnectionsForCommonReferenceOperator(Matchers.any(List.class), Matchers.eq("cro.usef-example.com"));
+                .storeConnectionsForCommonReferenceOperator(Matchers.any(List.class), Matchers.eq("cro.usef-example.com"),
+                        Matchers.any(List.class));
         Mockito.verify(mdcCoreBusinessService, Mockito.times(1)).storeCommonReferenceQueryState(stateCaptor.capture());
         CommonReferenceQueryState state = stateCaptor.getValue();
         Assert.assertNotNull(state);
         Assert.assertEquals(CommonReferenceQueryStatus.FAILURE, state.getStatus());
+
+        // the batch of the failed query is sent again.
+        ArgumentCaptor<CommonReferenceQueryRetryEvent> eventCaptor = ArgumentCaptor.forClass(
+                CommonReferenceQueryRetryEvent.class);
+        Mockito.verify(commonReferenceQueryRetryEventManager, Mockito.times(1)).fire(eventCaptor.capture());
+        Assert.assertEquals(1L, eventCaptor.getValue().getFailures());
+        CommonReferenceQuery retriedQuery = eventCaptor.getValue().getCommonReferenceQuery();
+        Assert.assertEquals(CONVERSATION_ID, retriedQuery.getMessageMetadata().getConversationID());
+        Assert.assertEquals(Arrays.asList("ean.000000000001", "ean.000000000002"), retriedQuery.getConnectionEntityAddress());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testActionOnSplitResponseIsProcessedOnceAllPartsAreReceived() throws Exception {
+        CommonReferenceQueryResponse firstPart = buildMessage(DispositionSuccessFailure.SUCCESS);
+        firstPart.getConnection().add(buildConnection("ean.000000000001"));
+        firstPart.setPartIndex(BigInteger.ONE);
+        firstPart.setPartCount(BigInteger.valueOf(2));
+        CommonReferenceQueryResponse secondPart = buildMessage(DispositionSuccessFailure.SUCCESS);
+        secondPart.getConnection().add(buildConnection("ean.000000000002"));
+        secondPart.setPartIndex(BigInteger.valueOf(2));
+        secondPart.setPartCount(BigInteger.valueOf(2));
+
+        // the parts may arrive in any order.
+        controller.action(secondPart, null);
+        Mockito.verifyZeroInteractions(mdcCoreBusinessService);
+
+        controller.action(firstPart, null);
+        ArgumentCaptor<List> connectionsCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mdcCoreBusinessService, Mockito.times(1))
+                .storeConnectionsForCommonReferenceOperator(connectionsCaptor.capture(), Matchers.eq("cro.usef-example.com"),
+                        Matchers.eq(Arrays.asList("ean.000000000001", "ean.000000000002")));
+        Assert.assertEquals(Arrays.asList("ean.000000000001", "ean.000000000002"),
+                ((List<Connection>) connectionsCaptor.getValue()).stream()
+                        .map(Connection::getEntityAddress)
+                        .collect(Collectors.toList()));
+        Mockito.verify(mdcCoreBusinessService, Mockito.times(1))
+                .storeCommonReferenceQueryState(Matchers.any(CommonReferenceQueryState.class));
+    }
+
+    @Test
+    public void testActionOnFailureResultAfterMaximumRetries() throws Exception {
+        Mockito.when(mdcCoreBusinessService.countFailedCommonReferenceQueries(CONVERSATION_ID)).thenReturn(4L);
+
+        controller.action(buildMessage(DispositionSuccessFailure.FAILURE), null);
+
+        Mockito.verify(mdcCoreBusinessService, Mockito.times(1))
+                .storeCommonReferenceQueryState(Matchers.any(CommonReferenceQueryState.class));
+        Mockito.verifyZeroInteractions(commonReferenceQueryRetryEventManager);
     }
 
     private CommonReferenceQueryResponse buildMessage(DispositionSuccessFailure result) {
         CommonReferenceQueryResponse response = new CommonReferenceQueryResponse();
-        response.setMessageMetadata(new MessageMetadataBuilder().conversationID()
+        response.setMessageMetadata(new MessageMetadataBuilder().conversationID(CONVERSATION_ID)
                 .messageID()
                 .timeStamp()
                 .senderDomain("cro.usef-example.com")
@@ -93,4 +181,29 @@ public class CommonReferenceQueryResponseControllerTest {
         response.setResult(result);
         return response;
     }
+
+    private Connection buildConnection(String entityAddress) {
+        Connection connection = new Connection();
+        connection.setEntityAddress(entityAddress);
+        connection.setAGRDomain("agr.usef-example.com");
+        return connection;
+    }
+
+    private Message buildQueryMessage() {
+        CommonReferenceQuery query = new CommonReferenceQuery();
+        query.setMessageMetadata(new MessageMetadataBuilder().conversationID(CONVERSATION_ID)
+                .messageID()
+                .timeStamp()
+                .senderDomain("mdc.usef-example.com")
+                .senderRole(USEFRole.MDC)
+                .recipientDomain("cro.usef-example.com")
+                .recipientRole(USEFRole.CRO)
+                .precedence(MessagePrecedence.TRANSACTIONAL)
+                .build());
+        query.setEntity(CommonReferenceEntityType.AGGREGATOR);
+        query.getConnectionEntityAddress().addAll(Arrays.asList("ean.000000000001", "ean.000000000002"));
+        Message message = new Message();
+        message.setXml(XMLUtil.messageObjectToXml(query));
+        return message;
+    }
 }
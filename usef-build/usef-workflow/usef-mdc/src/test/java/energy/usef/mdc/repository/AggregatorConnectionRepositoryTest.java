@@ -19,9 +19,12 @@ package energy.usef.mdc.repository;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.powermock.reflect.Whitebox.setInternalState;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,6 +32,8 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.joda.time.LocalDate;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -61,7 +66,7 @@ public class AggregatorConnectionRepositoryTest {
         assertNotNull(state);
         assertEquals(-1l, state.getId().longValue());
         assertEquals("agr1.usef-example.com", state.getAggregator().getDomain());
-        assertEquals("ean.1111111111", state.getConnection().getEntityAddress());
+        assertEquals("ean.1111111111", state.getConnectionEntityAddress());
         assertEquals(new LocalDate(1970, 1, 1), state.getValidFrom());
         assertEquals(new LocalDate(1990, 1, 1), state.getValidUntil());
     }
@@ -74,7 +79,7 @@ public class AggregatorConnectionRepositoryTest {
         AggregatorConnection state = states.get(0);
         assertNotNull(state);
         assertEquals("agr1.usef-example.com", state.getAggregator().getDomain());
-        assertEquals("ean.1111111111", state.getConnection().getEntityAddress());
+        assertEquals("ean.1111111111", state.getConnectionEntityAddress());
         assertEquals(new LocalDate(1970, 1, 1), state.getValidFrom());
         assertEquals(new LocalDate(1990, 1, 1), state.getValidUntil());
     }
@@ -84,7 +89,7 @@ public class AggregatorConnectionRepositoryTest {
         AggregatorConnection state = repository.findActiveAggregatorConnectionForConnection("ean.2222222222", null);
         assertNotNull(state);
         assertEquals("agr1.usef-example.com", state.getAggregator().getDomain());
-        assertEquals("ean.2222222222", state.getConnection().getEntityAddress());
+        assertEquals("ean.2222222222", state.getConnectionEntityAddress());
     }
 
     @Test
@@ -102,6 +107,42 @@ public class AggregatorConnectionRepositoryTest {
         assertEquals(1, states.size());
     }
 
+    @Test
+    public void testFindActiveAggregatorOnConnectionStatesForCommonReferenceOperatorAndConnections() throws Exception {
+        List<AggregatorConnection> states = repository.findActiveAggregatorConnectionsForCommonReferenceOperator(
+                "cro1.usef-example.com", new LocalDate(), Arrays.asList("ean.1111111111", "ean.2222222222", "ean.3333333333"));
+        assertEquals(1, states.size());
+        assertEquals("ean.2222222222", states.get(0).getConnectionEntityAddress());
+
+        assertTrue(repository.findActiveAggregatorConnectionsForCommonReferenceOperator("cro1.usef-example.com",
+                new LocalDate(), Collections.singletonList("ean.3333333333")).isEmpty());
+    }
+
+    @Test
+    public void testCloseActiveAggregatorConnectionsOfRemovedConnection() throws Exception {
+        MdcConnectionRepository connectionRepository = new MdcConnectionRepository();
+        setInternalState(connectionRepository, "entityManager", entityManager);
+        LocalDate today = new LocalDate();
+
+        // removes ean.2222222222 the way the MDC topology does.
+        assertEquals(1, repository.closeActiveAggregatorConnectionsForConnection("ean.2222222222", today));
+        connectionRepository.deleteByEntityAddress("ean.2222222222");
+        entityManager.flush();
+        entityManager.clear();
+
+        assertNull(connectionRepository.find("ean.2222222222"));
+        // the closed state is kept, the state of another connection is still active.
+        AggregatorConnection state = repository.find(-2L);
+        assertEquals("ean.2222222222", state.getConnectionEntityAddress());
+        assertEquals(today, state.getValidUntil());
+        assertNull(repository.findActiveAggregatorConnectionForConnection("ean.2222222222", today));
+        assertEquals("agr1.usef-example.com",
+                repository.findAggregatorForEachConnection(today.minusDays(1), Arrays.asList("ean.2222222222")).get(
+                        "ean.2222222222"));
+        assertNull(repository.find(-3L).getValidUntil());
+        assertEquals(0, repository.closeActiveAggregatorConnectionsForConnection("ean.2222222222", today));
+    }
+
     @Test
     public void testfindAggregatorForEachConnection() throws Exception {
         Map<String, String> aggregatorForEachConnection = repository.findAggregatorForEachConnection(new LocalDate(), Arrays
@@ -113,10 +154,51 @@ public class AggregatorConnectionRepositoryTest {
         assertEquals("agr1.usef-example.com", aggregatorForEachConnection.get("ean.3333333333"));
     }
 
+    @Test
+    public void testFindAggregatorForEachConnectionOfPeriod() throws Exception {
+        List<String> connections = Arrays.asList("ean.1111111111", "ean.2222222222", "ean.3333333333");
+        LocalDate startDate = new LocalDate(1989, 12, 20);
+        LocalDate endDate = new LocalDate(1990, 1, 10);
+
+        Map<LocalDate, Map<String, String>> aggregatorPerDay = repository.findAggregatorForEachConnection(startDate, endDate,
+                connections);
+
+        // ean.1111111111 until 1990-01-01 (exclusive), the other ones from 1990-01-01.
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            assertEquals(day.toString(), repository.findAggregatorForEachConnection(day, connections),
+                    aggregatorPerDay.get(day));
+        }
+        assertEquals(1, aggregatorPerDay.get(new LocalDate(1989, 12, 31)).size());
+        assertEquals(2, aggregatorPerDay.get(new LocalDate(1990, 1, 1)).size());
+    }
+
+    @Test
+    public void testFindAggregatorForEachConnectionOfPeriodCountsStatements() throws Exception {
+        List<String> connections = Arrays.asList("ean.1111111111", "ean.2222222222", "ean.3333333333");
+        LocalDate startDate = new LocalDate(1989, 12, 1);
+
+        // the number of statements does not depend on the number of days.
+        for (int days : new int[] { 1, 31, 365 }) {
+            Statistics statistics = statistics();
+            Map<LocalDate, Map<String, String>> aggregatorPerDay = repository.findAggregatorForEachConnection(startDate,
+                    startDate.plusDays(days - 1), connections);
+            assertEquals(days, aggregatorPerDay.size());
+            assertEquals(1, statistics.getPrepareStatementCount());
+        }
+    }
+
+    private static Statistics statistics() {
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
     @BeforeClass
     public static void initTestFixture() throws Exception {
-        // Get the entity manager for the tests.
-        entityManagerFactory = Persistence.createEntityManagerFactory("test");
+        // Get the entity manager for the tests, with statistics to count the statements.
+        Map<String, String> properties = new HashMap<>();
+        properties.put("hibernate.generate_statistics", "true");
+        entityManagerFactory = Persistence.createEntityManagerFactory("test", properties);
         entityManager = entityManagerFactory.createEntityManager();
     }
 
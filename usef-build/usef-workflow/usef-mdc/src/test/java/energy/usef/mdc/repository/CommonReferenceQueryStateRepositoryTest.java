@@ -32,6 +32,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import energy.usef.mdc.model.CommonReferenceQueryState;
+import energy.usef.mdc.model.CommonReferenceQueryStatus;
 
 /**
  * Test class in charge of the unit tests related to the {@link CommonReferenceQueryStateRepository} class.
@@ -93,4 +94,20 @@ public class CommonReferenceQueryStateRepositoryTest {
         Assert.assertEquals("Expected deleted objects", 1, repository.cleanup(new LocalDate("1990-01-01")));
         Assert.assertEquals("Expected no deleted objects", 0, repository.cleanup(new LocalDate("1990-01-01")));
     }
+
+    @Test
+    public void testCountCommonReferenceQueryStates() {
+        // a failed response in the conversation of the query of message -4.
+        entityManager.createNativeQuery("INSERT INTO MESSAGE (ID, CONTENT_HASH, CONVERSATION_ID, CREATION_TIME, DIRECTION, "
+                + "MESSAGE_ID, MESSAGE_TYPE, RECEIVER, SENDER, XML) VALUES (-6, '00', '0678bc1b-2cac-4305-aae3-02f9ad1f3451', "
+                + "'2014-11-20T12:10:00.0', 'INBOUND', '9594c3f7-fb9a-4425-a514-d32ff902a220', 'TRANSACTIONAL', "
+                + "'usef-example.com', 'usef-example.com', '<CommonReferenceQueryResponse/>')").executeUpdate();
+        entityManager.createNativeQuery("INSERT INTO COMMON_REFERENCE_QUERY_STATE (ID, PERIOD, STATUS, MESSAGE_ID) "
+                + "VALUES (-6, '2014-11-20', 'FAILURE', -6)").executeUpdate();
+
+        Assert.assertEquals(1L, repository.countCommonReferenceQueryStates("0678bc1b-2cac-4305-aae3-02f9ad1f3451",
+                CommonReferenceQueryStatus.FAILURE));
+        Assert.assertEquals(0L, repository.countCommonReferenceQueryStates("0678bc1b-2caa-4305-aae3-02f9ad1f3421",
+                CommonReferenceQueryStatus.FAILURE));
+    }
 }
@@ -22,6 +22,7 @@ import energy.usef.mdc.model.Aggregator;
 import energy.usef.mdc.model.AggregatorConnection;
 import energy.usef.mdc.model.CommonReferenceOperator;
 import energy.usef.mdc.model.CommonReferenceQueryState;
+import energy.usef.mdc.model.CommonReferenceQueryStatus;
 import energy.usef.mdc.model.Connection;
 import energy.usef.mdc.repository.AggregatorConnectionRepository;
 import energy.usef.mdc.repository.AggregatorRepository;
@@ -30,8 +31,12 @@ import energy.usef.mdc.repository.CommonReferenceQueryStateRepository;
 import energy.usef.mdc.repository.DistributionSystemOperatorRepository;
 import energy.usef.mdc.repository.MdcConnectionRepository;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -131,25 +136,96 @@ public class MdcCoreBusinessServiceTest {
         // stubbing of repositories
         PowerMockito.when(aggregatorRepository.findOrCreate(Matchers.any(String.class)))
                 .then(invocation -> new Aggregator((String) invocation.getArguments()[0]));
-        PowerMockito.when(mdcConnectionRepository.find(Matchers.any(String.class)))
-                .then(invocation -> new Connection((String) invocation.getArguments()[0]));
         PowerMockito.when(commonReferenceOperatorRepository.find(Matchers.any(String.class)))
                 .then(invocation -> new CommonReferenceOperator((String) invocation.getArguments()[0]));
+        List<AggregatorConnection> currentStates = buildCurrentAggregatorOnConnectionStates();
+        List<String> queriedConnections = Arrays.asList("ean.000001", "ean.000002", "ean.000003", "ean.000004", "ean.000099");
         PowerMockito.when(aggregatorConnectionRepository.findActiveAggregatorConnectionsForCommonReferenceOperator(
-                Matchers.eq("cro1.usef-example.com"), Matchers.any(LocalDate.class)))
-                .thenReturn(buildCurrentAggregatorOnConnectionStates());
-        service.storeConnectionsForCommonReferenceOperator(buildXmlConnections(), "cro1.usef-example.com");
+                Matchers.eq("cro1.usef-example.com"), Matchers.any(LocalDate.class), Matchers.eq(queriedConnections)))
+                .thenReturn(currentStates);
+        service.storeConnectionsForCommonReferenceOperator(buildXmlConnections(), "cro1.usef-example.com", queriedConnections);
+
+        Assert.assertEquals(Arrays.asList(false, true, true, true),
+                currentStates.stream().map(state -> state.getValidUntil() != null).collect(Collectors.toList()));
 
         ArgumentCaptor<AggregatorConnection> stateCaptor = ArgumentCaptor.forClass(AggregatorConnection.class);
         Mockito.verify(aggregatorConnectionRepository, Mockito.times(2)).persist(stateCaptor.capture());
         List<AggregatorConnection> createdStates = stateCaptor.getAllValues();
         Assert.assertEquals(2, createdStates.size());
         createdStates.sort(
-                (state1, state2) -> state1.getConnection().getEntityAddress().compareTo(state2.getConnection().getEntityAddress()));
+                (state1, state2) -> state1.getConnectionEntityAddress().compareTo(state2.getConnectionEntityAddress()));
         Assert.assertEquals("agr2.usef-example.com", createdStates.get(0).getAggregator().getDomain());
         Assert.assertEquals("agr3.usef-example.com", createdStates.get(1).getAggregator().getDomain());
     }
 
+    /**
+     * The responses to the batches of a common reference query of 200000 connections only modify the states of the connections
+     * of their batch, so that they give together the states of all the connections:
+     * <ul>
+     * <li>every tenth connection changed from agr1.usef-example.com to agr2.usef-example.com;</li>
+     * <li>one connection of every thousand is not in the responses anymore;</li>
+     * <li>the other connections did not change.</li>
+     * </ul>
+     */
+    @Test
+    public void testStoreConnectionsForCommonReferenceOperatorPerBatch() {
+        final int connections = 200000;
+        final int batchSize = 10000;
+        final String croDomain = "cro1.usef-example.com";
+        List<String> connectionEntityAddresses = IntStream.range(0, connections)
+                .mapToObj(i -> String.format("ean.%012d", i))
+                .collect(Collectors.toList());
+        // the states in the database, per connection.
+        Map<String, List<AggregatorConnection>> states = connectionEntityAddresses.stream()
+                .collect(Collectors.toMap(Function.identity(), connectionEntityAddress -> new ArrayList<>(Collections.singletonList(
+                        buildAggregatorOnConnectionState(connectionEntityAddress, "agr1.usef-example.com", croDomain)))));
+        PowerMockito.when(aggregatorConnectionRepository.findActiveAggregatorConnectionsForCommonReferenceOperator(
+                Matchers.eq(croDomain), Matchers.any(LocalDate.class), Matchers.anyListOf(String.class)))
+                .then(invocation -> ((List<?>) invocation.getArguments()[2]).stream()
+                        .flatMap(connectionEntityAddress -> states.get(connectionEntityAddress).stream())
+                        .filter(state -> state.getValidUntil() == null)
+                        .collect(Collectors.toList()));
+        Mockito.doAnswer(invocation -> {
+            AggregatorConnection state = (AggregatorConnection) invocation.getArguments()[0];
+            return states.get(state.getConnectionEntityAddress()).add(state);
+        }).when(aggregatorConnectionRepository).persist(Matchers.any(AggregatorConnection.class));
+        PowerMockito.when(aggregatorRepository.findOrCreate(Matchers.any(String.class)))
+                .then(invocation -> new Aggregator((String) invocation.getArguments()[0]));
+
+        for (int fromIndex = 0; fromIndex < connections; fromIndex += batchSize) {
+            List<String> batch = connectionEntityAddresses.subList(fromIndex, fromIndex + batchSize);
+            List<energy.usef.core.data.xml.bean.message.Connection> response = new ArrayList<>();
+            for (int i = fromIndex; i < fromIndex + batchSize; i++) {
+                if (i % 1000 != 1) {
+                    response.add(buildXmlConnection(connectionEntityAddresses.get(i),
+                            i % 10 == 0 ? "agr2.usef-example.com" : "agr1.usef-example.com"));
+                }
+            }
+            service.storeConnectionsForCommonReferenceOperator(response, croDomain, batch);
+        }
+
+        Map<String, Long> activeStatesPerAggregator = states.values().stream()
+                .flatMap(List::stream)
+                .filter(state -> state.getValidUntil() == null)
+                .collect(Collectors.groupingBy(state -> state.getAggregator().getDomain(), Collectors.counting()));
+        Assert.assertEquals(179800L, activeStatesPerAggregator.get("agr1.usef-example.com").longValue());
+        Assert.assertEquals(20000L, activeStatesPerAggregator.get("agr2.usef-example.com").longValue());
+        Assert.assertEquals(20200L, states.values().stream()
+                .flatMap(List::stream)
+                .filter(state -> state.getValidUntil() != null)
+                .count());
+        Mockito.verify(aggregatorConnectionRepository, Mockito.times(20)).findActiveAggregatorConnectionsForCommonReferenceOperator(
+                Matchers.eq(croDomain), Matchers.any(LocalDate.class), Matchers.anyListOf(String.class));
+    }
+
+    @Test
+    public void testCountFailedCommonReferenceQueries() {
+        PowerMockito.when(commonReferenceQueryStateRepository.countCommonReferenceQueryStates("conversation",
+                CommonReferenceQueryStatus.FAILURE)).thenReturn(2L);
+
+        Assert.assertEquals(2L, service.countFailedCommonReferenceQueries("conversation"));
+    }
+
     private List<energy.usef.core.data.xml.bean.message.Connection> buildXmlConnections() {
         return Arrays.asList(buildXmlConnection("ean.000001", "agr1.usef-example.com"),
                 buildXmlConnection("ean.000002", "agr2.usef-example.com"),
@@ -176,7 +252,7 @@ public class MdcCoreBusinessServiceTest {
         AggregatorConnection state = new AggregatorConnection();
         state.setCommonReferenceOperator(new CommonReferenceOperator(croDomain));
         state.setAggregator(new Aggregator(aggregatorDomain));
-        state.setConnection(new Connection(connectionEntityAddress));
+        state.setConnectionEntityAddress(connectionEntityAddress);
         state.setValidFrom(new LocalDate(1990, 1, 1));
         return state;
     }
@@ -198,6 +274,16 @@ public class MdcCoreBusinessServiceTest {
                 connectionEntityAddressList);
     }
 
+    @Test
+    public void testFindConnectionStates() throws Exception {
+        LocalDate startDate = new LocalDate();
+        LocalDate endDate = startDate.plusDays(30);
+        List<String> connectionEntityAddressList = Arrays.asList("ean.1", "ean.2");
+        service.findConnectionStates(startDate, endDate, connectionEntityAddressList);
+        Mockito.verify(aggregatorConnectionRepository, Mockito.times(1)).findAggregatorForEachConnection(startDate, endDate,
+                connectionEntityAddressList);
+    }
+
     @Test
     public void testFindDistributionSystemOperator() throws Exception {
         String dsoDomain = "dso.usef-example.com";
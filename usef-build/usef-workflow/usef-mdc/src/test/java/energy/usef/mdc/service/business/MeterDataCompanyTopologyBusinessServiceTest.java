@@ -21,12 +21,14 @@ import energy.usef.core.util.JsonUtil;
 import energy.usef.mdc.model.BalanceResponsibleParty;
 import energy.usef.mdc.model.DistributionSystemOperator;
 import energy.usef.mdc.model.CommonReferenceOperator;
+import energy.usef.mdc.repository.AggregatorConnectionRepository;
 import energy.usef.mdc.repository.MdcConnectionRepository;
 import energy.usef.mdc.repository.BalanceResponsiblePartyRepository;
 import energy.usef.mdc.repository.DistributionSystemOperatorRepository;
 import energy.usef.mdc.repository.CommonReferenceOperatorRepository;
 import energy.usef.core.rest.RestResult;
 import energy.usef.mdc.model.Connection;
+import org.joda.time.LocalDate;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -55,6 +57,8 @@ public class MeterDataCompanyTopologyBusinessServiceTest {
 
     @Mock MdcConnectionRepository mdcConnectionRepository;
 
+    @Mock AggregatorConnectionRepository aggregatorConnectionRepository;
+
     @Mock BalanceResponsiblePartyRepository balanceResponsiblePartyRepository;
 
     @Mock DistributionSystemOperatorRepository distributionSystemOperatorRepository;
@@ -66,6 +70,7 @@ public class MeterDataCompanyTopologyBusinessServiceTest {
         service = new MeterDataCompanyTopologyBusinessService();
         Whitebox.setInternalState(service, "validationService", validationService);
         Whitebox.setInternalState(service, "mdcConnectionRepository", mdcConnectionRepository);
+        Whitebox.setInternalState(service, "aggregatorConnectionRepository", aggregatorConnectionRepository);
         Whitebox.setInternalState(service, "balanceResponsiblePartyRepository", balanceResponsiblePartyRepository);
         Whitebox.setInternalState(service, "distributionSystemOperatorRepository", distributionSystemOperatorRepository);
         Whitebox.setInternalState(service, "commonReferenceOperatorRepository", commonReferenceOperatorRepository);
@@ -119,6 +124,9 @@ public class MeterDataCompanyTopologyBusinessServiceTest {
     private void verifyConnectionCalls(String entityAddress, int persists, int deletes) {
         Mockito.verify(mdcConnectionRepository, Mockito.times(persists)).persist(new Connection(entityAddress));
         Mockito.verify(mdcConnectionRepository, Mockito.times(deletes)).deleteByEntityAddress(entityAddress);
+        // the aggregator states of a deleted connection are closed.
+        Mockito.verify(aggregatorConnectionRepository, Mockito.times(deletes))
+                .closeActiveAggregatorConnectionsForConnection(Matchers.eq(entityAddress), Matchers.any(LocalDate.class));
     }
     private void mockConnection(String entityAddress, boolean exists)  throws BusinessValidationException{
         Connection connection = createConnection(entityAddress);
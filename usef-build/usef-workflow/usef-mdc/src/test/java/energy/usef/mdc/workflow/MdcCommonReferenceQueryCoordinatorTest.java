@@ -23,13 +23,20 @@ import energy.usef.core.config.ConfigParam;
 import energy.usef.core.data.xml.bean.message.CommonReferenceEntityType;
 import energy.usef.core.data.xml.bean.message.CommonReferenceQuery;
 import energy.usef.core.service.helper.JMSHelperService;
+import energy.usef.core.service.helper.MessageMetadataBuilder;
+import energy.usef.core.util.DateTimeUtil;
 import energy.usef.core.util.XMLUtil;
+import energy.usef.mdc.config.ConfigMdc;
+import energy.usef.mdc.config.ConfigMdcParam;
 import energy.usef.mdc.service.business.MdcCoreBusinessService;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.IntStream;
 
+import javax.ejb.Timer;
+import javax.ejb.TimerService;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -52,22 +59,31 @@ public class MdcCommonReferenceQueryCoordinatorTest {
     @Mock
     private Config config;
     @Mock
+    private ConfigMdc configMdc;
+    @Mock
     private MdcCoreBusinessService mdcCoreBusinessService;
     @Mock
     private JMSHelperService jmsHelperService;
+    @Mock
+    private TimerService timerService;
+    @Mock
+    private Timer timer;
 
     @Before
     public void setUp() throws Exception {
         coordinator = new MdcCommonReferenceQueryCoordinator();
         Whitebox.setInternalState(coordinator, config);
+        Whitebox.setInternalState(coordinator, configMdc);
         Whitebox.setInternalState(coordinator, jmsHelperService);
         Whitebox.setInternalState(coordinator, mdcCoreBusinessService);
+        Whitebox.setInternalState(coordinator, "timerService", timerService);
     }
 
     @Test
     public void testHandleEvent() throws Exception {
         // stubbing of the config
         PowerMockito.when(config.getProperty(ConfigParam.HOST_DOMAIN)).thenReturn("mdc.usef-example.com");
+        PowerMockito.when(configMdc.getIntegerProperty(ConfigMdcParam.MDC_COMMON_REFERENCE_QUERY_BATCH_SIZE)).thenReturn(10000);
         // stubbing of the MdcCoreBusinessService
         PowerMockito.when(mdcCoreBusinessService.findAllConnectionEntityAddresses())
                 .then(invocation -> IntStream.rangeClosed(1, 5).mapToObj(i -> "ean.0000" + i).collect(toList()));
@@ -90,4 +106,91 @@ public class MdcCommonReferenceQueryCoordinatorTest {
             Assert.assertNull(commonReferenceQuery.getEntityAddress());
         });
     }
+
+    @Test
+    public void testHandleEventSendsBatchesOfConnections() throws Exception {
+        final int connections = 200000;
+        final int batchSize = 15000;
+        PowerMockito.when(config.getProperty(ConfigParam.HOST_DOMAIN)).thenReturn("mdc.usef-example.com");
+        PowerMockito.when(configMdc.getIntegerProperty(ConfigMdcParam.MDC_COMMON_REFERENCE_QUERY_BATCH_SIZE)).thenReturn(batchSize);
+        List<String> connectionEntityAddresses = IntStream.range(0, connections)
+                .mapToObj(i -> String.format("ean.%012d", i))
+                .collect(toList());
+        PowerMockito.when(mdcCoreBusinessService.findAllConnectionEntityAddresses()).thenReturn(connectionEntityAddresses);
+        PowerMockito.when(mdcCoreBusinessService.findAllCommonReferenceOperatorDomains())
+                .thenReturn(Arrays.asList("cro1.usef-example.com", "cro2.usef-example.com"));
+
+        coordinator.handleEvent(new CommonReferenceQueryEvent());
+
+        // 13 full batches and one of 5000 connections per CRO.
+        ArgumentCaptor<String> xmlMessageCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jmsHelperService, Mockito.times(28)).sendMessageToOutQueue(xmlMessageCaptor.capture());
+        List<CommonReferenceQuery> queries = xmlMessageCaptor.getAllValues().stream()
+                .map(xml -> XMLUtil.xmlToMessage(xml, CommonReferenceQuery.class))
+                .collect(toList());
+        Assert.assertEquals(28, queries.stream().map(query -> query.getMessageMetadata().getMessageID()).distinct().count());
+        Assert.assertEquals(28, queries.stream().map(query -> query.getMessageMetadata().getConversationID()).distinct().count());
+        for (String croDomain : Arrays.asList("cro1.usef-example.com", "cro2.usef-example.com")) {
+            List<CommonReferenceQuery> croQueries = queries.stream()
+                    .filter(query -> croDomain.equals(query.getMessageMetadata().getRecipientDomain()))
+                    .collect(toList());
+            Assert.assertEquals(14, croQueries.size());
+            croQueries.forEach(query -> Assert.assertTrue(query.getConnectionEntityAddress().size() <= batchSize));
+            // the batches together contain every connection once.
+            Assert.assertEquals(connectionEntityAddresses, croQueries.stream()
+                    .flatMap(query -> query.getConnectionEntityAddress().stream())
+                    .collect(toList()));
+        }
+    }
+
+    @Test
+    public void testHandleRetryEvent() throws Exception {
+        PowerMockito.when(config.getProperty(ConfigParam.HOST_DOMAIN)).thenReturn("mdc.usef-example.com");
+        PowerMockito.when(configMdc.getIntegerProperty(ConfigMdcParam.MDC_COMMON_REFERENCE_QUERY_RETRY_DELAY_IN_SECONDS))
+                .thenReturn(60);
+        CommonReferenceQuery failedQuery = new CommonReferenceQuery();
+        failedQuery.setMessageMetadata(new MessageMetadataBuilder().messageID()
+                .conversationID()
+                .recipientDomain("cro1.usef-example.com")
+                .build());
+        failedQuery.getConnectionEntityAddress().addAll(Arrays.asList("ean.000000000001", "ean.000000000002"));
+
+        coordinator.handleEvent(new CommonReferenceQueryRetryEvent(failedQuery, 1));
+
+        // the batch is not sent before the timer expires.
+        ArgumentCaptor<String> timerInfoCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(timerService, Mockito.times(1)).createTimer(Mockito.eq(60000L / DateTimeUtil.getTimeFactor()),
+                timerInfoCaptor.capture());
+        Mockito.verifyZeroInteractions(jmsHelperService);
+
+        PowerMockito.when(timer.getInfo()).thenReturn(timerInfoCaptor.getValue());
+        coordinator.timeoutAction(timer);
+
+        ArgumentCaptor<String> xmlMessageCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jmsHelperService, Mockito.times(1)).sendMessageToOutQueue(xmlMessageCaptor.capture());
+        CommonReferenceQuery query = XMLUtil.xmlToMessage(xmlMessageCaptor.getValue(), CommonReferenceQuery.class);
+        // same batch in the same conversation, as a new message.
+        Assert.assertEquals(failedQuery.getMessageMetadata().getConversationID(), query.getMessageMetadata().getConversationID());
+        Assert.assertNotEquals(failedQuery.getMessageMetadata().getMessageID(), query.getMessageMetadata().getMessageID());
+        Assert.assertEquals("cro1.usef-example.com", query.getMessageMetadata().getRecipientDomain());
+        Assert.assertEquals(failedQuery.getConnectionEntityAddress(), query.getConnectionEntityAddress());
+        Mockito.verifyZeroInteractions(mdcCoreBusinessService);
+    }
+
+    @Test
+    public void testHandleRetryEventDoublesTheDelayForEveryFailure() throws Exception {
+        PowerMockito.when(configMdc.getIntegerProperty(ConfigMdcParam.MDC_COMMON_REFERENCE_QUERY_RETRY_DELAY_IN_SECONDS))
+                .thenReturn(60);
+        CommonReferenceQuery failedQuery = new CommonReferenceQuery();
+        failedQuery.setMessageMetadata(new MessageMetadataBuilder().messageID()
+                .conversationID()
+                .recipientDomain("cro1.usef-example.com")
+                .build());
+
+        coordinator.handleEvent(new CommonReferenceQueryRetryEvent(failedQuery, 3));
+
+        Mockito.verify(timerService, Mockito.times(1)).createTimer(Mockito.eq(240000L / DateTimeUtil.getTimeFactor()),
+                Mockito.any(String.class));
+        Mockito.verifyZeroInteractions(jmsHelperService);
+    }
 }
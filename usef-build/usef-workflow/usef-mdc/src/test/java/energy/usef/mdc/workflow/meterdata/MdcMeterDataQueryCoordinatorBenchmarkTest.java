@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2016 USEF Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package energy.usef.mdc.workflow.meterdata;
+
+import energy.usef.mdc.dto.ConnectionMeterDataDto;
+import energy.usef.mdc.dto.PtuMeterDataDto;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of the merge of the PTU meter data of the connections of an aggregator, comparing the accumulation per PTU in an
+ * array with the grouping per start of {@link BigInteger} values it replaced. The benchmark needs about 2 GB of heap and only
+ * runs with <code>-Dusef.benchmark=true</code>.
+ */
+public class MdcMeterDataQueryCoordinatorBenchmarkTest {
+
+    private static final int CONNECTIONS = 100000;
+    private static final int PTUS = 96;
+    private static final int ROUNDS = 5;
+
+    @BeforeClass
+    public static void initTestFixture() {
+        Assume.assumeTrue(Boolean.getBoolean("usef.benchmark"));
+    }
+
+    @Test
+    public void testMergePtuMeterDataOfManyConnections() {
+        List<ConnectionMeterDataDto> connectionMeterDataDtos = buildConnectionMeterData(new Random(20160101L));
+
+        long arrayDuration = Long.MAX_VALUE;
+        long groupingDuration = Long.MAX_VALUE;
+        List<PtuMeterDataDto> merged = null;
+        List<PtuMeterDataDto> grouped = null;
+        // the best of a few rounds, the first rounds warm up the JIT compiler.
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            merged = MdcMeterDataQueryCoordinator.mergePtuMeterData(connectionMeterDataDtos);
+            arrayDuration = Math.min(arrayDuration, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            grouped = mergePtuMeterDataByGrouping(connectionMeterDataDtos);
+            groupingDuration = Math.min(groupingDuration, System.nanoTime() - start);
+        }
+
+        LoggerFactory.getLogger(MdcMeterDataQueryCoordinatorBenchmarkTest.class).info(
+                "PTU meter data of {} connections x {} PTUs merged in {} ms with an array, in {} ms by grouping", CONNECTIONS,
+                PTUS, arrayDuration / 1000000, groupingDuration / 1000000);
+
+        Assert.assertEquals(PTUS, merged.size());
+        for (int i = 0; i < PTUS; i++) {
+            Assert.assertEquals(grouped.get(i).getStart(), merged.get(i).getStart());
+            Assert.assertEquals(grouped.get(i).getPower(), merged.get(i).getPower());
+        }
+    }
+
+    private static List<ConnectionMeterDataDto> buildConnectionMeterData(Random random) {
+        BigInteger[] starts = new BigInteger[PTUS];
+        for (int i = 0; i < PTUS; i++) {
+            starts[i] = BigInteger.valueOf(i + 1);
+        }
+        List<ConnectionMeterDataDto> connectionMeterDataDtos = new ArrayList<>(CONNECTIONS);
+        for (int connection = 0; connection < CONNECTIONS; connection++) {
+            ConnectionMeterDataDto connectionMeterDataDto = new ConnectionMeterDataDto();
+            for (int i = 0; i < PTUS; i++) {
+                PtuMeterDataDto ptuMeterDataDto = new PtuMeterDataDto();
+                ptuMeterDataDto.setStart(starts[i]);
+                ptuMeterDataDto.setDuration(BigInteger.ONE);
+                ptuMeterDataDto.setPower(BigInteger.valueOf(random.nextInt(10000) - 2000));
+                connectionMeterDataDto.getPtuMeterDataDtos().add(ptuMeterDataDto);
+            }
+            connectionMeterDataDtos.add(connectionMeterDataDto);
+        }
+        return connectionMeterDataDtos;
+    }
+
+    /**
+     * The merge of the PTU meter data before the accumulation in an array, as reference.
+     */
+    private static List<PtuMeterDataDto> mergePtuMeterDataByGrouping(List<ConnectionMeterDataDto> connectionMeterDataList) {
+        return connectionMeterDataList.stream().flatMap(value -> value.getPtuMeterDataDtos().stream())
+                .collect(Collectors.groupingBy(PtuMeterDataDto::getStart, TreeMap::new, Collectors.toList())).entrySet().stream()
+                .map(ptuSet -> {
+                    PtuMeterDataDto ptuMeterDataDto = new PtuMeterDataDto();
+                    ptuMeterDataDto.setStart(ptuSet.getKey());
+                    ptuMeterDataDto.setDuration(BigInteger.ONE);
+                    ptuMeterDataDto.setPower(
+                            ptuSet.getValue().stream().map(PtuMeterDataDto::getPower).reduce(BigInteger::add).get());
+                    return ptuMeterDataDto;
+                }).collect(Collectors.toList());
+    }
+}
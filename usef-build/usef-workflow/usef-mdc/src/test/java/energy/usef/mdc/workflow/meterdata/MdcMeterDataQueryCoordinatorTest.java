@@ -17,19 +17,26 @@
 package energy.usef.mdc.workflow.meterdata;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
 import energy.usef.core.config.Config;
 import energy.usef.core.config.ConfigParam;
+import energy.usef.core.data.xml.bean.message.DispositionSuccessFailure;
 import energy.usef.core.data.xml.bean.message.MeterData;
 import energy.usef.core.data.xml.bean.message.MeterDataQuery;
+import energy.usef.core.data.xml.bean.message.MeterDataQueryResponse;
+import energy.usef.core.data.xml.bean.message.MeterDataSet;
 import energy.usef.core.data.xml.bean.message.Connections;
 import energy.usef.core.data.xml.bean.message.USEFRole;
 import energy.usef.core.service.helper.JMSHelperService;
 import energy.usef.core.service.helper.MessageMetadataBuilder;
+import energy.usef.core.util.XMLUtil;
 import energy.usef.core.workflow.DefaultWorkflowContext;
 import energy.usef.core.workflow.WorkflowContext;
 import energy.usef.core.workflow.step.WorkflowStepExecuter;
+import energy.usef.mdc.config.ConfigMdc;
+import energy.usef.mdc.config.ConfigMdcParam;
 import energy.usef.mdc.dto.ConnectionMeterDataDto;
 import energy.usef.mdc.dto.MeterDataDto;
 import energy.usef.mdc.dto.PtuMeterDataDto;
@@ -39,7 +46,11 @@ import energy.usef.mdc.workflow.MdcWorkflowStep;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -63,6 +74,9 @@ public class MdcMeterDataQueryCoordinatorTest {
     @Mock
     private Config config;
 
+    @Mock
+    private ConfigMdc configMdc;
+
     @Mock
     private MdcCoreBusinessService mdcCoreBusinessService;
 
@@ -75,11 +89,14 @@ public class MdcMeterDataQueryCoordinatorTest {
     public void init() {
         coordinator = new MdcMeterDataQueryCoordinator();
         Whitebox.setInternalState(coordinator, config);
+        Whitebox.setInternalState(coordinator, configMdc);
         Whitebox.setInternalState(coordinator, jmsHelperService);
         Whitebox.setInternalState(coordinator, mdcCoreBusinessService);
         Whitebox.setInternalState(coordinator, workflowStepExecuter);
         Mockito.when(config.getIntegerProperty(ConfigParam.PTU_DURATION)).thenReturn(15);
         Mockito.when(config.getProperty(ConfigParam.HOST_DOMAIN)).thenReturn("mdc.usef-example.com");
+        Mockito.when(configMdc.getIntegerProperty(ConfigMdcParam.MDC_METER_DATA_QUERY_THREAD_POOL_SIZE)).thenReturn(4);
+        Mockito.when(configMdc.getIntegerProperty(ConfigMdcParam.MDC_METER_DATA_QUERY_TIMEOUT_IN_SECONDS)).thenReturn(300);
     }
 
     @Test
@@ -93,10 +110,13 @@ public class MdcMeterDataQueryCoordinatorTest {
         Mockito.when(mdcCoreBusinessService.findDistributionSystemOperator(dsoDomain))
                 .thenReturn(new DistributionSystemOperator(dsoDomain));
 
-        Mockito.when(mdcCoreBusinessService.findConnectionState(Mockito.any(LocalDate.class),
-                Mockito.anyListOf(String.class))).thenReturn(IntStream.rangeClosed(0, 3)
+        Map<String, String> connectionStates = IntStream.rangeClosed(0, 3)
                 .mapToObj(i -> "ean." + i)
-                .collect(Collectors.toMap(Function.identity(), i -> "agr.usef-example.com")));
+                .collect(Collectors.toMap(Function.identity(), i -> "agr.usef-example.com"));
+        Mockito.when(mdcCoreBusinessService.findConnectionStates(dateRangeStart, dateRangeEnd,
+                Collections.singletonList("ean.12342143"))).thenReturn(IntStream.rangeClosed(0, 1)
+                .mapToObj(dateRangeStart::plusDays)
+                .collect(Collectors.toMap(Function.identity(), day -> connectionStates)));
 
         Mockito.when(workflowStepExecuter.invoke(Mockito.eq(MdcWorkflowStep.MDC_METER_DATA_QUERY.name()),
                 Mockito.any(WorkflowContext.class))).thenReturn(buildMeterDataContext(dateRangeStart));
@@ -122,6 +142,238 @@ public class MdcMeterDataQueryCoordinatorTest {
         assertTrue(captor.getValue().contains("EntityCount=\"4\""));
     }
 
+    @Test
+    public void testHandleEventFindsConnectionStatesOnceForAllDaysAndConnectionGroups() throws Exception {
+        final String dsoDomain = "dso.usef-example.com";
+        final LocalDate dateRangeStart = new LocalDate("2014-01-01");
+        final LocalDate dateRangeEnd = new LocalDate("2014-01-31");
+
+        MeterDataQueryEvent queryEvent = buildMeterDataQueryEvent(dsoDomain, dateRangeStart, dateRangeEnd);
+        Connections otherConnectionGroup = new Connections();
+        otherConnectionGroup.setParent("ean.222222222222");
+        otherConnectionGroup.getConnection().addAll(Arrays.asList("ean.12342143", "ean.56785678"));
+        queryEvent.getMeterDataQuery().getConnections().add(otherConnectionGroup);
+
+        Mockito.when(mdcCoreBusinessService.findDistributionSystemOperator(dsoDomain))
+                .thenReturn(new DistributionSystemOperator(dsoDomain));
+        Map<String, String> connectionStates = IntStream.rangeClosed(0, 3)
+                .mapToObj(i -> "ean." + i)
+                .collect(Collectors.toMap(Function.identity(), i -> "agr.usef-example.com"));
+        Mockito.when(mdcCoreBusinessService.findConnectionStates(Mockito.eq(dateRangeStart), Mockito.eq(dateRangeEnd),
+                Mockito.anyListOf(String.class))).thenReturn(IntStream.rangeClosed(0, 30)
+                .mapToObj(dateRangeStart::plusDays)
+                .collect(Collectors.toMap(Function.identity(), day -> connectionStates)));
+        Mockito.when(workflowStepExecuter.invoke(Mockito.eq(MdcWorkflowStep.MDC_METER_DATA_QUERY.name()),
+                Mockito.any(WorkflowContext.class))).then(invocation -> buildMeterDataContext(dateRangeStart, 31));
+
+        coordinator.handleEvent(queryEvent);
+
+        // one lookup for the 31 days of the 2 connection groups, with each connection once.
+        Mockito.verify(workflowStepExecuter, Mockito.times(2)).invoke(Mockito.eq(MdcWorkflowStep.MDC_METER_DATA_QUERY.name()),
+                Mockito.any(WorkflowContext.class));
+        Mockito.verify(mdcCoreBusinessService, Mockito.times(1)).findConnectionStates(dateRangeStart, dateRangeEnd,
+                Arrays.asList("ean.12342143", "ean.56785678"));
+        Mockito.verify(mdcCoreBusinessService, Mockito.never()).findConnectionState(Mockito.any(LocalDate.class),
+                Mockito.anyListOf(String.class));
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jmsHelperService, Mockito.times(1)).sendMessageToOutQueue(captor.capture());
+        MeterDataQueryResponse response = XMLUtil.xmlToMessage(captor.getValue(), MeterDataQueryResponse.class);
+        assertEquals(2, response.getMeterDataSet().size());
+        for (MeterDataSet meterDataSet : response.getMeterDataSet()) {
+            assertEquals(31, meterDataSet.getMeterData().size());
+        }
+    }
+
+    @Test
+    public void testHandleEventInvokesConnectionGroupsWithOwnContextInQueryOrder() throws Exception {
+        final String dsoDomain = "dso.usef-example.com";
+        final LocalDate dateRangeStart = new LocalDate("2014-01-01");
+        final LocalDate dateRangeEnd = new LocalDate("2014-01-02");
+
+        MeterDataQueryEvent queryEvent = buildMeterDataQueryEvent(dsoDomain, dateRangeStart, dateRangeEnd);
+        Connections otherConnectionGroup = new Connections();
+        otherConnectionGroup.setParent("ean.222222222222");
+        otherConnectionGroup.getConnection().add("ean.56785678");
+        queryEvent.getMeterDataQuery().getConnections().add(otherConnectionGroup);
+
+        Mockito.when(mdcCoreBusinessService.findDistributionSystemOperator(dsoDomain))
+                .thenReturn(new DistributionSystemOperator(dsoDomain));
+        Mockito.when(mdcCoreBusinessService.findConnectionStates(Mockito.eq(dateRangeStart), Mockito.eq(dateRangeEnd),
+                Mockito.anyListOf(String.class))).thenReturn(buildConnectionStates(dateRangeStart, 2));
+        // the first connection group finishes last.
+        Mockito.when(workflowStepExecuter.invoke(Mockito.eq(MdcWorkflowStep.MDC_METER_DATA_QUERY.name()),
+                Mockito.any(WorkflowContext.class))).then(invocation -> {
+            WorkflowContext context = (WorkflowContext) invocation.getArguments()[1];
+            if (context.getValue(MeterDataQueryStepParameter.IN.CONNECTIONS.name()).equals(
+                    Collections.singletonList("ean.12342143"))) {
+                Thread.sleep(200);
+            }
+            return buildMeterDataContext(dateRangeStart);
+        });
+
+        coordinator.handleEvent(queryEvent);
+
+        ArgumentCaptor<WorkflowContext> contextIn = ArgumentCaptor.forClass(WorkflowContext.class);
+        Mockito.verify(workflowStepExecuter, Mockito.times(2)).invoke(Mockito.eq(MdcWorkflowStep.MDC_METER_DATA_QUERY.name()),
+                contextIn.capture());
+        assertNotSame(contextIn.getAllValues().get(0), contextIn.getAllValues().get(1));
+        assertEquals(Arrays.asList(Collections.singletonList("ean.12342143"), Collections.singletonList("ean.56785678")),
+                contextIn.getAllValues().stream()
+                        .map(context -> context.getValue(MeterDataQueryStepParameter.IN.CONNECTIONS.name()))
+                        .sorted((connections1, connections2) -> connections1.toString().compareTo(connections2.toString()))
+                        .collect(Collectors.toList()));
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jmsHelperService, Mockito.times(1)).sendMessageToOutQueue(captor.capture());
+        MeterDataQueryResponse response = XMLUtil.xmlToMessage(captor.getValue(), MeterDataQueryResponse.class);
+        assertEquals(DispositionSuccessFailure.SUCCESS, response.getResult());
+        assertEquals(Arrays.asList("ean.111111111111", "ean.222222222222"),
+                response.getMeterDataSet().stream().map(MeterDataSet::getEntityAddress).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testHandleEventReportsTimedOutConnectionGroups() throws Exception {
+        final String dsoDomain = "dso.usef-example.com";
+        final LocalDate dateRangeStart = new LocalDate("2014-01-01");
+        final LocalDate dateRangeEnd = new LocalDate("2014-01-02");
+
+        MeterDataQueryEvent queryEvent = buildMeterDataQueryEvent(dsoDomain, dateRangeStart, dateRangeEnd);
+        Connections blockedConnectionGroup = new Connections();
+        blockedConnectionGroup.setParent("ean.222222222222");
+        blockedConnectionGroup.getConnection().add("ean.56785678");
+        queryEvent.getMeterDataQuery().getConnections().add(blockedConnectionGroup);
+
+        Mockito.when(configMdc.getIntegerProperty(ConfigMdcParam.MDC_METER_DATA_QUERY_TIMEOUT_IN_SECONDS)).thenReturn(1);
+        Mockito.when(mdcCoreBusinessService.findDistributionSystemOperator(dsoDomain))
+                .thenReturn(new DistributionSystemOperator(dsoDomain));
+        Mockito.when(mdcCoreBusinessService.findConnectionStates(Mockito.eq(dateRangeStart), Mockito.eq(dateRangeEnd),
+                Mockito.anyListOf(String.class))).thenReturn(buildConnectionStates(dateRangeStart, 2));
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(workflowStepExecuter.invoke(Mockito.eq(MdcWorkflowStep.MDC_METER_DATA_QUERY.name()),
+                Mockito.any(WorkflowContext.class))).then(invocation -> {
+            WorkflowContext context = (WorkflowContext) invocation.getArguments()[1];
+            if (context.getValue(MeterDataQueryStepParameter.IN.CONNECTIONS.name()).equals(
+                    Collections.singletonList("ean.56785678"))) {
+                release.await();
+            }
+            return buildMeterDataContext(dateRangeStart);
+        });
+
+        try {
+            coordinator.handleEvent(queryEvent);
+        } finally {
+            release.countDown();
+        }
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jmsHelperService, Mockito.times(1)).sendMessageToOutQueue(captor.capture());
+        MeterDataQueryResponse response = XMLUtil.xmlToMessage(captor.getValue(), MeterDataQueryResponse.class);
+        // partial result, with the failure details of the connection group which timed out.
+        assertEquals(DispositionSuccessFailure.SUCCESS, response.getResult());
+        assertEquals(1, response.getMeterDataSet().size());
+        assertEquals("ean.111111111111", response.getMeterDataSet().get(0).getEntityAddress());
+        assertEquals("No data available for the connection groups [ean.222222222222], the query timed out.",
+                response.getMessage());
+    }
+
+    @Test
+    public void testHandleEventReportsFailedConnectionGroups() throws Exception {
+        final String dsoDomain = "dso.usef-example.com";
+        final LocalDate dateRangeStart = new LocalDate("2014-01-01");
+        final LocalDate dateRangeEnd = new LocalDate("2014-01-02");
+
+        MeterDataQueryEvent queryEvent = buildMeterDataQueryEvent(dsoDomain, dateRangeStart, dateRangeEnd);
+        Connections failingConnectionGroup = new Connections();
+        failingConnectionGroup.setParent("ean.222222222222");
+        failingConnectionGroup.getConnection().add("ean.56785678");
+        queryEvent.getMeterDataQuery().getConnections().add(failingConnectionGroup);
+
+        Mockito.when(mdcCoreBusinessService.findDistributionSystemOperator(dsoDomain))
+                .thenReturn(new DistributionSystemOperator(dsoDomain));
+        Mockito.when(mdcCoreBusinessService.findConnectionStates(Mockito.eq(dateRangeStart), Mockito.eq(dateRangeEnd),
+                Mockito.anyListOf(String.class))).thenReturn(buildConnectionStates(dateRangeStart, 2));
+        Mockito.when(workflowStepExecuter.invoke(Mockito.eq(MdcWorkflowStep.MDC_METER_DATA_QUERY.name()),
+                Mockito.any(WorkflowContext.class))).then(invocation -> {
+            WorkflowContext context = (WorkflowContext) invocation.getArguments()[1];
+            if (context.getValue(MeterDataQueryStepParameter.IN.CONNECTIONS.name()).equals(
+                    Collections.singletonList("ean.56785678"))) {
+                throw new IllegalStateException("meter data not available");
+            }
+            return buildMeterDataContext(dateRangeStart);
+        });
+
+        coordinator.handleEvent(queryEvent);
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jmsHelperService, Mockito.times(1)).sendMessageToOutQueue(captor.capture());
+        MeterDataQueryResponse response = XMLUtil.xmlToMessage(captor.getValue(), MeterDataQueryResponse.class);
+        // partial result, with the failure details of the connection group which failed.
+        assertEquals(DispositionSuccessFailure.SUCCESS, response.getResult());
+        assertEquals(1, response.getMeterDataSet().size());
+        assertEquals("ean.111111111111", response.getMeterDataSet().get(0).getEntityAddress());
+        assertEquals("No data available for the connection groups [ean.222222222222], the meter data could not be retrieved.",
+                response.getMessage());
+    }
+
+    @Test
+    public void testHandleEventWithThreadPoolSizeLowerThanOne() throws Exception {
+        final String dsoDomain = "dso.usef-example.com";
+        final LocalDate dateRangeStart = new LocalDate("2014-01-01");
+        final LocalDate dateRangeEnd = new LocalDate("2014-01-02");
+
+        Mockito.when(configMdc.getIntegerProperty(ConfigMdcParam.MDC_METER_DATA_QUERY_THREAD_POOL_SIZE)).thenReturn(0);
+        Mockito.when(mdcCoreBusinessService.findDistributionSystemOperator(dsoDomain))
+                .thenReturn(new DistributionSystemOperator(dsoDomain));
+        Mockito.when(mdcCoreBusinessService.findConnectionStates(Mockito.eq(dateRangeStart), Mockito.eq(dateRangeEnd),
+                Mockito.anyListOf(String.class))).thenReturn(buildConnectionStates(dateRangeStart, 2));
+        Mockito.when(workflowStepExecuter.invoke(Mockito.eq(MdcWorkflowStep.MDC_METER_DATA_QUERY.name()),
+                Mockito.any(WorkflowContext.class))).thenReturn(buildMeterDataContext(dateRangeStart));
+
+        coordinator.handleEvent(buildMeterDataQueryEvent(dsoDomain, dateRangeStart, dateRangeEnd));
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jmsHelperService, Mockito.times(1)).sendMessageToOutQueue(captor.capture());
+        MeterDataQueryResponse response = XMLUtil.xmlToMessage(captor.getValue(), MeterDataQueryResponse.class);
+        assertEquals(DispositionSuccessFailure.SUCCESS, response.getResult());
+    }
+
+    @Test
+    public void testMergePtuMeterData() {
+        BigInteger beyondLong = BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.TEN);
+        List<ConnectionMeterDataDto> connectionMeterDataDtos = Arrays.asList(
+                buildConnectionMeterData(3, 5L, 1, 7L, 2, Long.MAX_VALUE),
+                buildConnectionMeterData(2, 1L, 3, -2L, 1, 3L),
+                buildConnectionMeterData(2, 10L),
+                buildConnectionMeterData(5, 4L));
+        connectionMeterDataDtos.get(3).getPtuMeterDataDtos().get(0).setPower(beyondLong);
+
+        List<PtuMeterDataDto> ptuMeterDataDtos = MdcMeterDataQueryCoordinator.mergePtuMeterData(connectionMeterDataDtos);
+
+        // ordered by start, the sums which do not fit in a long as BigInteger.
+        assertEquals(Arrays.asList("1", "2", "3", "5"), ptuMeterDataDtos.stream()
+                .map(ptuMeterDataDto -> ptuMeterDataDto.getStart().toString())
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(BigInteger.TEN, BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.valueOf(11)),
+                BigInteger.valueOf(3), beyondLong), ptuMeterDataDtos.stream()
+                .map(PtuMeterDataDto::getPower)
+                .collect(Collectors.toList()));
+        ptuMeterDataDtos.forEach(ptuMeterDataDto -> assertEquals(BigInteger.ONE, ptuMeterDataDto.getDuration()));
+    }
+
+    @Test
+    public void testMergePtuMeterDataWithStartsFarApart() {
+        List<PtuMeterDataDto> ptuMeterDataDtos = MdcMeterDataQueryCoordinator.mergePtuMeterData(Arrays.asList(
+                buildConnectionMeterData(1_000_000, 1L, 1, 2L),
+                buildConnectionMeterData(1, 3L)));
+
+        assertEquals(2, ptuMeterDataDtos.size());
+        assertEquals(BigInteger.ONE, ptuMeterDataDtos.get(0).getStart());
+        assertEquals(BigInteger.valueOf(5), ptuMeterDataDtos.get(0).getPower());
+        assertEquals(BigInteger.valueOf(1_000_000), ptuMeterDataDtos.get(1).getStart());
+        assertEquals(BigInteger.ONE, ptuMeterDataDtos.get(1).getPower());
+    }
+
     private MeterDataQueryEvent buildMeterDataQueryEvent(String dsoDomain, LocalDate dateRangeStart, LocalDate dateRangeEnd) {
         MeterDataQuery query = new MeterDataQuery();
         query.setDateRangeStart(dateRangeStart);
@@ -190,9 +442,37 @@ public class MdcMeterDataQueryCoordinatorTest {
         assertTrue(captor.getValue().contains("Result=\"Failure\""));
     }
 
+    /**
+     * Builds the meter data of a connection from pairs of PTU start and power.
+     */
+    private static ConnectionMeterDataDto buildConnectionMeterData(Object... startsAndPowers) {
+        ConnectionMeterDataDto connectionMeterDataDto = new ConnectionMeterDataDto();
+        for (int i = 0; i < startsAndPowers.length; i += 2) {
+            PtuMeterDataDto ptuMeterDataDto = new PtuMeterDataDto();
+            ptuMeterDataDto.setStart(BigInteger.valueOf((Integer) startsAndPowers[i]));
+            ptuMeterDataDto.setDuration(BigInteger.ONE);
+            ptuMeterDataDto.setPower(BigInteger.valueOf((Long) startsAndPowers[i + 1]));
+            connectionMeterDataDto.getPtuMeterDataDtos().add(ptuMeterDataDto);
+        }
+        return connectionMeterDataDto;
+    }
+
+    private Map<LocalDate, Map<String, String>> buildConnectionStates(LocalDate dateRangeStart, int days) {
+        Map<String, String> connectionStates = IntStream.rangeClosed(0, 3)
+                .mapToObj(i -> "ean." + i)
+                .collect(Collectors.toMap(Function.identity(), i -> "agr.usef-example.com"));
+        return IntStream.range(0, days)
+                .mapToObj(dateRangeStart::plusDays)
+                .collect(Collectors.toMap(Function.identity(), day -> connectionStates));
+    }
+
     private WorkflowContext buildMeterDataContext(LocalDate dateRangeStart) {
+        return buildMeterDataContext(dateRangeStart, 2);
+    }
+
+    private WorkflowContext buildMeterDataContext(LocalDate dateRangeStart, int days) {
         WorkflowContext workflowContext = new DefaultWorkflowContext();
-        List<MeterDataDto> meterDataDtos = IntStream.rangeClosed(0, 1).mapToObj(dateRangeStart::plusDays).map(day -> {
+        List<MeterDataDto> meterDataDtos = IntStream.range(0, days).mapToObj(dateRangeStart::plusDays).map(day -> {
             MeterDataDto meterDataDto = new MeterDataDto();
             meterDataDto.setPeriod(day);
             meterDataDto.getConnectionMeterDataDtos().addAll(